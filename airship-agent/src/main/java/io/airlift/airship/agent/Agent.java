@@ -22,6 +22,8 @@ import com.google.inject.Inject;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.SlotStatus;
+import io.airlift.airship.shared.VersionConflictException;
+import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.http.server.HttpServerInfo;
 import io.airlift.node.NodeInfo;
 import io.airlift.units.Duration;
@@ -31,6 +33,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
@@ -38,9 +41,14 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import static com.google.common.collect.Maps.newLinkedHashMap;
 import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
 import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.airship.shared.SlotLifecycleState.TERMINATED;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.createServiceDescriptorVersion;
+import static io.airlift.airship.shared.VersionsUtil.createServiceInventoryVersion;
+import static io.airlift.airship.shared.VersionsUtil.createServiceInventoryVersionFromDescriptorVersions;
 import static java.lang.String.format;
 
 public class Agent
@@ -54,6 +62,11 @@ public class Agent
     private final Duration maxLockWait;
     private final URI internalUri;
     private final URI externalUri;
+    private final SlotEventLog slotEventLog = new SlotEventLog();
+
+    // service descriptors pushed by the coordinator, indexed by descriptor version
+    private Map<String, ServiceDescriptor> serviceInventory = ImmutableMap.of();
+    private String serviceInventoryVersion = createServiceInventoryVersion(ImmutableList.<ServiceDescriptor>of());
 
     @Inject
     public Agent(AgentConfig config,
@@ -170,11 +183,18 @@ public class Agent
         return location;
     }
 
+    public SlotEventLog getSlotEventLog()
+    {
+        return slotEventLog;
+    }
+
     public AgentStatus getAgentStatus()
     {
         Builder<SlotStatus> builder = ImmutableList.builder();
         for (Slot slot : slots.values()) {
             SlotStatus slotStatus = slot.status();
+            // every fresh status is recorded so state changes reach slot event subscribers
+            slotEventLog.record(slotStatus);
             builder.add(slotStatus);
         }
         AgentStatus agentStatus = new AgentStatus(agentId, ONLINE, null, internalUri, externalUri, location, null, builder.build(), resources);
@@ -202,7 +222,9 @@ public class Agent
         slots.put(slotId, slot);
 
         // return last slot status
-        return slot.getLastSlotStatus();
+        SlotStatus slotStatus = slot.getLastSlotStatus();
+        slotEventLog.record(slotStatus);
+        return slotStatus;
     }
 
     public SlotStatus terminateSlot(UUID slotId)
@@ -218,6 +240,7 @@ public class Agent
         if (status.getState() == TERMINATED) {
             slots.remove(slotId);
         }
+        slotEventLog.record(status);
         return status;
     }
 
@@ -225,5 +248,61 @@ public class Agent
     {
         return ImmutableList.copyOf(slots.values());
     }
+
+    public synchronized List<ServiceDescriptor> getServiceInventory()
+    {
+        return ImmutableList.copyOf(serviceInventory.values());
+    }
+
+    public synchronized String getServiceInventoryVersion()
+    {
+        return serviceInventoryVersion;
+    }
+
+    public synchronized String setServiceInventory(List<ServiceDescriptor> serviceDescriptors)
+    {
+        Preconditions.checkNotNull(serviceDescriptors, "serviceDescriptors is null");
+
+        Map<String, ServiceDescriptor> serviceInventory = newLinkedHashMap();
+        for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            serviceInventory.put(createServiceDescriptorVersion(serviceDescriptor), serviceDescriptor);
+        }
+        this.serviceInventory = ImmutableMap.copyOf(serviceInventory);
+        this.serviceInventoryVersion = createServiceInventoryVersionFromDescriptorVersions(serviceInventory.keySet());
+        return serviceInventoryVersion;
+    }
+
+    /**
+     * Applies the changes to the current service inventory.  The update is only
+     * applied if the current version is baseVersion and the result has the
+     * expected version; otherwise a VersionConflictException with the current
+     * version is thrown.
+     */
+    public synchronized String updateServiceInventory(String baseVersion, String version, List<ServiceDescriptor> added, List<String> removed)
+    {
+        Preconditions.checkNotNull(baseVersion, "baseVersion is null");
+        Preconditions.checkNotNull(version, "version is null");
+        Preconditions.checkNotNull(added, "added is null");
+        Preconditions.checkNotNull(removed, "removed is null");
+
+        if (!baseVersion.equals(serviceInventoryVersion)) {
+            throw new VersionConflictException(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, serviceInventoryVersion);
+        }
+
+        Map<String, ServiceDescriptor> serviceInventory = newLinkedHashMap(this.serviceInventory);
+        serviceInventory.keySet().removeAll(removed);
+        for (ServiceDescriptor serviceDescriptor : added) {
+            serviceInventory.put(createServiceDescriptorVersion(serviceDescriptor), serviceDescriptor);
+        }
+
+        String newVersion = createServiceInventoryVersionFromDescriptorVersions(serviceInventory.keySet());
+        if (!version.equals(newVersion)) {
+            throw new VersionConflictException(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, serviceInventoryVersion);
+        }
+
+        this.serviceInventory = ImmutableMap.copyOf(serviceInventory);
+        this.serviceInventoryVersion = newVersion;
+        return serviceInventoryVersion;
+    }
 }
 
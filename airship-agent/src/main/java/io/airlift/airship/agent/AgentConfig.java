@@ -17,6 +17,7 @@ import com.google.common.base.Preconditions;
 import io.airlift.configuration.Config;
 import io.airlift.units.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.concurrent.TimeUnit;
 
@@ -28,6 +29,8 @@ public class AgentConfig
     private Duration launcherStopTimeout = new Duration(10, TimeUnit.SECONDS);
     private Duration tarTimeout = new Duration(1, TimeUnit.MINUTES);
     private Duration maxLockWait = new Duration(1, TimeUnit.SECONDS);
+    private Duration slotStatusCheckInterval = new Duration(5, TimeUnit.SECONDS);
+    private int batchMaxConcurrency = 8;
 
     @NotNull
     public String getSlotsDir()
@@ -110,4 +113,30 @@ public class AgentConfig
         this.maxLockWait = lockWait;
         return this;
     }
+
+    @NotNull
+    public Duration getSlotStatusCheckInterval()
+    {
+        return slotStatusCheckInterval;
+    }
+
+    @Config("agent.slot-status.check-interval")
+    public AgentConfig setSlotStatusCheckInterval(Duration slotStatusCheckInterval)
+    {
+        this.slotStatusCheckInterval = slotStatusCheckInterval;
+        return this;
+    }
+
+    @Min(1)
+    public int getBatchMaxConcurrency()
+    {
+        return batchMaxConcurrency;
+    }
+
+    @Config("agent.batch.max-concurrency")
+    public AgentConfig setBatchMaxConcurrency(int batchMaxConcurrency)
+    {
+        this.batchMaxConcurrency = batchMaxConcurrency;
+        return this;
+    }
 }
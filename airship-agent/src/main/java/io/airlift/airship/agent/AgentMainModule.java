@@ -32,10 +32,13 @@ public class AgentMainModule
         MBeanModule.newExporter(binder).export(Agent.class).withGeneratedName();
 
         binder.bind(AgentResource.class).in(Scopes.SINGLETON);
+        binder.bind(SlotEventResource.class).in(Scopes.SINGLETON);
+        binder.bind(SlotStatusMonitor.class).in(Scopes.SINGLETON);
 
         binder.bind(SlotResource.class).in(Scopes.SINGLETON);
         binder.bind(AssignmentResource.class).in(Scopes.SINGLETON);
         binder.bind(LifecycleResource.class).in(Scopes.SINGLETON);
+        binder.bind(BatchLifecycleResource.class).in(Scopes.SINGLETON);
         binder.bind(VersionConflictExceptionMapper.class).in(Scopes.SINGLETON);
 
         binder.bind(DeploymentManagerFactory.class).to(DirectoryDeploymentManagerFactory.class).in(Scopes.SINGLETON);
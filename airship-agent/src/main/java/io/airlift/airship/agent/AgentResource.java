@@ -14,17 +14,22 @@
 package io.airlift.airship.agent;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
 import com.google.inject.Inject;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
 import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENT_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER;
 
 @Path("/v1/agent/")
 public class AgentResource
@@ -41,12 +46,38 @@ public class AgentResource
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllSlotsStatus()
+    public Response getAllSlotsStatus(@HeaderParam(IF_NONE_MATCH) String ifNoneMatch)
     {
         AgentStatus agentStatus = agent.getAgentStatus();
+        EntityTag entityTag = new EntityTag(agentStatus.getVersion());
+
+        // the coordinator already has this status, so skip building the representation
+        if (matches(ifNoneMatch, entityTag)) {
+            return Response.notModified(entityTag)
+                    .header(AIRSHIP_AGENT_VERSION_HEADER, agentStatus.getVersion())
+                    .header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, agent.getServiceInventoryVersion())
+                    .build();
+        }
+
         AgentStatusRepresentation agentStatusRepresentation = AgentStatusRepresentation.from(agentStatus);
         return Response.ok(agentStatusRepresentation)
+                .tag(entityTag)
                 .header(AIRSHIP_AGENT_VERSION_HEADER, agentStatus.getVersion())
+                .header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, agent.getServiceInventoryVersion())
                 .build();
     }
+
+    private static boolean matches(String ifNoneMatch, EntityTag entityTag)
+    {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String quotedTag = "\"" + entityTag.getValue() + "\"";
+        for (String tag : Splitter.on(',').trimResults().omitEmptyStrings().split(ifNoneMatch)) {
+            if (tag.equals("*") || tag.equals(quotedTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,157 @@
+package io.airlift.airship.agent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import io.airlift.airship.shared.SlotOperationRepresentation;
+import io.airlift.airship.shared.SlotOperationResultRepresentation;
+import io.airlift.airship.shared.SlotStatus;
+import io.airlift.airship.shared.VersionConflictException;
+
+import javax.annotation.PreDestroy;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENT_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.checkAgentVersion;
+import static io.airlift.airship.shared.VersionsUtil.checkSlotVersion;
+
+/**
+ * Applies lifecycle changes and assignments to many slots in one request.
+ * The operations run in parallel, up to the configured limit, and the
+ * response holds one result per operation in request order.  A failed
+ * operation does not fail the others.
+ */
+@Path("/v1/agent/slot/batch")
+public class BatchLifecycleResource
+{
+    private final Agent agent;
+    private final ThreadPoolExecutor executor;
+
+    @Inject
+    public BatchLifecycleResource(Agent agent, AgentConfig config)
+    {
+        Preconditions.checkNotNull(agent, "agent must not be null");
+        Preconditions.checkNotNull(config, "config must not be null");
+
+        this.agent = agent;
+        executor = new ThreadPoolExecutor(config.getBatchMaxConcurrency(),
+                config.getBatchMaxConcurrency(),
+                1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("slot-batch-%s").build());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response apply(@HeaderParam(AIRSHIP_AGENT_VERSION_HEADER) String agentVersion, List<SlotOperationRepresentation> operations)
+    {
+        Preconditions.checkNotNull(operations, "operations must not be null");
+
+        // two operations on one slot would race for the slot lock
+        Set<UUID> slotIds = new HashSet<>();
+        boolean assignment = false;
+        for (SlotOperationRepresentation operation : operations) {
+            if (operation == null || operation.getSlotId() == null || !slotIds.add(operation.getSlotId())) {
+                return Response.status(Response.Status.BAD_REQUEST).build();
+            }
+            assignment |= operation.getInstallation() != null;
+        }
+
+        if (assignment) {
+            checkAgentVersion(agent.getAgentStatus(), agentVersion);
+        }
+
+        List<Future<SlotOperationResultRepresentation>> futures = new ArrayList<>();
+        for (final SlotOperationRepresentation operation : operations) {
+            futures.add(executor.submit(new Callable<SlotOperationResultRepresentation>()
+            {
+                @Override
+                public SlotOperationResultRepresentation call()
+                {
+                    return applyOperation(operation);
+                }
+            }));
+        }
+
+        ImmutableList.Builder<SlotOperationResultRepresentation> results = ImmutableList.builder();
+        for (int i = 0; i < futures.size(); i++) {
+            UUID slotId = operations.get(i).getSlotId();
+            try {
+                results.add(futures.get(i).get());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(SlotOperationResultRepresentation.failure(slotId, null, "Interrupted"));
+            }
+            catch (ExecutionException e) {
+                results.add(SlotOperationResultRepresentation.failure(slotId, null, String.valueOf(e.getCause().getMessage())));
+            }
+        }
+
+        return Response.ok(results.build())
+                .header(AIRSHIP_AGENT_VERSION_HEADER, agent.getAgentStatus().getVersion())
+                .build();
+    }
+
+    private SlotOperationResultRepresentation applyOperation(SlotOperationRepresentation operation)
+    {
+        Slot slot = agent.getSlot(operation.getSlotId());
+        if (slot == null) {
+            return SlotOperationResultRepresentation.failure(operation.getSlotId(), null, "Slot not found");
+        }
+
+        try {
+            checkSlotVersion(slot.status(), operation.getSlotVersion());
+
+            SlotStatus status;
+            if (operation.getInstallation() != null) {
+                status = slot.assign(operation.getInstallation().toInstallation());
+            }
+            else if ("running".equals(operation.getState())) {
+                status = slot.start();
+            }
+            else if ("restarting".equals(operation.getState())) {
+                status = slot.restart();
+            }
+            else if ("stopped".equals(operation.getState())) {
+                status = slot.stop();
+            }
+            else {
+                return SlotOperationResultRepresentation.failure(operation.getSlotId(), slot.status(), "Unsupported state: " + operation.getState());
+            }
+            return SlotOperationResultRepresentation.success(status);
+        }
+        catch (VersionConflictException e) {
+            return SlotOperationResultRepresentation.failure(operation.getSlotId(), slot.status(), e.getMessage());
+        }
+        catch (RuntimeException e) {
+            return SlotOperationResultRepresentation.failure(operation.getSlotId(), slot.status(), String.valueOf(e.getMessage()));
+        }
+    }
+}
@@ -13,8 +13,8 @@
  */
 package io.airlift.airship.agent;
 
-import com.google.common.collect.ImmutableList;
-import io.airlift.discovery.client.DiscoveryException;
+import com.google.common.base.Preconditions;
+import io.airlift.airship.shared.ServiceInventoryDeltaRepresentation;
 import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
 import io.airlift.node.NodeInfo;
@@ -22,35 +22,42 @@ import io.airlift.node.NodeInfo;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.List;
 
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.createServiceInventoryVersion;
 import static java.lang.String.format;
 
 @Path("/v1/serviceInventory")
 public class ServiceInventoryResource
 {
     private final String environment;
-    private final AtomicReference<ServiceDescriptorsRepresentation> descriptor = new AtomicReference<ServiceDescriptorsRepresentation>();
+    private final Agent agent;
 
     @Inject
-    public ServiceInventoryResource(NodeInfo nodeInfo)
+    public ServiceInventoryResource(NodeInfo nodeInfo, Agent agent)
     {
+        Preconditions.checkNotNull(agent, "agent is null");
+
         environment = nodeInfo.getEnvironment();
-        descriptor.set(new ServiceDescriptorsRepresentation(environment, ImmutableList.<ServiceDescriptor>of()));
+        this.agent = agent;
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getServiceInventory()
     {
-        ServiceDescriptorsRepresentation descriptor = this.descriptor.get();
-        return Response.ok(descriptor).build();
+        List<ServiceDescriptor> serviceDescriptors = agent.getServiceInventory();
+        return Response.ok(new ServiceDescriptorsRepresentation(environment, serviceDescriptors))
+                .header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, createServiceInventoryVersion(serviceDescriptors))
+                .build();
     }
 
     @PUT
@@ -60,8 +67,27 @@ public class ServiceInventoryResource
         if (!environment.equals(descriptor.getEnvironment())) {
             return Response.status(Status.BAD_REQUEST).entity(format("Expected environment to be %s, but was %s", environment, descriptor.getEnvironment())).build();
         }
-        this.descriptor.set(descriptor);
-        return Response.ok().build();
+        String version = agent.setServiceInventory(descriptor.getServiceDescriptors());
+        return Response.ok()
+                .header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, version)
+                .build();
     }
 
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response updateServiceInventory(ServiceInventoryDeltaRepresentation delta)
+    {
+        if (!environment.equals(delta.getEnvironment())) {
+            return Response.status(Status.BAD_REQUEST).entity(format("Expected environment to be %s, but was %s", environment, delta.getEnvironment())).build();
+        }
+        if (delta.getBaseVersion() == null || delta.getVersion() == null) {
+            return Response.status(Status.BAD_REQUEST).entity("Base version and version are required").build();
+        }
+
+        // throws a version conflict with the current version if the delta does not apply
+        String version = agent.updateServiceInventory(delta.getBaseVersion(), delta.getVersion(), delta.getAdded(), delta.getRemoved());
+        return Response.ok()
+                .header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, version)
+                .build();
+    }
 }
@@ -0,0 +1,205 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airship.agent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import io.airlift.airship.shared.SlotStatus;
+import io.airlift.units.Duration;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static io.airlift.airship.shared.SlotLifecycleState.TERMINATED;
+
+/**
+ * Sequence of slot state changes on this agent.  Only the latest status of
+ * each slot is retained, so a reader that falls behind receives the current
+ * state of every slot that changed rather than every intermediate state.
+ */
+public class SlotEventLog
+{
+    private static final int MAX_TERMINATED_SLOTS = 100;
+
+    // identifies this log instance so readers notice when the agent restarts
+    private final String streamId = UUID.randomUUID().toString();
+
+    private final Map<UUID, SlotEvent> events = newHashMap();
+    private long sequence;
+
+    // readers positioned before this sequence may have missed a discarded terminated slot
+    private long oldestSequence;
+
+    public String getStreamId()
+    {
+        return streamId;
+    }
+
+    public synchronized long getSequence()
+    {
+        return sequence;
+    }
+
+    public synchronized void record(SlotStatus slotStatus)
+    {
+        Preconditions.checkNotNull(slotStatus, "slotStatus is null");
+
+        SlotEvent existing = events.get(slotStatus.getId());
+        if (existing != null && existing.getSlotStatus().getVersion().equals(slotStatus.getVersion())) {
+            return;
+        }
+
+        sequence++;
+        events.put(slotStatus.getId(), new SlotEvent(sequence, slotStatus));
+        if (slotStatus.getState() == TERMINATED) {
+            discardTerminatedSlots();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the slot changes after the specified position, waiting up to
+     * maxWait for a change if there are none.
+     */
+    public synchronized SlotEvents getEvents(String streamId, long since, Duration maxWait)
+            throws InterruptedException
+    {
+        Preconditions.checkNotNull(maxWait, "maxWait is null");
+
+        if (!this.streamId.equals(streamId) || since < oldestSequence || since > sequence) {
+            return new SlotEvents(this.streamId, sequence, true, ImmutableList.<SlotStatus>of());
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos((long) maxWait.toMillis());
+        while (sequence == since) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+
+        List<SlotEvent> changes = newArrayList();
+        for (SlotEvent event : events.values()) {
+            if (event.getSequence() > since) {
+                changes.add(event);
+            }
+        }
+        Collections.sort(changes, SlotEvent.sequenceComparator());
+
+        ImmutableList.Builder<SlotStatus> slots = ImmutableList.builder();
+        for (SlotEvent change : changes) {
+            slots.add(change.getSlotStatus());
+        }
+        return new SlotEvents(this.streamId, sequence, false, slots.build());
+    }
+
+    private void discardTerminatedSlots()
+    {
+        List<SlotEvent> terminated = newArrayList();
+        for (SlotEvent event : events.values()) {
+            if (event.getSlotStatus().getState() == TERMINATED) {
+                terminated.add(event);
+            }
+        }
+        if (terminated.size() <= MAX_TERMINATED_SLOTS) {
+            return;
+        }
+
+        Collections.sort(terminated, SlotEvent.sequenceComparator());
+        Iterator<SlotEvent> iterator = terminated.iterator();
+        for (int i = terminated.size(); i > MAX_TERMINATED_SLOTS; i--) {
+            SlotEvent event = iterator.next();
+            events.remove(event.getSlotStatus().getId());
+            oldestSequence = Math.max(oldestSequence, event.getSequence());
+        }
+    }
+
+    public static class SlotEvents
+    {
+        private final String streamId;
+        private final long sequence;
+        private final boolean resync;
+        private final List<SlotStatus> slots;
+
+        public SlotEvents(String streamId, long sequence, boolean resync, List<SlotStatus> slots)
+        {
+            this.streamId = streamId;
+            this.sequence = sequence;
+            this.resync = resync;
+            this.slots = ImmutableList.copyOf(slots);
+        }
+
+        public String getStreamId()
+        {
+            return streamId;
+        }
+
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        public boolean isResync()
+        {
+            return resync;
+        }
+
+        public List<SlotStatus> getSlots()
+        {
+            return slots;
+        }
+    }
+
+    private static class SlotEvent
+    {
+        private final long sequence;
+        private final SlotStatus slotStatus;
+
+        private SlotEvent(long sequence, SlotStatus slotStatus)
+        {
+            this.sequence = sequence;
+            this.slotStatus = slotStatus;
+        }
+
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        public SlotStatus getSlotStatus()
+        {
+            return slotStatus;
+        }
+
+        public static Comparator<SlotEvent> sequenceComparator()
+        {
+            return new Comparator<SlotEvent>()
+            {
+                @Override
+                public int compare(SlotEvent o1, SlotEvent o2)
+                {
+                    return Long.compare(o1.getSequence(), o2.getSequence());
+                }
+            };
+        }
+    }
+}
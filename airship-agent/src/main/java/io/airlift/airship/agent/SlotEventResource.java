@@ -0,0 +1,72 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airship.agent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+import io.airlift.airship.agent.SlotEventLog.SlotEvents;
+import io.airlift.airship.shared.SlotEventsRepresentation;
+import io.airlift.airship.shared.SlotStatus;
+import io.airlift.airship.shared.SlotStatusRepresentation;
+import io.airlift.units.Duration;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
+
+@Path("/v1/agent/events")
+public class SlotEventResource
+{
+    private static final long MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Agent agent;
+
+    @Inject
+    public SlotEventResource(Agent agent)
+    {
+        Preconditions.checkNotNull(agent, "agent is null");
+
+        this.agent = agent;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSlotEvents(@QueryParam("stream") String streamId,
+            @QueryParam("since") @DefaultValue("0") long since,
+            @QueryParam("maxWait") @DefaultValue("30000") long maxWaitMillis)
+    {
+        Duration maxWait = new Duration(Math.max(0, Math.min(maxWaitMillis, MAX_WAIT_MILLIS)), TimeUnit.MILLISECONDS);
+
+        SlotEvents events;
+        try {
+            events = agent.getSlotEventLog().getEvents(streamId, since, maxWait);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+
+        ImmutableList.Builder<SlotStatusRepresentation> slots = ImmutableList.builder();
+        for (SlotStatus slotStatus : events.getSlots()) {
+            slots.add(SlotStatusRepresentation.from(slotStatus));
+        }
+        return Response.ok(new SlotEventsRepresentation(events.getStreamId(), events.getSequence(), events.isResync(), slots.build())).build();
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airship.agent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import io.airlift.log.Logger;
+import io.airlift.units.Duration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically checks the state of every slot so changes that happen outside
+ * of the agent, such as a crashed process, are published to the slot event log.
+ */
+public class SlotStatusMonitor
+{
+    private static final Logger log = Logger.get(SlotStatusMonitor.class);
+
+    private final Agent agent;
+    private final Duration checkInterval;
+    private final ScheduledExecutorService executor;
+
+    @Inject
+    public SlotStatusMonitor(Agent agent, AgentConfig config)
+    {
+        this(agent, config.getSlotStatusCheckInterval());
+    }
+
+    public SlotStatusMonitor(Agent agent, Duration checkInterval)
+    {
+        Preconditions.checkNotNull(agent, "agent is null");
+        Preconditions.checkNotNull(checkInterval, "checkInterval is null");
+
+        this.agent = agent;
+        this.checkInterval = checkInterval;
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("slot-status-monitor").build());
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        executor.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    // computing the agent status records any slot state change
+                    agent.getAgentStatus();
+                }
+                catch (Throwable e) {
+                    log.error(e, "Unexpected exception checking slot status");
+                }
+            }
+        }, 0, (long) checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+}
@@ -33,6 +33,8 @@ public class TestAgentConfig
                 .setLauncherStopTimeout(new Duration(10, TimeUnit.SECONDS))
                 .setTarTimeout(new Duration(1, TimeUnit.MINUTES))
                 .setMaxLockWait(new Duration(1, TimeUnit.SECONDS))
+                .setSlotStatusCheckInterval(new Duration(5, TimeUnit.SECONDS))
+                .setBatchMaxConcurrency(8)
         );
     }
 
@@ -46,6 +48,8 @@ public class TestAgentConfig
                 .put("agent.launcher-stop-timeout", "50m")
                 .put("agent.tar-timeout", "10m")
                 .put("agent.max-lock-wait", "1m")
+                .put("agent.slot-status.check-interval", "30s")
+                .put("agent.batch.max-concurrency", "2")
                 .build();
 
         AgentConfig expected = new AgentConfig()
@@ -54,7 +58,9 @@ public class TestAgentConfig
                 .setLauncherTimeout(new Duration(5, TimeUnit.MINUTES))
                 .setLauncherStopTimeout(new Duration(50, TimeUnit.MINUTES))
                 .setTarTimeout(new Duration(10, TimeUnit.MINUTES))
-                .setMaxLockWait(new Duration(1, TimeUnit.MINUTES));
+                .setMaxLockWait(new Duration(1, TimeUnit.MINUTES))
+                .setSlotStatusCheckInterval(new Duration(30, TimeUnit.SECONDS))
+                .setBatchMaxConcurrency(2);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
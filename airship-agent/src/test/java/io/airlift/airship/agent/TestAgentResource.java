@@ -7,12 +7,18 @@ import io.airlift.node.NodeInfo;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 import java.io.File;
 
 import static io.airlift.airship.agent.ResourcesUtil.TEST_RESOURCES;
 import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENT_VERSION_HEADER;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 public class TestAgentResource
 {
@@ -45,13 +51,32 @@ public class TestAgentResource
     @Test
     public void testGetAllSlotsStatus()
     {
-        Response response = agentResource.getAllSlotsStatus();
+        Response response = agentResource.getAllSlotsStatus(null);
         AgentStatusRepresentation actual = (AgentStatusRepresentation) response.getEntity();
         assertEquals(actual.getAgentId(), agent.getAgentId());
         assertEquals(actual.getState(), ONLINE);
         assertEquals(actual.getInstanceType(), null);
         assertEquals(actual.getResources(), TEST_RESOURCES);
         assertEquals(actual.getLocation(), agent.getLocation());
+        assertEquals(response.getMetadata().getFirst(HttpHeaders.ETAG), new EntityTag(actual.getVersion()));
+    }
+
+    @Test
+    public void testGetAllSlotsStatusNotModified()
+    {
+        String version = agent.getAgentStatus().getVersion();
+
+        Response response = agentResource.getAllSlotsStatus("\"" + version + "\"");
+        assertEquals(response.getStatus(), Status.NOT_MODIFIED.getStatusCode());
+        assertNull(response.getEntity());
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_AGENT_VERSION_HEADER), version);
+
+        response = agentResource.getAllSlotsStatus("\"other\", \"" + version + "\"");
+        assertEquals(response.getStatus(), Status.NOT_MODIFIED.getStatusCode());
+
+        response = agentResource.getAllSlotsStatus("\"other\"");
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertNotNull(response.getEntity());
     }
 
 }
@@ -0,0 +1,142 @@
+package io.airlift.airship.agent;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.airship.shared.SlotOperationRepresentation;
+import io.airlift.airship.shared.SlotOperationResultRepresentation;
+import io.airlift.airship.shared.VersionConflictException;
+import io.airlift.http.server.HttpServerConfig;
+import io.airlift.http.server.HttpServerInfo;
+import io.airlift.node.NodeInfo;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.List;
+import java.util.UUID;
+
+import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static io.airlift.airship.shared.InstallationHelper.APPLE_INSTALLATION;
+import static io.airlift.airship.shared.InstallationHelper.BANANA_INSTALLATION;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENT_VERSION_HEADER;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestBatchLifecycleResource
+{
+    private BatchLifecycleResource resource;
+    private Agent agent;
+    private Slot apple;
+    private Slot banana;
+
+    @BeforeMethod
+    public void setup()
+    {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"));
+
+        AgentConfig config = new AgentConfig().setSlotsDir(new File(tempDir, "slots").getAbsolutePath());
+        agent = new Agent(
+                config,
+                new HttpServerInfo(new HttpServerConfig(), new NodeInfo("test")),
+                new NodeInfo("test"),
+                new MockDeploymentManagerFactory(),
+                new MockLifecycleManager()
+        );
+
+        apple = agent.getSlot(agent.install(APPLE_INSTALLATION).getId());
+        banana = agent.getSlot(agent.install(APPLE_INSTALLATION).getId());
+
+        resource = new BatchLifecycleResource(agent, config);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        resource.stop();
+    }
+
+    @Test
+    public void testApply()
+    {
+        Response response = resource.apply(agent.getAgentStatus().getVersion(), ImmutableList.of(
+                SlotOperationRepresentation.setState(apple.getId(), apple.status().getVersion(), RUNNING),
+                SlotOperationRepresentation.assign(banana.getId(), null, BANANA_INSTALLATION)));
+
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        assertEquals(response.getMetadata().get(AIRSHIP_AGENT_VERSION_HEADER).get(0), agent.getAgentStatus().getVersion());
+
+        assertEquals(apple.status().getState(), RUNNING);
+        assertEquals(banana.status().getAssignment(), BANANA_ASSIGNMENT);
+        assertEquals(getResults(response), ImmutableList.of(
+                SlotOperationResultRepresentation.success(apple.status()),
+                SlotOperationResultRepresentation.success(banana.status())));
+    }
+
+    @Test
+    public void testFailedOperationDoesNotFailBatch()
+    {
+        UUID unknownSlot = UUID.randomUUID();
+        Response response = resource.apply(null, ImmutableList.of(
+                SlotOperationRepresentation.setState(apple.getId(), "invalid-version", RUNNING),
+                SlotOperationRepresentation.setState(unknownSlot, null, RUNNING),
+                SlotOperationRepresentation.setState(banana.getId(), null, RUNNING)));
+
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        List<SlotOperationResultRepresentation> results = getResults(response);
+        assertEquals(results.size(), 3);
+
+        // version conflict reports the current status
+        assertFalse(results.get(0).isSuccess());
+        assertEquals(results.get(0).getStatus().getStatus(), STOPPED.toString());
+        assertEquals(apple.status().getState(), STOPPED);
+
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(results.get(1).getSlotId(), unknownSlot);
+        assertNull(results.get(1).getStatus());
+
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(banana.status().getState(), RUNNING);
+    }
+
+    @Test
+    public void testUnknownState()
+    {
+        Response response = resource.apply(null, ImmutableList.of(new SlotOperationRepresentation(apple.getId(), null, "unknown", null)));
+
+        SlotOperationResultRepresentation result = getResults(response).get(0);
+        assertFalse(result.isSuccess());
+        assertEquals(result.getStatus(), SlotOperationResultRepresentation.success(apple.status()).getStatus());
+    }
+
+    @Test
+    public void testDuplicateSlot()
+    {
+        Response response = resource.apply(null, ImmutableList.of(
+                SlotOperationRepresentation.setState(apple.getId(), null, RUNNING),
+                SlotOperationRepresentation.setState(apple.getId(), null, STOPPED)));
+        assertEquals(response.getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    @Test(expectedExceptions = VersionConflictException.class)
+    public void testInvalidAgentVersion()
+    {
+        resource.apply("invalid-version", ImmutableList.of(SlotOperationRepresentation.assign(banana.getId(), null, BANANA_INSTALLATION)));
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testNullOperations()
+    {
+        resource.apply(null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<SlotOperationResultRepresentation> getResults(Response response)
+    {
+        return (List<SlotOperationResultRepresentation>) response.getEntity();
+    }
+}
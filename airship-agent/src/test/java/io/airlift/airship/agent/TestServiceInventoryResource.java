@@ -0,0 +1,175 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airship.agent;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import io.airlift.airship.shared.ServiceInventoryDeltaRepresentation;
+import io.airlift.airship.shared.VersionConflictException;
+import io.airlift.discovery.client.ServiceDescriptor;
+import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
+import io.airlift.discovery.client.ServiceState;
+import io.airlift.http.server.HttpServerConfig;
+import io.airlift.http.server.HttpServerInfo;
+import io.airlift.node.NodeInfo;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.List;
+
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.createServiceDescriptorVersion;
+import static io.airlift.airship.shared.VersionsUtil.createServiceInventoryVersion;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class TestServiceInventoryResource
+{
+    private static final ServiceDescriptor APPLE = createServiceDescriptor("apple", "http://apple");
+    private static final ServiceDescriptor BANANA = createServiceDescriptor("banana", "http://banana");
+    private static final ServiceDescriptor BANANA_MOVED = createServiceDescriptor("banana", "http://banana-moved");
+
+    private Agent agent;
+    private ServiceInventoryResource resource;
+
+    @BeforeMethod
+    public void setup()
+    {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"));
+        NodeInfo nodeInfo = new NodeInfo("test");
+
+        agent = new Agent(
+                new AgentConfig().setSlotsDir(new File(tempDir, "slots").getAbsolutePath()),
+                new HttpServerInfo(new HttpServerConfig(), nodeInfo),
+                nodeInfo,
+                new MockDeploymentManagerFactory(),
+                new MockLifecycleManager()
+        );
+        resource = new ServiceInventoryResource(nodeInfo, agent);
+    }
+
+    @Test
+    public void testPutServiceInventory()
+    {
+        List<ServiceDescriptor> serviceDescriptors = ImmutableList.of(APPLE, BANANA);
+        Response response = resource.setServiceInventory(new ServiceDescriptorsRepresentation("test", serviceDescriptors));
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER), createServiceInventoryVersion(serviceDescriptors));
+        assertServiceDescriptors(agent.getServiceInventory(), serviceDescriptors);
+
+        response = resource.getServiceInventory();
+        assertServiceDescriptors(((ServiceDescriptorsRepresentation) response.getEntity()).getServiceDescriptors(), serviceDescriptors);
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER), agent.getServiceInventoryVersion());
+    }
+
+    @Test
+    public void testWrongEnvironment()
+    {
+        Response response = resource.setServiceInventory(new ServiceDescriptorsRepresentation("other", ImmutableList.of(APPLE)));
+        assertEquals(response.getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+
+        String version = agent.getServiceInventoryVersion();
+        response = resource.updateServiceInventory(new ServiceInventoryDeltaRepresentation("other", version, version, null, null));
+        assertEquals(response.getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    @Test
+    public void testApplyDelta()
+    {
+        String baseVersion = agent.setServiceInventory(ImmutableList.of(APPLE, BANANA));
+
+        // a changed descriptor is a removal and an addition
+        String version = createServiceInventoryVersion(ImmutableList.of(APPLE, BANANA_MOVED));
+        Response response = resource.updateServiceInventory(new ServiceInventoryDeltaRepresentation("test",
+                baseVersion,
+                version,
+                ImmutableList.of(BANANA_MOVED),
+                ImmutableList.of(createServiceDescriptorVersion(BANANA))));
+
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER), version);
+        assertEquals(agent.getServiceInventoryVersion(), version);
+        assertServiceDescriptors(agent.getServiceInventory(), ImmutableList.of(APPLE, BANANA_MOVED));
+    }
+
+    @Test
+    public void testDeltaWithStaleBaseVersion()
+    {
+        String staleVersion = agent.setServiceInventory(ImmutableList.of(APPLE));
+        String currentVersion = agent.setServiceInventory(ImmutableList.of(APPLE, BANANA));
+
+        try {
+            resource.updateServiceInventory(new ServiceInventoryDeltaRepresentation("test",
+                    staleVersion,
+                    createServiceInventoryVersion(ImmutableList.of(APPLE, BANANA_MOVED)),
+                    ImmutableList.of(BANANA_MOVED),
+                    ImmutableList.<String>of()));
+            fail("Expected VersionConflictException");
+        }
+        catch (VersionConflictException e) {
+            assertEquals(e.getName(), AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER);
+            assertEquals(e.getVersion(), currentVersion);
+        }
+
+        // inventory is unchanged
+        assertEquals(agent.getServiceInventoryVersion(), currentVersion);
+        assertServiceDescriptors(agent.getServiceInventory(), ImmutableList.of(APPLE, BANANA));
+    }
+
+    @Test
+    public void testDeltaWithUnexpectedResult()
+    {
+        String baseVersion = agent.setServiceInventory(ImmutableList.of(APPLE));
+
+        try {
+            resource.updateServiceInventory(new ServiceInventoryDeltaRepresentation("test",
+                    baseVersion,
+                    createServiceInventoryVersion(ImmutableList.of(APPLE, BANANA, BANANA_MOVED)),
+                    ImmutableList.of(BANANA),
+                    ImmutableList.<String>of()));
+            fail("Expected VersionConflictException");
+        }
+        catch (VersionConflictException e) {
+            assertEquals(e.getVersion(), baseVersion);
+        }
+        assertServiceDescriptors(agent.getServiceInventory(), ImmutableList.of(APPLE));
+    }
+
+    private static void assertServiceDescriptors(List<ServiceDescriptor> actual, List<ServiceDescriptor> expected)
+    {
+        // descriptors without an id are only distinguishable by content
+        assertEquals(Lists.transform(actual, toDescriptorVersion()), Lists.transform(expected, toDescriptorVersion()));
+    }
+
+    private static Function<ServiceDescriptor, String> toDescriptorVersion()
+    {
+        return new Function<ServiceDescriptor, String>()
+        {
+            @Override
+            public String apply(ServiceDescriptor serviceDescriptor)
+            {
+                return createServiceDescriptorVersion(serviceDescriptor);
+            }
+        };
+    }
+
+    private static ServiceDescriptor createServiceDescriptor(String type, String uri)
+    {
+        return new ServiceDescriptor(null, "node", type, "general", "/location", ServiceState.RUNNING, ImmutableMap.of("http", uri));
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airship.agent;
+
+import io.airlift.airship.shared.SlotEventsRepresentation;
+import io.airlift.airship.shared.SlotLifecycleState;
+import io.airlift.airship.shared.SlotStatus;
+import io.airlift.airship.shared.SlotStatusRepresentation;
+import io.airlift.http.server.HttpServerConfig;
+import io.airlift.http.server.HttpServerInfo;
+import io.airlift.node.NodeInfo;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+
+import static io.airlift.airship.shared.InstallationHelper.APPLE_INSTALLATION;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static io.airlift.airship.shared.SlotLifecycleState.TERMINATED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestSlotEventResource
+{
+    private Agent agent;
+    private SlotEventResource resource;
+
+    @BeforeMethod
+    public void setup()
+    {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"));
+
+        agent = new Agent(
+                new AgentConfig().setSlotsDir(new File(tempDir, "slots").getAbsolutePath()),
+                new HttpServerInfo(new HttpServerConfig(), new NodeInfo("test")),
+                new NodeInfo("test"),
+                new MockDeploymentManagerFactory(),
+                new MockLifecycleManager()
+        );
+        resource = new SlotEventResource(agent);
+    }
+
+    @Test
+    public void testUnknownStreamRequiresResync()
+    {
+        SlotEventsRepresentation events = getEvents(null, 0, 0);
+        assertTrue(events.isResync());
+        assertEquals(events.getStreamId(), agent.getSlotEventLog().getStreamId());
+        assertEquals(events.getSlots().size(), 0);
+
+        events = getEvents("unknown", 0, 0);
+        assertTrue(events.isResync());
+    }
+
+    @Test
+    public void testSlotChanges()
+    {
+        SlotEventsRepresentation events = getEvents(null, 0, 0);
+        String streamId = events.getStreamId();
+        long sequence = events.getSequence();
+
+        // no changes
+        events = getEvents(streamId, sequence, 0);
+        assertFalse(events.isResync());
+        assertEquals(events.getSequence(), sequence);
+        assertEquals(events.getSlots().size(), 0);
+
+        // install
+        SlotStatus slotStatus = agent.install(APPLE_INSTALLATION);
+        events = getEvents(streamId, sequence, 0);
+        assertFalse(events.isResync());
+        assertSlotEvent(events, slotStatus, STOPPED);
+        sequence = events.getSequence();
+
+        // start
+        agent.getSlot(slotStatus.getId()).start();
+        agent.getAgentStatus();
+        events = getEvents(streamId, sequence, 0);
+        assertSlotEvent(events, slotStatus, RUNNING);
+        sequence = events.getSequence();
+
+        // recomputing an unchanged status does not produce an event
+        agent.getAgentStatus();
+        events = getEvents(streamId, sequence, 0);
+        assertEquals(events.getSequence(), sequence);
+        assertEquals(events.getSlots().size(), 0);
+
+        // stop and terminate are coalesced into the latest state
+        agent.getSlot(slotStatus.getId()).stop();
+        agent.getAgentStatus();
+        agent.terminateSlot(slotStatus.getId());
+        events = getEvents(streamId, sequence, 0);
+        assertSlotEvent(events, slotStatus, TERMINATED);
+    }
+
+    @Test
+    public void testWaitsForChange()
+            throws Exception
+    {
+        SlotEventsRepresentation events = getEvents(null, 0, 0);
+        final String streamId = events.getStreamId();
+        final long sequence = events.getSequence();
+
+        Thread installer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                agent.install(APPLE_INSTALLATION);
+            }
+        };
+        installer.start();
+
+        events = getEvents(streamId, sequence, 10000);
+        assertEquals(events.getSlots().size(), 1);
+        installer.join();
+    }
+
+    private SlotEventsRepresentation getEvents(String streamId, long since, long maxWaitMillis)
+    {
+        Response response = resource.getSlotEvents(streamId, since, maxWaitMillis);
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        return (SlotEventsRepresentation) response.getEntity();
+    }
+
+    private static void assertSlotEvent(SlotEventsRepresentation events, SlotStatus slotStatus, SlotLifecycleState state)
+    {
+        assertEquals(events.getSlots().size(), 1);
+        SlotStatusRepresentation slot = events.getSlots().get(0);
+        assertEquals(slot.getId(), slotStatus.getId());
+        assertEquals(slot.getStatus(), state.toString());
+    }
+}
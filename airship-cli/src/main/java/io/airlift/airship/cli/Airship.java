@@ -29,6 +29,7 @@ import io.airlift.airship.coordinator.CoordinatorConfig;
 import io.airlift.airship.coordinator.HttpRepository;
 import io.airlift.airship.coordinator.Instance;
 import io.airlift.airship.coordinator.MavenRepository;
+import io.airlift.airship.coordinator.RollingUpdate;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.CoordinatorStatusRepresentation;
@@ -488,6 +489,9 @@ public class Airship
         @Inject
         public final SlotFilter slotFilter = new SlotFilter();
 
+        @Inject
+        public final RollingOptions rollingOptions = new RollingOptions();
+
         @Arguments(usage = "[<binary-version>] [@<config-version>]",
                 description = "Version of the binary and/or @configuration")
         public final List<String> versions = Lists.newArrayList();
@@ -515,12 +519,13 @@ public class Airship
             }
 
             final UpgradeVersions upgradeVersions = new UpgradeVersions(binaryVersion, configVersion);
+            final RollingUpdate rollingUpdate = rollingOptions.toRollingUpdate();
 
             verifySlotExecution(commander, slotFilter, "Are you sure you would like to UPGRADE these servers?", false, new SlotExecution()
             {
                 public void execute(Commander commander, SlotFilter slotFilter, String expectedVersion)
                 {
-                    List<SlotStatusRepresentation> slots = commander.upgrade(slotFilter, upgradeVersions, expectedVersion);
+                    List<SlotStatusRepresentation> slots = commander.upgrade(slotFilter, upgradeVersions, expectedVersion, rollingUpdate);
                     displaySlots(slots);
                 }
             });
@@ -533,6 +538,7 @@ public class Airship
             sb.append("UpgradeCommand");
             sb.append("{slotFilter=").append(slotFilter);
             sb.append(", versions=").append(versions);
+            sb.append(", rollingOptions=").append(rollingOptions);
             sb.append(", globalOptions=").append(globalOptions);
             sb.append('}');
             return sb.toString();
@@ -583,7 +589,7 @@ public class Airship
             {
                 public void execute(Commander commander, SlotFilter slotFilter, String expectedVersion)
                 {
-                    List<SlotStatusRepresentation> slots = commander.setState(slotFilter, RUNNING, expectedVersion);
+                    List<SlotStatusRepresentation> slots = commander.setState(slotFilter, RUNNING, expectedVersion, RollingUpdate.ALL_AT_ONCE);
                     displaySlots(slots);
                 }
             });
@@ -603,7 +609,7 @@ public class Airship
             {
                 public void execute(Commander commander, SlotFilter slotFilter, String expectedVersion)
                 {
-                    List<SlotStatusRepresentation> slots = commander.setState(slotFilter, STOPPED, expectedVersion);
+                    List<SlotStatusRepresentation> slots = commander.setState(slotFilter, STOPPED, expectedVersion, RollingUpdate.ALL_AT_ONCE);
                     displaySlots(slots);
                 }
             });
@@ -616,14 +622,18 @@ public class Airship
         @Inject
         public final SlotFilter slotFilter = new SlotFilter();
 
+        @Inject
+        public final RollingOptions rollingOptions = new RollingOptions();
+
         @Override
         public void execute(Commander commander)
         {
+            final RollingUpdate rollingUpdate = rollingOptions.toRollingUpdate();
             verifySlotExecution(commander, slotFilter, "Are you sure you would like to RESTART these servers?", true, new SlotExecution()
             {
                 public void execute(Commander commander, SlotFilter slotFilter, String expectedVersion)
                 {
-                    List<SlotStatusRepresentation> slots = commander.setState(slotFilter, RESTARTING, expectedVersion);
+                    List<SlotStatusRepresentation> slots = commander.setState(slotFilter, RESTARTING, expectedVersion, rollingUpdate);
                     displaySlots(slots);
                 }
             });
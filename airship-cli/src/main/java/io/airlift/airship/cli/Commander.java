@@ -1,5 +1,6 @@
 package io.airlift.airship.cli;
 
+import io.airlift.airship.coordinator.RollingUpdate;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.CoordinatorStatusRepresentation;
@@ -15,9 +16,9 @@ public interface Commander
 
     List<SlotStatusRepresentation> install(AgentFilter agentFilter, int count, Assignment assignment, String expectedVersion);
 
-    List<SlotStatusRepresentation> upgrade(SlotFilter slotFilter, UpgradeVersions upgradeVersions, String expectedVersion);
+    List<SlotStatusRepresentation> upgrade(SlotFilter slotFilter, UpgradeVersions upgradeVersions, String expectedVersion, RollingUpdate rollingUpdate);
 
-    List<SlotStatusRepresentation> setState(SlotFilter slotFilter, SlotLifecycleState state, String expectedVersion);
+    List<SlotStatusRepresentation> setState(SlotFilter slotFilter, SlotLifecycleState state, String expectedVersion, RollingUpdate rollingUpdate);
 
     List<SlotStatusRepresentation> terminate(SlotFilter slotFilter, String expectedVersion);
 
@@ -12,12 +12,14 @@ import io.airlift.airship.agent.DirectoryDeploymentManagerFactory;
 import io.airlift.airship.agent.LauncherLifecycleManager;
 import io.airlift.airship.agent.LifecycleManager;
 import io.airlift.airship.agent.Slot;
+import io.airlift.airship.coordinator.ArtifactProbe;
 import io.airlift.airship.coordinator.Coordinator;
 import io.airlift.airship.coordinator.CoordinatorConfig;
 import io.airlift.airship.coordinator.HttpRepository;
 import io.airlift.airship.coordinator.HttpServiceInventory;
 import io.airlift.airship.coordinator.InMemoryStateManager;
 import io.airlift.airship.coordinator.Instance;
+import io.airlift.airship.coordinator.MavenMetadataCache;
 import io.airlift.airship.coordinator.MavenRepository;
 import io.airlift.airship.coordinator.Provisioner;
 import io.airlift.airship.coordinator.RemoteAgent;
@@ -25,14 +27,18 @@ import io.airlift.airship.coordinator.RemoteAgentFactory;
 import io.airlift.airship.coordinator.RemoteCoordinator;
 import io.airlift.airship.coordinator.RemoteCoordinatorFactory;
 import io.airlift.airship.coordinator.RemoteSlot;
+import io.airlift.airship.coordinator.ResolutionCache;
 import io.airlift.airship.coordinator.ServiceInventory;
+import io.airlift.airship.coordinator.SlotOperation;
 import io.airlift.airship.coordinator.StateManager;
+import io.airlift.airship.coordinator.VersionedServiceInventory;
 import io.airlift.airship.shared.AgentLifecycleState;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.CoordinatorLifecycleState;
 import io.airlift.airship.shared.CoordinatorStatus;
 import io.airlift.airship.shared.ExpectedSlotStatus;
 import io.airlift.airship.shared.Installation;
+import io.airlift.airship.shared.ParallelLookup;
 import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.RepositorySet;
 import io.airlift.airship.shared.SlotStatus;
@@ -199,9 +205,11 @@ public class CommanderFactory
         CoordinatorConfig coordinatorConfig = new CoordinatorConfig()
                 .setRepositories(repositories)
                 .setDefaultRepositoryGroupId(mavenDefaultGroupIds);
+        ResolutionCache resolutionCache = new ResolutionCache(coordinatorConfig);
+        ArtifactProbe artifactProbe = new ArtifactProbe(coordinatorConfig);
         Repository repository = new RepositorySet(ImmutableSet.<Repository>of(
-                new MavenRepository(coordinatorConfig),
-                new HttpRepository(coordinatorConfig)));
+                new MavenRepository(coordinatorConfig, resolutionCache, ParallelLookup.sequentialLookup(), artifactProbe, new MavenMetadataCache(coordinatorConfig, artifactProbe)),
+                new HttpRepository(coordinatorConfig, resolutionCache, artifactProbe)));
         ServiceInventory serviceInventory = new HttpServiceInventory(repository,
                 JsonCodec.listJsonCodec(ServiceDescriptor.class),
                 new File(slotsDir, "service-inventory-cache"));
@@ -233,6 +241,7 @@ public class CommanderFactory
                 stateManager,
                 serviceInventory,
                 new Duration(100, TimeUnit.DAYS),
+                1,
                 allowDuplicateInstallations);
 
         return new LocalCommander(environment, new File(slotsDir), coordinator, repository, serviceInventory);
@@ -357,13 +366,31 @@ public class CommanderFactory
             return builder.build();
         }
 
+        @Override
+        public List<SlotStatus> applySlotOperations(List<SlotOperation> operations)
+        {
+            ImmutableList.Builder<SlotStatus> builder = ImmutableList.builder();
+            for (SlotOperation operation : operations) {
+                Slot slot = agent.getSlot(operation.getSlotId());
+                Preconditions.checkArgument(slot != null, "Unknown slot %s", operation.getSlotId());
+                builder.add(operation.applyTo(new LocalRemoteSlot(slot, agentId)));
+            }
+            return builder.build();
+        }
+
         @Override
         public void updateStatus()
         {
         }
 
         @Override
-        public void setServiceInventory(List<ServiceDescriptor> serviceInventory)
+        public boolean updateSlotStatus()
+        {
+            return false;
+        }
+
+        @Override
+        public void setServiceInventory(VersionedServiceInventory serviceInventory)
         {
         }
     }
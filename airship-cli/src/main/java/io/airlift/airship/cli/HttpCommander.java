@@ -5,6 +5,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import io.airlift.airship.coordinator.AgentProvisioningRepresentation;
 import io.airlift.airship.coordinator.CoordinatorProvisioningRepresentation;
+import io.airlift.airship.coordinator.RollingUpdate;
 import io.airlift.airship.shared.AgentLifecycleState;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.Assignment;
@@ -21,12 +22,14 @@ import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.http.client.Request;
 import io.airlift.json.JsonCodec;
+import io.airlift.units.Duration;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
@@ -94,9 +97,9 @@ public class HttpCommander implements Commander
     }
 
     @Override
-    public List<SlotStatusRepresentation> upgrade(SlotFilter slotFilter, UpgradeVersions upgradeVersions, String expectedVersion)
+    public List<SlotStatusRepresentation> upgrade(SlotFilter slotFilter, UpgradeVersions upgradeVersions, String expectedVersion, RollingUpdate rollingUpdate)
     {
-        URI uri = slotFilter.toUri(uriBuilderFrom(coordinatorUri).replacePath("/v1/slot/assignment"));
+        URI uri = slotFilter.toUri(rollingUpdate.addQueryParameters(uriBuilderFrom(coordinatorUri).replacePath("/v1/slot/assignment")));
         Request.Builder requestBuilder = Request.Builder.preparePost()
                 .setUri(uri)
                 .setHeader("Content-Type", "application/json")
@@ -105,14 +108,14 @@ public class HttpCommander implements Commander
             requestBuilder.setHeader(AIRSHIP_SLOTS_VERSION_HEADER, expectedVersion);
         }
 
-        List<SlotStatusRepresentation> slots = client.execute(requestBuilder.build(), createJsonResponseHandler(SLOTS_CODEC));
+        List<SlotStatusRepresentation> slots = getClient(slotFilter, rollingUpdate).execute(requestBuilder.build(), createJsonResponseHandler(SLOTS_CODEC));
         return slots;
     }
 
     @Override
-    public List<SlotStatusRepresentation> setState(SlotFilter slotFilter, SlotLifecycleState state, String expectedVersion)
+    public List<SlotStatusRepresentation> setState(SlotFilter slotFilter, SlotLifecycleState state, String expectedVersion, RollingUpdate rollingUpdate)
     {
-        URI uri = slotFilter.toUri(uriBuilderFrom(coordinatorUri).replacePath("/v1/slot/lifecycle"));
+        URI uri = slotFilter.toUri(rollingUpdate.addQueryParameters(uriBuilderFrom(coordinatorUri).replacePath("/v1/slot/lifecycle")));
         Request.Builder requestBuilder = Request.Builder.preparePut()
                 .setUri(uri)
                 .setBodyGenerator(textBodyGenerator(state.name()));
@@ -120,10 +123,25 @@ public class HttpCommander implements Commander
             requestBuilder.setHeader(AIRSHIP_SLOTS_VERSION_HEADER, expectedVersion);
         }
 
-        List<SlotStatusRepresentation> slots = client.execute(requestBuilder.build(), createJsonResponseHandler(SLOTS_CODEC));
+        List<SlotStatusRepresentation> slots = getClient(slotFilter, rollingUpdate).execute(requestBuilder.build(), createJsonResponseHandler(SLOTS_CODEC));
         return slots;
     }
 
+    /**
+     * A rolling update runs in a single request, so it needs a read timeout
+     * that covers every batch of the selected slots.
+     */
+    private HttpClient getClient(SlotFilter slotFilter, RollingUpdate rollingUpdate)
+    {
+        if (!rollingUpdate.isRolling()) {
+            return client;
+        }
+        int slotCount = show(slotFilter).getValue().size();
+        Duration commandTimeout = new HttpClientConfig().getReadTimeout();
+        Duration readTimeout = new Duration(rollingUpdate.getMaxWaitTime(slotCount).toMillis() + commandTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        return new ApacheHttpClient(new HttpClientConfig().setReadTimeout(readTimeout));
+    }
+
     @Override
     public List<SlotStatusRepresentation> terminate(SlotFilter slotFilter, String expectedVersion)
     {
@@ -6,6 +6,7 @@ import com.google.common.io.Files;
 import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
 import io.airlift.airship.coordinator.Coordinator;
+import io.airlift.airship.coordinator.RollingUpdate;
 import io.airlift.airship.coordinator.ServiceInventory;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.AgentStatusRepresentation;
@@ -97,14 +98,14 @@ public class LocalCommander implements Commander
     }
 
     @Override
-    public List<SlotStatusRepresentation> upgrade(SlotFilter slotFilter, UpgradeVersions upgradeVersions, String expectedSlotsVersion)
+    public List<SlotStatusRepresentation> upgrade(SlotFilter slotFilter, UpgradeVersions upgradeVersions, String expectedSlotsVersion, RollingUpdate rollingUpdate)
     {
         // build predicate
         List<UUID> uuids = transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
         Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(true, uuids);
 
         // upgrade slots
-        List<SlotStatus> slots = coordinator.upgrade(slotPredicate, upgradeVersions, expectedSlotsVersion);
+        List<SlotStatus> slots = coordinator.upgrade(slotPredicate, upgradeVersions, expectedSlotsVersion, rollingUpdate);
 
         // update to latest state
         updateServiceInventory();
@@ -114,7 +115,7 @@ public class LocalCommander implements Commander
     }
 
     @Override
-    public List<SlotStatusRepresentation> setState(SlotFilter slotFilter, SlotLifecycleState state, String expectedSlotsVersion)
+    public List<SlotStatusRepresentation> setState(SlotFilter slotFilter, SlotLifecycleState state, String expectedSlotsVersion, RollingUpdate rollingUpdate)
     {
         // build predicate
         List<UUID> uuids = transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
@@ -124,7 +125,7 @@ public class LocalCommander implements Commander
         updateServiceInventory();
 
         // set slots state
-        List<SlotStatus> slots = coordinator.setState(state, slotPredicate, expectedSlotsVersion);
+        List<SlotStatus> slots = coordinator.setState(state, slotPredicate, expectedSlotsVersion, rollingUpdate);
 
         // update to latest state
         updateServiceInventory();
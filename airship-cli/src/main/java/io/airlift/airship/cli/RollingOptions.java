@@ -0,0 +1,73 @@
+package io.airlift.airship.cli;
+
+import io.airlift.airship.coordinator.RollingUpdate;
+import io.airlift.command.Option;
+import io.airlift.command.ParseException;
+import io.airlift.units.Duration;
+
+public class RollingOptions
+{
+    @Option(name = "--batch-size", description = "Change slots in batches of the given size or percentage (e.g. 10 or 25%)")
+    public String batchSize;
+
+    @Option(name = "--batch-delay", description = "Time to wait between batches (e.g. 30s)")
+    public String batchDelay;
+
+    @Option(name = "--batch-timeout", description = "Time to wait for the slots in a batch to be running")
+    public String batchTimeout;
+
+    @Option(name = "--max-failures", description = "Number of failed slots after which the rolling update is halted")
+    public int maxFailures;
+
+    @Option(name = "--rollback", description = "Roll back upgraded slots when the rolling update is halted")
+    public boolean rollback;
+
+    @Option(name = "--health-check", description = "Path each http service of a slot must answer before the next batch starts")
+    public String healthCheckPath;
+
+    public RollingUpdate toRollingUpdate()
+    {
+        if (batchSize == null) {
+            if (batchDelay != null || batchTimeout != null || rollback || healthCheckPath != null) {
+                throw new ParseException("--batch-size is required for a rolling update");
+            }
+            return RollingUpdate.ALL_AT_ONCE;
+        }
+
+        try {
+            int size = 0;
+            int percentage = 0;
+            if (batchSize.endsWith("%")) {
+                percentage = Integer.parseInt(batchSize.substring(0, batchSize.length() - 1));
+            }
+            else {
+                size = Integer.parseInt(batchSize);
+            }
+            return new RollingUpdate(size,
+                    percentage,
+                    batchDelay == null ? RollingUpdate.ALL_AT_ONCE.getBatchDelay() : Duration.valueOf(batchDelay),
+                    batchTimeout == null ? RollingUpdate.ALL_AT_ONCE.getBatchTimeout() : Duration.valueOf(batchTimeout),
+                    maxFailures,
+                    rollback,
+                    healthCheckPath);
+        }
+        catch (IllegalArgumentException e) {
+            throw new ParseException("Invalid rolling update: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("RollingOptions");
+        sb.append("{batchSize=").append(batchSize);
+        sb.append(", batchDelay=").append(batchDelay);
+        sb.append(", batchTimeout=").append(batchTimeout);
+        sb.append(", maxFailures=").append(maxFailures);
+        sb.append(", rollback=").append(rollback);
+        sb.append(", healthCheckPath=").append(healthCheckPath);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -1,42 +1,58 @@
 package io.airlift.airship.coordinator;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 import io.airlift.airship.shared.AgentStatus;
+import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.CoordinatorStatus;
 import io.airlift.airship.shared.Repository;
-import io.airlift.airship.shared.SlotStatus;
+import org.codehaus.jackson.map.ObjectMapper;
 
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 import java.util.List;
 
 import static com.google.common.collect.Lists.transform;
-import static io.airlift.airship.shared.AgentStatus.idGetter;
+import static io.airlift.airship.coordinator.JsonLinesStreamingOutput.APPLICATION_NDJSON;
+import static io.airlift.airship.coordinator.JsonLinesStreamingOutput.APPLICATION_NDJSON_TYPE;
+import static io.airlift.airship.coordinator.ResultPage.checkPageRequest;
+import static io.airlift.airship.coordinator.ResultPage.createResultPage;
 import static io.airlift.airship.shared.AgentStatusRepresentation.fromAgentStatus;
 import static io.airlift.airship.shared.CoordinatorStatusRepresentation.fromCoordinatorStatus;
 import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENTS_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_NEXT_CURSOR_HEADER;
 import static io.airlift.airship.shared.VersionsUtil.createAgentsVersion;
 
 @Path("/v1/admin/")
 public class AdminResource
 {
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
     private final Coordinator coordinator;
     private final Repository repository;
+    private final ObjectMapper objectMapper;
 
     @Inject
-    public AdminResource(Coordinator coordinator, Repository repository)
+    public AdminResource(Coordinator coordinator, Repository repository, ObjectMapper objectMapper)
     {
         this.coordinator = coordinator;
         this.repository = repository;
+        this.objectMapper = objectMapper;
     }
 
     @GET
@@ -69,23 +85,50 @@ public class AdminResource
         return Response.ok(transform(coordinators, fromCoordinatorStatus(coordinator.getCoordinators()))).build();
     }
 
+    // json unless the client explicitly asks for newline delimited json
     @GET
     @Path("/agent")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllAgents(@Context UriInfo uriInfo)
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON + ";qs=0.5"})
+    public Response getAllAgents(@Context UriInfo uriInfo,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("cursor") String cursor,
+            @HeaderParam(HttpHeaders.ACCEPT) String accept)
     {
-        List<SlotStatus> allSlotStatus = coordinator.getAllSlotStatus();
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+        List<AgentStatus> allAgents = snapshot.getAgents();
         Predicate<AgentStatus> agentPredicate = AgentFilterBuilder.build(uriInfo,
-                transform(coordinator.getAgents(), idGetter()),
-                transform(allSlotStatus, SlotStatus.uuidGetter()),
+                snapshot,
                 false,
                 repository);
 
-        List<AgentStatus> agents = coordinator.getAgents(agentPredicate);
+        List<AgentStatus> agents;
+        String nextCursor = null;
+        if (limit != null || cursor != null) {
+            checkPageRequest(cursor, limit);
+            ResultPage<AgentStatus> page = createResultPage(snapshot.getAgentsOrderedById(),
+                    ClusterSnapshot.agentIdGetter(),
+                    agentPredicate,
+                    cursor,
+                    Objects.firstNonNull(limit, DEFAULT_PAGE_SIZE));
+            agents = page.getItems();
+            nextCursor = page.getNextCursor();
+        }
+        else {
+            agents = ImmutableList.copyOf(Iterables.filter(allAgents, agentPredicate));
+        }
 
-        return Response.ok(transform(agents, fromAgentStatus(coordinator.getAgents(), repository)))
-                .header(AIRSHIP_AGENTS_VERSION_HEADER, createAgentsVersion(agents))
-                .build();
+        List<AgentStatusRepresentation> representations = transform(agents, fromAgentStatus(allAgents, snapshot.getAgentIdIndex(), repository));
+        ResponseBuilder response;
+        if (JsonLinesStreamingOutput.isAccepted(accept)) {
+            response = Response.ok(new JsonLinesStreamingOutput(objectMapper, representations), APPLICATION_NDJSON_TYPE);
+        }
+        else {
+            response = Response.ok(representations);
+        }
+        if (nextCursor != null) {
+            response.header(AIRSHIP_NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.header(AIRSHIP_AGENTS_VERSION_HEADER, createAgentsVersion(agents)).build();
     }
 
     @POST
@@ -5,14 +5,13 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import io.airlift.airship.shared.AgentLifecycleState;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.HttpUriBuilder;
+import io.airlift.airship.shared.IdPrefixIndex;
 import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.InstallationUtils;
 import io.airlift.airship.shared.Repository;
@@ -21,20 +20,16 @@ import io.airlift.airship.shared.SlotStatus;
 import javax.annotation.Nullable;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
 
-import static com.google.common.base.Predicates.notNull;
-import static io.airlift.airship.coordinator.StringFunctions.startsWith;
-import static io.airlift.airship.coordinator.StringFunctions.toLowerCase;
+import static io.airlift.airship.coordinator.ResolutionContext.resolutionContext;
 import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
+import static io.airlift.airship.shared.IdPrefixIndex.createUuidPrefixIndex;
 import static io.airlift.airship.shared.InstallationUtils.getAvailableResources;
 import static io.airlift.airship.shared.InstallationUtils.resourcesAreAvailable;
-import static io.airlift.airship.shared.InstallationUtils.toInstallation;
-import static java.lang.String.format;
 
 public class AgentFilterBuilder
 {
@@ -53,6 +48,28 @@ public class AgentFilterBuilder
             List<UUID> allSlotUuids,
             boolean allowDuplicateInstallationsOnAnAgent,
             Repository repository)
+    {
+        return build(uriInfo, new IdPrefixIndex(allAgentUuids), createUuidPrefixIndex(allSlotUuids), allowDuplicateInstallationsOnAnAgent, repository);
+    }
+
+    public static Predicate<AgentStatus> build(UriInfo uriInfo,
+            IdPrefixIndex agentIdIndex,
+            IdPrefixIndex slotIdIndex,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            Repository repository)
+    {
+        return parse(uriInfo, repository).build(agentIdIndex, slotIdIndex, allowDuplicateInstallationsOnAnAgent, repository);
+    }
+
+    public static Predicate<AgentStatus> build(UriInfo uriInfo,
+            ClusterSnapshot snapshot,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            Repository repository)
+    {
+        return parse(uriInfo, repository).build(snapshot, allowDuplicateInstallationsOnAnAgent, repository);
+    }
+
+    private static AgentFilterBuilder parse(UriInfo uriInfo, Repository repository)
     {
         AgentFilterBuilder builder = new AgentFilterBuilder();
         for (Entry<String, List<String>> entry : uriInfo.getQueryParameters().entrySet()) {
@@ -93,7 +110,7 @@ public class AgentFilterBuilder
                 builder.selectAll();
             }
         }
-        return builder.build(allAgentUuids, allSlotUuids, allowDuplicateInstallationsOnAnAgent, repository);
+        return builder;
     }
 
     private final List<String> uuidFilters = Lists.newArrayListWithCapacity(6);
@@ -147,8 +164,38 @@ public class AgentFilterBuilder
         this.selectAll = true;
     }
 
-    public Predicate<AgentStatus> build(final List<String> allAgentUuids,
-            final List<UUID> allSlotUuids,
+    public Predicate<AgentStatus> build(List<String> allAgentUuids,
+            List<UUID> allSlotUuids,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            Repository repository)
+    {
+        return build(new IdPrefixIndex(allAgentUuids), createUuidPrefixIndex(allSlotUuids), allowDuplicateInstallationsOnAnAgent, repository);
+    }
+
+    public Predicate<AgentStatus> build(IdPrefixIndex agentIdIndex,
+            IdPrefixIndex slotIdIndex,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            Repository repository)
+    {
+        return build(agentIdIndex, slotIdIndex, null, allowDuplicateInstallationsOnAnAgent, repository);
+    }
+
+    /**
+     * Builds a predicate for the agents of the snapshot.  Slot filters find
+     * the agent of the slot with the snapshot slot index instead of scanning
+     * the slots of every agent.
+     */
+    public Predicate<AgentStatus> build(ClusterSnapshot snapshot,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            Repository repository)
+    {
+        Preconditions.checkNotNull(snapshot, "snapshot is null");
+        return build(snapshot.getAgentIdIndex(), snapshot.getSlotIdIndex(), snapshot, allowDuplicateInstallationsOnAnAgent, repository);
+    }
+
+    private Predicate<AgentStatus> build(final IdPrefixIndex agentIdIndex,
+            final IdPrefixIndex slotIdIndex,
+            @Nullable final ClusterSnapshot snapshot,
             final boolean allowDuplicateInstallationsOnAnAgent,
             final Repository repository)
     {
@@ -159,7 +206,7 @@ public class AgentFilterBuilder
                 @Override
                 public UuidPredicate apply(String uuid)
                 {
-                    return new UuidPredicate(uuid, allAgentUuids);
+                    return new UuidPredicate(uuid, agentIdIndex);
                 }
             }));
             andPredicates.add(predicate);
@@ -176,12 +223,15 @@ public class AgentFilterBuilder
             andPredicates.add(predicate);
         }
         if (!slotUuidGlobs.isEmpty()) {
-            Predicate<AgentStatus> predicate = Predicates.or(Lists.transform(slotUuidGlobs, new Function<String, SlotUuidPredicate>()
+            Predicate<AgentStatus> predicate = Predicates.or(Lists.transform(slotUuidGlobs, new Function<String, Predicate<AgentStatus>>()
             {
                 @Override
-                public SlotUuidPredicate apply(String slotUuidGlob)
+                public Predicate<AgentStatus> apply(String slotUuidGlob)
                 {
-                    return new SlotUuidPredicate(slotUuidGlob, allSlotUuids);
+                    if (snapshot != null) {
+                        return new SlotInstancePredicate(slotUuidGlob, snapshot);
+                    }
+                    return new SlotUuidPredicate(slotUuidGlob, slotIdIndex);
                 }
             }));
             andPredicates.add(predicate);
@@ -209,12 +259,14 @@ public class AgentFilterBuilder
             andPredicates.add(predicate);
         }
         if (!assignableFilters.isEmpty()) {
+            // all agents are checked against the same assignments, so they share the repository lookups
+            final ResolutionContext resolutionContext = resolutionContext(repository);
             Predicate<AgentStatus> predicate = Predicates.or(Lists.transform(assignableFilters, new Function<Assignment, AssignablePredicate>()
             {
                 @Override
                 public AssignablePredicate apply(Assignment assignment)
                 {
-                    return new AssignablePredicate(assignment, allowDuplicateInstallationsOnAnAgent, repository);
+                    return new AssignablePredicate(assignment, allowDuplicateInstallationsOnAnAgent, resolutionContext);
                 }
             }));
             andPredicates.add(predicate);
@@ -269,20 +321,12 @@ public class AgentFilterBuilder
 
         public UuidPredicate(String shortId, List<String> allUuids)
         {
-            allUuids = ImmutableList.copyOf(Iterables.filter(allUuids, notNull()));
-            Predicate<String> startsWithPrefix = Predicates.compose(startsWith(shortId.toLowerCase()), toLowerCase());
-            Collection<String> matches = Collections2.filter(allUuids, startsWithPrefix);
-
-            if (matches.size() > 1) {
-                throw new IllegalArgumentException(format("Ambiguous expansion for id '%s': %s", shortId, matches));
-            }
+            this(shortId, new IdPrefixIndex(allUuids));
+        }
 
-            if (matches.isEmpty()) {
-                uuid = null;
-            }
-            else {
-                uuid = matches.iterator().next();
-            }
+        public UuidPredicate(String shortId, IdPrefixIndex agentIdIndex)
+        {
+            uuid = agentIdIndex.expandUnique(shortId);
         }
 
         @Override
@@ -309,6 +353,11 @@ public class AgentFilterBuilder
             predicate = new SlotFilterBuilder.SlotUuidPredicate(slotUuidGlobGlob, allUuids);
         }
 
+        public SlotUuidPredicate(String shortId, IdPrefixIndex slotIdIndex)
+        {
+            predicate = new SlotFilterBuilder.SlotUuidPredicate(shortId, slotIdIndex);
+        }
+
         @Override
         public boolean apply(AgentStatus agentStatus)
         {
@@ -324,6 +373,30 @@ public class AgentFilterBuilder
         }
     }
 
+    /**
+     * Matches the agent of a slot, found with the snapshot indexes.
+     */
+    public static class SlotInstancePredicate implements Predicate<AgentStatus>
+    {
+        private final String instanceId;
+
+        public SlotInstancePredicate(String shortId, ClusterSnapshot snapshot)
+        {
+            String id = snapshot.getSlotIdIndex().expandUnique(shortId);
+            SlotStatus slotStatus = id == null ? null : snapshot.getSlot(UUID.fromString(id));
+            // missing slots are not on any agent
+            instanceId = slotStatus == null ? null : slotStatus.getInstanceId();
+        }
+
+        @Override
+        public boolean apply(@Nullable AgentStatus agentStatus)
+        {
+            return agentStatus != null &&
+                    instanceId != null &&
+                    instanceId.equals(agentStatus.getInstanceId());
+        }
+    }
+
     public static class HostPredicate implements Predicate<AgentStatus>
     {
         private final UriHostPredicate predicate;
@@ -377,13 +450,13 @@ public class AgentFilterBuilder
     {
         private final Assignment assignment;
         private final boolean allowDuplicateInstallationsOnAnAgent;
-        private final Repository repository;
+        private final ResolutionContext repository;
 
         public AssignablePredicate(Assignment assignment, boolean allowDuplicateInstallationsOnAnAgent, Repository repository)
         {
-            this.assignment = InstallationUtils.resolveAssignment(repository, assignment);
+            this.repository = resolutionContext(repository);
+            this.assignment = InstallationUtils.resolveAssignment(this.repository, assignment);
             this.allowDuplicateInstallationsOnAnAgent = allowDuplicateInstallationsOnAnAgent;
-            this.repository = repository;
         }
 
         @Override
@@ -407,7 +480,7 @@ public class AgentFilterBuilder
             // agents without declared resources are considered to have unlimited resources
             if (!status.getResources().isEmpty()) {
                 // verify that required resources are available
-                Installation installation = toInstallation(repository, assignment);
+                Installation installation = repository.getInstallation(assignment);
                 Map<String, Integer> availableResources = getAvailableResources(status);
                 if (!resourcesAreAvailable(availableResources, installation.getResources())) {
                     return false;
@@ -0,0 +1,67 @@
+package io.airlift.airship.coordinator;
+
+import io.airlift.airship.shared.AgentLifecycleState;
+import io.airlift.stats.TimedStat;
+import io.airlift.units.Duration;
+
+import javax.annotation.concurrent.GuardedBy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Status request latency and state history of a single agent.  An agent is
+ * flapping when it changed state several times within a short window, for
+ * example a host that keeps dropping off the network.
+ */
+public class AgentStats
+{
+    private static final long FLAPPING_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int FLAPPING_STATE_CHANGES = 3;
+
+    private final TimedStat statusTime = new TimedStat();
+
+    @GuardedBy("this")
+    private AgentLifecycleState state;
+    @GuardedBy("this")
+    private final Deque<Long> stateChanges = new ArrayDeque<>();
+
+    public TimedStat getStatusTime()
+    {
+        return statusTime;
+    }
+
+    public void statusUpdated(Duration time, AgentLifecycleState newState)
+    {
+        statusTime.addValue(time);
+        stateUpdated(newState, System.nanoTime());
+    }
+
+    synchronized void stateUpdated(AgentLifecycleState newState, long now)
+    {
+        if (state != null && state != newState) {
+            stateChanges.addLast(now);
+        }
+        state = newState;
+        expireStateChanges(now);
+    }
+
+    public boolean isFlapping()
+    {
+        return isFlapping(System.nanoTime());
+    }
+
+    synchronized boolean isFlapping(long now)
+    {
+        expireStateChanges(now);
+        return stateChanges.size() >= FLAPPING_STATE_CHANGES;
+    }
+
+    @GuardedBy("this")
+    private void expireStateChanges(long now)
+    {
+        while (!stateChanges.isEmpty() && now - stateChanges.getFirst() > FLAPPING_WINDOW_NANOS) {
+            stateChanges.removeFirst();
+        }
+    }
+}
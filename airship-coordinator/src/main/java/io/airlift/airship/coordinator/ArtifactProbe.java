@@ -0,0 +1,224 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import io.airlift.http.client.ApacheHttpClient;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.HttpClientConfig;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.log.Logger;
+import io.airlift.stats.TimedStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.Response.Status;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.newSetFromMap;
+
+/**
+ * Checks if an artifact exists in a repository.  HTTP repositories are
+ * checked with a HEAD request over a shared pool of keep-alive connections,
+ * falling back to fetching the first bytes with a ranged GET on servers that
+ * do not support HEAD.  Other repositories, such as local files, are checked
+ * by reading the first bytes of the artifact.  Only a definite answer from
+ * the repository means the artifact does not exist, so connection errors,
+ * timeouts and server errors are thrown instead.  A 401 or 403 counts as
+ * missing, because repositories such as S3 buckets answer that way for keys
+ * that do not exist.
+ */
+public class ArtifactProbe
+{
+    private static final Logger log = Logger.get(ArtifactProbe.class);
+
+    // not defined by JAX-RS 1.x
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int NOT_IMPLEMENTED = 501;
+
+    private final HttpClient httpClient;
+    private final int maxConnectionsPerServer;
+
+    // servers that rejected a HEAD request are sent a ranged GET from then on
+    private final Set<String> headUnsupported = newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicLong headRequests = new AtomicLong();
+    private final AtomicLong rangeRequests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final TimedStat requestTime = new TimedStat();
+
+    @Inject
+    public ArtifactProbe(CoordinatorConfig config)
+    {
+        this(new ApacheHttpClient(new HttpClientConfig()
+                .setConnectTimeout(config.getRepositoryProbeConnectTimeout())
+                .setReadTimeout(config.getRepositoryProbeReadTimeout())
+                .setMaxConnectionsPerServer(config.getRepositoryProbeMaxConnectionsPerServer())),
+                config.getRepositoryProbeMaxConnectionsPerServer());
+    }
+
+    public ArtifactProbe(HttpClient httpClient, int maxConnectionsPerServer)
+    {
+        Preconditions.checkNotNull(httpClient, "httpClient is null");
+        Preconditions.checkArgument(maxConnectionsPerServer >= 1, "maxConnectionsPerServer must be at least 1");
+
+        this.httpClient = httpClient;
+        this.maxConnectionsPerServer = maxConnectionsPerServer;
+    }
+
+    /**
+     * Returns true if the artifact exists and false if the repository says it
+     * does not.
+     *
+     * @throws RuntimeException if the repository could not be asked
+     */
+    public boolean exists(URI uri)
+    {
+        Preconditions.checkNotNull(uri, "uri is null");
+
+        log.debug("validating URI: %s", uri);
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            return readExists(uri);
+        }
+
+        activeRequests.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            String server = uri.getScheme().toLowerCase() + "://" + uri.getAuthority();
+            if (!headUnsupported.contains(server)) {
+                headRequests.incrementAndGet();
+                ProbeResult result = httpClient.execute(Request.Builder.prepareHead().setUri(uri).build(), ProbeResponseHandler.PROBE_RESPONSE_HANDLER);
+                if (result != ProbeResult.UNSUPPORTED) {
+                    return result == ProbeResult.FOUND;
+                }
+                log.debug("HEAD is not supported by %s", server);
+                headUnsupported.add(server);
+            }
+
+            rangeRequests.incrementAndGet();
+            Request request = Request.Builder.prepareGet()
+                    .setUri(uri)
+                    .setHeader("Range", "bytes=0-9")
+                    .build();
+            return httpClient.execute(request, ProbeResponseHandler.PROBE_RESPONSE_HANDLER) == ProbeResult.FOUND;
+        }
+        catch (RuntimeException e) {
+            failures.incrementAndGet();
+            log.debug(e, "error validating URI: %s", uri);
+            throw e;
+        }
+        finally {
+            requestTime.addValue(Duration.nanosSince(start));
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the pooled client used for the probes, so other small repository
+     * requests share its connections and timeouts.
+     */
+    HttpClient getHttpClient()
+    {
+        return httpClient;
+    }
+
+    private static boolean readExists(URI uri)
+    {
+        try (InputStream in = uri.toURL().openStream()) {
+            // make sure the artifact can be read
+            in.read();
+            return true;
+        }
+        catch (FileNotFoundException e) {
+            log.debug("URI does not exist: %s", uri);
+            return false;
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error validating URI " + uri, e);
+        }
+    }
+
+    @Managed
+    public int getActiveRequests()
+    {
+        return activeRequests.get();
+    }
+
+    @Managed
+    public int getMaxConnectionsPerServer()
+    {
+        return maxConnectionsPerServer;
+    }
+
+    @Managed
+    public long getHeadRequests()
+    {
+        return headRequests.get();
+    }
+
+    @Managed
+    public long getRangeRequests()
+    {
+        return rangeRequests.get();
+    }
+
+    @Managed
+    public long getFailures()
+    {
+        return failures.get();
+    }
+
+    @Managed
+    @Nested
+    public TimedStat getRequestTime()
+    {
+        return requestTime;
+    }
+
+    private enum ProbeResult
+    {
+        FOUND, MISSING, UNSUPPORTED
+    }
+
+    private static class ProbeResponseHandler
+            implements ResponseHandler<ProbeResult, RuntimeException>
+    {
+        private static final ProbeResponseHandler PROBE_RESPONSE_HANDLER = new ProbeResponseHandler();
+
+        @Override
+        public RuntimeException handleException(Request request, Exception exception)
+        {
+            if (exception instanceof RuntimeException) {
+                return (RuntimeException) exception;
+            }
+            return new RuntimeException(exception);
+        }
+
+        @Override
+        public ProbeResult handle(Request request, Response response)
+        {
+            int statusCode = response.getStatusCode();
+            if (statusCode / 100 == 2) {
+                return ProbeResult.FOUND;
+            }
+            if (statusCode == METHOD_NOT_ALLOWED || statusCode == NOT_IMPLEMENTED) {
+                return ProbeResult.UNSUPPORTED;
+            }
+            if (statusCode == Status.NOT_FOUND.getStatusCode() || statusCode == Status.GONE.getStatusCode() ||
+                    statusCode == Status.UNAUTHORIZED.getStatusCode() || statusCode == Status.FORBIDDEN.getStatusCode()) {
+                return ProbeResult.MISSING;
+            }
+            throw new RuntimeException(String.format("Unexpected response status %s from %s", statusCode, request.getUri()));
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class AwsProvisionerConfig
     private String s3KeystoreBucket;
     private String s3KeystorePath;
     private Duration s3KeystoreRefreshInterval = new Duration(10, TimeUnit.SECONDS);
+    private Duration simpleDbRefreshInterval = new Duration(10, TimeUnit.SECONDS);
 
     @Config("coordinator.aws.credentials-file")
     @ConfigDescription("File containing aws credentials")
@@ -204,4 +205,17 @@ public class AwsProvisionerConfig
         this.s3KeystoreRefreshInterval = s3KeystoreRefreshInterval;
         return this;
     }
+
+    public Duration getSimpleDbRefreshInterval()
+    {
+        return simpleDbRefreshInterval;
+    }
+
+    @Config("coordinator.aws.simpledb.refresh")
+    @ConfigDescription("Refresh interval for the expected slot states cached from SimpleDB")
+    public AwsProvisionerConfig setSimpleDbRefreshInterval(Duration simpleDbRefreshInterval)
+    {
+        this.simpleDbRefreshInterval = simpleDbRefreshInterval;
+        return this;
+    }
 }
@@ -0,0 +1,433 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.airship.shared.DigestUtils;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import static io.airlift.airship.shared.FileUtils.listFiles;
+
+/**
+ * Keeps the binaries served to agents on local disk, so a binary rolled out
+ * to many agents is downloaded from the repository once.  Files are named by
+ * the SHA-256 of their content, so locations with the same content share one
+ * file, and the least recently used files are deleted when the cache grows
+ * past its maximum size.  Concurrent requests for a location that is not
+ * cached share one download.  Snapshot locations are downloaded again after
+ * the snapshot TTL, because their content can change.  Downloads use the
+ * configured connect and read timeouts, so a stalled repository fails the
+ * download instead of holding it forever.
+ * <p/>
+ * A binary is returned with its file already open, so it can still be read
+ * after it is evicted.
+ * <p/>
+ * Cached files left by a previous run are deleted on startup.
+ */
+@ThreadSafe
+public class BinaryCache
+{
+    private static final Pattern CACHE_FILE_NAME = Pattern.compile("[0-9a-f]{64}|download-.*\\.tmp");
+
+    private final File cacheDir;
+    private final long maxSizeBytes;
+    private final long snapshotTtlNanos;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final Ticker ticker;
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("binary-download-%s").setDaemon(true).build());
+    private final RequestCoalescer<URI, CachedFile> downloads = new RequestCoalescer<>(executor);
+
+    @GuardedBy("this")
+    private final Map<URI, Location> locations = new HashMap<>();
+
+    // in access order, so the first file is the least recently used
+    @GuardedBy("this")
+    private final LinkedHashMap<String, CachedFile> files = new LinkedHashMap<>(16, 0.75f, true);
+
+    @GuardedBy("this")
+    private long sizeBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong downloadCount = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Inject
+    public BinaryCache(CoordinatorConfig config)
+    {
+        this(new File(config.getBinaryCacheDir()),
+                config.getBinaryCacheMaxSize(),
+                config.getRepositoryCacheSnapshotTtl(),
+                config.getBinaryCacheDownloadConnectTimeout(),
+                config.getBinaryCacheDownloadReadTimeout(),
+                Ticker.systemTicker());
+    }
+
+    public BinaryCache(File cacheDir, DataSize maxSize, Duration snapshotTtl, Duration connectTimeout, Duration readTimeout, Ticker ticker)
+    {
+        Preconditions.checkNotNull(cacheDir, "cacheDir is null");
+        Preconditions.checkNotNull(maxSize, "maxSize is null");
+        Preconditions.checkNotNull(snapshotTtl, "snapshotTtl is null");
+        Preconditions.checkNotNull(connectTimeout, "connectTimeout is null");
+        Preconditions.checkNotNull(readTimeout, "readTimeout is null");
+        Preconditions.checkNotNull(ticker, "ticker is null");
+
+        cacheDir.mkdirs();
+        Preconditions.checkArgument(cacheDir.isDirectory(), "cacheDir %s is not a directory", cacheDir);
+
+        // files left by a previous run are not in the index
+        for (File file : listFiles(cacheDir)) {
+            if (CACHE_FILE_NAME.matcher(file.getName()).matches()) {
+                file.delete();
+            }
+        }
+
+        this.cacheDir = cacheDir;
+        this.maxSizeBytes = (long) maxSize.getValue(DataSize.Unit.BYTE);
+        this.snapshotTtlNanos = TimeUnit.MILLISECONDS.toNanos((long) snapshotTtl.toMillis());
+        this.connectTimeoutMillis = Ints.saturatedCast((long) connectTimeout.toMillis());
+        this.readTimeoutMillis = Ints.saturatedCast((long) readTimeout.toMillis());
+        this.ticker = ticker;
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the cached binary for the location, downloading it first if it
+     * is not cached.  The binary holds its file open until it is closed, which
+     * is up to the caller.
+     */
+    public CachedBinary get(final URI uri)
+            throws IOException
+    {
+        Preconditions.checkNotNull(uri, "uri is null");
+
+        CachedBinary binary = open(uri);
+        if (binary != null) {
+            hits.incrementAndGet();
+            return binary;
+        }
+
+        while (true) {
+            CachedFile file;
+            try {
+                file = downloads.submit(uri, new Callable<CachedFile>()
+                {
+                    @Override
+                    public CachedFile call()
+                            throws Exception
+                    {
+                        // the previous download of this location may have finished after the lookup
+                        CachedFile file = lookup(uri);
+                        if (file != null) {
+                            return file;
+                        }
+                        return download(uri);
+                    }
+                }).get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(e);
+            }
+            catch (ExecutionException e) {
+                Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+                throw Throwables.propagate(e.getCause());
+            }
+
+            binary = open(file);
+            if (binary != null) {
+                return binary;
+            }
+            // the file was evicted or deleted before it could be opened
+        }
+    }
+
+    private synchronized CachedBinary open(URI uri)
+            throws IOException
+    {
+        CachedFile file = lookup(uri);
+        if (file == null) {
+            return null;
+        }
+        return open(file);
+    }
+
+    private synchronized CachedBinary open(CachedFile file)
+            throws IOException
+    {
+        // the cache only deletes files under this lock, so a file still in the index was not evicted
+        if (files.get(file.hash) != file) {
+            return null;
+        }
+
+        // the stream closes itself when collected, so a binary that is never sent does not keep the file open forever
+        FileInputStream in;
+        try {
+            in = new FileInputStream(file.file);
+        }
+        catch (FileNotFoundException e) {
+            // deleted by something other than the cache, so it is downloaded again
+            remove(file);
+            return null;
+        }
+        return new CachedBinary(file.hash, file.length, in.getChannel());
+    }
+
+    private synchronized CachedFile lookup(URI uri)
+    {
+        Location location = locations.get(uri);
+        if (location == null) {
+            return null;
+        }
+        if (location.isExpired(ticker.read())) {
+            locations.remove(uri);
+            return null;
+        }
+        return files.get(location.hash);
+    }
+
+    private CachedFile download(URI uri)
+            throws IOException
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw Throwables.propagate(e);
+        }
+
+        URLConnection connection = uri.toURL().openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+
+        downloadCount.incrementAndGet();
+        File tempFile = File.createTempFile("download-", ".tmp", cacheDir);
+        try {
+            try (InputStream in = new DigestInputStream(connection.getInputStream(), digest);
+                    OutputStream out = new FileOutputStream(tempFile)) {
+                downloadedBytes.addAndGet(ByteStreams.copy(in, out));
+            }
+            return store(uri, DigestUtils.toHex(digest.digest()), tempFile);
+        }
+        finally {
+            // does nothing if the file was moved into the cache
+            tempFile.delete();
+        }
+    }
+
+    private synchronized CachedFile store(URI uri, String hash, File tempFile)
+            throws IOException
+    {
+        CachedFile cachedFile = files.get(hash);
+        if (cachedFile == null) {
+            File file = new File(cacheDir, hash);
+            if (!tempFile.renameTo(file)) {
+                throw new IOException(String.format("Unable to move %s to %s", tempFile, file));
+            }
+            cachedFile = new CachedFile(file, hash, file.length());
+            files.put(hash, cachedFile);
+            sizeBytes += cachedFile.length;
+            evict(cachedFile);
+        }
+
+        long expirationTime = Long.MAX_VALUE;
+        if (uri.getPath().contains("SNAPSHOT")) {
+            expirationTime = ticker.read() + snapshotTtlNanos;
+        }
+        locations.put(uri, new Location(hash, expirationTime));
+        return cachedFile;
+    }
+
+    @GuardedBy("this")
+    private void evict(CachedFile added)
+    {
+        for (CachedFile file : ImmutableList.copyOf(files.values())) {
+            if (sizeBytes <= maxSizeBytes) {
+                break;
+            }
+            if (file == added) {
+                // a binary larger than the cache is still served once
+                continue;
+            }
+            remove(file);
+            evictions.incrementAndGet();
+        }
+    }
+
+    @GuardedBy("this")
+    private void remove(CachedFile file)
+    {
+        files.remove(file.hash);
+        sizeBytes -= file.length;
+
+        // binaries that already opened the file can finish reading it
+        file.file.delete();
+        for (Iterator<Location> iterator = locations.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().hash.equals(file.hash)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Managed
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Managed
+    public long getDownloads()
+    {
+        return downloadCount.get();
+    }
+
+    @Managed
+    public long getCoalescedDownloads()
+    {
+        return downloads.getCoalescedRequests();
+    }
+
+    @Managed
+    public long getDownloadedBytes()
+    {
+        return downloadedBytes.get();
+    }
+
+    @Managed
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    @Managed
+    public synchronized long getSizeBytes()
+    {
+        return sizeBytes;
+    }
+
+    @Managed
+    public synchronized int getBinaries()
+    {
+        return files.size();
+    }
+
+    /**
+     * A cached binary with its file open for reading.
+     */
+    public static class CachedBinary
+            implements Closeable
+    {
+        private final String hash;
+        private final long length;
+        private final FileChannel channel;
+
+        private CachedBinary(String hash, long length, FileChannel channel)
+        {
+            this.hash = hash;
+            this.length = length;
+            this.channel = channel;
+        }
+
+        /**
+         * Returns the SHA-256 of the content in hex.
+         */
+        public String getHash()
+        {
+            return hash;
+        }
+
+        public long getLength()
+        {
+            return length;
+        }
+
+        /**
+         * Returns the open file, which is readable until this binary is closed.
+         */
+        public FileChannel getChannel()
+        {
+            return channel;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    private static class CachedFile
+    {
+        private final File file;
+        private final String hash;
+        private final long length;
+
+        private CachedFile(File file, String hash, long length)
+        {
+            this.file = file;
+            this.hash = hash;
+            this.length = length;
+        }
+    }
+
+    private static class Location
+    {
+        private final String hash;
+        private final long expirationTime;
+
+        private Location(String hash, long expirationTime)
+        {
+            this.hash = hash;
+            this.expirationTime = expirationTime;
+        }
+
+        private boolean isExpired(long now)
+        {
+            return expirationTime != Long.MAX_VALUE && now - expirationTime >= 0;
+        }
+    }
+}
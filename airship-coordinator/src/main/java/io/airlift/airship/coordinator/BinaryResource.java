@@ -1,27 +1,51 @@
 package io.airlift.airship.coordinator;
 
-import com.google.common.io.Resources;
+import com.google.common.base.Preconditions;
+import io.airlift.airship.coordinator.BinaryCache.CachedBinary;
 import io.airlift.airship.shared.MavenCoordinates;
 import io.airlift.airship.shared.Repository;
 
 import javax.inject.Inject;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.IOException;
+import java.net.URI;
 
+import static com.google.common.net.HttpHeaders.ACCEPT_RANGES;
+import static com.google.common.net.HttpHeaders.CONTENT_LENGTH;
+import static com.google.common.net.HttpHeaders.CONTENT_RANGE;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
+import static com.google.common.net.HttpHeaders.IF_RANGE;
+import static com.google.common.net.HttpHeaders.RANGE;
+
+/**
+ * Serves binaries to agents from the binary cache.  Binaries are tagged with
+ * the hash of their content, and a single byte range can be requested so an
+ * interrupted download can be resumed.
+ */
 @Path("/v1/binary/")
 public class BinaryResource
 {
+    // not defined by JAX-RS 1.x
+    private static final int PARTIAL_CONTENT = 206;
+    private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
     private final Repository repository;
+    private final BinaryCache binaryCache;
 
     @Inject
-    public BinaryResource(Repository repository)
+    public BinaryResource(Repository repository, BinaryCache binaryCache)
     {
+        Preconditions.checkNotNull(repository, "repository is null");
+        Preconditions.checkNotNull(binaryCache, "binaryCache is null");
+
         this.repository = repository;
+        this.binaryCache = binaryCache;
     }
 
     @GET
@@ -29,9 +53,13 @@ public class BinaryResource
     public Response getBinary(@PathParam("groupId") String groupId,
             @PathParam("artifactId") String artifactId,
             @PathParam("version") String version,
-            @PathParam("packaging") String packaging)
+            @PathParam("packaging") String packaging,
+            @HeaderParam(IF_NONE_MATCH) String ifNoneMatch,
+            @HeaderParam(RANGE) String range,
+            @HeaderParam(IF_RANGE) String ifRange)
+            throws IOException
     {
-        return getBinary(groupId, artifactId, version, packaging, null);
+        return getBinary(groupId, artifactId, version, packaging, null, ifNoneMatch, range, ifRange);
     }
 
     @GET
@@ -40,21 +68,71 @@ public class BinaryResource
             @PathParam("artifactId") String artifactId,
             @PathParam("version") String version,
             @PathParam("packaging") String packaging,
-            @PathParam("classifier") String classifier)
+            @PathParam("classifier") String classifier,
+            @HeaderParam(IF_NONE_MATCH) String ifNoneMatch,
+            @HeaderParam(RANGE) String range,
+            @HeaderParam(IF_RANGE) String ifRange)
+            throws IOException
     {
         MavenCoordinates coordinates = new MavenCoordinates(groupId, artifactId, version, packaging, classifier, null);
 
-        URL binaryUrl = null;
-        try {
-            binaryUrl = repository.binaryToHttpUri(coordinates.toGAV()).toURL();
+        URI binaryUri = repository.binaryToHttpUri(coordinates.toGAV());
+        if (binaryUri == null) {
+            return Response.status(Status.NOT_FOUND).build();
         }
-        catch (MalformedURLException e) {
+
+        // the binary is opened here, so it can be sent even if it is evicted before the response is written
+        CachedBinary binary = binaryCache.get(binaryUri);
+        EntityTag entityTag = new EntityTag(binary.getHash());
+        String etag = "\"" + binary.getHash() + "\"";
+        if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+            binary.close();
+            return Response.notModified(entityTag).build();
         }
 
-        if (binaryUrl == null) {
-            return Response.status(Status.NOT_FOUND).build();
+        // a range of a different version of the binary would corrupt the download
+        ByteRange byteRange = null;
+        if (range != null && (ifRange == null || ifRange.trim().equals(etag))) {
+            byteRange = ByteRange.parseRange(range, binary.getLength());
         }
 
-        return Response.ok(new InputSupplierStreamingOutput(Resources.newInputStreamSupplier(binaryUrl))).build();
+        if (byteRange == null) {
+            return Response.ok(new FileChannelStreamingOutput(binary.getChannel(), 0, binary.getLength()))
+                    .tag(entityTag)
+                    .header(ACCEPT_RANGES, "bytes")
+                    .header(CONTENT_LENGTH, binary.getLength())
+                    .build();
+        }
+
+        if (!byteRange.isSatisfiable()) {
+            binary.close();
+            return Response.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .tag(entityTag)
+                    .header(CONTENT_RANGE, byteRange.toContentRange())
+                    .build();
+        }
+
+        return Response.status(PARTIAL_CONTENT)
+                .entity(new FileChannelStreamingOutput(binary.getChannel(), byteRange.getStart(), byteRange.getCount()))
+                .tag(entityTag)
+                .header(ACCEPT_RANGES, "bytes")
+                .header(CONTENT_RANGE, byteRange.toContentRange())
+                .header(CONTENT_LENGTH, byteRange.getCount())
+                .build();
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag)
+    {
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            // If-None-Match uses the weak comparison
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,86 @@
+package io.airlift.airship.coordinator;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single range of bytes requested with a Range header.
+ */
+class ByteRange
+{
+    private static final Pattern BYTE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private final long start;
+    private final long end;
+    private final long length;
+
+    private ByteRange(long start, long end, long length)
+    {
+        this.start = start;
+        this.end = end;
+        this.length = length;
+    }
+
+    /**
+     * Returns the range requested from a file with the specified length, or
+     * null if the header is not a single valid byte range, in which case the
+     * whole file should be sent.
+     */
+    public static ByteRange parseRange(String header, long length)
+    {
+        Matcher matcher = BYTE_RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+
+        try {
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                // the last bytes of the file
+                long suffixLength = Long.parseLong(last);
+                return new ByteRange(Math.max(0, length - suffixLength), length - 1, length);
+            }
+
+            long start = Long.parseLong(first);
+            if (last.isEmpty()) {
+                return new ByteRange(start, length - 1, length);
+            }
+            long end = Long.parseLong(last);
+            if (end < start) {
+                return null;
+            }
+            return new ByteRange(start, Math.min(end, length - 1), length);
+        }
+        catch (NumberFormatException e) {
+            // too large for a long
+            return null;
+        }
+    }
+
+    public boolean isSatisfiable()
+    {
+        return start < length && start <= end;
+    }
+
+    public long getStart()
+    {
+        return start;
+    }
+
+    public long getCount()
+    {
+        return end - start + 1;
+    }
+
+    public String toContentRange()
+    {
+        if (!isSatisfiable()) {
+            return "bytes */" + length;
+        }
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+}
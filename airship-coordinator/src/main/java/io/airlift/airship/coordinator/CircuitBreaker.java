@@ -0,0 +1,97 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import io.airlift.units.Duration;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks consecutive failed requests to an agent.  After the failure
+ * threshold the circuit opens and requests are not attempted, except for a
+ * single probe once the backoff has passed.  Each failed probe doubles the
+ * backoff up to the maximum, and any success closes the circuit.
+ */
+@ThreadSafe
+public class CircuitBreaker
+{
+    private final int failureThreshold;
+    private final long minBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Ticker ticker;
+
+    @GuardedBy("this")
+    private int consecutiveFailures;
+    @GuardedBy("this")
+    private long backoffNanos;
+    @GuardedBy("this")
+    private long nextProbeTime;
+
+    public CircuitBreaker(int failureThreshold, Duration minBackoff, Duration maxBackoff)
+    {
+        this(failureThreshold, minBackoff, maxBackoff, Ticker.systemTicker());
+    }
+
+    public CircuitBreaker(int failureThreshold, Duration minBackoff, Duration maxBackoff, Ticker ticker)
+    {
+        Preconditions.checkArgument(failureThreshold > 0, "failureThreshold must be at least 1");
+        Preconditions.checkNotNull(minBackoff, "minBackoff is null");
+        Preconditions.checkNotNull(maxBackoff, "maxBackoff is null");
+        Preconditions.checkArgument(minBackoff.compareTo(maxBackoff) <= 0, "minBackoff is greater than maxBackoff");
+        Preconditions.checkNotNull(ticker, "ticker is null");
+
+        this.failureThreshold = failureThreshold;
+        this.minBackoffNanos = TimeUnit.MILLISECONDS.toNanos((long) minBackoff.toMillis());
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos((long) maxBackoff.toMillis());
+        this.ticker = ticker;
+    }
+
+    public synchronized boolean isOpen()
+    {
+        return consecutiveFailures >= failureThreshold;
+    }
+
+    /**
+     * Returns true if a request may be sent.  While the circuit is open only
+     * one caller per backoff period is allowed through to probe the agent.
+     */
+    public synchronized boolean allowRequest()
+    {
+        if (!isOpen()) {
+            return true;
+        }
+        long now = ticker.read();
+        if (now - nextProbeTime < 0) {
+            return false;
+        }
+        nextProbeTime = now + backoffNanos;
+        return true;
+    }
+
+    public synchronized void success()
+    {
+        consecutiveFailures = 0;
+        backoffNanos = 0;
+    }
+
+    /**
+     * Records a failed request and returns true if the circuit is open.
+     */
+    public synchronized boolean failure()
+    {
+        consecutiveFailures++;
+        if (!isOpen()) {
+            return false;
+        }
+        if (backoffNanos == 0) {
+            backoffNanos = minBackoffNanos;
+        }
+        else {
+            backoffNanos = Math.min(backoffNanos * 2, maxBackoffNanos);
+        }
+        nextProbeTime = ticker.read() + backoffNanos;
+        return true;
+    }
+}
@@ -0,0 +1,382 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import io.airlift.airship.shared.AgentStatus;
+import io.airlift.airship.shared.Assignment;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.airship.shared.IdPrefixIndex;
+import io.airlift.airship.shared.SlotLifecycleState;
+import io.airlift.airship.shared.SlotStatus;
+
+import javax.annotation.concurrent.Immutable;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newLinkedHashSet;
+import static io.airlift.airship.shared.SlotLifecycleState.UNKNOWN;
+
+/**
+ * A consistent view of all agents, their slots and the expected slot state.
+ * All joins and indexes are computed once when the snapshot is created, so
+ * reads never observe a partially applied status update.  Slot filters are
+ * evaluated against the indexes, see {@link SlotFilterBuilder#buildPredicate(boolean, ClusterSnapshot)}.
+ */
+@Immutable
+public class ClusterSnapshot
+{
+    private final long version;
+
+    private final Map<String, RemoteAgent> remoteAgents;
+    private final List<AgentStatus> agents;
+    private final List<AgentStatus> agentsOrderedById;
+    private final Map<String, AgentStatus> agentsByInstanceId;
+    private final Map<String, AgentStatus> agentsByAgentId;
+    private final IdPrefixIndex agentIdIndex;
+
+    private final List<RemoteSlot> remoteSlots;
+    private final Map<UUID, ExpectedSlotStatus> expectedStates;
+
+    private final List<SlotStatus> slots;
+    private final List<SlotStatus> slotsOrderedById;
+    private final Map<UUID, SlotStatus> slotsById;
+    private final IdPrefixIndex slotIdIndex;
+    private final ImmutableListMultimap<String, SlotStatus> slotsByInstanceId;
+    private final ImmutableListMultimap<String, SlotStatus> slotsByHost;
+    private final ImmutableListMultimap<String, SlotStatus> slotsByBinary;
+    private final ImmutableListMultimap<String, SlotStatus> slotsByConfig;
+    private final ImmutableListMultimap<SlotLifecycleState, SlotStatus> slotsByState;
+
+    /**
+     * Creates a snapshot of the specified agents keyed by instance id.  The
+     * slots of each agent are read from the same status as the agent.
+     */
+    public static ClusterSnapshot createClusterSnapshot(long version, Map<String, RemoteAgent> agents, Collection<ExpectedSlotStatus> expectedStates)
+    {
+        Preconditions.checkNotNull(agents, "agents is null");
+        Preconditions.checkNotNull(expectedStates, "expectedStates is null");
+
+        ImmutableMap.Builder<String, RemoteAgent> remoteAgents = ImmutableMap.builder();
+        ImmutableMap.Builder<String, AgentStatus> agentsByInstanceId = ImmutableMap.builder();
+        ImmutableList.Builder<RemoteSlot> remoteSlots = ImmutableList.builder();
+        for (Entry<String, RemoteAgent> entry : agents.entrySet()) {
+            RemoteAgent remoteAgent = entry.getValue();
+            remoteAgents.put(entry.getKey(), remoteAgent);
+
+            // statuses are replaced on every change, so reread if the status changed while reading the slots
+            AgentStatus agentStatus;
+            List<? extends RemoteSlot> slots;
+            do {
+                agentStatus = remoteAgent.status();
+                slots = remoteAgent.getSlots();
+            } while (remoteAgent.status() != agentStatus);
+            agentsByInstanceId.put(entry.getKey(), agentStatus);
+            remoteSlots.addAll(slots);
+        }
+
+        return new ClusterSnapshot(version,
+                remoteAgents.build(),
+                agentsByInstanceId.build(),
+                remoteSlots.build(),
+                Maps.uniqueIndex(expectedStates, ExpectedSlotStatus.uuidGetter()));
+    }
+
+    private ClusterSnapshot(long version,
+            Map<String, RemoteAgent> remoteAgents,
+            Map<String, AgentStatus> agentsByInstanceId,
+            List<RemoteSlot> remoteSlots,
+            Map<UUID, ExpectedSlotStatus> expectedStates)
+    {
+        this.version = version;
+        this.remoteAgents = remoteAgents;
+        this.agentsByInstanceId = agentsByInstanceId;
+        this.agents = ImmutableList.copyOf(agentsByInstanceId.values());
+        this.agentsOrderedById = Ordering.natural().onResultOf(agentIdGetter()).immutableSortedCopy(agents);
+        this.remoteSlots = remoteSlots;
+        this.expectedStates = expectedStates;
+
+        Map<String, AgentStatus> agentsByAgentId = Maps.newLinkedHashMap();
+        for (AgentStatus agentStatus : agentsByInstanceId.values()) {
+            // provisioning agents do not have an agent id yet
+            if (agentStatus.getAgentId() != null) {
+                agentsByAgentId.put(agentStatus.getAgentId(), agentStatus);
+            }
+        }
+        this.agentsByAgentId = ImmutableMap.copyOf(agentsByAgentId);
+        this.agentIdIndex = new IdPrefixIndex(agentsByAgentId.keySet());
+
+        this.slots = joinExpectedState(Iterables.transform(remoteSlots, slotStatusGetter()), Predicates.<SlotStatus>alwaysTrue());
+        this.slotsOrderedById = Ordering.natural().onResultOf(SlotStatus.idGetter()).immutableSortedCopy(slots);
+
+        ImmutableMap.Builder<UUID, SlotStatus> slotsById = ImmutableMap.builder();
+        ImmutableListMultimap.Builder<String, SlotStatus> slotsByInstanceId = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<String, SlotStatus> slotsByHost = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<String, SlotStatus> slotsByBinary = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<String, SlotStatus> slotsByConfig = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<SlotLifecycleState, SlotStatus> slotsByState = ImmutableListMultimap.builder();
+        for (SlotStatus slot : slots) {
+            slotsById.put(slot.getId(), slot);
+            if (slot.getInstanceId() != null) {
+                slotsByInstanceId.put(slot.getInstanceId(), slot);
+            }
+            for (String host : getHosts(slot)) {
+                slotsByHost.put(host, slot);
+            }
+            if (slot.getAssignment() != null) {
+                slotsByBinary.put(slot.getAssignment().getBinary(), slot);
+                slotsByConfig.put(slot.getAssignment().getConfig(), slot);
+            }
+            slotsByState.put(slot.getState(), slot);
+        }
+        this.slotsById = slotsById.build();
+        this.slotIdIndex = IdPrefixIndex.createUuidPrefixIndex(this.slotsById.keySet());
+        this.slotsByInstanceId = slotsByInstanceId.build();
+        this.slotsByHost = slotsByHost.build();
+        this.slotsByBinary = slotsByBinary.build();
+        this.slotsByConfig = slotsByConfig.build();
+        this.slotsByState = slotsByState.build();
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public List<AgentStatus> getAgents()
+    {
+        return agents;
+    }
+
+    /**
+     * Agents ordered by {@link #agentIdGetter()}, for paging.
+     */
+    public List<AgentStatus> getAgentsOrderedById()
+    {
+        return agentsOrderedById;
+    }
+
+    public AgentStatus getAgent(String instanceId)
+    {
+        return agentsByInstanceId.get(instanceId);
+    }
+
+    public AgentStatus getAgentByAgentId(String agentId)
+    {
+        return agentsByAgentId.get(agentId);
+    }
+
+    /**
+     * Agent ids sorted for short id expansion.
+     */
+    public IdPrefixIndex getAgentIdIndex()
+    {
+        return agentIdIndex;
+    }
+
+    public Map<String, RemoteAgent> getRemoteAgents()
+    {
+        return remoteAgents;
+    }
+
+    public RemoteAgent getRemoteAgent(String instanceId)
+    {
+        return remoteAgents.get(instanceId);
+    }
+
+    public List<RemoteSlot> getRemoteSlots()
+    {
+        return remoteSlots;
+    }
+
+    /**
+     * Status of all slots joined with the expected state, including slots
+     * that are expected but missing from the agents.
+     */
+    public List<SlotStatus> getSlots()
+    {
+        return slots;
+    }
+
+    /**
+     * Slots ordered by {@link SlotStatus#idGetter()}, for paging.
+     */
+    public List<SlotStatus> getSlotsOrderedById()
+    {
+        return slotsOrderedById;
+    }
+
+    public SlotStatus getSlot(UUID slotId)
+    {
+        return slotsById.get(slotId);
+    }
+
+    /**
+     * Slot ids, including expected slots that are missing, sorted for short id expansion.
+     */
+    public IdPrefixIndex getSlotIdIndex()
+    {
+        return slotIdIndex;
+    }
+
+    public ImmutableListMultimap<String, SlotStatus> getSlotsByInstanceId()
+    {
+        return slotsByInstanceId;
+    }
+
+    /**
+     * Slots indexed by the lower case host of the internal and external slot uri.
+     */
+    public ImmutableListMultimap<String, SlotStatus> getSlotsByHost()
+    {
+        return slotsByHost;
+    }
+
+    public ImmutableListMultimap<String, SlotStatus> getSlotsByBinary()
+    {
+        return slotsByBinary;
+    }
+
+    public ImmutableListMultimap<String, SlotStatus> getSlotsByConfig()
+    {
+        return slotsByConfig;
+    }
+
+    public ImmutableListMultimap<SlotLifecycleState, SlotStatus> getSlotsByState()
+    {
+        return slotsByState;
+    }
+
+    /**
+     * Joins the actual slot statuses with the expected state of this snapshot.
+     * Expected slots that are not in the actual statuses are reported as missing.
+     */
+    public List<SlotStatus> joinExpectedState(Iterable<SlotStatus> actualSlots, Predicate<SlotStatus> slotFilter)
+    {
+        ImmutableMap<UUID, SlotStatus> actualStates = Maps.uniqueIndex(actualSlots, SlotStatus.uuidGetter());
+
+        List<SlotStatus> stats = newArrayList();
+        Set<UUID> uuids = newLinkedHashSet(actualStates.keySet());
+        uuids.addAll(expectedStates.keySet());
+        for (UUID uuid : uuids) {
+            final SlotStatus actualState = actualStates.get(uuid);
+            final ExpectedSlotStatus expectedState = expectedStates.get(uuid);
+
+            SlotStatus fullSlotStatus;
+            if (actualState == null) {
+                // skip terminated slots
+                if (expectedState == null || expectedState.getStatus() == SlotLifecycleState.TERMINATED) {
+                    continue;
+                }
+                // missing slot
+                fullSlotStatus = SlotStatus.createSlotStatusWithExpectedState(uuid,
+                        null,
+                        null,
+                        null,
+                        "/unknown",
+                        UNKNOWN,
+                        expectedState.getAssignment(),
+                        null,
+                        ImmutableMap.<String, Integer>of(), expectedState.getStatus(),
+                        expectedState.getAssignment(),
+                        "Slot is missing; Expected slot to be " + expectedState.getStatus());
+            }
+            else if (expectedState == null) {
+                // unexpected slot
+                fullSlotStatus = actualState.changeStatusMessage("Unexpected slot").changeExpectedState(null, null);
+            }
+            else {
+                fullSlotStatus = actualState.changeExpectedState(expectedState.getStatus(), expectedState.getAssignment());
+
+                // add error message if actual state doesn't match expected state
+                List<String> messages = newArrayList();
+                if (!Objects.equal(actualState.getState(), expectedState.getStatus())) {
+                    messages.add("Expected state to be " + expectedState.getStatus());
+                }
+                if (!Objects.equal(actualState.getAssignment(), expectedState.getAssignment())) {
+                    Assignment assignment = expectedState.getAssignment();
+                    if (assignment != null) {
+                        messages.add("Expected assignment to be " + assignment.getBinary() + " " + assignment.getConfig());
+                    }
+                    else {
+                        messages.add("Expected no assignment");
+                    }
+                }
+                if (!messages.isEmpty()) {
+                    fullSlotStatus = fullSlotStatus.changeStatusMessage(Joiner.on("; ").join(messages));
+                }
+            }
+            if (slotFilter.apply(fullSlotStatus)) {
+                stats.add(fullSlotStatus);
+            }
+        }
+
+        return ImmutableList.copyOf(stats);
+    }
+
+    /**
+     * The agent id, or the instance id for agents that are still provisioning.
+     */
+    public static Function<AgentStatus, String> agentIdGetter()
+    {
+        return new Function<AgentStatus, String>()
+        {
+            @Override
+            public String apply(AgentStatus agentStatus)
+            {
+                return Objects.firstNonNull(agentStatus.getAgentId(), agentStatus.getInstanceId());
+            }
+        };
+    }
+
+    private static Function<RemoteSlot, SlotStatus> slotStatusGetter()
+    {
+        return new Function<RemoteSlot, SlotStatus>()
+        {
+            @Override
+            public SlotStatus apply(RemoteSlot slot)
+            {
+                return slot.status();
+            }
+        };
+    }
+
+    private static Set<String> getHosts(SlotStatus slot)
+    {
+        Set<String> hosts = newLinkedHashSet();
+        for (URI uri : Arrays.asList(slot.getSelf(), slot.getExternalUri())) {
+            if (uri != null && uri.getHost() != null) {
+                hosts.add(uri.getHost().toLowerCase());
+            }
+        }
+        return hosts;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("ClusterSnapshot");
+        sb.append("{version=").append(version);
+        sb.append(", agents=").append(agentsByInstanceId.size());
+        sb.append(", slots=").append(slots.size());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,314 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.stats.TimedStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs agent commands on a fixed number of threads.  Commands are queued per
+ * agent, and each agent has its own in-flight limit that grows by one
+ * command per round trip while the agent answers within the target latency,
+ * and is halved when a command fails or is slow (AIMD).  A slow agent
+ * therefore only holds a few of the shared threads.  The queue of an agent
+ * is dropped once it has no commands, but its limit is remembered for a
+ * while so the next command burst starts from the learned limit.
+ */
+public class CommandScheduler
+{
+    private final ThreadPoolExecutor executor;
+    private final int maxQueuedCommands;
+    private final int maxAgentConcurrency;
+    private final Duration targetLatency;
+
+    @GuardedBy("this")
+    private final Map<String, AgentQueue> agentQueues = new HashMap<>();
+
+    // limits of agents without queued or running commands
+    private final Cache<String, Double> idleAgentLimits;
+
+    private final AtomicInteger queuedCommands = new AtomicInteger();
+    private final AtomicInteger runningCommands = new AtomicInteger();
+    private final AtomicLong submittedCommands = new AtomicLong();
+    private final AtomicLong completedCommands = new AtomicLong();
+    private final AtomicLong failedCommands = new AtomicLong();
+    private final AtomicLong rejectedCommands = new AtomicLong();
+    private final TimedStat queueTime = new TimedStat();
+    private final TimedStat commandTime = new TimedStat();
+
+    public CommandScheduler(int maxConcurrency, int maxQueuedCommands, int maxAgentConcurrency, Duration targetLatency)
+    {
+        this(maxConcurrency, maxQueuedCommands, maxAgentConcurrency, targetLatency, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    CommandScheduler(int maxConcurrency, int maxQueuedCommands, int maxAgentConcurrency, Duration targetLatency, Ticker ticker)
+    {
+        Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be at least 1");
+        Preconditions.checkArgument(maxQueuedCommands > 0, "maxQueuedCommands must be at least 1");
+        Preconditions.checkArgument(maxAgentConcurrency > 0, "maxAgentConcurrency must be at least 1");
+        Preconditions.checkNotNull(targetLatency, "targetLatency is null");
+        Preconditions.checkNotNull(ticker, "ticker is null");
+
+        this.maxQueuedCommands = maxQueuedCommands;
+        this.maxAgentConcurrency = maxAgentConcurrency;
+        this.targetLatency = targetLatency;
+
+        idleAgentLimits = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .ticker(ticker)
+                .build();
+
+        // commands only reach the executor once their agent has capacity, and submit bounds the total waiting
+        executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("coordinator-command-%s").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules a command against the agent identified by agentKey.  If too
+     * many commands are already waiting, the returned future fails with a
+     * {@link RejectedExecutionException}.
+     */
+    public <T> ListenableFuture<T> submit(String agentKey, Callable<T> command)
+    {
+        Preconditions.checkNotNull(agentKey, "agentKey is null");
+        Preconditions.checkNotNull(command, "command is null");
+
+        CommandTask<T> task = new CommandTask<>(agentKey, command);
+        submittedCommands.incrementAndGet();
+
+        if (queuedCommands.incrementAndGet() > maxQueuedCommands) {
+            queuedCommands.decrementAndGet();
+            rejectedCommands.incrementAndGet();
+            task.fail(new RejectedExecutionException("Too many queued commands: " + maxQueuedCommands));
+            return task;
+        }
+
+        synchronized (this) {
+            AgentQueue agentQueue = agentQueues.get(agentKey);
+            if (agentQueue == null) {
+                agentQueue = new AgentQueue(Objects.firstNonNull(idleAgentLimits.asMap().remove(agentKey), 1.0));
+                agentQueues.put(agentKey, agentQueue);
+            }
+            agentQueue.pending.add(task);
+            dispatch(agentQueue);
+        }
+        return task;
+    }
+
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Managed
+    public int getQueuedCommands()
+    {
+        return queuedCommands.get();
+    }
+
+    @Managed
+    public int getRunningCommands()
+    {
+        return runningCommands.get();
+    }
+
+    @Managed
+    public synchronized int getActiveAgents()
+    {
+        return agentQueues.size();
+    }
+
+    @Managed
+    public long getSubmittedCommands()
+    {
+        return submittedCommands.get();
+    }
+
+    @Managed
+    public long getCompletedCommands()
+    {
+        return completedCommands.get();
+    }
+
+    @Managed
+    public long getFailedCommands()
+    {
+        return failedCommands.get();
+    }
+
+    @Managed
+    public long getRejectedCommands()
+    {
+        return rejectedCommands.get();
+    }
+
+    @Managed
+    @Nested
+    public TimedStat getQueueTime()
+    {
+        return queueTime;
+    }
+
+    @Managed
+    @Nested
+    public TimedStat getCommandTime()
+    {
+        return commandTime;
+    }
+
+    @VisibleForTesting
+    synchronized double getAgentConcurrencyLimit(String agentKey)
+    {
+        AgentQueue agentQueue = agentQueues.get(agentKey);
+        if (agentQueue == null) {
+            return Objects.firstNonNull(idleAgentLimits.getIfPresent(agentKey), 1.0);
+        }
+        return agentQueue.limit;
+    }
+
+    @GuardedBy("this")
+    private void dispatch(AgentQueue agentQueue)
+    {
+        while (agentQueue.active < (int) agentQueue.limit && !agentQueue.pending.isEmpty()) {
+            CommandTask<?> task = agentQueue.pending.remove();
+            agentQueue.active++;
+            try {
+                executor.execute(task);
+            }
+            catch (RejectedExecutionException e) {
+                // scheduler was shut down
+                agentQueue.active--;
+                queuedCommands.decrementAndGet();
+                rejectedCommands.incrementAndGet();
+                task.fail(e);
+            }
+        }
+    }
+
+    private synchronized void commandFinished(CommandTask<?> task, Duration duration)
+    {
+        AgentQueue agentQueue = agentQueues.get(task.agentKey);
+        agentQueue.active--;
+        if (!task.isCancelled()) {
+            if (!task.failed && duration.compareTo(targetLatency) <= 0) {
+                agentQueue.limit = Math.min(agentQueue.limit + 1.0 / agentQueue.limit, maxAgentConcurrency);
+            }
+            else {
+                agentQueue.limit = Math.max(agentQueue.limit / 2, 1.0);
+            }
+        }
+        dispatch(agentQueue);
+
+        // removed agents must not accumulate, so idle limits expire
+        if (agentQueue.active == 0 && agentQueue.pending.isEmpty()) {
+            agentQueues.remove(task.agentKey);
+            idleAgentLimits.put(task.agentKey, agentQueue.limit);
+        }
+    }
+
+    private static class AgentQueue
+    {
+        private final Queue<CommandTask<?>> pending = new ArrayDeque<>();
+        private double limit;
+        private int active;
+
+        private AgentQueue(double limit)
+        {
+            this.limit = limit;
+        }
+    }
+
+    private class CommandTask<T>
+            extends FutureTask<T>
+            implements ListenableFuture<T>
+    {
+        private final ExecutionList executionList = new ExecutionList();
+        private final String agentKey;
+        private final long queuedNanos = System.nanoTime();
+        private volatile boolean failed;
+
+        private CommandTask(String agentKey, Callable<T> command)
+        {
+            super(command);
+            this.agentKey = agentKey;
+        }
+
+        @Override
+        public void run()
+        {
+            queuedCommands.decrementAndGet();
+            queueTime.addValue(Duration.nanosSince(queuedNanos));
+
+            runningCommands.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                super.run();
+            }
+            finally {
+                Duration duration = Duration.nanosSince(start);
+                if (failed) {
+                    failedCommands.incrementAndGet();
+                }
+                else {
+                    completedCommands.incrementAndGet();
+                }
+                commandTime.addValue(duration);
+                commandFinished(this, duration);
+                runningCommands.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void addListener(Runnable listener, Executor executor)
+        {
+            executionList.add(listener, executor);
+        }
+
+        @Override
+        protected void done()
+        {
+            executionList.execute();
+        }
+
+        @Override
+        protected void setException(Throwable t)
+        {
+            failed = true;
+            super.setException(t);
+        }
+
+        private void fail(Throwable t)
+        {
+            super.setException(t);
+        }
+    }
+}
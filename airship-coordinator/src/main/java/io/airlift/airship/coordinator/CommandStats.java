@@ -0,0 +1,79 @@
+package io.airlift.airship.coordinator;
+
+import io.airlift.stats.TimedStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts and times one kind of coordinator command, such as upgrade or stop.
+ */
+public class CommandStats
+{
+    private final AtomicInteger activeCommands = new AtomicInteger();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong failedCommands = new AtomicLong();
+    private final AtomicLong slots = new AtomicLong();
+    private final TimedStat time = new TimedStat();
+
+    /**
+     * Returns the start time to pass to {@link #finished}.
+     */
+    public long started()
+    {
+        activeCommands.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a finished command.  The slots are null when the command failed.
+     */
+    public void finished(long start, @Nullable Collection<?> slots)
+    {
+        time.addValue(Duration.nanosSince(start));
+        commands.incrementAndGet();
+        if (slots == null) {
+            failedCommands.incrementAndGet();
+        }
+        else {
+            this.slots.addAndGet(slots.size());
+        }
+        activeCommands.decrementAndGet();
+    }
+
+    @Managed
+    public int getActiveCommands()
+    {
+        return activeCommands.get();
+    }
+
+    @Managed
+    public long getCommands()
+    {
+        return commands.get();
+    }
+
+    @Managed
+    public long getFailedCommands()
+    {
+        return failedCommands.get();
+    }
+
+    @Managed
+    public long getSlots()
+    {
+        return slots.get();
+    }
+
+    @Managed
+    @Nested
+    public TimedStat getTime()
+    {
+        return time;
+    }
+}
@@ -7,13 +7,14 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
-import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimaps;
-import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import io.airlift.airship.coordinator.AgentFilterBuilder.StatePredicate;
@@ -29,21 +30,23 @@ import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.SlotLifecycleState;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.UpgradeVersions;
-import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.http.server.HttpServerInfo;
 import io.airlift.log.Logger;
 import io.airlift.node.NodeInfo;
+import io.airlift.stats.TimedStat;
 import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -58,11 +61,14 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Lists.newArrayList;
@@ -73,6 +79,7 @@ import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
 import static io.airlift.airship.shared.SlotLifecycleState.TERMINATED;
 import static io.airlift.airship.shared.SlotLifecycleState.UNKNOWN;
 import static io.airlift.airship.shared.VersionsUtil.checkSlotsVersion;
+import static java.lang.String.format;
 
 public class Coordinator
 {
@@ -80,18 +87,38 @@ public class Coordinator
 
     private final ConcurrentMap<String, RemoteCoordinator> coordinators = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, RemoteAgent> agents = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RemoteAgent> slotEventSubscriptions = new ConcurrentHashMap<>();
 
     private final CoordinatorStatus coordinatorStatus;
-    private final Repository repository;
+    private final TimedRepository repository;
     private final ScheduledExecutorService timerService;
     private final Duration statusExpiration;
     private final Provisioner provisioner;
     private final RemoteCoordinatorFactory remoteCoordinatorFactory;
     private final RemoteAgentFactory remoteAgentFactory;
     private final ServiceInventory serviceInventory;
-    private final StateManager stateManager;
+    private final TimedStateManager stateManager;
     private final boolean allowDuplicateInstallationsOnAnAgent;
-    private final ExecutorService executor;
+    private final CommandScheduler commandScheduler;
+    private final ExecutorService statusExecutor;
+    private final ExecutorService slotEventExecutor;
+    private final RequestCoalescer<String, Object> agentStatusRequests;
+
+    // rebuilt lazily when the agents or expected states change
+    private final AtomicLong agentsVersion = new AtomicLong();
+    private final Object snapshotLock = new Object();
+    private volatile ClusterSnapshot snapshot;
+
+    private final TimedStat agentPollCycleTime = new TimedStat();
+    private final TimedStat agentStatusTime = new TimedStat();
+    private final ConcurrentMap<String, AgentStats> agentStats = new ConcurrentHashMap<>();
+
+    private final CommandStats installStats = new CommandStats();
+    private final CommandStats upgradeStats = new CommandStats();
+    private final CommandStats terminateStats = new CommandStats();
+    private final CommandStats startStats = new CommandStats();
+    private final CommandStats restartStats = new CommandStats();
+    private final CommandStats stopStats = new CommandStats();
 
     @Inject
     public Coordinator(NodeInfo nodeInfo,
@@ -118,7 +145,10 @@ public class Coordinator
                 stateManager,
                 serviceInventory,
                 checkNotNull(config, "config is null").getStatusExpiration(),
-                config.isAllowDuplicateInstallationsOnAnAgent());
+                config.getAgentStatusMaxConcurrency(),
+                config.isAllowDuplicateInstallationsOnAnAgent(),
+                createCommandScheduler(config),
+                config.getSlotEventsMaxSubscriptions());
     }
 
     public Coordinator(CoordinatorStatus coordinatorStatus,
@@ -129,7 +159,35 @@ public class Coordinator
             StateManager stateManager,
             ServiceInventory serviceInventory,
             Duration statusExpiration,
+            int agentStatusMaxConcurrency,
             boolean allowDuplicateInstallationsOnAnAgent)
+    {
+        this(coordinatorStatus,
+                remoteCoordinatorFactory,
+                remoteAgentFactory,
+                repository,
+                provisioner,
+                stateManager,
+                serviceInventory,
+                statusExpiration,
+                agentStatusMaxConcurrency,
+                allowDuplicateInstallationsOnAnAgent,
+                createCommandScheduler(new CoordinatorConfig()),
+                new CoordinatorConfig().getSlotEventsMaxSubscriptions());
+    }
+
+    public Coordinator(CoordinatorStatus coordinatorStatus,
+            RemoteCoordinatorFactory remoteCoordinatorFactory,
+            RemoteAgentFactory remoteAgentFactory,
+            Repository repository,
+            Provisioner provisioner,
+            StateManager stateManager,
+            ServiceInventory serviceInventory,
+            Duration statusExpiration,
+            int agentStatusMaxConcurrency,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            CommandScheduler commandScheduler,
+            int slotEventsMaxSubscriptions)
     {
         Preconditions.checkNotNull(coordinatorStatus, "coordinatorStatus is null");
         Preconditions.checkNotNull(remoteCoordinatorFactory, "remoteCoordinatorFactory is null");
@@ -139,18 +197,28 @@ public class Coordinator
         Preconditions.checkNotNull(stateManager, "stateManager is null");
         Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
         Preconditions.checkNotNull(statusExpiration, "statusExpiration is null");
+        Preconditions.checkArgument(agentStatusMaxConcurrency > 0, "agentStatusMaxConcurrency must be at least 1");
+        Preconditions.checkNotNull(commandScheduler, "commandScheduler is null");
+        Preconditions.checkArgument(slotEventsMaxSubscriptions > 0, "slotEventsMaxSubscriptions must be at least 1");
 
         this.coordinatorStatus = coordinatorStatus;
         this.remoteCoordinatorFactory = remoteCoordinatorFactory;
         this.remoteAgentFactory = remoteAgentFactory;
-        this.repository = repository;
+        this.repository = new TimedRepository(repository);
         this.provisioner = provisioner;
-        this.stateManager = stateManager;
+        this.stateManager = new TimedStateManager(stateManager);
         this.serviceInventory = serviceInventory;
         this.statusExpiration = statusExpiration;
         this.allowDuplicateInstallationsOnAnAgent = allowDuplicateInstallationsOnAnAgent;
 
-        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("coordinator-task").build());
+        this.commandScheduler = commandScheduler;
+        this.statusExecutor = Executors.newFixedThreadPool(agentStatusMaxConcurrency, new ThreadFactoryBuilder().setNameFormat("coordinator-agent-status-%s").setDaemon(true).build());
+        // each subscription holds a thread for as long as the agent is streaming; agents over the limit are polled
+        this.slotEventExecutor = new ThreadPoolExecutor(0, slotEventsMaxSubscriptions,
+                1, TimeUnit.MINUTES,
+                new SynchronousQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("coordinator-slot-events-%s").setDaemon(true).build());
+        this.agentStatusRequests = new RequestCoalescer<>(statusExecutor);
 
         timerService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("coordinator-agent-monitor").setDaemon(true).build());
 
@@ -158,6 +226,14 @@ public class Coordinator
         updateAllAgents();
     }
 
+    private static CommandScheduler createCommandScheduler(CoordinatorConfig config)
+    {
+        return new CommandScheduler(config.getCommandMaxConcurrency(),
+                config.getCommandMaxQueued(),
+                config.getAgentCommandMaxConcurrency(),
+                config.getAgentCommandTargetLatency());
+    }
+
     @PostConstruct
     public void start()
     {
@@ -182,11 +258,162 @@ public class Coordinator
         }, 0, (long) statusExpiration.toMillis(), TimeUnit.MILLISECONDS);
     }
 
+    @PreDestroy
+    public void stop()
+    {
+        timerService.shutdownNow();
+        slotEventExecutor.shutdownNow();
+        statusExecutor.shutdownNow();
+        commandScheduler.shutdown();
+    }
+
     public CoordinatorStatus status()
     {
         return coordinatorStatus;
     }
 
+    @Managed
+    @Nested
+    public TimedStat getAgentPollCycleTime()
+    {
+        return agentPollCycleTime;
+    }
+
+    @Managed
+    @Nested
+    public TimedStat getAgentStatusTime()
+    {
+        return agentStatusTime;
+    }
+
+    @Managed
+    public long getAgentStatusRequests()
+    {
+        return agentStatusRequests.getRequests();
+    }
+
+    @Managed
+    public long getCoalescedAgentStatusRequests()
+    {
+        return agentStatusRequests.getCoalescedRequests();
+    }
+
+    @Managed
+    public int getSlotEventSubscriptions()
+    {
+        return slotEventSubscriptions.size();
+    }
+
+    @Managed
+    @Nested
+    public CommandScheduler getCommandScheduler()
+    {
+        return commandScheduler;
+    }
+
+    @Managed
+    public int getOfflineAgents()
+    {
+        int offlineAgents = 0;
+        for (RemoteAgent agent : agents.values()) {
+            if (agent.status().getState() == AgentLifecycleState.OFFLINE) {
+                offlineAgents++;
+            }
+        }
+        return offlineAgents;
+    }
+
+    @Managed
+    public int getFlappingAgents()
+    {
+        int flappingAgents = 0;
+        for (AgentStats stats : agentStats.values()) {
+            if (stats.isFlapping()) {
+                flappingAgents++;
+            }
+        }
+        return flappingAgents;
+    }
+
+    /**
+     * Returns the status request statistics of each agent by instance id.
+     */
+    public Map<String, AgentStats> getAgentStats()
+    {
+        return ImmutableMap.copyOf(agentStats);
+    }
+
+    @Managed
+    @Nested
+    public TimedStateManager getStateManagerStats()
+    {
+        return stateManager;
+    }
+
+    @Managed
+    @Nested
+    public TimedRepository getRepositoryStats()
+    {
+        return repository;
+    }
+
+    @Managed
+    @Nested
+    public CommandStats getInstallStats()
+    {
+        return installStats;
+    }
+
+    @Managed
+    @Nested
+    public CommandStats getUpgradeStats()
+    {
+        return upgradeStats;
+    }
+
+    @Managed
+    @Nested
+    public CommandStats getTerminateStats()
+    {
+        return terminateStats;
+    }
+
+    @Managed
+    @Nested
+    public CommandStats getStartStats()
+    {
+        return startStats;
+    }
+
+    @Managed
+    @Nested
+    public CommandStats getRestartStats()
+    {
+        return restartStats;
+    }
+
+    @Managed
+    @Nested
+    public CommandStats getStopStats()
+    {
+        return stopStats;
+    }
+
+    /**
+     * Returns the statistics of each kind of command by command name.
+     */
+    public Map<String, CommandStats> getCommandStats()
+    {
+        return ImmutableMap.<String, CommandStats>builder()
+                .put("install", installStats)
+                .put("upgrade", upgradeStats)
+                .put("terminate", terminateStats)
+                .put("start", startStats)
+                .put("restart", restartStats)
+                .put("stop", stopStats)
+                .build();
+    }
+
     public CoordinatorStatus getCoordinator(String instanceId)
     {
         if (coordinatorStatus.getInstanceId().equals(instanceId)) {
@@ -252,42 +479,66 @@ public class Coordinator
         return coordinators;
     }
 
-    public List<AgentStatus> getAgents()
+    /**
+     * Returns a consistent view of the cluster.  The snapshot is shared by all
+     * readers until the agents or the expected states change.  Every poll
+     * cycle publishes a new snapshot, which also picks up expected states
+     * written by other coordinators.
+     */
+    public ClusterSnapshot getSnapshot()
     {
-        return ImmutableList.copyOf(Iterables.transform(agents.values(), new Function<RemoteAgent, AgentStatus>()
-        {
-            public AgentStatus apply(RemoteAgent agent)
-            {
-                return agent.status();
+        ClusterSnapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.getVersion() == getClusterVersion()) {
+            return snapshot;
+        }
+
+        synchronized (snapshotLock) {
+            // another reader may have already rebuilt the snapshot
+            long version = getClusterVersion();
+            snapshot = this.snapshot;
+            if (snapshot == null || snapshot.getVersion() != version) {
+                // a change made while building is newer than the version, so it causes another rebuild
+                snapshot = ClusterSnapshot.createClusterSnapshot(version, ImmutableMap.copyOf(agents), stateManager.getAllExpectedStates());
+                this.snapshot = snapshot;
             }
-        }));
+            return snapshot;
+        }
+    }
+
+    /**
+     * Both versions only grow, so their sum changes whenever either changes.
+     */
+    private long getClusterVersion()
+    {
+        return agentsVersion.get() + stateManager.getVersion();
+    }
+
+    /**
+     * Must be called after an agent or slot status may have changed.
+     */
+    private void agentsChanged()
+    {
+        agentsVersion.incrementAndGet();
+    }
+
+    public List<AgentStatus> getAgents()
+    {
+        return getSnapshot().getAgents();
     }
 
     public List<AgentStatus> getAgents(Predicate<AgentStatus> agentFilter)
     {
-        Iterable<RemoteAgent> remoteAgents = filter(this.agents.values(), filterAgentsBy(agentFilter));
-        List<AgentStatus> agentStatuses = ImmutableList.copyOf(transform(remoteAgents, getAgentStatus()));
-        return agentStatuses;
+        return ImmutableList.copyOf(filter(getSnapshot().getAgents(), agentFilter));
     }
 
     public AgentStatus getAgent(String instanceId)
     {
-        RemoteAgent remoteAgent = agents.get(instanceId);
-        if (remoteAgent == null) {
-            return null;
-        }
-        return remoteAgent.status();
+        return getSnapshot().getAgent(instanceId);
     }
 
     public AgentStatus getAgentByAgentId(String agentId)
     {
-        for (RemoteAgent remoteAgent : agents.values()) {
-            AgentStatus status = remoteAgent.status();
-            if (agentId.equals(status.getAgentId())) {
-                return status;
-            }
-        }
-        return null;
+        return getSnapshot().getAgentByAgentId(agentId);
     }
 
     @VisibleForTesting
@@ -319,14 +570,25 @@ public class Coordinator
         // remove any coordinators in the provisioner list
         coordinators.keySet().retainAll(instanceIds);
 
-        for (RemoteCoordinator remoteCoordinator : coordinators.values()) {
-            remoteCoordinator.updateStatus();
+        List<Future<?>> updates = newArrayList();
+        for (final RemoteCoordinator remoteCoordinator : coordinators.values()) {
+            updates.add(statusExecutor.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    remoteCoordinator.updateStatus();
+                }
+            }));
         }
+        waitForUpdates(updates);
     }
 
     @VisibleForTesting
     public void updateAllAgents()
     {
+        long cycleStart = System.nanoTime();
+
         Set<String> instanceIds = newHashSet();
         for (Instance instance : this.provisioner.listAgents()) {
             instanceIds.add(instance.getInstanceId());
@@ -346,12 +608,134 @@ public class Coordinator
         }
 
         // remove any agents not in the provisioner list
-        agents.keySet().retainAll(instanceIds);
+        boolean removed = agents.keySet().retainAll(instanceIds);
+        agentStats.keySet().retainAll(agents.keySet());
 
-        List<ServiceDescriptor> serviceDescriptors = serviceInventory.getServiceInventory(transform(getAllSlots(), getSlotStatus()));
-        for (RemoteAgent remoteAgent : agents.values()) {
-            remoteAgent.updateStatus();
-            remoteAgent.setServiceInventory(serviceDescriptors);
+        // (re)subscribe to slot state changes; the status poll below is the consistency backstop
+        for (Entry<String, RemoteAgent> entry : agents.entrySet()) {
+            subscribeToSlotEvents(entry.getKey(), entry.getValue());
+        }
+
+        // poll agents in parallel; each agent publishes its own status as soon as it responds
+        // the inventory is versioned once per cycle so each agent only receives what it is missing
+        final VersionedServiceInventory versionedServiceInventory = new VersionedServiceInventory(serviceInventory.getServiceInventory(transform(getSnapshot().getRemoteSlots(), getSlotStatus())));
+        List<Future<?>> updates = newArrayList();
+        for (Entry<String, RemoteAgent> entry : agents.entrySet()) {
+            final RemoteAgent remoteAgent = entry.getValue();
+            updates.add(Futures.transform(updateAgentStatus(entry.getKey(), remoteAgent), new Function<Object, Object>()
+            {
+                @Override
+                public Object apply(Object input)
+                {
+                    remoteAgent.setServiceInventory(versionedServiceInventory);
+                    return input;
+                }
+            }));
+        }
+        waitForUpdates(updates);
+
+        // only publish a new version when an agent was added, removed or changed, so the snapshot is reused between changes
+        ClusterSnapshot snapshot = getSnapshot();
+        boolean changed = removed || snapshot.getRemoteAgents().size() != agents.size();
+        for (Entry<String, RemoteAgent> entry : agents.entrySet()) {
+            // statuses are replaced on every change
+            changed |= snapshot.getAgent(entry.getKey()) != entry.getValue().status();
+        }
+        if (changed) {
+            agentsChanged();
+            getSnapshot();
+        }
+
+        agentPollCycleTime.addValue(Duration.nanosSince(cycleStart));
+    }
+
+    private void subscribeToSlotEvents(final String instanceId, final RemoteAgent remoteAgent)
+    {
+        if (slotEventSubscriptions.putIfAbsent(instanceId, remoteAgent) != null) {
+            return;
+        }
+
+        try {
+            slotEventExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        // stop when the agent is removed or stops streaming; the next poll cycle subscribes again
+                        boolean streaming = true;
+                        while (streaming && agents.get(instanceId) == remoteAgent) {
+                            AgentStatus previous = remoteAgent.status();
+                            streaming = remoteAgent.updateSlotStatus();
+                            // statuses are replaced on every change
+                            if (remoteAgent.status() != previous) {
+                                agentsChanged();
+                            }
+                        }
+                    }
+                    catch (Throwable e) {
+                        log.error(e, "Unexpected exception updating slot status for agent %s", instanceId);
+                    }
+                    finally {
+                        slotEventSubscriptions.remove(instanceId, remoteAgent);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            // all subscriptions are in use, or the coordinator is stopping; the agent is polled instead
+            slotEventSubscriptions.remove(instanceId, remoteAgent);
+        }
+    }
+
+    /**
+     * Fetches the status of an agent.  Callers asking for an agent whose
+     * status is already being fetched share that request.
+     */
+    private ListenableFuture<Object> updateAgentStatus(final String instanceId, final RemoteAgent remoteAgent)
+    {
+        return agentStatusRequests.submit(instanceId, new Callable<Object>()
+        {
+            @Override
+            public Object call()
+            {
+                long start = System.nanoTime();
+                AgentStatus previous = remoteAgent.status();
+                remoteAgent.updateStatus();
+                if (remoteAgent.status() != previous) {
+                    agentsChanged();
+                }
+                Duration time = Duration.nanosSince(start);
+                agentStatusTime.addValue(time);
+                getAgentStats(instanceId).statusUpdated(time, remoteAgent.status().getState());
+                return remoteAgent;
+            }
+        });
+    }
+
+    private AgentStats getAgentStats(String instanceId)
+    {
+        AgentStats stats = agentStats.get(instanceId);
+        if (stats == null) {
+            agentStats.putIfAbsent(instanceId, new AgentStats());
+            stats = agentStats.get(instanceId);
+        }
+        return stats;
+    }
+
+    private void waitForUpdates(List<Future<?>> updates)
+    {
+        for (Future<?> future : updates) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException e) {
+                log.error(e.getCause(), "Unexpected exception updating status");
+            }
         }
     }
 
@@ -380,55 +764,88 @@ public class Coordinator
 
             agents.add(remoteAgent.status());
         }
+        agentsChanged();
         return agents;
     }
 
     public AgentStatus terminateAgent(String agentId)
     {
-        RemoteAgent agent = null;
-        for (Iterator<Entry<String, RemoteAgent>> iterator = agents.entrySet().iterator(); iterator.hasNext(); ) {
-            Entry<String, RemoteAgent> entry = iterator.next();
-            if (entry.getValue().status().getAgentId().equals(agentId)) {
-                iterator.remove();
-                agent = entry.getValue();
-                break;
-            }
+        AgentStatus agentStatus = getSnapshot().getAgentByAgentId(agentId);
+        if (agentStatus == null) {
+            return null;
         }
-        if (agent == null) {
+        RemoteAgent agent = agents.get(agentStatus.getInstanceId());
+        if (agent == null || !agents.remove(agentStatus.getInstanceId(), agent)) {
             return null;
         }
         if (!agent.getSlots().isEmpty()) {
             agents.putIfAbsent(agent.status().getInstanceId(), agent);
             throw new IllegalStateException("Cannot terminate agent that has slots: " + agentId);
         }
+        agentStats.remove(agentStatus.getInstanceId());
+        agentsChanged();
         provisioner.terminateAgents(ImmutableList.of(agentId));
         return agent.status().changeState(AgentLifecycleState.TERMINATED);
     }
 
     public List<SlotStatus> install(Predicate<AgentStatus> filter, int limit, Assignment assignment)
+    {
+        return install(getSnapshot(), filter, limit, assignment);
+    }
+
+    public List<SlotStatus> install(ClusterSnapshot snapshot, Predicate<AgentStatus> filter, int limit, Assignment assignment)
+    {
+        long start = installStats.started();
+        List<SlotStatus> slots = null;
+        try {
+            slots = installSlots(snapshot, filter, limit, assignment);
+            return slots;
+        }
+        finally {
+            installStats.finished(start, slots);
+        }
+    }
+
+    private List<SlotStatus> installSlots(ClusterSnapshot snapshot, Predicate<AgentStatus> filter, int limit, Assignment assignment)
     {
         final Installation installation = InstallationUtils.toInstallation(repository, assignment);
 
-        List<RemoteAgent> targetAgents = new ArrayList<>(selectAgents(filter, installation));
+        List<RemoteAgent> targetAgents = new ArrayList<>(selectAgents(snapshot, filter, installation));
         targetAgents = targetAgents.subList(0, Math.min(targetAgents.size(), limit));
 
-        return parallel(targetAgents, new Function<RemoteAgent, SlotStatus>()
-        {
-            @Override
-            public SlotStatus apply(RemoteAgent agent)
+        // the expected states of all new slots are recorded together, including when some installs fail
+        final List<ExpectedSlotStatus> expectedStates = Collections.synchronizedList(new ArrayList<ExpectedSlotStatus>());
+        try {
+            return parallel(targetAgents, new Function<RemoteAgent, String>()
+            {
+                @Override
+                public String apply(RemoteAgent agent)
+                {
+                    return agent.status().getInstanceId();
+                }
+            }, new Function<RemoteAgent, SlotStatus>()
             {
-                SlotStatus slotStatus = agent.install(installation);
-                stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), STOPPED, installation.getAssignment()));
-                return slotStatus;
+                @Override
+                public SlotStatus apply(RemoteAgent agent)
+                {
+                    SlotStatus slotStatus = agent.install(installation);
+                    expectedStates.add(new ExpectedSlotStatus(slotStatus.getId(), STOPPED, installation.getAssignment()));
+                    return slotStatus;
+                }
+            });
+        }
+        finally {
+            synchronized (expectedStates) {
+                stateManager.setExpectedStates(ImmutableList.copyOf(expectedStates));
             }
-        });
+        }
     }
 
-    private List<RemoteAgent> selectAgents(Predicate<AgentStatus> filter, Installation installation)
+    private List<RemoteAgent> selectAgents(ClusterSnapshot snapshot, Predicate<AgentStatus> filter, Installation installation)
     {
         // select only online agents
         filter = Predicates.and(filter, new StatePredicate(AgentLifecycleState.ONLINE));
-        List<RemoteAgent> allAgents = newArrayList(filter(this.agents.values(), filterAgentsBy(filter)));
+        List<RemoteAgent> allAgents = newArrayList(filter(snapshot.getRemoteAgents().values(), filterAgentsBy(filter)));
         if (allAgents.isEmpty()) {
             throw new IllegalStateException("No online agents match the provided filters.");
         }
@@ -465,16 +882,46 @@ public class Coordinator
 
     public List<SlotStatus> upgrade(Predicate<SlotStatus> filter, UpgradeVersions upgradeVersions, String expectedSlotsVersion)
     {
-        List<RemoteSlot> filteredSlots = selectRemoteSlots(filter, expectedSlotsVersion);
+        return upgrade(getSnapshot(), filter, upgradeVersions, expectedSlotsVersion, RollingUpdate.ALL_AT_ONCE);
+    }
+
+    public List<SlotStatus> upgrade(Predicate<SlotStatus> filter, UpgradeVersions upgradeVersions, String expectedSlotsVersion, RollingUpdate rollingUpdate)
+    {
+        return upgrade(getSnapshot(), filter, upgradeVersions, expectedSlotsVersion, rollingUpdate);
+    }
+
+    public List<SlotStatus> upgrade(ClusterSnapshot snapshot, Predicate<SlotStatus> filter, UpgradeVersions upgradeVersions, String expectedSlotsVersion, RollingUpdate rollingUpdate)
+    {
+        long start = upgradeStats.started();
+        List<SlotStatus> slots = null;
+        try {
+            slots = upgradeSlots(snapshot, filter, upgradeVersions, expectedSlotsVersion, rollingUpdate);
+            return slots;
+        }
+        finally {
+            upgradeStats.finished(start, slots);
+        }
+    }
+
+    private List<SlotStatus> upgradeSlots(ClusterSnapshot snapshot, Predicate<SlotStatus> filter, UpgradeVersions upgradeVersions, String expectedSlotsVersion, RollingUpdate rollingUpdate)
+    {
+        Preconditions.checkNotNull(rollingUpdate, "rollingUpdate is null");
+
+        List<RemoteSlot> filteredSlots = selectRemoteSlots(snapshot, filter, expectedSlotsVersion);
+
+        // slots usually share a few assignments, so each distinct one is only resolved once
+        final ResolutionContext resolutionContext = new ResolutionContext(repository);
 
         final Map<UUID, Assignment> newAssignments = new HashMap<>();
+        final Map<UUID, SlotStatus> previousStatuses = new HashMap<>();
         List<RemoteSlot> slotsToUpgrade = new ArrayList<>();
         for (RemoteSlot slot : filteredSlots) {
             SlotStatus status = slot.status();
             SlotLifecycleState state = status.getState();
             if (state != TERMINATED && state != UNKNOWN) {
-                Assignment assignment = upgradeVersions.upgradeAssignment(repository, status.getAssignment());
+                Assignment assignment = resolutionContext.upgradeAssignment(upgradeVersions, status.getAssignment());
                 newAssignments.put(slot.getId(), assignment);
+                previousStatuses.put(slot.getId(), status);
                 slotsToUpgrade.add(slot);
             }
         }
@@ -493,29 +940,72 @@ public class Coordinator
             throw new IllegalArgumentException("Expected a target slots for upgrade command to have a single binary, but found: " + Joiner.on(", ").join(binaries));
         }
 
-        return parallelCommand(slotsToUpgrade, new Function<RemoteSlot, SlotStatus>()
+        final Map<UUID, Installation> installations = new HashMap<>();
+        for (Entry<UUID, Assignment> entry : newAssignments.entrySet()) {
+            installations.put(entry.getKey(), toUpgradeInstallation(resolutionContext, entry.getValue()));
+        }
+
+        Function<RemoteSlot, ExpectedSlotStatus> upgradeExpectedState = new Function<RemoteSlot, ExpectedSlotStatus>()
         {
             @Override
-            public SlotStatus apply(RemoteSlot slot)
+            public ExpectedSlotStatus apply(RemoteSlot slot)
             {
                 boolean expectRestart = slot.status().getState() == RUNNING;
+                return new ExpectedSlotStatus(slot.getId(), expectRestart ? RUNNING : STOPPED, installations.get(slot.getId()).getAssignment());
+            }
+        };
 
-                Assignment assignment = newAssignments.get(slot.getId());
-                Preconditions.checkState(assignment != null, "Error no assignment for slot " + slot.getId());
+        Function<RemoteSlot, SlotOperation> upgradeOperation = new Function<RemoteSlot, SlotOperation>()
+        {
+            @Override
+            public SlotOperation apply(RemoteSlot slot)
+            {
+                Installation installation = installations.get(slot.getId());
+                Preconditions.checkState(installation != null, "Error no assignment for slot " + slot.getId());
+                return SlotOperation.assign(slot.getId(), installation);
+            }
+        };
 
-                URI configFile = repository.configToHttpUri(assignment.getConfig());
+        if (!rollingUpdate.isRolling()) {
+            stateManager.setExpectedStates(ImmutableList.copyOf(transform(slotsToUpgrade, upgradeExpectedState)));
+            return batchCommand(slotsToUpgrade, upgradeOperation);
+        }
 
-                Installation installation = new Installation(
-                        repository.configShortName(assignment.getConfig()),
-                        assignment,
-                        repository.binaryToHttpUri(assignment.getBinary()),
-                        configFile, ImmutableMap.<String, Integer>of());
+        Function<RemoteSlot, SlotStatus> rollbackCommand = new Function<RemoteSlot, SlotStatus>()
+        {
+            @Override
+            public SlotStatus apply(RemoteSlot slot)
+            {
+                SlotStatus previous = previousStatuses.get(slot.getId());
+                Installation installation = toUpgradeInstallation(resolutionContext, previous.getAssignment());
 
-                stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), expectRestart ? RUNNING : STOPPED, installation.getAssignment()));
-                SlotStatus slotStatus = slot.assign(installation);
-                return slotStatus;
+                stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), previous.getState() == RUNNING ? RUNNING : STOPPED, previous.getAssignment()));
+                return slot.assign(installation);
             }
-        }) ;
+        };
+
+        // only slots that were running are restarted by the upgrade
+        Predicate<RemoteSlot> expectRunning = new Predicate<RemoteSlot>()
+        {
+            @Override
+            public boolean apply(RemoteSlot slot)
+            {
+                return previousStatuses.get(slot.getId()).getState() == RUNNING;
+            }
+        };
+
+        return rollingCommand("upgrade", slotsToUpgrade, applyOperation(upgradeExpectedState, upgradeOperation), rollbackCommand, expectRunning, rollingUpdate);
+    }
+
+    private static Installation toUpgradeInstallation(Repository repository, Assignment assignment)
+    {
+        URI configFile = repository.configToHttpUri(assignment.getConfig());
+
+        return new Installation(
+                repository.configShortName(assignment.getConfig()),
+                assignment,
+                repository.binaryToHttpUri(assignment.getBinary()),
+                configFile, ImmutableMap.<String, Integer>of());
     }
 
     private boolean sameBinary(Collection<Assignment> values)
@@ -534,86 +1024,147 @@ public class Coordinator
     }
 
     public List<SlotStatus> terminate(Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    {
+        return terminate(getSnapshot(), filter, expectedSlotsVersion);
+    }
+
+    public List<SlotStatus> terminate(ClusterSnapshot snapshot, Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    {
+        long start = terminateStats.started();
+        List<SlotStatus> slots = null;
+        try {
+            slots = terminateSlots(snapshot, filter, expectedSlotsVersion);
+            return slots;
+        }
+        finally {
+            terminateStats.finished(start, slots);
+        }
+    }
+
+    private List<SlotStatus> terminateSlots(ClusterSnapshot snapshot, Predicate<SlotStatus> filter, String expectedSlotsVersion)
     {
         Preconditions.checkNotNull(filter, "filter is null");
 
         // filter the slots
-        List<RemoteSlot> filteredSlots = selectRemoteSlots(filter, expectedSlotsVersion);
+        List<RemoteSlot> filteredSlots = selectRemoteSlots(snapshot, filter, expectedSlotsVersion);
 
-        return parallelCommand(filteredSlots, new Function<RemoteSlot, SlotStatus>()
-        {
-            @Override
-            public SlotStatus apply(RemoteSlot slot)
+        final List<UUID> terminatedSlots = Collections.synchronizedList(new ArrayList<UUID>());
+        try {
+            return parallelCommand(filteredSlots, new Function<RemoteSlot, SlotStatus>()
             {
-                SlotStatus slotStatus = slot.terminate();
-                if (slotStatus.getState() == TERMINATED) {
-                    stateManager.deleteExpectedState(slotStatus.getId());
+                @Override
+                public SlotStatus apply(RemoteSlot slot)
+                {
+                    SlotStatus slotStatus = slot.terminate();
+                    if (slotStatus.getState() == TERMINATED) {
+                        terminatedSlots.add(slotStatus.getId());
+                    }
+                    return slotStatus;
                 }
-                return slotStatus;
+            });
+        }
+        finally {
+            synchronized (terminatedSlots) {
+                stateManager.deleteExpectedStates(ImmutableList.copyOf(terminatedSlots));
             }
-        });
+        }
+    }
+
+    public List<SlotStatus> setState(SlotLifecycleState state, Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    {
+        return setState(getSnapshot(), state, filter, expectedSlotsVersion, RollingUpdate.ALL_AT_ONCE);
     }
 
-    public List<SlotStatus> setState(final SlotLifecycleState state, Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    public List<SlotStatus> setState(SlotLifecycleState state, Predicate<SlotStatus> filter, String expectedSlotsVersion, RollingUpdate rollingUpdate)
+    {
+        return setState(getSnapshot(), state, filter, expectedSlotsVersion, rollingUpdate);
+    }
+
+    public List<SlotStatus> setState(ClusterSnapshot snapshot, SlotLifecycleState state, Predicate<SlotStatus> filter, String expectedSlotsVersion, RollingUpdate rollingUpdate)
     {
         Preconditions.checkArgument(EnumSet.of(RUNNING, RESTARTING, STOPPED).contains(state), "Unsupported lifecycle state: " + state);
+        Preconditions.checkNotNull(rollingUpdate, "rollingUpdate is null");
+
+        CommandStats stats = state == RUNNING ? startStats : state == RESTARTING ? restartStats : stopStats;
+        long start = stats.started();
+        List<SlotStatus> slots = null;
+        try {
+            slots = setSlotsState(snapshot, state, filter, expectedSlotsVersion, rollingUpdate);
+            return slots;
+        }
+        finally {
+            stats.finished(start, slots);
+        }
+    }
+
+    private List<SlotStatus> setSlotsState(ClusterSnapshot snapshot, final SlotLifecycleState state, Predicate<SlotStatus> filter, String expectedSlotsVersion, RollingUpdate rollingUpdate)
+    {
 
         // filter the slots
-        List<RemoteSlot> filteredSlots = selectRemoteSlots(filter, expectedSlotsVersion);
+        List<RemoteSlot> filteredSlots = selectRemoteSlots(snapshot, filter, expectedSlotsVersion);
 
-        return parallelCommand(filteredSlots, new Function<RemoteSlot, SlotStatus>()
+        Function<RemoteSlot, ExpectedSlotStatus> stateExpectedState = new Function<RemoteSlot, ExpectedSlotStatus>()
         {
             @Override
-            public SlotStatus apply(RemoteSlot slot)
+            public ExpectedSlotStatus apply(RemoteSlot slot)
             {
-                switch (state) {
-                    case RUNNING:
-                        stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), RUNNING, slot.status().getAssignment()));
-                        return slot.start();
-                    case RESTARTING:
-                        stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), RUNNING, slot.status().getAssignment()));
-                        return slot.restart();
-                    case STOPPED:
-                        stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), STOPPED, slot.status().getAssignment()));
-                        return slot.stop();
-                    default:
-                        throw new IllegalArgumentException("Unexpected state transition " + state);
-                }
+                return new ExpectedSlotStatus(slot.getId(), state == STOPPED ? STOPPED : RUNNING, slot.status().getAssignment());
             }
-        });
+        };
+
+        Function<RemoteSlot, SlotOperation> stateOperation = new Function<RemoteSlot, SlotOperation>()
+        {
+            @Override
+            public SlotOperation apply(RemoteSlot slot)
+            {
+                return SlotOperation.setState(slot.getId(), state);
+            }
+        };
+
+        if (!rollingUpdate.isRolling()) {
+            stateManager.setExpectedStates(ImmutableList.copyOf(transform(filteredSlots, stateExpectedState)));
+            return batchCommand(filteredSlots, stateOperation);
+        }
+        // a lifecycle change can not be undone, so there is nothing to roll back
+        Predicate<RemoteSlot> expectRunning = state == STOPPED ? Predicates.<RemoteSlot>alwaysFalse() : Predicates.<RemoteSlot>alwaysTrue();
+        return rollingCommand(state.name().toLowerCase(), filteredSlots, applyOperation(stateExpectedState, stateOperation), null, expectRunning, rollingUpdate);
     }
 
     public List<SlotStatus> resetExpectedState(Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    {
+        return resetExpectedState(getSnapshot(), filter, expectedSlotsVersion);
+    }
+
+    public List<SlotStatus> resetExpectedState(ClusterSnapshot snapshot, Predicate<SlotStatus> filter, String expectedSlotsVersion)
     {
         // filter the slots
-        List<SlotStatus> filteredSlots = getAllSlotsStatus(filter);
+        List<SlotStatus> filteredSlots = ImmutableList.copyOf(filter(snapshot.getSlots(), filter));
 
         // verify the state of the system hasn't changed
         checkSlotsVersion(expectedSlotsVersion, filteredSlots);
 
-        return ImmutableList.copyOf(transform(filteredSlots, new Function<SlotStatus, SlotStatus>()
-        {
-            @Override
-            public SlotStatus apply(SlotStatus slotStatus)
-            {
-                if (slotStatus.getState() != SlotLifecycleState.UNKNOWN) {
-                    stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), slotStatus.getState(), slotStatus.getAssignment()));
-                }
-                else {
-                    stateManager.deleteExpectedState(slotStatus.getId());
-                }
-                return slotStatus;
+        List<ExpectedSlotStatus> expectedStates = new ArrayList<>();
+        List<UUID> unknownSlots = new ArrayList<>();
+        for (SlotStatus slotStatus : filteredSlots) {
+            if (slotStatus.getState() != SlotLifecycleState.UNKNOWN) {
+                expectedStates.add(new ExpectedSlotStatus(slotStatus.getId(), slotStatus.getState(), slotStatus.getAssignment()));
             }
-        }));
+            else {
+                unknownSlots.add(slotStatus.getId());
+            }
+        }
+        stateManager.setExpectedStates(expectedStates);
+        stateManager.deleteExpectedStates(unknownSlots);
+        return filteredSlots;
     }
 
-    private List<RemoteSlot> selectRemoteSlots(Predicate<SlotStatus> filter, String expectedSlotsVersion)
+    private List<RemoteSlot> selectRemoteSlots(ClusterSnapshot snapshot, Predicate<SlotStatus> filter, String expectedSlotsVersion)
     {
         // filter the slots
-        List<RemoteSlot> filteredSlots = ImmutableList.copyOf(filter(getAllSlots(), filterSlotsBy(filter)));
+        List<RemoteSlot> filteredSlots = ImmutableList.copyOf(filter(snapshot.getRemoteSlots(), filterSlotsBy(filter)));
 
         // verify the state of the system hasn't changed
-        checkSlotsVersion(expectedSlotsVersion, getAllSlotsStatus(filter, filteredSlots));
+        checkSlotsVersion(expectedSlotsVersion, snapshot.joinExpectedState(transform(filteredSlots, getSlotStatus()), filter));
 
         return filteredSlots;
     }
@@ -625,69 +1176,7 @@ public class Coordinator
 
     public List<SlotStatus> getAllSlotsStatus(Predicate<SlotStatus> slotFilter)
     {
-        return getAllSlotsStatus(slotFilter, getAllSlots());
-    }
-
-    private List<SlotStatus> getAllSlotsStatus(Predicate<SlotStatus> slotFilter, List<RemoteSlot> allSlots)
-    {
-        ImmutableMap<UUID, ExpectedSlotStatus> expectedStates = Maps.uniqueIndex(stateManager.getAllExpectedStates(), ExpectedSlotStatus.uuidGetter());
-        ImmutableMap<UUID, SlotStatus> actualStates = Maps.uniqueIndex(transform(allSlots, getSlotStatus()), SlotStatus.uuidGetter());
-
-        ArrayList<SlotStatus> stats = newArrayList();
-        for (UUID uuid : Sets.union(actualStates.keySet(), expectedStates.keySet())) {
-            final SlotStatus actualState = actualStates.get(uuid);
-            final ExpectedSlotStatus expectedState = expectedStates.get(uuid);
-
-            SlotStatus fullSlotStatus;
-            if (actualState == null) {
-                // skip terminated slots
-                if (expectedState == null || expectedState.getStatus() == SlotLifecycleState.TERMINATED) {
-                    continue;
-                }
-                // missing slot
-                fullSlotStatus = SlotStatus.createSlotStatusWithExpectedState(uuid,
-                        null,
-                        null,
-                        null,
-                        "/unknown",
-                        UNKNOWN,
-                        expectedState.getAssignment(),
-                        null,
-                        ImmutableMap.<String, Integer>of(), expectedState.getStatus(),
-                        expectedState.getAssignment(),
-                        "Slot is missing; Expected slot to be " + expectedState.getStatus());
-            }
-            else if (expectedState == null) {
-                // unexpected slot
-                fullSlotStatus = actualState.changeStatusMessage("Unexpected slot").changeExpectedState(null, null);
-            }
-            else {
-                fullSlotStatus = actualState.changeExpectedState(expectedState.getStatus(), expectedState.getAssignment());
-
-                // add error message if actual state doesn't match expected state
-                List<String> messages = newArrayList();
-                if (!Objects.equal(actualState.getState(), expectedState.getStatus())) {
-                    messages.add("Expected state to be " + expectedState.getStatus());
-                }
-                if (!Objects.equal(actualState.getAssignment(), expectedState.getAssignment())) {
-                    Assignment assignment = expectedState.getAssignment();
-                    if (assignment != null) {
-                        messages.add("Expected assignment to be " + assignment.getBinary() + " " + assignment.getConfig());
-                    }
-                    else {
-                        messages.add("Expected no assignment");
-                    }
-                }
-                if (!messages.isEmpty()) {
-                    fullSlotStatus = fullSlotStatus.changeStatusMessage(Joiner.on("; ").join(messages));
-                }
-            }
-            if (slotFilter.apply(fullSlotStatus)) {
-                stats.add(fullSlotStatus);
-            }
-        }
-
-        return stats;
+        return ImmutableList.copyOf(filter(getSnapshot().getSlots(), slotFilter));
     }
 
     private Predicate<RemoteSlot> filterSlotsBy(final Predicate<SlotStatus> filter)
@@ -702,17 +1191,6 @@ public class Coordinator
         };
     }
 
-    private List<RemoteSlot> getAllSlots()
-    {
-        return ImmutableList.copyOf(concat(Iterables.transform(agents.values(), new Function<RemoteAgent, List<? extends RemoteSlot>>()
-        {
-            public List<? extends RemoteSlot> apply(RemoteAgent agent)
-            {
-                return agent.getSlots();
-            }
-        })));
-    }
-
     private Predicate<RemoteAgent> filterAgentsBy(final Predicate<AgentStatus> filter)
     {
         return new Predicate<RemoteAgent>()
@@ -737,18 +1215,6 @@ public class Coordinator
         };
     }
 
-    private Function<RemoteAgent, AgentStatus> getAgentStatus()
-    {
-        return new Function<RemoteAgent, AgentStatus>()
-        {
-            @Override
-            public AgentStatus apply(RemoteAgent agent)
-            {
-                return agent.status();
-            }
-        };
-    }
-
     private Predicate<RemoteAgent> filterAgentsWithAssignment(final Installation installation)
     {
         Preconditions.checkNotNull(installation, "installation is null");
@@ -770,49 +1236,253 @@ public class Coordinator
         };
     }
 
-    private <T> ImmutableList<T> parallelCommand(Iterable<RemoteSlot> items, final Function<RemoteSlot, T> function)
+    private <T> ImmutableList<T> parallelCommand(Iterable<RemoteSlot> items, Function<RemoteSlot, T> function)
     {
-        ImmutableCollection<Collection<RemoteSlot>> slotsByInstance = Multimaps.index(items, new Function<RemoteSlot, Object>()
+        // the command scheduler limits how many commands run against a single instance
+        return parallel(items, new Function<RemoteSlot, String>()
         {
             @Override
-            public Object apply(RemoteSlot input)
+            public String apply(RemoteSlot input)
             {
                 return input.status().getInstanceId();
             }
-        }).asMap().values();
+        }, function);
+    }
 
-        // run commands for different instances in parallel
-        return ImmutableList.copyOf(concat(parallel(slotsByInstance, new Function<Collection<RemoteSlot>, List<T>>()
+    /**
+     * Sends the operations for the slots of an agent to the agent in a single
+     * request, running one command per agent.  Returns the slot statuses in
+     * the order of the slots.
+     */
+    private List<SlotStatus> batchCommand(List<RemoteSlot> slots, final Function<RemoteSlot, SlotOperation> operationFunction)
+    {
+        ImmutableListMultimap<String, RemoteSlot> slotsByInstance = Multimaps.index(slots, new Function<RemoteSlot, String>()
         {
-            public List<T> apply(Collection<RemoteSlot> input)
+            @Override
+            public String apply(RemoteSlot input)
             {
-                // but run commands for a single instance serially
-                return ImmutableList.copyOf(transform(input, function));
+                return input.status().getInstanceId();
+            }
+        });
+
+        List<List<SlotStatus>> agentResults = parallel(slotsByInstance.asMap().entrySet(), new Function<Entry<String, Collection<RemoteSlot>>, String>()
+        {
+            @Override
+            public String apply(Entry<String, Collection<RemoteSlot>> input)
+            {
+                return input.getKey();
+            }
+        }, new Function<Entry<String, Collection<RemoteSlot>>, List<SlotStatus>>()
+        {
+            @Override
+            public List<SlotStatus> apply(Entry<String, Collection<RemoteSlot>> input)
+            {
+                List<RemoteSlot> agentSlots = ImmutableList.copyOf(input.getValue());
+                List<SlotOperation> operations = ImmutableList.copyOf(transform(agentSlots, operationFunction));
+
+                RemoteAgent agent = agents.get(input.getKey());
+                if (agent != null) {
+                    return agent.applySlotOperations(operations);
+                }
+
+                ImmutableList.Builder<SlotStatus> results = ImmutableList.builder();
+                for (int i = 0; i < agentSlots.size(); i++) {
+                    results.add(operations.get(i).applyTo(agentSlots.get(i)));
+                }
+                return results.build();
+            }
+        });
+
+        Map<UUID, SlotStatus> statuses = new HashMap<>();
+        for (List<SlotStatus> results : agentResults) {
+            for (SlotStatus slotStatus : results) {
+                statuses.put(slotStatus.getId(), slotStatus);
             }
-        })));
+        }
+        ImmutableList.Builder<SlotStatus> results = ImmutableList.builder();
+        for (RemoteSlot slot : slots) {
+            results.add(statuses.get(slot.getId()));
+        }
+        return results.build();
     }
 
-    private <F, T> ImmutableList<T> parallel(Iterable<F> items, final Function<F, T> function)
+    private Function<RemoteSlot, SlotStatus> applyOperation(final Function<RemoteSlot, ExpectedSlotStatus> expectedStateFunction, final Function<RemoteSlot, SlotOperation> operationFunction)
     {
-        List<Callable<T>> callables = ImmutableList.copyOf(transform(items, new Function<F, Callable<T>>()
+        return new Function<RemoteSlot, SlotStatus>()
         {
-            public Callable<T> apply(@Nullable final F item)
+            @Override
+            public SlotStatus apply(RemoteSlot slot)
             {
-                return new CallableFunction<>(item, function);
+                stateManager.setExpectedState(expectedStateFunction.apply(slot));
+                return operationFunction.apply(slot).applyTo(slot);
             }
-        }));
+        };
+    }
+
+    /**
+     * Runs the command one batch at a time.  After each batch, waits for the
+     * slots expected to run to be RUNNING (and healthy) before starting the
+     * next batch.  Halts once more than the allowed number of slots failed,
+     * and if requested runs the rollback command on every slot changed so far.
+     * Slots whose command failed are returned with their error status.
+     */
+    private List<SlotStatus> rollingCommand(String name,
+            List<RemoteSlot> slots,
+            Function<RemoteSlot, SlotStatus> command,
+            @Nullable Function<RemoteSlot, SlotStatus> rollbackCommand,
+            Predicate<RemoteSlot> expectRunning,
+            RollingUpdate rollingUpdate)
+    {
+        HttpHealthCheck healthCheck = null;
+        if (rollingUpdate.getHealthCheckPath() != null) {
+            healthCheck = new HttpHealthCheck(serviceInventory, rollingUpdate.getHealthCheckPath());
+        }
+
+        ImmutableList.Builder<SlotStatus> results = ImmutableList.builder();
+        List<RemoteSlot> changedSlots = new ArrayList<>();
+        int failures = 0;
+        List<List<RemoteSlot>> batches = Lists.partition(slots, rollingUpdate.getBatchSize(slots.size()));
+        for (int batchNumber = 0; batchNumber < batches.size(); batchNumber++) {
+            List<RemoteSlot> batch = batches.get(batchNumber);
+            if (batchNumber > 0) {
+                sleep(rollingUpdate.getBatchDelay());
+            }
+            log.info("Rolling %s: batch %s of %s with %s slots", name, batchNumber + 1, batches.size(), batch.size());
+
+            List<UUID> gatedSlots = new ArrayList<>();
+            for (RemoteSlot slot : batch) {
+                if (expectRunning.apply(slot)) {
+                    gatedSlots.add(slot.getId());
+                }
+            }
+
+            List<SlotStatus> batchResults = parallelCommand(batch, reportFailure(command));
+            for (int i = 0; i < batch.size(); i++) {
+                // a failed command may still have been applied, so it is rolled back too
+                changedSlots.add(batch.get(i));
+                SlotStatus result = batchResults.get(i);
+                results.add(result);
+                if (isFailed(result)) {
+                    gatedSlots.remove(result.getId());
+                    failures++;
+                }
+            }
+
+            failures += waitForRunning(gatedSlots, healthCheck, rollingUpdate.getBatchTimeout());
 
-        List<Future<T>> futures;
+            if (failures > rollingUpdate.getMaxFailures()) {
+                String message = format("Rolling %s halted after batch %s of %s: %s slots failed", name, batchNumber + 1, batches.size(), failures);
+                if (rollbackCommand != null && rollingUpdate.isRollback()) {
+                    log.warn("%s, rolling back %s slots", message, changedSlots.size());
+                    parallelCommand(changedSlots, reportFailure(rollbackCommand));
+                    message += ", rolled back " + changedSlots.size() + " slots";
+                }
+                throw new RollingUpdateHaltedException(message);
+            }
+        }
+        return results.build();
+    }
+
+    /**
+     * Waits until the slots are RUNNING and pass the health check.  Returns
+     * the number of slots that did not become ready before the timeout.
+     */
+    private int waitForRunning(List<UUID> slotIds, @Nullable HttpHealthCheck healthCheck, Duration timeout)
+    {
+        Set<UUID> pending = newHashSet(slotIds);
+        long deadline = System.nanoTime() + (long) timeout.toMillis() * 1000000;
+        while (true) {
+            Set<String> instanceIds = newHashSet();
+            for (RemoteAgent agent : agents.values()) {
+                for (RemoteSlot slot : agent.getSlots()) {
+                    SlotStatus status = slot.status();
+                    if (!pending.contains(status.getId())) {
+                        continue;
+                    }
+                    if (status.getState() == RUNNING && (healthCheck == null || healthCheck.isHealthy(status))) {
+                        pending.remove(status.getId());
+                    }
+                    else {
+                        instanceIds.add(agent.status().getInstanceId());
+                    }
+                }
+            }
+
+            if (pending.isEmpty() || System.nanoTime() >= deadline) {
+                break;
+            }
+            sleep(new Duration(1, TimeUnit.SECONDS));
+
+            // refresh the agents of the slots that are not ready yet
+            List<Future<?>> updates = newArrayList();
+            for (String instanceId : instanceIds) {
+                RemoteAgent agent = agents.get(instanceId);
+                if (agent != null) {
+                    updates.add(updateAgentStatus(instanceId, agent));
+                }
+            }
+            waitForUpdates(updates);
+        }
+
+        for (UUID slotId : pending) {
+            log.warn("Slot %s did not become ready within %s", slotId, timeout);
+        }
+        return pending.size();
+    }
+
+    /**
+     * Reports a command that throws as an UNKNOWN status with the error as
+     * the status message, the same way remote slots report a failed request.
+     */
+    private static Function<RemoteSlot, SlotStatus> reportFailure(final Function<RemoteSlot, SlotStatus> function)
+    {
+        return new Function<RemoteSlot, SlotStatus>()
+        {
+            @Override
+            public SlotStatus apply(RemoteSlot slot)
+            {
+                SlotStatus status;
+                try {
+                    status = function.apply(slot);
+                }
+                catch (RuntimeException e) {
+                    log.warn(e, "Command failed for slot %s", slot.getId());
+                    return slot.status().changeState(UNKNOWN).changeStatusMessage(Objects.firstNonNull(e.getMessage(), e.toString()));
+                }
+                if (isFailed(status)) {
+                    log.warn("Command failed for slot %s: %s", slot.getId(), status.getStatusMessage());
+                }
+                return status;
+            }
+        };
+    }
+
+    private static boolean isFailed(SlotStatus status)
+    {
+        return status.getState() == UNKNOWN || status.getStatusMessage() != null;
+    }
+
+    private static void sleep(Duration duration)
+    {
         try {
-            futures = executor.invokeAll(callables);
+            Thread.sleep((long) duration.toMillis());
         }
         catch (InterruptedException e) {
-            throw new RuntimeException("Interrupted while waiting for command to finish", e);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for rolling update", e);
+        }
+    }
+
+    private <F, T> ImmutableList<T> parallel(Iterable<F> items, Function<F, String> agentKeyFunction, Function<F, T> function)
+    {
+        List<ListenableFuture<T>> futures = new ArrayList<>();
+        for (F item : items) {
+            futures.add(commandScheduler.submit(agentKeyFunction.apply(item), new CommandCallable<>(item, function)));
         }
 
         List<Throwable> failures = new ArrayList<>();
         ImmutableList.Builder<T> results = ImmutableList.builder();
-        for (Future<T> future : futures) {
+        for (ListenableFuture<T> future : futures) {
             try {
                 results.add(future.get());
             }
@@ -842,13 +1512,16 @@ public class Coordinator
         return results.build();
     }
 
-    private static class CallableFunction<F, T>
+    /**
+     * Runs a command, which may change the status of agents and slots.
+     */
+    private class CommandCallable<F, T>
             implements Callable<T>
     {
         private final F item;
         private final Function<F, T> function;
 
-        private CallableFunction(F item, Function<F, T> function)
+        private CommandCallable(F item, Function<F, T> function)
         {
             this.item = item;
             this.function = function;
@@ -857,7 +1530,12 @@ public class Coordinator
         @Override
         public T call()
         {
-            return function.apply(item);
+            try {
+                return function.apply(item);
+            }
+            finally {
+                agentsChanged();
+            }
         }
 
     }
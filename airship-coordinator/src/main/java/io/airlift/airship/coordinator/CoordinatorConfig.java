@@ -18,8 +18,11 @@ import com.google.common.collect.ImmutableList;
 import io.airlift.configuration.Config;
 import io.airlift.configuration.ConfigDescription;
 import io.airlift.configuration.LegacyConfig;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -30,6 +33,19 @@ public class CoordinatorConfig
 
     private String airshipVersion;
     private Duration statusExpiration = new Duration(30, TimeUnit.SECONDS);
+    private int agentStatusMaxConcurrency = 32;
+    private Duration agentStatusTimeout = new Duration(10, TimeUnit.SECONDS);
+    private Duration agentStatusRefreshInterval = new Duration(5, TimeUnit.MINUTES);
+    private boolean slotEventsEnabled = true;
+    private Duration slotEventsMaxWait = new Duration(30, TimeUnit.SECONDS);
+    private int slotEventsMaxSubscriptions = 256;
+    private int commandMaxConcurrency = 100;
+    private int commandMaxQueued = 10000;
+    private int agentCommandMaxConcurrency = 4;
+    private Duration agentCommandTargetLatency = new Duration(10, TimeUnit.SECONDS);
+    private int agentFailureThreshold = 3;
+    private Duration agentMinBackoff = new Duration(30, TimeUnit.SECONDS);
+    private Duration agentMaxBackoff = new Duration(10, TimeUnit.MINUTES);
 
     private String serviceInventoryCacheDir = "service-inventory-cache";
 
@@ -38,6 +54,18 @@ public class CoordinatorConfig
 
     private List<String> repositories = ImmutableList.of();
     private List<String> defaultRepositoryGroupId = ImmutableList.of();
+    private Duration repositoryCacheSnapshotTtl = new Duration(1, TimeUnit.MINUTES);
+    private Duration repositoryCacheMissTtl = new Duration(30, TimeUnit.SECONDS);
+    private long repositoryCacheMaxSize = 10000;
+    private Duration repositoryLookupTimeout = new Duration(30, TimeUnit.SECONDS);
+    private Duration repositoryMetadataTtl = new Duration(10, TimeUnit.SECONDS);
+    private String binaryCacheDir = "binary-cache";
+    private DataSize binaryCacheMaxSize = new DataSize(10, Unit.GIGABYTE);
+    private Duration binaryCacheDownloadConnectTimeout = new Duration(5, TimeUnit.SECONDS);
+    private Duration binaryCacheDownloadReadTimeout = new Duration(30, TimeUnit.SECONDS);
+    private Duration repositoryProbeConnectTimeout = new Duration(5, TimeUnit.SECONDS);
+    private Duration repositoryProbeReadTimeout = new Duration(10, TimeUnit.SECONDS);
+    private int repositoryProbeMaxConnectionsPerServer = 16;
 
     private String httpShortNamePattern = DEFAULT_HTTP_SHORT_NAME_PATTERN;
     private String httpRepoBinaryVersionPattern;
@@ -70,6 +98,187 @@ public class CoordinatorConfig
         return this;
     }
 
+    @Min(1)
+    public int getAgentStatusMaxConcurrency()
+    {
+        return agentStatusMaxConcurrency;
+    }
+
+    @Config("coordinator.agent-status.max-concurrency")
+    @ConfigDescription("Maximum number of agents polled for status at the same time")
+    public CoordinatorConfig setAgentStatusMaxConcurrency(int agentStatusMaxConcurrency)
+    {
+        this.agentStatusMaxConcurrency = agentStatusMaxConcurrency;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAgentStatusTimeout()
+    {
+        return agentStatusTimeout;
+    }
+
+    @Config("coordinator.agent-status.timeout")
+    @ConfigDescription("Maximum time to wait for a single agent to respond to a status poll")
+    public CoordinatorConfig setAgentStatusTimeout(Duration agentStatusTimeout)
+    {
+        this.agentStatusTimeout = agentStatusTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAgentStatusRefreshInterval()
+    {
+        return agentStatusRefreshInterval;
+    }
+
+    @Config("coordinator.agent-status.refresh-interval")
+    @ConfigDescription("Interval between full status fetches for agents that stream slot state changes")
+    public CoordinatorConfig setAgentStatusRefreshInterval(Duration agentStatusRefreshInterval)
+    {
+        this.agentStatusRefreshInterval = agentStatusRefreshInterval;
+        return this;
+    }
+
+    public boolean isSlotEventsEnabled()
+    {
+        return slotEventsEnabled;
+    }
+
+    @Config("coordinator.slot-events.enabled")
+    @ConfigDescription("Subscribe to slot state changes on each agent instead of waiting for the next status poll")
+    public CoordinatorConfig setSlotEventsEnabled(boolean slotEventsEnabled)
+    {
+        this.slotEventsEnabled = slotEventsEnabled;
+        return this;
+    }
+
+    @NotNull
+    public Duration getSlotEventsMaxWait()
+    {
+        return slotEventsMaxWait;
+    }
+
+    @Config("coordinator.slot-events.max-wait")
+    @ConfigDescription("Maximum time an agent holds a slot event request open when there are no changes")
+    public CoordinatorConfig setSlotEventsMaxWait(Duration slotEventsMaxWait)
+    {
+        this.slotEventsMaxWait = slotEventsMaxWait;
+        return this;
+    }
+
+    @Min(1)
+    public int getSlotEventsMaxSubscriptions()
+    {
+        return slotEventsMaxSubscriptions;
+    }
+
+    @Config("coordinator.slot-events.max-subscriptions")
+    @ConfigDescription("Maximum number of agents with a slot event subscription; other agents are polled")
+    public CoordinatorConfig setSlotEventsMaxSubscriptions(int slotEventsMaxSubscriptions)
+    {
+        this.slotEventsMaxSubscriptions = slotEventsMaxSubscriptions;
+        return this;
+    }
+
+    @Min(1)
+    public int getCommandMaxConcurrency()
+    {
+        return commandMaxConcurrency;
+    }
+
+    @Config("coordinator.command.max-concurrency")
+    @ConfigDescription("Maximum number of agent commands run at the same time")
+    public CoordinatorConfig setCommandMaxConcurrency(int commandMaxConcurrency)
+    {
+        this.commandMaxConcurrency = commandMaxConcurrency;
+        return this;
+    }
+
+    @Min(1)
+    public int getCommandMaxQueued()
+    {
+        return commandMaxQueued;
+    }
+
+    @Config("coordinator.command.max-queued")
+    @ConfigDescription("Maximum number of agent commands waiting to run before new commands are rejected")
+    public CoordinatorConfig setCommandMaxQueued(int commandMaxQueued)
+    {
+        this.commandMaxQueued = commandMaxQueued;
+        return this;
+    }
+
+    @Min(1)
+    public int getAgentCommandMaxConcurrency()
+    {
+        return agentCommandMaxConcurrency;
+    }
+
+    @Config("coordinator.agent-command.max-concurrency")
+    @ConfigDescription("Upper bound for the number of commands run against a single agent at the same time")
+    public CoordinatorConfig setAgentCommandMaxConcurrency(int agentCommandMaxConcurrency)
+    {
+        this.agentCommandMaxConcurrency = agentCommandMaxConcurrency;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAgentCommandTargetLatency()
+    {
+        return agentCommandTargetLatency;
+    }
+
+    @Config("coordinator.agent-command.target-latency")
+    @ConfigDescription("Commands slower than this reduce the number of commands run against the agent at the same time")
+    public CoordinatorConfig setAgentCommandTargetLatency(Duration agentCommandTargetLatency)
+    {
+        this.agentCommandTargetLatency = agentCommandTargetLatency;
+        return this;
+    }
+
+    @Min(1)
+    public int getAgentFailureThreshold()
+    {
+        return agentFailureThreshold;
+    }
+
+    @Config("coordinator.agent.failure-threshold")
+    @ConfigDescription("Number of consecutive failed status requests before an agent is marked offline")
+    public CoordinatorConfig setAgentFailureThreshold(int agentFailureThreshold)
+    {
+        this.agentFailureThreshold = agentFailureThreshold;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAgentMinBackoff()
+    {
+        return agentMinBackoff;
+    }
+
+    @Config("coordinator.agent.min-backoff")
+    @ConfigDescription("Time to wait before probing an offline agent again; doubled after each failed probe")
+    public CoordinatorConfig setAgentMinBackoff(Duration agentMinBackoff)
+    {
+        this.agentMinBackoff = agentMinBackoff;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAgentMaxBackoff()
+    {
+        return agentMaxBackoff;
+    }
+
+    @Config("coordinator.agent.max-backoff")
+    @ConfigDescription("Longest time to wait between probes of an offline agent")
+    public CoordinatorConfig setAgentMaxBackoff(Duration agentMaxBackoff)
+    {
+        this.agentMaxBackoff = agentMaxBackoff;
+        return this;
+    }
+
     @NotNull
     public String getServiceInventoryCacheDir()
     {
@@ -148,6 +357,174 @@ public class CoordinatorConfig
         return this;
     }
 
+    @NotNull
+    public Duration getRepositoryCacheSnapshotTtl()
+    {
+        return repositoryCacheSnapshotTtl;
+    }
+
+    @Config("coordinator.repository-cache.snapshot-ttl")
+    @ConfigDescription("Time to remember where a snapshot artifact was found")
+    public CoordinatorConfig setRepositoryCacheSnapshotTtl(Duration repositoryCacheSnapshotTtl)
+    {
+        this.repositoryCacheSnapshotTtl = repositoryCacheSnapshotTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryCacheMissTtl()
+    {
+        return repositoryCacheMissTtl;
+    }
+
+    @Config("coordinator.repository-cache.miss-ttl")
+    @ConfigDescription("Time to remember that an artifact was not found")
+    public CoordinatorConfig setRepositoryCacheMissTtl(Duration repositoryCacheMissTtl)
+    {
+        this.repositoryCacheMissTtl = repositoryCacheMissTtl;
+        return this;
+    }
+
+    @Min(0)
+    public long getRepositoryCacheMaxSize()
+    {
+        return repositoryCacheMaxSize;
+    }
+
+    @Config("coordinator.repository-cache.max-size")
+    @ConfigDescription("Maximum number of repository lookups to remember")
+    public CoordinatorConfig setRepositoryCacheMaxSize(long repositoryCacheMaxSize)
+    {
+        this.repositoryCacheMaxSize = repositoryCacheMaxSize;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryLookupTimeout()
+    {
+        return repositoryLookupTimeout;
+    }
+
+    @Config("coordinator.repository-lookup.timeout")
+    @ConfigDescription("Time to wait for the repositories probed at the same time before failing the lookup")
+    public CoordinatorConfig setRepositoryLookupTimeout(Duration repositoryLookupTimeout)
+    {
+        this.repositoryLookupTimeout = repositoryLookupTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryMetadataTtl()
+    {
+        return repositoryMetadataTtl;
+    }
+
+    @Config("coordinator.repository-metadata.ttl")
+    @ConfigDescription("Time to use maven-metadata.xml files before checking if they changed")
+    public CoordinatorConfig setRepositoryMetadataTtl(Duration repositoryMetadataTtl)
+    {
+        this.repositoryMetadataTtl = repositoryMetadataTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryProbeConnectTimeout()
+    {
+        return repositoryProbeConnectTimeout;
+    }
+
+    @Config("coordinator.repository-probe.connect-timeout")
+    @ConfigDescription("Connect timeout for checking if an artifact exists in a repository")
+    public CoordinatorConfig setRepositoryProbeConnectTimeout(Duration repositoryProbeConnectTimeout)
+    {
+        this.repositoryProbeConnectTimeout = repositoryProbeConnectTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryProbeReadTimeout()
+    {
+        return repositoryProbeReadTimeout;
+    }
+
+    @Config("coordinator.repository-probe.read-timeout")
+    @ConfigDescription("Read timeout for checking if an artifact exists in a repository")
+    public CoordinatorConfig setRepositoryProbeReadTimeout(Duration repositoryProbeReadTimeout)
+    {
+        this.repositoryProbeReadTimeout = repositoryProbeReadTimeout;
+        return this;
+    }
+
+    @Min(1)
+    public int getRepositoryProbeMaxConnectionsPerServer()
+    {
+        return repositoryProbeMaxConnectionsPerServer;
+    }
+
+    @Config("coordinator.repository-probe.max-connections-per-server")
+    @ConfigDescription("Maximum number of pooled connections to each repository server")
+    public CoordinatorConfig setRepositoryProbeMaxConnectionsPerServer(int repositoryProbeMaxConnectionsPerServer)
+    {
+        this.repositoryProbeMaxConnectionsPerServer = repositoryProbeMaxConnectionsPerServer;
+        return this;
+    }
+
+    @NotNull
+    public String getBinaryCacheDir()
+    {
+        return binaryCacheDir;
+    }
+
+    @Config("coordinator.binary-cache.dir")
+    @ConfigDescription("Directory for the binaries served to agents")
+    public CoordinatorConfig setBinaryCacheDir(String binaryCacheDir)
+    {
+        this.binaryCacheDir = binaryCacheDir;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getBinaryCacheMaxSize()
+    {
+        return binaryCacheMaxSize;
+    }
+
+    @Config("coordinator.binary-cache.max-size")
+    @ConfigDescription("Maximum disk space used by the binaries served to agents")
+    public CoordinatorConfig setBinaryCacheMaxSize(DataSize binaryCacheMaxSize)
+    {
+        this.binaryCacheMaxSize = binaryCacheMaxSize;
+        return this;
+    }
+
+    @NotNull
+    public Duration getBinaryCacheDownloadConnectTimeout()
+    {
+        return binaryCacheDownloadConnectTimeout;
+    }
+
+    @Config("coordinator.binary-cache.download-connect-timeout")
+    @ConfigDescription("Connect timeout for downloading a binary from a repository into the cache")
+    public CoordinatorConfig setBinaryCacheDownloadConnectTimeout(Duration binaryCacheDownloadConnectTimeout)
+    {
+        this.binaryCacheDownloadConnectTimeout = binaryCacheDownloadConnectTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getBinaryCacheDownloadReadTimeout()
+    {
+        return binaryCacheDownloadReadTimeout;
+    }
+
+    @Config("coordinator.binary-cache.download-read-timeout")
+    @ConfigDescription("Longest time to wait for more bytes while downloading a binary into the cache")
+    public CoordinatorConfig setBinaryCacheDownloadReadTimeout(Duration binaryCacheDownloadReadTimeout)
+    {
+        this.binaryCacheDownloadReadTimeout = binaryCacheDownloadReadTimeout;
+        return this;
+    }
+
     public String getHttpShortNamePattern()
     {
         return httpShortNamePattern;
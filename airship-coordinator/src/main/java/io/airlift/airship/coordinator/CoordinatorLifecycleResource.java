@@ -15,7 +15,6 @@ package io.airlift.airship.coordinator;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.SlotLifecycleState;
@@ -30,7 +29,6 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.util.List;
-import java.util.UUID;
 
 import static com.google.common.collect.Collections2.transform;
 import static io.airlift.airship.shared.SlotLifecycleState.UNKNOWN;
@@ -67,15 +65,24 @@ public class CoordinatorLifecycleResource
             return Response.status(Response.Status.BAD_REQUEST).build();
         }
 
+        RollingUpdate rollingUpdate;
+        try {
+            rollingUpdate = RollingUpdate.fromQueryParameters(uriInfo.getQueryParameters());
+        }
+        catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.TEXT_PLAIN_TYPE).entity(e.getMessage()).build();
+        }
+
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+
         // build filter
-        List<UUID> uuids = Lists.transform(coordinator.getAllSlotStatus(), SlotStatus.uuidGetter());
-        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, uuids);
+        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, snapshot);
 
         // set slot state
-        List<SlotStatus> results = coordinator.setState(state, slotFilter, expectedSlotsVersion);
+        List<SlotStatus> results = coordinator.setState(snapshot, state, slotFilter, expectedSlotsVersion, rollingUpdate);
 
         // build response
-        return Response.ok(transform(results, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
+        return Response.ok(transform(results, fromSlotStatus(snapshot.getSlots(), snapshot.getSlotIdIndex(), repository)))
                 .header(AIRSHIP_SLOTS_VERSION_HEADER, createSlotsVersion(results))
                 .build();
      }
@@ -24,14 +24,18 @@ import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.CoordinatorStatusRepresentation;
 import io.airlift.airship.shared.ExpectedSlotStatus;
 import io.airlift.airship.shared.InstallationRepresentation;
+import io.airlift.airship.shared.ParallelLookup;
 import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.RepositorySet;
+import io.airlift.airship.shared.ServiceInventoryDeltaRepresentation;
+import io.airlift.airship.shared.SlotEventsRepresentation;
 import io.airlift.airship.shared.SlotStatusRepresentation;
 import io.airlift.airship.shared.VersionConflictExceptionMapper;
 import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
 import io.airlift.http.server.TheServlet;
 import io.airlift.json.JsonCodecBinder;
+import org.weakref.jmx.guice.MBeanModule;
 
 import javax.servlet.Filter;
 
@@ -47,22 +51,35 @@ public class CoordinatorMainModule
         binder.requireExplicitBindings();
 
         binder.bind(Coordinator.class).in(Scopes.SINGLETON);
+        MBeanModule.newExporter(binder).export(Coordinator.class).withGeneratedName();
         binder.bind(CoordinatorResource.class).in(Scopes.SINGLETON);
         binder.bind(CoordinatorSlotResource.class).in(Scopes.SINGLETON);
         binder.bind(CoordinatorAssignmentResource.class).in(Scopes.SINGLETON);
         binder.bind(CoordinatorLifecycleResource.class).in(Scopes.SINGLETON);
         binder.bind(ExpectedStateResource.class).in(Scopes.SINGLETON);
         binder.bind(InvalidSlotFilterExceptionMapper.class).in(Scopes.SINGLETON);
+        binder.bind(RollingUpdateHaltedExceptionMapper.class).in(Scopes.SINGLETON);
         binder.bind(AdminResource.class).in(Scopes.SINGLETON);
+        binder.bind(MetricsResource.class).in(Scopes.SINGLETON);
         binder.bind(VersionConflictExceptionMapper.class).in(Scopes.SINGLETON);
         binder.bind(RemoteCoordinatorFactory.class).to(HttpRemoteCoordinatorFactory.class).in(Scopes.SINGLETON);
         binder.bind(RemoteAgentFactory.class).to(HttpRemoteAgentFactory.class).in(Scopes.SINGLETON);
 
         binder.bind(Repository.class).to(RepositorySet.class).in(Scopes.SINGLETON);
+        binder.bind(ResolutionCache.class).in(Scopes.SINGLETON);
+        MBeanModule.newExporter(binder).export(ResolutionCache.class).withGeneratedName();
+        binder.bind(ParallelLookup.class).toProvider(ParallelLookupProvider.class).in(Scopes.SINGLETON);
+        binder.bind(ArtifactProbe.class).in(Scopes.SINGLETON);
+        MBeanModule.newExporter(binder).export(ArtifactProbe.class).withGeneratedName();
+        binder.bind(MavenMetadataCache.class).in(Scopes.SINGLETON);
+        MBeanModule.newExporter(binder).export(MavenMetadataCache.class).withGeneratedName();
+        binder.bind(MavenRepository.class).in(Scopes.SINGLETON);
         Multibinder.newSetBinder(binder, Repository.class).addBinding().to(MavenRepository.class).in(Scopes.SINGLETON);
         Multibinder.newSetBinder(binder, Repository.class).addBinding().to(HttpRepository.class).in(Scopes.SINGLETON);
 
         binder.bind(BinaryResource.class).in(Scopes.SINGLETON);
+        binder.bind(BinaryCache.class).in(Scopes.SINGLETON);
+        MBeanModule.newExporter(binder).export(BinaryCache.class).withGeneratedName();
 
         binder.bind(ServiceInventory.class).to(HttpServiceInventory.class).in(Scopes.SINGLETON);
         binder.bind(ServiceInventoryResource.class).in(Scopes.SINGLETON);
@@ -75,7 +92,9 @@ public class CoordinatorMainModule
         JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(CoordinatorStatusRepresentation.class);
         JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(AgentStatusRepresentation.class);
         JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(SlotStatusRepresentation.class);
+        JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(SlotEventsRepresentation.class);
         JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(ServiceDescriptorsRepresentation.class);
+        JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(ServiceInventoryDeltaRepresentation.class);
         JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(ExpectedSlotStatus.class);
         JsonCodecBinder.jsonCodecBinder(binder).bindListJsonCodec(ServiceDescriptor.class);
 
@@ -13,8 +13,10 @@
  */
 package io.airlift.airship.coordinator;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 import io.airlift.airship.shared.AgentStatus;
@@ -22,6 +24,8 @@ import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.AssignmentRepresentation;
 import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.SlotStatus;
+import io.airlift.airship.shared.SlotStatusRepresentation;
+import org.codehaus.jackson.map.ObjectMapper;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -33,17 +37,21 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.util.List;
-import java.util.UUID;
 
 import static com.google.common.collect.Lists.transform;
-import static io.airlift.airship.shared.AgentStatus.idGetter;
-import static io.airlift.airship.shared.SlotStatus.uuidGetter;
+import static io.airlift.airship.coordinator.JsonLinesStreamingOutput.APPLICATION_NDJSON;
+import static io.airlift.airship.coordinator.JsonLinesStreamingOutput.APPLICATION_NDJSON_TYPE;
+import static io.airlift.airship.coordinator.ResultPage.checkPageRequest;
+import static io.airlift.airship.coordinator.ResultPage.createResultPage;
 import static io.airlift.airship.shared.SlotStatusRepresentation.fromSlotStatus;
 import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENTS_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_NEXT_CURSOR_HEADER;
 import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_SLOTS_VERSION_HEADER;
 import static io.airlift.airship.shared.VersionsUtil.checkAgentsVersion;
 import static io.airlift.airship.shared.VersionsUtil.createSlotsVersion;
@@ -52,35 +60,68 @@ import static io.airlift.airship.shared.VersionsUtil.createSlotsVersion;
 public class CoordinatorSlotResource
 {
     public static final int MIN_PREFIX_SIZE = 4;
+    public static final int DEFAULT_PAGE_SIZE = 1000;
 
     private final Coordinator coordinator;
     private final Repository repository;
+    private final ObjectMapper objectMapper;
 
     @Inject
-    public CoordinatorSlotResource(Coordinator coordinator, Repository repository)
+    public CoordinatorSlotResource(Coordinator coordinator, Repository repository, ObjectMapper objectMapper)
     {
         Preconditions.checkNotNull(coordinator, "coordinator must not be null");
         Preconditions.checkNotNull(repository, "repository is null");
+        Preconditions.checkNotNull(objectMapper, "objectMapper is null");
 
         this.coordinator = coordinator;
         this.repository = repository;
+        this.objectMapper = objectMapper;
     }
 
+    // json unless the client explicitly asks for newline delimited json
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllSlots(@Context UriInfo uriInfo)
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON + ";qs=0.5"})
+    public Response getAllSlots(@Context UriInfo uriInfo,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("cursor") String cursor,
+            @HeaderParam(HttpHeaders.ACCEPT) String accept)
     {
+        // the whole request works against a single view of the cluster
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+
         // build filter
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), uuidGetter());
-        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, false, uuids);
+        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, false, snapshot);
 
         // select slots
-        List<SlotStatus> slots = coordinator.getAllSlotsStatus(slotFilter);
+        List<SlotStatus> slots;
+        String nextCursor = null;
+        if (limit != null || cursor != null) {
+            checkPageRequest(cursor, limit);
+            ResultPage<SlotStatus> page = createResultPage(snapshot.getSlotsOrderedById(),
+                    SlotStatus.idGetter(),
+                    slotFilter,
+                    cursor,
+                    Objects.firstNonNull(limit, DEFAULT_PAGE_SIZE));
+            slots = page.getItems();
+            nextCursor = page.getNextCursor();
+        }
+        else {
+            slots = ImmutableList.copyOf(Iterables.filter(snapshot.getSlots(), slotFilter));
+        }
 
         // build response
-        return Response.ok(Iterables.transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
-                .header(AIRSHIP_SLOTS_VERSION_HEADER, createSlotsVersion(slots))
-                .build();
+        Iterable<SlotStatusRepresentation> representations = Iterables.transform(slots, fromSlotStatus(snapshot.getSlots(), snapshot.getSlotIdIndex(), repository));
+        ResponseBuilder response;
+        if (JsonLinesStreamingOutput.isAccepted(accept)) {
+            response = Response.ok(new JsonLinesStreamingOutput(objectMapper, representations), APPLICATION_NDJSON_TYPE);
+        }
+        else {
+            response = Response.ok(representations);
+        }
+        if (nextCursor != null) {
+            response.header(AIRSHIP_NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.header(AIRSHIP_SLOTS_VERSION_HEADER, createSlotsVersion(slots)).build();
     }
 
     @POST
@@ -97,22 +138,24 @@ public class CoordinatorSlotResource
 
         Assignment assignment = assignmentRepresentation.toAssignment();
 
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+
         // select the target agents
         Predicate<AgentStatus> agentFilter = AgentFilterBuilder.build(uriInfo,
-                transform(coordinator.getAgents(), idGetter()),
-                transform(coordinator.getAllSlotStatus(), uuidGetter()),
+                snapshot,
                 false,
                 repository);
-        List<AgentStatus> agents = coordinator.getAgents(agentFilter);
+        List<AgentStatus> agents = ImmutableList.copyOf(Iterables.filter(snapshot.getAgents(), agentFilter));
 
         // verify the expected status of agents
         checkAgentsVersion(expectedAgentsVersion, agents);
 
         // install the software
-        List<SlotStatus> slots = coordinator.install(agentFilter, limit, assignment);
+        List<SlotStatus> slots = coordinator.install(snapshot, agentFilter, limit, assignment);
 
         // calculate unique prefix size with the new slots included
-        return Response.ok(transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
+        ClusterSnapshot installedSnapshot = coordinator.getSnapshot();
+        return Response.ok(transform(slots, fromSlotStatus(installedSnapshot.getSlots(), installedSnapshot.getSlotIdIndex(), repository)))
                 .header(AIRSHIP_SLOTS_VERSION_HEADER, createSlotsVersion(slots))
                 .build();
     }
@@ -122,15 +165,16 @@ public class CoordinatorSlotResource
     public Response terminateSlots(@Context UriInfo uriInfo,
             @HeaderParam(AIRSHIP_SLOTS_VERSION_HEADER) String expectedSlotsVersion)
     {
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+
         // build filter
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), uuidGetter());
-        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, uuids);
+        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, true, snapshot);
 
         // terminate slots
-        List<SlotStatus> result = coordinator.terminate(slotFilter, expectedSlotsVersion);
+        List<SlotStatus> result = coordinator.terminate(snapshot, slotFilter, expectedSlotsVersion);
 
         // build response
-        return Response.ok(transform(result, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
+        return Response.ok(transform(result, fromSlotStatus(snapshot.getSlots(), snapshot.getSlotIdIndex(), repository)))
                 .header(AIRSHIP_SLOTS_VERSION_HEADER, createSlotsVersion(result))
                 .build();
     }
@@ -0,0 +1,47 @@
+package io.airlift.airship.coordinator;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes part of an open file with FileChannel.transferTo, which lets the
+ * kernel copy the file directly when the output is backed by a channel.  The
+ * file is closed once it is written.
+ */
+class FileChannelStreamingOutput implements StreamingOutput
+{
+    private final FileChannel channel;
+    private final long position;
+    private final long count;
+
+    public FileChannelStreamingOutput(FileChannel channel, long position, long count)
+    {
+        this.channel = channel;
+        this.position = position;
+        this.count = count;
+    }
+
+    public void write(OutputStream output)
+            throws IOException, WebApplicationException
+    {
+        try (FileChannel channel = this.channel) {
+            WritableByteChannel target = Channels.newChannel(output);
+            long position = this.position;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    throw new EOFException(String.format("File is shorter than %s bytes", this.position + count));
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+}
@@ -2,78 +2,381 @@ package io.airlift.airship.coordinator;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 import com.google.common.io.PatternFilenameFilter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.airlift.airship.shared.ExpectedSlotStatus;
 import io.airlift.airship.shared.FileUtils;
 import io.airlift.json.JsonCodec;
 import io.airlift.log.Logger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
 
+/**
+ * Stores expected slot states as one JSON file per slot.  The files are
+ * read once at startup and afterwards reads are served from memory, while
+ * writes go to disk first using a synced temporary file and a rename
+ * followed by a sync of the directory, so a crash never leaves a partially
+ * written state behind and a completed write survives a power loss.  When watching is enabled
+ * files changed by hand are picked up without a restart.
+ */
 public class FileStateManager implements StateManager
 {
     private static final Logger log = Logger.get(FileStateManager.class);
+    private static final Pattern STATE_FILE_PATTERN = Pattern.compile("[^\\.].*\\.json");
+
     private final File dataDir;
     private final JsonCodec<ExpectedSlotStatus> codec;
+    private final boolean watchEnabled;
+    private final ConcurrentMap<UUID, ExpectedSlotStatus> expectedStates = new ConcurrentHashMap<>();
+
+    @GuardedBy("this")
+    private WatchService watchService;
+    @GuardedBy("this")
+    private ExecutorService watchExecutor;
 
     @Inject
     public FileStateManager(FileStateManagerConfig fileStateManagerConfig, JsonCodec<ExpectedSlotStatus> codec)
     {
-        this(new File(checkNotNull(fileStateManagerConfig, "fileStateManagerConfig is null").getExpectedStateDir()), codec);
+        this(new File(checkNotNull(fileStateManagerConfig, "fileStateManagerConfig is null").getExpectedStateDir()), codec, fileStateManagerConfig.isWatchEnabled());
     }
 
     public FileStateManager(File dataDir, JsonCodec<ExpectedSlotStatus> codec)
+    {
+        this(dataDir, codec, false);
+    }
+
+    public FileStateManager(File dataDir, JsonCodec<ExpectedSlotStatus> codec, boolean watchEnabled)
     {
         Preconditions.checkNotNull(dataDir, "dataDir is null");
         Preconditions.checkNotNull(codec, "codec is null");
         this.dataDir = dataDir;
         this.codec = codec;
+        this.watchEnabled = watchEnabled;
 
         dataDir.mkdirs();
         Preconditions.checkArgument(dataDir.isDirectory(), "dataDir is not a directory");
+
+        reloadAll();
+    }
+
+    @PostConstruct
+    public synchronized void start()
+            throws IOException
+    {
+        if (!watchEnabled || watchService != null) {
+            return;
+        }
+
+        final WatchService watchService = FileSystems.getDefault().newWatchService();
+        dataDir.toPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        this.watchService = watchService;
+
+        // changes made before the watch was registered would otherwise be missed
+        reloadAll();
+
+        watchExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("expected-state-watcher-%s").setDaemon(true).build());
+        watchExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                watch(watchService);
+            }
+        });
+    }
+
+    @PreDestroy
+    public synchronized void stop()
+            throws IOException
+    {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+        if (watchExecutor != null) {
+            watchExecutor.shutdownNow();
+            watchExecutor = null;
+        }
     }
 
     @Override
     public Collection<ExpectedSlotStatus> getAllExpectedStates()
     {
-        List<ExpectedSlotStatus> slots = newArrayList();
-        for (File file : FileUtils.listFiles(dataDir, new PatternFilenameFilter("[^\\.].*\\.json"))) {
+        return ImmutableList.copyOf(expectedStates.values());
+    }
+
+    @Override
+    public synchronized void deleteExpectedState(UUID slotId)
+    {
+        Preconditions.checkNotNull(slotId, "slotId is null");
+        File file = getStateFile(slotId);
+        if (file.delete() || !file.exists()) {
+            expectedStates.remove(slotId);
+        }
+        else {
+            log.error("Error deleting expected slot status %s", file);
+        }
+    }
+
+    @Override
+    public synchronized void setExpectedState(ExpectedSlotStatus slotStatus)
+    {
+        Preconditions.checkNotNull(slotStatus, "slotStatus is null");
+        File file = getStateFile(slotStatus.getId());
+        File tempFile = getTempFile(slotStatus.getId());
+        try {
+            writeSynced(tempFile, slotStatus);
+            java.nio.file.Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            syncDataDir();
+            expectedStates.put(slotStatus.getId(), slotStatus);
+        }
+        catch (Exception e) {
+            log.error(e, "Error writing expected slot status");
+            tempFile.delete();
+        }
+    }
+
+    @Override
+    public synchronized void deleteExpectedStates(Collection<UUID> slotIds)
+    {
+        Preconditions.checkNotNull(slotIds, "slotIds is null");
+        for (UUID slotId : slotIds) {
+            deleteExpectedState(slotId);
+        }
+    }
+
+    @Override
+    public synchronized void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses)
+    {
+        Preconditions.checkNotNull(slotStatuses, "slotStatuses is null");
+
+        // write and sync every file before replacing any, so a full disk does not leave half of the states changed
+        Map<File, ExpectedSlotStatus> tempFiles = new LinkedHashMap<>();
+        try {
+            for (ExpectedSlotStatus slotStatus : slotStatuses) {
+                File tempFile = getTempFile(slotStatus.getId());
+                tempFiles.put(tempFile, slotStatus);
+                writeSynced(tempFile, slotStatus);
+            }
+        }
+        catch (Exception e) {
+            log.error(e, "Error writing expected slot status");
+            for (File tempFile : tempFiles.keySet()) {
+                tempFile.delete();
+            }
+            return;
+        }
+
+        List<ExpectedSlotStatus> applied = new ArrayList<>();
+        try {
+            for (Entry<File, ExpectedSlotStatus> entry : tempFiles.entrySet()) {
+                ExpectedSlotStatus slotStatus = entry.getValue();
+                java.nio.file.Files.move(entry.getKey().toPath(), getStateFile(slotStatus.getId()).toPath(), StandardCopyOption.ATOMIC_MOVE);
+                applied.add(slotStatus);
+            }
+        }
+        catch (Exception e) {
+            log.error(e, "Error writing expected slot status, rolling back %s of %s slots", applied.size(), tempFiles.size());
+            for (File tempFile : tempFiles.keySet()) {
+                tempFile.delete();
+            }
+            applied = rollBack(applied);
+        }
+        finally {
+            // one directory sync makes all renames durable
+            syncDataDir();
+        }
+
+        // the cache only reflects what is on disk
+        for (ExpectedSlotStatus slotStatus : applied) {
+            expectedStates.put(slotStatus.getId(), slotStatus);
+        }
+    }
+
+    /**
+     * Restores the cached state of each slot on disk, and returns the slots
+     * whose new state could not be rolled back.
+     */
+    private List<ExpectedSlotStatus> rollBack(List<ExpectedSlotStatus> applied)
+    {
+        List<ExpectedSlotStatus> notRolledBack = new ArrayList<>();
+        for (ExpectedSlotStatus slotStatus : applied) {
+            ExpectedSlotStatus previous = expectedStates.get(slotStatus.getId());
+            File file = getStateFile(slotStatus.getId());
+            File tempFile = getTempFile(slotStatus.getId());
             try {
-                String json = Files.toString(file, Charsets.UTF_8);
-                ExpectedSlotStatus expectedSlotStatus = codec.fromJson(json);
-                slots.add(expectedSlotStatus);
+                if (previous == null) {
+                    java.nio.file.Files.delete(file.toPath());
+                }
+                else {
+                    writeSynced(tempFile, previous);
+                    java.nio.file.Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
             }
             catch (Exception e) {
-                // skip corrupted entries... these will be marked as unexpected
-                // and someone will resolve the conflict (and overwrite the corrupted record)
+                log.error(e, "Error rolling back expected slot status %s", slotStatus.getId());
+                tempFile.delete();
+                notRolledBack.add(slotStatus);
             }
         }
-        return slots;
+        if (!notRolledBack.isEmpty()) {
+            log.error("Expected slot status was only applied to slots %s", Lists.transform(notRolledBack, ExpectedSlotStatus.uuidGetter()));
+        }
+        return notRolledBack;
     }
 
-    @Override
-    public void deleteExpectedState(UUID slotId)
+    /**
+     * Writes the state and forces it to disk, so the rename can never
+     * publish a file whose contents are still only in the page cache.
+     */
+    private void writeSynced(File file, ExpectedSlotStatus slotStatus)
+            throws IOException
     {
-         new File(dataDir, slotId.toString() + ".json").delete();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(codec.toJson(slotStatus).getBytes(Charsets.UTF_8));
+            out.getChannel().force(true);
+        }
     }
 
-    @Override
-    public void setExpectedState(ExpectedSlotStatus slotStatus)
+    /**
+     * Forces the directory entries to disk, which makes renames durable.
+     */
+    private void syncDataDir()
+    {
+        try (FileChannel channel = FileChannel.open(dataDir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch (IOException e) {
+            // some platforms can not open a directory; the rename is still atomic
+            log.debug("Could not sync expected state directory %s: %s", dataDir, e.getMessage());
+        }
+    }
+
+    private File getStateFile(UUID slotId)
+    {
+        return new File(dataDir, slotId.toString() + ".json");
+    }
+
+    private File getTempFile(UUID slotId)
+    {
+        return new File(dataDir, "." + slotId + ".json.tmp");
+    }
+
+    private synchronized void reloadAll()
+    {
+        Map<UUID, ExpectedSlotStatus> loaded = new HashMap<>();
+        for (File file : FileUtils.listFiles(dataDir, new PatternFilenameFilter(STATE_FILE_PATTERN))) {
+            ExpectedSlotStatus expectedSlotStatus = load(file);
+            if (expectedSlotStatus != null) {
+                loaded.put(expectedSlotStatus.getId(), expectedSlotStatus);
+            }
+        }
+
+        // replace entries in place so readers never see an empty map while reloading
+        expectedStates.putAll(loaded);
+        expectedStates.keySet().retainAll(loaded.keySet());
+    }
+
+    private synchronized void reload(File file)
+    {
+        ExpectedSlotStatus expectedSlotStatus = load(file);
+        if (expectedSlotStatus != null) {
+            expectedStates.put(expectedSlotStatus.getId(), expectedSlotStatus);
+        }
+    }
+
+    private ExpectedSlotStatus load(File file)
     {
-        Preconditions.checkNotNull(slotStatus, "slotStatus is null");
         try {
-            Files.write(codec.toJson(slotStatus), new File(dataDir, slotStatus.getId().toString() + ".json"), Charsets.UTF_8);
+            String json = Files.toString(file, Charsets.UTF_8);
+            return codec.fromJson(json);
         }
         catch (Exception e) {
-            log.error(e, "Error writing expected slot status");
+            // skip corrupted entries... these will be marked as unexpected
+            // and someone will resolve the conflict (and overwrite the corrupted record)
+            return null;
+        }
+    }
+
+    private synchronized void reloadOrRemove(String fileName)
+    {
+        File file = new File(dataDir, fileName);
+        if (file.exists()) {
+            reload(file);
+            return;
+        }
+        try {
+            expectedStates.remove(UUID.fromString(fileName.substring(0, fileName.length() - ".json".length())));
+        }
+        catch (IllegalArgumentException ignored) {
+            // not a slot state file
+        }
+    }
+
+    private void watch(WatchService watchService)
+    {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    log.info("Too many changes in %s, reloading all expected slot states", dataDir);
+                    reloadAll();
+                    continue;
+                }
+                String fileName = ((Path) event.context()).getFileName().toString();
+                if (STATE_FILE_PATTERN.matcher(fileName).matches()) {
+                    reloadOrRemove(fileName);
+                }
+            }
+
+            if (!key.reset()) {
+                log.error("Expected state directory %s is no longer accessible, stopped watching for changes", dataDir);
+                return;
+            }
         }
     }
 }
@@ -1,12 +1,17 @@
 package io.airlift.airship.coordinator;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 public class FileStateManagerConfig
 {
     private String expectedStateDir = "expected-state";
+    private boolean watchEnabled;
+    private boolean journalEnabled;
+    private int journalCompactionThreshold = 100000;
 
     @NotNull
     public String getExpectedStateDir()
@@ -20,4 +25,44 @@ public class FileStateManagerConfig
         this.expectedStateDir = expectedStateDir;
         return this;
     }
+
+    public boolean isWatchEnabled()
+    {
+        return watchEnabled;
+    }
+
+    @Config("coordinator.expected-state.watch")
+    @ConfigDescription("Pick up changes made to the expected state files by other processes")
+    public FileStateManagerConfig setWatchEnabled(boolean watchEnabled)
+    {
+        this.watchEnabled = watchEnabled;
+        return this;
+    }
+
+    public boolean isJournalEnabled()
+    {
+        return journalEnabled;
+    }
+
+    @Config("coordinator.expected-state.journal.enabled")
+    @ConfigDescription("Store expected states in a snapshot and journal file instead of one file per slot")
+    public FileStateManagerConfig setJournalEnabled(boolean journalEnabled)
+    {
+        this.journalEnabled = journalEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getJournalCompactionThreshold()
+    {
+        return journalCompactionThreshold;
+    }
+
+    @Config("coordinator.expected-state.journal.compaction-threshold")
+    @ConfigDescription("Number of journal entries after which the expected states are written to a new snapshot")
+    public FileStateManagerConfig setJournalCompactionThreshold(int journalCompactionThreshold)
+    {
+        this.journalCompactionThreshold = journalCompactionThreshold;
+        return this;
+    }
 }
@@ -32,7 +32,7 @@ public class FixedProvisionerModule
         binder.bind(Provisioner.class).to(FixedProvisioner.class).in(Scopes.SINGLETON);
         ConfigurationModule.bindConfig(binder).to(FixedProvisionerConfig.class);
 
-        binder.bind(StateManager.class).to(FileStateManager.class).in(Scopes.SINGLETON);
+        binder.bind(StateManager.class).toProvider(LocalStateManagerProvider.class).in(Scopes.SINGLETON);
         ConfigurationModule.bindConfig(binder).to(FileStateManagerConfig.class);
 
         binder.bind(AuthorizedKeyStore.class).to(FileAuthorizedKeyStore.class).in(Scopes.SINGLETON);
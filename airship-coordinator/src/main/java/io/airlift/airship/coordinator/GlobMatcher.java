@@ -0,0 +1,461 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.BitSet;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.lang.String.format;
+
+/**
+ * Matches the glob syntax of {@link GlobPredicate} without regular
+ * expressions.  Globs made only of literals and '*' are matched with
+ * substring searches; all other globs are compiled to a small automaton
+ * that is simulated in a single pass over the input, so no glob can cause
+ * backtracking.
+ */
+@Immutable
+public class GlobMatcher
+        implements Predicate<CharSequence>
+{
+    private static final LoadingCache<String, GlobMatcher> COMPILED_GLOBS = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build(new CacheLoader<String, GlobMatcher>()
+            {
+                @Override
+                public GlobMatcher load(String glob)
+                {
+                    return new GlobMatcher(glob);
+                }
+            });
+
+    /**
+     * Returns a matcher for the glob, reusing a previously compiled matcher if possible.
+     */
+    public static GlobMatcher compile(String glob)
+    {
+        Preconditions.checkNotNull(glob, "glob is null");
+        try {
+            return COMPILED_GLOBS.getUnchecked(glob);
+        }
+        catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private final String glob;
+
+    // literal fast path: the literal parts between stars, or null if the glob needs the automaton
+    private final String[] literals;
+
+    private final Instruction[] program;
+
+    public GlobMatcher(String glob)
+    {
+        Preconditions.checkNotNull(glob, "glob is null");
+        this.glob = glob;
+
+        List<Node> nodes = new Parser(glob.trim()).parse();
+        this.literals = toLiterals(nodes);
+        if (literals == null) {
+            List<Instruction> program = newArrayList();
+            assemble(nodes, program);
+            program.add(Instruction.match());
+            this.program = program.toArray(new Instruction[program.size()]);
+        }
+        else {
+            this.program = null;
+        }
+    }
+
+    @Override
+    public boolean apply(@Nullable CharSequence input)
+    {
+        if (input == null) {
+            return false;
+        }
+        if (literals != null) {
+            return matchLiterals(input.toString());
+        }
+        return runProgram(input);
+    }
+
+    @Override
+    public String toString()
+    {
+        return glob;
+    }
+
+    private boolean matchLiterals(String input)
+    {
+        if (literals.length == 1) {
+            return input.equals(literals[0]);
+        }
+
+        String prefix = literals[0];
+        String suffix = literals[literals.length - 1];
+        int end = input.length() - suffix.length();
+        if (end < prefix.length() || !input.startsWith(prefix) || !input.endsWith(suffix)) {
+            return false;
+        }
+
+        // the leftmost match of each middle literal leaves the most room for the rest
+        int position = prefix.length();
+        for (int i = 1; i < literals.length - 1; i++) {
+            int index = input.indexOf(literals[i], position);
+            if (index < 0 || index + literals[i].length() > end) {
+                return false;
+            }
+            position = index + literals[i].length();
+        }
+        return true;
+    }
+
+    private boolean runProgram(CharSequence input)
+    {
+        // simulate all threads in lock step, so each input character is examined once per program instruction
+        int[] current = new int[program.length];
+        int[] next = new int[program.length];
+        int[] generations = new int[program.length];
+
+        int currentCount = addThread(current, 0, 0, generations, 1);
+        for (int i = 0; i < input.length() && currentCount > 0; i++) {
+            char c = input.charAt(i);
+            int nextCount = 0;
+            for (int thread = 0; thread < currentCount; thread++) {
+                int pc = current[thread];
+                if (program[pc].matches(c)) {
+                    nextCount = addThread(next, nextCount, pc + 1, generations, i + 2);
+                }
+            }
+
+            int[] swap = current;
+            current = next;
+            next = swap;
+            currentCount = nextCount;
+        }
+
+        for (int thread = 0; thread < currentCount; thread++) {
+            if (program[current[thread]].opcode == Opcode.MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int addThread(int[] threads, int count, int pc, int[] generations, int generation)
+    {
+        if (generations[pc] == generation) {
+            return count;
+        }
+        generations[pc] = generation;
+
+        Instruction instruction = program[pc];
+        switch (instruction.opcode) {
+            case JUMP:
+                return addThread(threads, count, instruction.target, generations, generation);
+            case SPLIT:
+                count = addThread(threads, count, instruction.target, generations, generation);
+                return addThread(threads, count, instruction.alternate, generations, generation);
+            default:
+                threads[count] = pc;
+                return count + 1;
+        }
+    }
+
+    private static String[] toLiterals(List<Node> nodes)
+    {
+        List<String> literals = newArrayList();
+        StringBuilder literal = new StringBuilder();
+        for (Node node : nodes) {
+            if (node.type == NodeType.STAR) {
+                literals.add(literal.toString());
+                literal.setLength(0);
+            }
+            else if (node.type == NodeType.LITERAL) {
+                literal.append(node.literal);
+            }
+            else {
+                return null;
+            }
+        }
+        literals.add(literal.toString());
+        return literals.toArray(new String[literals.size()]);
+    }
+
+    private static void assemble(List<Node> nodes, List<Instruction> program)
+    {
+        for (Node node : nodes) {
+            switch (node.type) {
+                case LITERAL:
+                    program.add(Instruction.literal(node.literal));
+                    break;
+                case ANY:
+                    program.add(Instruction.any());
+                    break;
+                case CHARACTER_CLASS:
+                    program.add(Instruction.characterClass(node.ranges));
+                    break;
+                case STAR: {
+                    // loop: split(body, exit); body: any; jump loop
+                    int loop = program.size();
+                    Instruction split = Instruction.split();
+                    program.add(split);
+                    program.add(Instruction.any());
+                    program.add(Instruction.jump(loop));
+                    split.target = loop + 1;
+                    split.alternate = program.size();
+                    break;
+                }
+                case ALTERNATION: {
+                    List<Instruction> jumpsToEnd = newArrayList();
+                    List<List<Node>> alternatives = node.alternatives;
+                    for (int i = 0; i < alternatives.size() - 1; i++) {
+                        Instruction split = Instruction.split();
+                        program.add(split);
+                        split.target = program.size();
+                        assemble(alternatives.get(i), program);
+                        Instruction jump = Instruction.jump(-1);
+                        program.add(jump);
+                        jumpsToEnd.add(jump);
+                        split.alternate = program.size();
+                    }
+                    assemble(alternatives.get(alternatives.size() - 1), program);
+                    for (Instruction jump : jumpsToEnd) {
+                        jump.target = program.size();
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private enum NodeType
+    {
+        LITERAL, ANY, STAR, CHARACTER_CLASS, ALTERNATION
+    }
+
+    private static class Node
+    {
+        private final NodeType type;
+        private final char literal;
+        private final char[] ranges;
+        private final List<List<Node>> alternatives;
+
+        private Node(NodeType type, char literal, char[] ranges, List<List<Node>> alternatives)
+        {
+            this.type = type;
+            this.literal = literal;
+            this.ranges = ranges;
+            this.alternatives = alternatives;
+        }
+    }
+
+    private static class Parser
+    {
+        private final String glob;
+        private int position;
+
+        private Parser(String glob)
+        {
+            this.glob = glob;
+        }
+
+        public List<Node> parse()
+        {
+            // outside of an alternation ',' and '}' are literals
+            return parseSequence(false);
+        }
+
+        private List<Node> parseSequence(boolean inAlternation)
+        {
+            List<Node> nodes = newArrayList();
+            while (position < glob.length()) {
+                char c = glob.charAt(position);
+                if (inAlternation && (c == ',' || c == '}')) {
+                    return nodes;
+                }
+                position++;
+                switch (c) {
+                    case '\\':
+                        // a trailing backslash is ignored
+                        if (position < glob.length()) {
+                            nodes.add(new Node(NodeType.LITERAL, glob.charAt(position++), null, null));
+                        }
+                        break;
+                    case '*':
+                        nodes.add(new Node(NodeType.STAR, '*', null, null));
+                        break;
+                    case '?':
+                        nodes.add(new Node(NodeType.ANY, '?', null, null));
+                        break;
+                    case '[':
+                        nodes.add(new Node(NodeType.CHARACTER_CLASS, '[', parseCharacterClass(), null));
+                        break;
+                    case '{':
+                        nodes.add(new Node(NodeType.ALTERNATION, '{', null, parseAlternatives()));
+                        break;
+                    default:
+                        nodes.add(new Node(NodeType.LITERAL, c, null, null));
+                }
+            }
+            return nodes;
+        }
+
+        private List<List<Node>> parseAlternatives()
+        {
+            int start = position - 1;
+            ImmutableList.Builder<List<Node>> alternatives = ImmutableList.builder();
+            while (true) {
+                alternatives.add(parseSequence(true));
+                if (position >= glob.length()) {
+                    throw new IllegalArgumentException(format("Unclosed '{' at position %s in glob '%s'", start, glob));
+                }
+                if (glob.charAt(position++) == '}') {
+                    return alternatives.build();
+                }
+            }
+        }
+
+        private char[] parseCharacterClass()
+        {
+            int start = position - 1;
+
+            // a leading '^' or '!' negates the class
+            boolean negated = position < glob.length() && (glob.charAt(position) == '^' || glob.charAt(position) == '!');
+            if (negated) {
+                position++;
+            }
+
+            StringBuilder ranges = new StringBuilder();
+            while (position < glob.length()) {
+                char c = glob.charAt(position++);
+                if (c == ']') {
+                    char[] members = ranges.toString().toCharArray();
+                    return negated ? complement(members) : members;
+                }
+                if (c == '\\' && position < glob.length()) {
+                    c = glob.charAt(position++);
+                }
+
+                // ranges are stored as (low, high) pairs
+                char high = c;
+                if (position + 1 < glob.length() && glob.charAt(position) == '-' && glob.charAt(position + 1) != ']') {
+                    high = glob.charAt(position + 1);
+                    position += 2;
+                    if (high < c) {
+                        throw new IllegalArgumentException(format("Illegal character range '%s-%s' in glob '%s'", c, high, glob));
+                    }
+                }
+                ranges.append(c).append(high);
+            }
+            throw new IllegalArgumentException(format("Unclosed '[' at position %s in glob '%s'", start, glob));
+        }
+
+        /**
+         * Returns the ranges of all characters not in the given ranges.
+         */
+        private static char[] complement(char[] ranges)
+        {
+            BitSet members = new BitSet(Character.MAX_VALUE + 1);
+            for (int i = 0; i < ranges.length; i += 2) {
+                members.set(ranges[i], ranges[i + 1] + 1);
+            }
+
+            StringBuilder complement = new StringBuilder();
+            int low = members.nextClearBit(0);
+            while (low <= Character.MAX_VALUE) {
+                int high = members.nextSetBit(low);
+                if (high < 0) {
+                    high = Character.MAX_VALUE + 1;
+                }
+                complement.append((char) low).append((char) (high - 1));
+                low = members.nextClearBit(high);
+            }
+            return complement.toString().toCharArray();
+        }
+    }
+
+    private enum Opcode
+    {
+        LITERAL, ANY, CHARACTER_CLASS, SPLIT, JUMP, MATCH
+    }
+
+    private static class Instruction
+    {
+        private final Opcode opcode;
+        private final char literal;
+        private final char[] ranges;
+
+        // set after construction while the program is being assembled
+        private int target;
+        private int alternate;
+
+        private static Instruction literal(char literal)
+        {
+            return new Instruction(Opcode.LITERAL, literal, null, 0);
+        }
+
+        private static Instruction any()
+        {
+            return new Instruction(Opcode.ANY, (char) 0, null, 0);
+        }
+
+        private static Instruction characterClass(char[] ranges)
+        {
+            return new Instruction(Opcode.CHARACTER_CLASS, (char) 0, ranges, 0);
+        }
+
+        private static Instruction split()
+        {
+            return new Instruction(Opcode.SPLIT, (char) 0, null, 0);
+        }
+
+        private static Instruction jump(int target)
+        {
+            return new Instruction(Opcode.JUMP, (char) 0, null, target);
+        }
+
+        private static Instruction match()
+        {
+            return new Instruction(Opcode.MATCH, (char) 0, null, 0);
+        }
+
+        private Instruction(Opcode opcode, char literal, char[] ranges, int target)
+        {
+            this.opcode = opcode;
+            this.literal = literal;
+            this.ranges = ranges;
+            this.target = target;
+        }
+
+        public boolean matches(char c)
+        {
+            switch (opcode) {
+                case LITERAL:
+                    return c == literal;
+                case ANY:
+                    return true;
+                case CHARACTER_CLASS:
+                    for (int i = 0; i < ranges.length; i += 2) {
+                        if (c >= ranges[i] && c <= ranges[i + 1]) {
+                            return true;
+                        }
+                    }
+                    return false;
+                default:
+                    return false;
+            }
+        }
+    }
+}
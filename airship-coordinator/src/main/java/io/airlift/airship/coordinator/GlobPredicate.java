@@ -1,31 +1,52 @@
 package io.airlift.airship.coordinator;
 
+import com.google.common.base.Predicate;
+
+import javax.annotation.Nullable;
 import java.util.regex.Pattern;
 
-public class GlobPredicate extends RegexPredicate
+public class GlobPredicate implements Predicate<CharSequence>
 {
-    private final String glob;
+    private final GlobMatcher matcher;
 
     public GlobPredicate(String glob)
     {
-        super(globToPattern(glob));
-        this.glob = glob;
+        this.matcher = GlobMatcher.compile(glob);
+    }
+
+    @Override
+    public boolean apply(@Nullable CharSequence input)
+    {
+        return matcher.apply(input);
     }
 
     @Override
     public String toString()
     {
-        return glob;
+        return matcher.toString();
     }
 
+    /**
+     * Converts the glob to an equivalent regular expression.  Matching is
+     * done by {@link GlobMatcher}, which does not backtrack.
+     */
     public static Pattern globToPattern(String glob)
     {
         glob = glob.trim();
         StringBuilder regex = new StringBuilder(glob.length() * 2);
 
         boolean escaped = false;
+        boolean classStart = false;
         int curlyDepth = 0;
         for (char currentChar : glob.toCharArray()) {
+            // a leading '^' or '!' negates a character class
+            if (classStart) {
+                classStart = false;
+                if (currentChar == '^' || currentChar == '!') {
+                    regex.append('^');
+                    continue;
+                }
+            }
             switch (currentChar) {
                 case '*':
                     if (escaped) {
@@ -56,6 +77,16 @@ public class GlobPredicate extends RegexPredicate
                     regex.append(currentChar);
                     escaped = false;
                     break;
+                case '[':
+                    if (escaped) {
+                        regex.append("\\[");
+                    }
+                    else {
+                        regex.append('[');
+                        classStart = true;
+                    }
+                    escaped = false;
+                    break;
                 case '\\':
                     if (escaped) {
                         regex.append("\\\\");
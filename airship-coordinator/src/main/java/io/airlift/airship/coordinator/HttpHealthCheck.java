@@ -0,0 +1,65 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import io.airlift.airship.shared.SlotStatus;
+import io.airlift.discovery.client.ServiceDescriptor;
+import io.airlift.log.Logger;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Collections;
+
+/**
+ * Probes the http services a slot announces in the service inventory.  A
+ * slot is healthy when every announced http service answers the health
+ * check path with a 2xx response.
+ */
+class HttpHealthCheck
+{
+    private static final Logger log = Logger.get(HttpHealthCheck.class);
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    private final ServiceInventory serviceInventory;
+    private final String path;
+
+    HttpHealthCheck(ServiceInventory serviceInventory, String path)
+    {
+        Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
+        Preconditions.checkNotNull(path, "path is null");
+        this.serviceInventory = serviceInventory;
+        this.path = path;
+    }
+
+    public boolean isHealthy(SlotStatus slotStatus)
+    {
+        for (ServiceDescriptor descriptor : serviceInventory.getServiceInventory(Collections.singletonList(slotStatus))) {
+            String http = descriptor.getProperties().get("http");
+            if (http != null && !isHealthy(URI.create(http).resolve(path))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHealthy(URI uri)
+    {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) uri.toURL().openConnection();
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            int responseCode = connection.getResponseCode();
+            return responseCode >= 200 && responseCode < 300;
+        }
+        catch (IOException | IllegalArgumentException e) {
+            log.debug("Health check %s failed: %s", uri, e.getMessage());
+            return false;
+        }
+        finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+}
@@ -1,74 +1,180 @@
 package io.airlift.airship.coordinator;
 
 import com.google.common.base.Function;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.MapDifference;
+import com.google.common.collect.Maps;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.AgentStatusRepresentation;
+import io.airlift.airship.shared.HttpUriBuilder;
 import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.InstallationRepresentation;
-import io.airlift.airship.shared.SlotLifecycleState;
+import io.airlift.airship.shared.ServiceInventoryDeltaRepresentation;
+import io.airlift.airship.shared.SlotEventsRepresentation;
+import io.airlift.airship.shared.SlotOperationRepresentation;
+import io.airlift.airship.shared.SlotOperationResultRepresentation;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.SlotStatusRepresentation;
 import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
 import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.JsonResponseHandler;
 import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.http.client.StatusResponseHandler.StatusResponse;
 import io.airlift.json.JsonCodec;
 import io.airlift.log.Logger;
+import io.airlift.units.Duration;
 
 import javax.ws.rs.core.Response.Status;
 import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
 import static io.airlift.airship.shared.AgentLifecycleState.OFFLINE;
 import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
 import static io.airlift.airship.shared.AgentLifecycleState.PROVISIONING;
 import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
+import static io.airlift.airship.shared.SlotLifecycleState.UNKNOWN;
 import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENT_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER;
 import static io.airlift.http.client.JsonBodyGenerator.jsonBodyGenerator;
 import static io.airlift.http.client.JsonResponseHandler.createJsonResponseHandler;
 import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static io.airlift.json.JsonCodec.listJsonCodec;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 public class HttpRemoteAgent implements RemoteAgent
 {
     private static final Logger log = Logger.get(HttpRemoteAgent.class);
+    private static final JsonCodec<List<SlotOperationRepresentation>> slotOperationsCodec = listJsonCodec(SlotOperationRepresentation.class);
+    private static final JsonCodec<List<SlotOperationResultRepresentation>> slotOperationResultsCodec = listJsonCodec(SlotOperationResultRepresentation.class);
 
     private final JsonCodec<InstallationRepresentation> installationCodec;
     private final JsonCodec<AgentStatusRepresentation> agentStatusCodec;
     private final JsonCodec<SlotStatusRepresentation> slotStatusCodec;
     private final JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec;
+    private final JsonCodec<SlotEventsRepresentation> slotEventsCodec;
+    private final JsonCodec<ServiceInventoryDeltaRepresentation> serviceInventoryDeltaCodec;
 
     private AgentStatus agentStatus;
     private final String environment;
+
+    // agent reported version of the last status fetched in full, used for conditional status requests
+    private AgentStatus fetchedStatus;
+    private String fetchedVersion;
+    private long lastFetchTime;
+
+    // position in the agent slot event stream; status changes are applied as they happen while the stream is current
+    private String slotEventStreamId;
+    private long slotEventSequence;
+    private long slotEventTime;
+    private long slotEventGeneration;
+
+    // service inventory the agent is known to have, so only the changes need to be sent
+    private VersionedServiceInventory acknowledgedServiceInventory;
+    private String reportedServiceInventoryVersion;
+
     private final HttpClient httpClient;
+    private final HttpClient statusHttpClient;
+    private final HttpClient slotEventHttpClient;
+    private final Duration slotEventMaxWait;
+    private final Duration statusRefreshInterval;
 
     private final AtomicBoolean serviceInventoryUp = new AtomicBoolean(true);
 
+    // stops requests to an agent that can not be reached, except for an occasional status probe
+    private final CircuitBreaker circuitBreaker;
+    private long lastStatusTime;
+
+    public HttpRemoteAgent(AgentStatus agentStatus,
+            String environment,
+            HttpClient httpClient,
+            HttpClient statusHttpClient,
+            HttpClient slotEventHttpClient,
+            Duration slotEventMaxWait,
+            Duration statusRefreshInterval,
+            JsonCodec<InstallationRepresentation> installationCodec,
+            JsonCodec<AgentStatusRepresentation> agentStatusCodec,
+            JsonCodec<SlotStatusRepresentation> slotStatusCodec,
+            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec,
+            JsonCodec<SlotEventsRepresentation> slotEventsCodec,
+            JsonCodec<ServiceInventoryDeltaRepresentation> serviceInventoryDeltaCodec)
+    {
+        this(agentStatus,
+                environment,
+                httpClient,
+                statusHttpClient,
+                slotEventHttpClient,
+                slotEventMaxWait,
+                statusRefreshInterval,
+                installationCodec,
+                agentStatusCodec,
+                slotStatusCodec,
+                serviceDescriptorsCodec,
+                slotEventsCodec,
+                serviceInventoryDeltaCodec,
+                new CircuitBreaker(1, new Duration(0, TimeUnit.MILLISECONDS), new Duration(0, TimeUnit.MILLISECONDS)));
+    }
+
     public HttpRemoteAgent(AgentStatus agentStatus,
             String environment,
             HttpClient httpClient,
+            HttpClient statusHttpClient,
+            HttpClient slotEventHttpClient,
+            Duration slotEventMaxWait,
+            Duration statusRefreshInterval,
             JsonCodec<InstallationRepresentation> installationCodec,
             JsonCodec<AgentStatusRepresentation> agentStatusCodec,
             JsonCodec<SlotStatusRepresentation> slotStatusCodec,
-            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec)
+            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec,
+            JsonCodec<SlotEventsRepresentation> slotEventsCodec,
+            JsonCodec<ServiceInventoryDeltaRepresentation> serviceInventoryDeltaCodec,
+            CircuitBreaker circuitBreaker)
     {
         Preconditions.checkNotNull(agentStatus, "agentStatus is null");
         Preconditions.checkNotNull(environment, "environment is null");
         Preconditions.checkNotNull(httpClient, "httpClient is null");
+        Preconditions.checkNotNull(statusHttpClient, "statusHttpClient is null");
+        Preconditions.checkNotNull(slotEventHttpClient, "slotEventHttpClient is null");
+        Preconditions.checkNotNull(statusRefreshInterval, "statusRefreshInterval is null");
+        Preconditions.checkNotNull(circuitBreaker, "circuitBreaker is null");
 
         this.agentStatus = agentStatus;
         this.environment = environment;
         this.httpClient = httpClient;
+        this.statusHttpClient = statusHttpClient;
+        this.slotEventHttpClient = slotEventHttpClient;
+        this.slotEventMaxWait = slotEventMaxWait;
+        this.statusRefreshInterval = statusRefreshInterval;
         this.installationCodec = installationCodec;
         this.agentStatusCodec = agentStatusCodec;
         this.slotStatusCodec = slotStatusCodec;
         this.serviceDescriptorsCodec = serviceDescriptorsCodec;
+        this.slotEventsCodec = slotEventsCodec;
+        this.serviceInventoryDeltaCodec = serviceInventoryDeltaCodec;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Returns true while requests to the agent are failing and it is only probed
+     * by the status poll.
+     */
+    public boolean isUnreachable()
+    {
+        return circuitBreaker.isOpen();
     }
 
     @Override
@@ -80,7 +186,10 @@ public class HttpRemoteAgent implements RemoteAgent
     @Override
     public synchronized void setInternalUri(URI internalUri)
     {
-        agentStatus = agentStatus.changeInternalUri(internalUri);
+        // keep the status unchanged when the uri is, so the coordinator does not see a change
+        if (!Objects.equal(agentStatus.getInternalUri(), internalUri)) {
+            agentStatus = agentStatus.changeInternalUri(internalUri);
+        }
     }
 
     @Override
@@ -97,22 +206,94 @@ public class HttpRemoteAgent implements RemoteAgent
     }
 
     @Override
-    public void setServiceInventory(List<ServiceDescriptor> serviceInventory)
+    public List<SlotStatus> applySlotOperations(List<SlotOperation> operations)
+    {
+        Preconditions.checkNotNull(operations, "operations is null");
+        AgentStatus agentStatus = status();
+        URI internalUri = agentStatus.getInternalUri();
+        Preconditions.checkState(internalUri != null, "agent is down");
+
+        List<SlotStatus> slotStatuses = new ArrayList<>();
+        List<SlotOperationRepresentation> representations = new ArrayList<>();
+        for (SlotOperation operation : operations) {
+            SlotStatus slotStatus = agentStatus.getSlotStatus(operation.getSlotId());
+            Preconditions.checkArgument(slotStatus != null, "Unknown slot %s", operation.getSlotId());
+            slotStatuses.add(slotStatus);
+            representations.add(operation.toRepresentation(slotStatus.getVersion()));
+        }
+
+        if (isUnreachable()) {
+            ImmutableList.Builder<SlotStatus> errors = ImmutableList.builder();
+            for (SlotStatus slotStatus : slotStatuses) {
+                errors.add(slotStatus.changeState(UNKNOWN).changeStatusMessage("Agent is unreachable"));
+            }
+            return errors.build();
+        }
+
+        List<SlotOperationResultRepresentation> results;
+        try {
+            Request request = Request.Builder.preparePost()
+                    .setUri(uriBuilderFrom(internalUri).replacePath("/v1/agent/slot/batch").build())
+                    .setHeader(CONTENT_TYPE, APPLICATION_JSON)
+                    .setHeader(AIRSHIP_AGENT_VERSION_HEADER, agentStatus.getVersion())
+                    .setBodyGenerator(jsonBodyGenerator(slotOperationsCodec, representations))
+                    .build();
+            results = httpClient.execute(request, new SlotOperationResultsResponseHandler());
+            Preconditions.checkState(results == null || results.size() == operations.size(),
+                    "Agent returned %s results for %s slot operations", results == null ? 0 : results.size(), operations.size());
+        }
+        catch (Exception e) {
+            log.error(e);
+            ImmutableList.Builder<SlotStatus> errors = ImmutableList.builder();
+            for (SlotStatus slotStatus : slotStatuses) {
+                errors.add(slotStatus.changeState(UNKNOWN).changeStatusMessage(e.getMessage()));
+            }
+            return errors.build();
+        }
+
+        if (results == null) {
+            // agents without the batch endpoint get one request per slot
+            ImmutableList.Builder<SlotStatus> builder = ImmutableList.builder();
+            for (int i = 0; i < operations.size(); i++) {
+                builder.add(operations.get(i).applyTo(new HttpRemoteSlot(slotStatuses.get(i), httpClient, this)));
+            }
+            return builder.build();
+        }
+
+        ImmutableList.Builder<SlotStatus> builder = ImmutableList.builder();
+        for (int i = 0; i < results.size(); i++) {
+            SlotOperationResultRepresentation result = results.get(i);
+            SlotStatus slotStatus = slotStatuses.get(i);
+            if (result.getStatus() != null && slotStatus.getId().equals(result.getSlotId())) {
+                slotStatus = result.getStatus().toSlotStatus(agentStatus.getInstanceId());
+                setSlotStatus(slotStatus);
+            }
+            if (!result.isSuccess()) {
+                slotStatus = slotStatus.changeState(UNKNOWN).changeStatusMessage(result.getError());
+            }
+            builder.add(slotStatus);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void setServiceInventory(VersionedServiceInventory serviceInventory)
     {
         AgentStatus agentStatus = status();
-        if (agentStatus.getState() == ONLINE) {
+        if (agentStatus.getState() == ONLINE && !isUnreachable()) {
             Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
+            VersionedServiceInventory acknowledgedServiceInventory = getAcknowledgedServiceInventory();
+            if (acknowledgedServiceInventory != null && acknowledgedServiceInventory.getVersion().equals(serviceInventory.getVersion())) {
+                return;
+            }
+
             URI internalUri = agentStatus.getInternalUri();
+            boolean updated;
             try {
-                Request request = Request.Builder.preparePut()
-                        .setUri(uriBuilderFrom(internalUri).appendPath("/v1/serviceInventory").build())
-                        .setHeader(CONTENT_TYPE, APPLICATION_JSON)
-                        .setBodyGenerator(jsonBodyGenerator(serviceDescriptorsCodec, new ServiceDescriptorsRepresentation(environment, serviceInventory)))
-                        .build();
-                httpClient.execute(request, createStatusResponseHandler());
-
-                if (serviceInventoryUp.compareAndSet(false, true)) {
-                    log.info("Service inventory put succeeded for agent at %s", internalUri);
+                // a delta that does not apply is rejected by the agent, so fall back to sending everything
+                updated = acknowledgedServiceInventory != null && postServiceInventoryDelta(internalUri, acknowledgedServiceInventory, serviceInventory);
+                if (!updated) {
+                    updated = putServiceInventory(internalUri, serviceInventory);
                 }
             }
             catch (Exception e) {
@@ -120,33 +301,274 @@ public class HttpRemoteAgent implements RemoteAgent
                     log.error("Unable to post service inventory to agent at %s: %s", internalUri, e.getMessage());
                 }
                 log.debug(e, "Unable to post service inventory to agent at %s: %s", internalUri, e.getMessage());
+                return;
+            }
+
+            if (!updated) {
+                if (serviceInventoryUp.compareAndSet(true, false)) {
+                    log.error("Agent at %s rejected service inventory", internalUri);
+                }
+                return;
             }
+            setAcknowledgedServiceInventory(serviceInventory);
+            if (serviceInventoryUp.compareAndSet(false, true)) {
+                log.info("Service inventory put succeeded for agent at %s", internalUri);
+            }
+        }
+    }
+
+    private boolean postServiceInventoryDelta(URI internalUri, VersionedServiceInventory baseServiceInventory, VersionedServiceInventory serviceInventory)
+    {
+        // descriptors are keyed by content, so a changed descriptor shows up on both sides
+        MapDifference<String, ServiceDescriptor> difference = Maps.difference(baseServiceInventory.getServiceDescriptorsByVersion(), serviceInventory.getServiceDescriptorsByVersion());
+        List<ServiceDescriptor> added = ImmutableList.copyOf(difference.entriesOnlyOnRight().values());
+        List<String> removed = ImmutableList.copyOf(difference.entriesOnlyOnLeft().keySet());
+
+        // the delta is only worth sending when it is smaller than the full inventory
+        if (added.size() >= serviceInventory.getServiceDescriptorsByVersion().size()) {
+            return false;
         }
+
+        Request request = Request.Builder.preparePost()
+                .setUri(uriBuilderFrom(internalUri).appendPath("/v1/serviceInventory").build())
+                .setHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .setBodyGenerator(jsonBodyGenerator(serviceInventoryDeltaCodec, new ServiceInventoryDeltaRepresentation(environment,
+                        baseServiceInventory.getVersion(),
+                        serviceInventory.getVersion(),
+                        added,
+                        removed)))
+                .build();
+        StatusResponse response = statusHttpClient.execute(request, createStatusResponseHandler());
+        if (response.getStatusCode() != Status.OK.getStatusCode()) {
+            log.debug("Service inventory delta rejected by agent at %s: %s %s", internalUri, response.getStatusCode(), response.getStatusMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private boolean putServiceInventory(URI internalUri, VersionedServiceInventory serviceInventory)
+    {
+        Request request = Request.Builder.preparePut()
+                .setUri(uriBuilderFrom(internalUri).appendPath("/v1/serviceInventory").build())
+                .setHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .setBodyGenerator(jsonBodyGenerator(serviceDescriptorsCodec, new ServiceDescriptorsRepresentation(environment, serviceInventory.getServiceDescriptors())))
+                .build();
+        StatusResponse response = statusHttpClient.execute(request, createStatusResponseHandler());
+        return response.getStatusCode() == Status.OK.getStatusCode();
+    }
+
+    private synchronized VersionedServiceInventory getAcknowledgedServiceInventory()
+    {
+        // the agent has a different inventory than was sent, for example after a restart
+        if (acknowledgedServiceInventory != null && reportedServiceInventoryVersion != null && !reportedServiceInventoryVersion.equals(acknowledgedServiceInventory.getVersion())) {
+            acknowledgedServiceInventory = null;
+        }
+        return acknowledgedServiceInventory;
+    }
+
+    private synchronized void clearAcknowledgedServiceInventory()
+    {
+        acknowledgedServiceInventory = null;
+        reportedServiceInventoryVersion = null;
+    }
+
+    private synchronized void setAcknowledgedServiceInventory(VersionedServiceInventory serviceInventory)
+    {
+        acknowledgedServiceInventory = serviceInventory;
+        reportedServiceInventoryVersion = serviceInventory.getVersion();
+    }
+
+    private synchronized void setReportedServiceInventoryVersion(String version)
+    {
+        // agents that do not report a version are trusted to have what was last acknowledged
+        reportedServiceInventoryVersion = version;
     }
 
     @Override
     public void updateStatus()
+    {
+        // while the slot event stream is current, a full fetch is only a periodic consistency check
+        if (isSlotEventStreamCurrent()) {
+            return;
+        }
+        refreshStatus();
+    }
+
+    private boolean refreshStatus()
     {
         AgentStatus agentStatus = status();
         URI internalUri = agentStatus.getInternalUri();
         if (internalUri != null) {
+            // an unreachable agent keeps its last known status until the next probe
+            if (!circuitBreaker.allowRequest()) {
+                return false;
+            }
             try {
-                Request request = Request.Builder.prepareGet()
-                        .setUri(uriBuilderFrom(internalUri).replacePath("/v1/agent/").build())
-                        .build();
-                AgentStatusRepresentation agentStatusRepresentation = httpClient.execute(request, createJsonResponseHandler(agentStatusCodec));
-                setStatus(agentStatusRepresentation.toAgentStatus(agentStatus.getInstanceId(), agentStatus.getInstanceType()));
-                return;
+                Request.Builder requestBuilder = Request.Builder.prepareGet()
+                        .setUri(uriBuilderFrom(internalUri).replacePath("/v1/agent/").build());
+                String fetchedVersion = getFetchedVersion(agentStatus);
+                if (fetchedVersion != null) {
+                    requestBuilder.setHeader(IF_NONE_MATCH, "\"" + fetchedVersion + "\"");
+                }
+                long slotEventGeneration = getSlotEventGeneration();
+                AgentStatusResponseHandler responseHandler = new AgentStatusResponseHandler(agentStatusCodec);
+                AgentStatusRepresentation agentStatusRepresentation = statusHttpClient.execute(requestBuilder.build(), responseHandler);
+                setReportedServiceInventoryVersion(responseHandler.getServiceInventoryVersion());
+
+                // null means the agent status has not changed since the last fetch
+                if (agentStatusRepresentation != null) {
+                    setFetchedStatus(agentStatusRepresentation.toAgentStatus(agentStatus.getInstanceId(), agentStatus.getInstanceType()), agentStatusRepresentation.getVersion(), slotEventGeneration);
+                }
+                else {
+                    setFetchedStatus(null, null, slotEventGeneration);
+                }
+                if (circuitBreaker.isOpen()) {
+                    log.info("Agent at %s is reachable again", internalUri);
+                }
+                circuitBreaker.success();
+                return true;
             }
-            catch (Exception ignored) {
+            catch (Exception e) {
+                // a single failed poll is not enough to give up on the agent
+                if (!circuitBreaker.failure()) {
+                    log.debug(e, "Unable to get status from agent at %s: %s", internalUri, e.getMessage());
+                    return false;
+                }
+                log.debug(e, "Agent at %s is unreachable: %s", internalUri, e.getMessage());
             }
         }
 
         // error talking to agent -- mark agent offline
-        if (agentStatus.getState() != PROVISIONING) {
-            agentStatus = agentStatus.changeState(OFFLINE);
-            setStatus(agentStatus.changeAllSlotsState(SlotLifecycleState.UNKNOWN));
+        markOffline(agentStatus);
+        clearAcknowledgedServiceInventory();
+        return false;
+    }
+
+    private synchronized void markOffline(AgentStatus agentStatus)
+    {
+        if (agentStatus.getState() == PROVISIONING || agentStatus.getState() == OFFLINE || agentStatus != this.agentStatus) {
+            return;
         }
+
+        // slots are no longer known, but keep what was last reported and when
+        String lastStatus = lastStatusTime == 0 ? "never" : formatTime(lastStatusTime);
+        AgentStatus offlineStatus = agentStatus.changeState(OFFLINE);
+        for (SlotStatus slotStatus : agentStatus.getSlotStatuses()) {
+            offlineStatus = offlineStatus.changeSlotStatus(slotStatus.changeState(UNKNOWN)
+                    .changeStatusMessage(String.format("Agent unreachable, last status %s at %s", slotStatus.getState(), lastStatus)));
+        }
+        setStatus(offlineStatus);
+    }
+
+    private static String formatTime(long millis)
+    {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+
+    @Override
+    public boolean updateSlotStatus()
+    {
+        AgentStatus agentStatus = status();
+        URI internalUri = agentStatus.getInternalUri();
+        if (slotEventMaxWait == null || internalUri == null || agentStatus.getState() != ONLINE || isUnreachable()) {
+            return false;
+        }
+
+        SlotEventsRepresentation slotEvents;
+        try {
+            HttpUriBuilder uriBuilder = uriBuilderFrom(internalUri).replacePath("/v1/agent/events")
+                    .addParameter("maxWait", String.valueOf((long) slotEventMaxWait.toMillis()));
+            synchronized (this) {
+                if (slotEventStreamId != null) {
+                    uriBuilder.addParameter("stream", slotEventStreamId)
+                            .addParameter("since", String.valueOf(slotEventSequence));
+                }
+            }
+            Request request = Request.Builder.prepareGet()
+                    .setUri(uriBuilder.build())
+                    .build();
+            slotEvents = slotEventHttpClient.execute(request, createJsonResponseHandler(slotEventsCodec));
+        }
+        catch (Exception e) {
+            // agents that do not support slot events or can not be reached are left to the status poll
+            log.debug(e, "Unable to get slot events from agent at %s: %s", internalUri, e.getMessage());
+            setSlotEventPosition(null, 0);
+            return false;
+        }
+
+        if (slotEvents.isResync()) {
+            // the agent restarted or this position has expired, so fetch the full status before continuing
+            if (!refreshStatus()) {
+                setSlotEventPosition(null, 0);
+                return false;
+            }
+        }
+        else {
+            applySlotEvents(agentStatus.getInstanceId(), slotEvents.getSlots());
+        }
+        setSlotEventPosition(slotEvents.getStreamId(), slotEvents.getSequence());
+        return true;
+    }
+
+    private synchronized void applySlotEvents(String instanceId, List<SlotStatusRepresentation> slots)
+    {
+        if (slots.isEmpty()) {
+            return;
+        }
+        for (SlotStatusRepresentation slot : slots) {
+            agentStatus = agentStatus.changeSlotStatus(slot.toSlotStatus(instanceId));
+        }
+        slotEventGeneration++;
+    }
+
+    private synchronized void setSlotEventPosition(String streamId, long sequence)
+    {
+        slotEventStreamId = streamId;
+        slotEventSequence = sequence;
+        slotEventTime = System.nanoTime();
+    }
+
+    private synchronized boolean isSlotEventStreamCurrent()
+    {
+        if (slotEventStreamId == null || agentStatus.getState() != ONLINE) {
+            return false;
+        }
+        // a subscription that has not heard back within twice the long poll window is considered stalled
+        long now = System.nanoTime();
+        if (now - slotEventTime > TimeUnit.MILLISECONDS.toNanos((long) slotEventMaxWait.toMillis() * 2)) {
+            return false;
+        }
+        return now - lastFetchTime < TimeUnit.MILLISECONDS.toNanos((long) statusRefreshInterval.toMillis());
+    }
+
+    private synchronized long getSlotEventGeneration()
+    {
+        return slotEventGeneration;
+    }
+
+    private synchronized String getFetchedVersion(AgentStatus agentStatus)
+    {
+        // only use the version if the status has not been changed locally since it was fetched
+        if (agentStatus.getState() != ONLINE || agentStatus != fetchedStatus) {
+            return null;
+        }
+        return fetchedVersion;
+    }
+
+    private synchronized void setFetchedStatus(AgentStatus agentStatus, String version, long slotEventGeneration)
+    {
+        lastFetchTime = System.nanoTime();
+        lastStatusTime = System.currentTimeMillis();
+
+        // slot events applied while the request was in flight are newer than the fetched status
+        if (agentStatus == null || slotEventGeneration != this.slotEventGeneration) {
+            return;
+        }
+        setStatus(agentStatus);
+        this.fetchedStatus = agentStatus;
+        this.fetchedVersion = version;
     }
 
     public synchronized void setStatus(AgentStatus agentStatus)
@@ -167,6 +589,7 @@ public class HttpRemoteAgent implements RemoteAgent
         AgentStatus agentStatus = status();
         URI internalUri = agentStatus.getInternalUri();
         Preconditions.checkState(internalUri != null, "agent is down");
+        Preconditions.checkState(!isUnreachable(), "agent is unreachable");
         try {
             Request request = Request.Builder.preparePost()
                     .setUri(uriBuilderFrom(internalUri).replacePath("/v1/agent/slot/").build())
@@ -185,5 +608,62 @@ public class HttpRemoteAgent implements RemoteAgent
             throw Throwables.propagate(e);
         }
     }
-}
 
+    private static class AgentStatusResponseHandler
+            implements ResponseHandler<AgentStatusRepresentation, RuntimeException>
+    {
+        private final JsonResponseHandler<AgentStatusRepresentation> jsonResponseHandler;
+        private String serviceInventoryVersion;
+
+        private AgentStatusResponseHandler(JsonCodec<AgentStatusRepresentation> agentStatusCodec)
+        {
+            this.jsonResponseHandler = createJsonResponseHandler(agentStatusCodec);
+        }
+
+        @Override
+        public RuntimeException handleException(Request request, Exception exception)
+        {
+            return jsonResponseHandler.handleException(request, exception);
+        }
+
+        public String getServiceInventoryVersion()
+        {
+            return serviceInventoryVersion;
+        }
+
+        @Override
+        public AgentStatusRepresentation handle(Request request, Response response)
+        {
+            serviceInventoryVersion = response.getHeader(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER);
+            if (response.getStatusCode() == Status.NOT_MODIFIED.getStatusCode()) {
+                return null;
+            }
+            return jsonResponseHandler.handle(request, response);
+        }
+    }
+
+    private static class SlotOperationResultsResponseHandler
+            implements ResponseHandler<List<SlotOperationResultRepresentation>, RuntimeException>
+    {
+        // not defined by JAX-RS 1.x
+        private static final int METHOD_NOT_ALLOWED = 405;
+
+        private final JsonResponseHandler<List<SlotOperationResultRepresentation>> jsonResponseHandler = createJsonResponseHandler(slotOperationResultsCodec);
+
+        @Override
+        public RuntimeException handleException(Request request, Exception exception)
+        {
+            return jsonResponseHandler.handleException(request, exception);
+        }
+
+        @Override
+        public List<SlotOperationResultRepresentation> handle(Request request, Response response)
+        {
+            // null means the agent does not have the batch endpoint
+            if (response.getStatusCode() == Status.NOT_FOUND.getStatusCode() || response.getStatusCode() == METHOD_NOT_ALLOWED) {
+                return null;
+            }
+            return jsonResponseHandler.handle(request, response);
+        }
+    }
+}
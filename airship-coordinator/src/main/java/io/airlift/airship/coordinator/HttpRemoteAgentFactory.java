@@ -8,35 +8,79 @@ import io.airlift.airship.shared.AgentLifecycleState;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.InstallationRepresentation;
+import io.airlift.airship.shared.ServiceInventoryDeltaRepresentation;
+import io.airlift.airship.shared.SlotEventsRepresentation;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.SlotStatusRepresentation;
 import io.airlift.http.client.ApacheHttpClient;
 import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.HttpClientConfig;
 import io.airlift.json.JsonCodec;
 import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
+
+import java.util.concurrent.TimeUnit;
 
 public class HttpRemoteAgentFactory implements RemoteAgentFactory
 {
     private final String environment;
     private final HttpClient httpClient;
+    private final HttpClient statusHttpClient;
+    private final HttpClient slotEventHttpClient;
+    private final Duration slotEventMaxWait;
+    private final Duration statusRefreshInterval;
+    private final int agentFailureThreshold;
+    private final Duration agentMinBackoff;
+    private final Duration agentMaxBackoff;
     private final JsonCodec<InstallationRepresentation> installationCodec;
     private final JsonCodec<AgentStatusRepresentation> agentStatusCodec;
     private final JsonCodec<SlotStatusRepresentation> slotStatusCodec;
     private final JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec;
+    private final JsonCodec<SlotEventsRepresentation> slotEventsCodec;
+    private final JsonCodec<ServiceInventoryDeltaRepresentation> serviceInventoryDeltaCodec;
 
     @Inject
     public HttpRemoteAgentFactory(NodeInfo nodeInfo,
+            CoordinatorConfig config,
             JsonCodec<InstallationRepresentation> installationCodec,
             JsonCodec<SlotStatusRepresentation> slotStatusCodec,
             JsonCodec<AgentStatusRepresentation> agentStatusCodec,
-            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec)
+            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec,
+            JsonCodec<SlotEventsRepresentation> slotEventsCodec,
+            JsonCodec<ServiceInventoryDeltaRepresentation> serviceInventoryDeltaCodec)
     {
         environment = nodeInfo.getEnvironment();
         this.agentStatusCodec = agentStatusCodec;
         this.httpClient = new ApacheHttpClient();
+
+        // status polls and service inventory pushes must not block a poll cycle for the full default timeout
+        Duration agentStatusTimeout = config.getAgentStatusTimeout();
+        this.statusHttpClient = new ApacheHttpClient(new HttpClientConfig()
+                .setConnectTimeout(agentStatusTimeout)
+                .setReadTimeout(agentStatusTimeout));
+
+        // slot event requests are held open by the agent for up to the max wait,
+        // and every subscribed agent holds one connection of the pool
+        if (config.isSlotEventsEnabled()) {
+            this.slotEventMaxWait = config.getSlotEventsMaxWait();
+        }
+        else {
+            this.slotEventMaxWait = null;
+        }
+        this.slotEventHttpClient = new ApacheHttpClient(new HttpClientConfig()
+                .setConnectTimeout(agentStatusTimeout)
+                .setReadTimeout(new Duration(config.getSlotEventsMaxWait().toMillis() + agentStatusTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                .setMaxConnections(config.getSlotEventsMaxSubscriptions())
+                .setMaxConnectionsPerServer(2));
+        this.statusRefreshInterval = config.getAgentStatusRefreshInterval();
+        this.agentFailureThreshold = config.getAgentFailureThreshold();
+        this.agentMinBackoff = config.getAgentMinBackoff();
+        this.agentMaxBackoff = config.getAgentMaxBackoff();
         this.installationCodec = installationCodec;
         this.slotStatusCodec = slotStatusCodec;
         this.serviceDescriptorsCodec = serviceDescriptorsCodec;
+        this.slotEventsCodec = slotEventsCodec;
+        this.serviceInventoryDeltaCodec = serviceInventoryDeltaCodec;
     }
 
     @Override
@@ -52,6 +96,19 @@ public class HttpRemoteAgentFactory implements RemoteAgentFactory
                 ImmutableList.<SlotStatus>of(),
                 ImmutableMap.<String, Integer>of());
 
-        return new HttpRemoteAgent(agentStatus, environment, httpClient, installationCodec, agentStatusCodec, slotStatusCodec, serviceDescriptorsCodec);
+        return new HttpRemoteAgent(agentStatus,
+                environment,
+                httpClient,
+                statusHttpClient,
+                slotEventHttpClient,
+                slotEventMaxWait,
+                statusRefreshInterval,
+                installationCodec,
+                agentStatusCodec,
+                slotStatusCodec,
+                serviceDescriptorsCodec,
+                slotEventsCodec,
+                serviceInventoryDeltaCodec,
+                new CircuitBreaker(agentFailureThreshold, agentMinBackoff, agentMaxBackoff));
     }
 }
@@ -37,13 +37,13 @@ public class HttpRemoteCoordinator
     }
 
     @Override
-    public CoordinatorStatus status()
+    public synchronized CoordinatorStatus status()
     {
         return coordinatorStatus;
     }
 
     @Override
-    public void setInternalUri(URI internalUri)
+    public synchronized void setInternalUri(URI internalUri)
     {
         coordinatorStatus = coordinatorStatus.changeInternalUri(internalUri);
     }
@@ -51,6 +51,7 @@ public class HttpRemoteCoordinator
     @Override
     public void updateStatus()
     {
+        CoordinatorStatus coordinatorStatus = status();
         URI internalUri = coordinatorStatus.getInternalUri();
         if (internalUri != null) {
             try {
@@ -58,7 +59,7 @@ public class HttpRemoteCoordinator
                         .setUri(uriBuilderFrom(internalUri).replacePath("/v1/coordinator/").build())
                         .build();
                 CoordinatorStatusRepresentation coordinatorStatusRepresentation = httpClient.execute(request, createJsonResponseHandler(coordinatorStatusCodec));
-                coordinatorStatus = coordinatorStatusRepresentation.toCoordinatorStatus(coordinatorStatus.getInstanceId(), coordinatorStatus.getInstanceType());
+                setStatus(coordinatorStatusRepresentation.toCoordinatorStatus(coordinatorStatus.getInstanceId(), coordinatorStatus.getInstanceType()));
                 return;
             }
             catch (Exception ignored) {
@@ -67,11 +68,11 @@ public class HttpRemoteCoordinator
 
         // error talking to coordinator -- mark coordinator offline
         if (coordinatorStatus.getState() != PROVISIONING) {
-            coordinatorStatus = coordinatorStatus.changeState(OFFLINE);
+            setStatus(coordinatorStatus.changeState(OFFLINE));
         }
     }
 
-    public void setStatus(CoordinatorStatus coordinatorStatus)
+    public synchronized void setStatus(CoordinatorStatus coordinatorStatus)
     {
         Preconditions.checkNotNull(coordinatorStatus, "coordinatorStatus is null");
         this.coordinatorStatus = coordinatorStatus;
@@ -74,9 +74,18 @@ public class HttpRemoteSlot implements RemoteSlot
         return slotStatus.changeStatusMessage(statusMessage);
     }
 
+    private boolean isAgentUnreachable()
+    {
+        // fail right away rather than wait for the request to time out
+        return agent != null && agent.isUnreachable();
+    }
+
     @Override
     public SlotStatus assign(Installation installation)
     {
+        if (isAgentUnreachable()) {
+            return setErrorStatus("Agent is unreachable");
+        }
         try {
             Request request = Request.Builder.preparePut()
                     .setUri(uriBuilderFrom(slotStatus.getSelf()).appendPath("assignment").build())
@@ -99,6 +108,9 @@ public class HttpRemoteSlot implements RemoteSlot
     @Override
     public SlotStatus terminate()
     {
+        if (isAgentUnreachable()) {
+            return setErrorStatus("Agent is unreachable");
+        }
         try {
             Request request = Request.Builder.prepareDelete()
                     .setUri(slotStatus.getSelf())
@@ -119,6 +131,9 @@ public class HttpRemoteSlot implements RemoteSlot
     @Override
     public SlotStatus start()
     {
+        if (isAgentUnreachable()) {
+            return setErrorStatus("Agent is unreachable");
+        }
         try {
             Request request = Request.Builder.preparePut()
                     .setUri(uriBuilderFrom(slotStatus.getSelf()).appendPath("lifecycle").build())
@@ -140,6 +155,9 @@ public class HttpRemoteSlot implements RemoteSlot
     @Override
     public SlotStatus restart()
     {
+        if (isAgentUnreachable()) {
+            return setErrorStatus("Agent is unreachable");
+        }
         try {
             Request request = Request.Builder.preparePut()
                     .setUri(uriBuilderFrom(slotStatus.getSelf()).appendPath("lifecycle").build())
@@ -161,6 +179,9 @@ public class HttpRemoteSlot implements RemoteSlot
     @Override
     public SlotStatus stop()
     {
+        if (isAgentUnreachable()) {
+            return setErrorStatus("Agent is unreachable");
+        }
         try {
             Request request = Request.Builder.preparePut()
                     .setUri(uriBuilderFrom(slotStatus.getSelf()).appendPath("lifecycle").build())
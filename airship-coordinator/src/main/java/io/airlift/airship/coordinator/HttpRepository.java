@@ -4,18 +4,14 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.common.io.ByteProcessor;
-import com.google.common.io.ByteStreams;
-import com.google.common.io.InputSupplier;
-import com.google.common.io.Resources;
 import io.airlift.airship.shared.Repository;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,9 +26,11 @@ public class HttpRepository implements Repository
     private final Pattern configShortNamePattern;
     private final Pattern configVersionPattern;
     private final Pattern binaryVersionPattern;
+    private final ResolutionCache resolutionCache;
+    private final ArtifactProbe artifactProbe;
 
     @Inject
-    public HttpRepository(CoordinatorConfig config)
+    public HttpRepository(CoordinatorConfig config, ResolutionCache resolutionCache, ArtifactProbe artifactProbe)
     {
         this(
                 Lists.transform(config.getRepositories(), new Function<String, URI>()
@@ -45,14 +43,25 @@ public class HttpRepository implements Repository
                 }),
                 config.getHttpShortNamePattern(),
                 config.getHttpRepoConfigVersionPattern(),
-                config.getHttpRepoBinaryVersionPattern());
+                config.getHttpRepoBinaryVersionPattern(),
+                resolutionCache,
+                artifactProbe);
     }
 
     public HttpRepository(Iterable<URI> baseUris, String configShortNamePattern, String configVersionPattern, String binaryVersionPattern)
+    {
+        this(baseUris, configShortNamePattern, configVersionPattern, binaryVersionPattern, new ResolutionCache(new CoordinatorConfig()), new ArtifactProbe(new CoordinatorConfig()));
+    }
+
+    public HttpRepository(Iterable<URI> baseUris, String configShortNamePattern, String configVersionPattern, String binaryVersionPattern, ResolutionCache resolutionCache, ArtifactProbe artifactProbe)
     {
         Preconditions.checkNotNull(baseUris, "baseUris is null");
+        Preconditions.checkNotNull(resolutionCache, "resolutionCache is null");
+        Preconditions.checkNotNull(artifactProbe, "artifactProbe is null");
 
         this.baseUris = ImmutableList.copyOf(baseUris);
+        this.resolutionCache = resolutionCache;
+        this.artifactProbe = artifactProbe;
 
         if (configShortNamePattern != null) {
             this.configShortNamePattern = Pattern.compile(configShortNamePattern);
@@ -294,31 +303,18 @@ public class HttpRepository implements Repository
         return uris.iterator().next();
     }
 
-    private boolean isValidLocation(URI uri)
+    private boolean isValidLocation(final URI uri)
     {
-        try {
-            InputSupplier<InputStream> inputSupplier = Resources.newInputStreamSupplier(uri.toURL());
-            ByteStreams.readBytes(inputSupplier, new ByteProcessor<Void>()
+        Boolean valid = resolutionCache.get(uri, uri.getPath().contains("SNAPSHOT"), new Callable<Boolean>()
+        {
+            @Override
+            public Boolean call()
             {
-                private int count;
-
-                public boolean processBytes(byte[] buffer, int offset, int length)
-                {
-                    count += length;
-                    // make sure we got at least 10 bytes
-                    return count < 10;
-                }
-
-                public Void getResult()
-                {
-                    return null;
-                }
-            });
-            return true;
-        }
-        catch (Exception ignored) {
-        }
-        return false;
+                // null is cached as a miss
+                return artifactProbe.exists(uri) ? Boolean.TRUE : null;
+            }
+        });
+        return valid != null;
     }
 
     public static String upgradePath(String spec, String version, Pattern versionPattern)
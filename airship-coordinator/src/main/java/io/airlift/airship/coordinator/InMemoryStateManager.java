@@ -34,4 +34,20 @@ public class InMemoryStateManager implements StateManager
     {
         expectedState.put(slotStatus.getId().toString(), slotStatus);
     }
+
+    @Override
+    public void deleteExpectedStates(Collection<UUID> slotIds)
+    {
+        for (UUID slotId : slotIds) {
+            deleteExpectedState(slotId);
+        }
+    }
+
+    @Override
+    public void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses)
+    {
+        for (ExpectedSlotStatus slotStatus : slotStatuses) {
+            setExpectedState(slotStatus);
+        }
+    }
 }
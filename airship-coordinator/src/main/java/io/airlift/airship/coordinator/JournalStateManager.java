@@ -0,0 +1,481 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.json.JsonCodec;
+import io.airlift.log.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * Stores expected slot states in a snapshot file and an append-only journal
+ * of the changes made since the snapshot.  Callers wait for their change to
+ * be synced to disk, but concurrent callers share a single sync.  A change
+ * is only visible to readers once it is synced, and if the sync fails the
+ * unsynced changes are discarded and the files are rewritten from the
+ * synced states.  Once the journal has more entries than the compaction
+ * threshold, the current states are written to a new snapshot and the
+ * journal is truncated.
+ * <p>
+ * Each record is the payload length, a CRC32 of the type and payload, the
+ * type and the payload.  A torn record at the end of the journal, from a
+ * crash during a write, is discarded on startup.
+ */
+public class JournalStateManager implements StateManager
+{
+    private static final Logger log = Logger.get(JournalStateManager.class);
+
+    static final String SNAPSHOT_FILE = "expected-state.snapshot";
+    static final String JOURNAL_FILE = "expected-state.journal";
+
+    private static final byte SET = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 1;
+
+    private final File dataDir;
+    private final JsonCodec<ExpectedSlotStatus> codec;
+    private final int compactionThreshold;
+
+    // synced states served to readers
+    private final ConcurrentMap<UUID, ExpectedSlotStatus> expectedStates = new ConcurrentHashMap<>();
+
+    // lock order is syncLock then this
+    private final Object syncLock = new Object();
+
+    // states in the snapshot and journal, including changes that are not synced yet
+    @GuardedBy("this")
+    private final Map<UUID, ExpectedSlotStatus> journalStates = new HashMap<>();
+    @GuardedBy("this")
+    private final List<Batch> unsynced = new ArrayList<>();
+    @GuardedBy("this")
+    private FileChannel journal;
+    @GuardedBy("this")
+    private int journalRecords;
+    @GuardedBy("this")
+    private IOException failure;
+
+    public JournalStateManager(File dataDir, JsonCodec<ExpectedSlotStatus> codec, int compactionThreshold)
+    {
+        Preconditions.checkNotNull(dataDir, "dataDir is null");
+        Preconditions.checkNotNull(codec, "codec is null");
+        Preconditions.checkArgument(compactionThreshold > 0, "compactionThreshold must be at least 1");
+        this.dataDir = dataDir;
+        this.codec = codec;
+        this.compactionThreshold = compactionThreshold;
+
+        dataDir.mkdirs();
+        Preconditions.checkArgument(dataDir.isDirectory(), "dataDir is not a directory");
+
+        try {
+            recover();
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private synchronized void recover()
+            throws IOException
+    {
+        File snapshotFile = new File(dataDir, SNAPSHOT_FILE);
+        if (snapshotFile.exists()) {
+            replay(snapshotFile);
+        }
+        journalRecords = 0;
+
+        File journalFile = new File(dataDir, JOURNAL_FILE);
+        long validLength = 0;
+        if (journalFile.exists()) {
+            validLength = replay(journalFile);
+        }
+
+        journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (journal.size() > validLength) {
+            log.warn("Discarding %s bytes from the end of %s", journal.size() - validLength, journalFile);
+            journal.truncate(validLength);
+            journal.force(true);
+        }
+        journal.position(validLength);
+        expectedStates.putAll(journalStates);
+        log.info("Loaded %s expected slot states from %s", expectedStates.size(), dataDir);
+    }
+
+    /**
+     * Applies the records in the file and returns the length of the valid records.
+     */
+    private long replay(File file)
+            throws IOException
+    {
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                }
+                catch (EOFException e) {
+                    return validLength;
+                }
+
+                byte[] payload;
+                byte type;
+                try {
+                    long checksum = in.readInt() & 0xFFFFFFFFL;
+                    type = in.readByte();
+                    if (length < 0 || length > file.length()) {
+                        log.warn("Invalid record in %s at offset %s", file, validLength);
+                        return validLength;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (checksum != checksum(type, payload)) {
+                        log.warn("Checksum mismatch in %s at offset %s", file, validLength);
+                        return validLength;
+                    }
+                }
+                catch (EOFException e) {
+                    return validLength;
+                }
+
+                apply(type, payload);
+                journalRecords++;
+                validLength += HEADER_SIZE + length;
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void apply(byte type, byte[] payload)
+    {
+        if (type == SET) {
+            ExpectedSlotStatus slotStatus = codec.fromJson(new String(payload, Charsets.UTF_8));
+            journalStates.put(slotStatus.getId(), slotStatus);
+        }
+        else if (type == DELETE) {
+            journalStates.remove(UUID.fromString(new String(payload, Charsets.UTF_8)));
+        }
+        else {
+            throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+
+    @PreDestroy
+    public void close()
+            throws IOException
+    {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (journal.isOpen()) {
+                    journal.force(true);
+                    journal.close();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Collection<ExpectedSlotStatus> getAllExpectedStates()
+    {
+        return ImmutableList.copyOf(expectedStates.values());
+    }
+
+    @Override
+    public void deleteExpectedState(UUID slotId)
+    {
+        Preconditions.checkNotNull(slotId, "slotId is null");
+        commit(DELETE, slotId.toString().getBytes(Charsets.UTF_8), slotId, null);
+    }
+
+    @Override
+    public void setExpectedState(ExpectedSlotStatus slotStatus)
+    {
+        Preconditions.checkNotNull(slotStatus, "slotStatus is null");
+        commit(SET, codec.toJson(slotStatus).getBytes(Charsets.UTF_8), slotStatus.getId(), slotStatus);
+    }
+
+    @Override
+    public void deleteExpectedStates(Collection<UUID> slotIds)
+    {
+        Preconditions.checkNotNull(slotIds, "slotIds is null");
+        List<Change> changes = new ArrayList<>();
+        for (UUID slotId : slotIds) {
+            changes.add(new Change(DELETE, slotId.toString().getBytes(Charsets.UTF_8), slotId, null));
+        }
+        commit(changes);
+    }
+
+    @Override
+    public void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses)
+    {
+        Preconditions.checkNotNull(slotStatuses, "slotStatuses is null");
+        List<Change> changes = new ArrayList<>();
+        for (ExpectedSlotStatus slotStatus : slotStatuses) {
+            changes.add(new Change(SET, codec.toJson(slotStatus).getBytes(Charsets.UTF_8), slotStatus.getId(), slotStatus));
+        }
+        commit(changes);
+    }
+
+    private void commit(byte type, byte[] payload, UUID slotId, ExpectedSlotStatus slotStatus)
+    {
+        commit(ImmutableList.of(new Change(type, payload, slotId, slotStatus)));
+    }
+
+    private void commit(List<Change> changes)
+    {
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            Batch batch = append(changes);
+            sync(batch);
+        }
+        catch (Exception e) {
+            log.error(e, "Error writing expected slot status");
+        }
+    }
+
+    /**
+     * Appends the changes as a single write and returns them as a batch to sync.
+     */
+    private synchronized Batch append(List<Change> changes)
+            throws IOException
+    {
+        if (failure != null) {
+            throw new IOException("Expected slot state files could not be restored after a failed sync", failure);
+        }
+
+        int size = 0;
+        for (Change change : changes) {
+            size += HEADER_SIZE + change.payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Change change : changes) {
+            buffer.putInt(change.payload.length);
+            buffer.putInt((int) checksum(change.type, change.payload));
+            buffer.put(change.type);
+            buffer.put(change.payload);
+        }
+        buffer.flip();
+
+        long position = journal.position();
+        try {
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+        }
+        catch (IOException e) {
+            // do not leave a partial record that would hide the records written after it
+            journal.truncate(position);
+            journal.position(position);
+            throw e;
+        }
+
+        // the map is updated in journal order, so it always matches what a replay produces
+        Batch batch = new Batch(changes);
+        batch.applyTo(journalStates);
+        unsynced.add(batch);
+        journalRecords += changes.size();
+
+        if (journalRecords > Math.max(compactionThreshold, journalStates.size())) {
+            try {
+                compact();
+            }
+            catch (IOException e) {
+                // the record is in the journal, so only the compaction is retried later
+                log.error(e, "Error compacting expected slot states");
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Waits until the batch is on disk and then makes it visible to readers.
+     * A caller that finds its batch already synced by another caller returns
+     * right away.
+     */
+    private void sync(Batch batch)
+            throws IOException
+    {
+        synchronized (syncLock) {
+            if (batch.synced) {
+                return;
+            }
+            if (batch.failure != null) {
+                throw batch.failure;
+            }
+
+            List<Batch> batches;
+            FileChannel channel;
+            synchronized (this) {
+                batches = ImmutableList.copyOf(unsynced);
+                unsynced.clear();
+                channel = journal;
+            }
+
+            try {
+                channel.force(false);
+            }
+            catch (IOException e) {
+                discardUnsynced(batches, e);
+                throw e;
+            }
+
+            // published in journal order, so readers never see an older change win
+            for (Batch synced : batches) {
+                synced.applyTo(expectedStates);
+                synced.synced = true;
+            }
+        }
+    }
+
+    /**
+     * Fails every unsynced batch and rewrites the files from the synced
+     * states.  A failed sync may have dropped the unsynced records, and a
+     * later sync can report success without writing them.
+     */
+    @GuardedBy("syncLock")
+    private void discardUnsynced(List<Batch> batches, IOException cause)
+    {
+        synchronized (this) {
+            for (Batch batch : Iterables.concat(batches, unsynced)) {
+                batch.failure = cause;
+            }
+            unsynced.clear();
+
+            journalStates.clear();
+            journalStates.putAll(expectedStates);
+            try {
+                compact();
+            }
+            catch (IOException e) {
+                log.error(e, "Error restoring expected slot states after a failed sync");
+                failure = e;
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void compact()
+            throws IOException
+    {
+        File snapshotFile = new File(dataDir, SNAPSHOT_FILE);
+        File tempFile = new File(dataDir, "." + SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile)) {
+            OutputStream out = new BufferedOutputStream(fileOutputStream);
+            for (ExpectedSlotStatus slotStatus : journalStates.values()) {
+                byte[] payload = codec.toJson(slotStatus).getBytes(Charsets.UTF_8);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(payload.length);
+                header.putInt((int) checksum(SET, payload));
+                header.put(SET);
+                out.write(header.array());
+                out.write(payload);
+            }
+            out.flush();
+            fileOutputStream.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        // the rename must be on disk before the truncation, or a power loss could keep the old snapshot with an empty journal
+        syncDataDir();
+
+        // the journal records are now in the snapshot, and replaying them again after a crash here is harmless
+        journal.truncate(0);
+        journal.position(0);
+        journal.force(true);
+        journalRecords = 0;
+        log.debug("Compacted expected slot states to %s entries", journalStates.size());
+    }
+
+    /**
+     * Forces the directory entries to disk, which makes renames durable.
+     */
+    private void syncDataDir()
+    {
+        try (FileChannel channel = FileChannel.open(dataDir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch (IOException e) {
+            // some platforms can not open a directory; the rename is still atomic
+            log.debug("Could not sync expected state directory %s: %s", dataDir, e.getMessage());
+        }
+    }
+
+    private static class Batch
+    {
+        private final List<Change> changes;
+        @GuardedBy("syncLock")
+        private boolean synced;
+        @GuardedBy("syncLock")
+        private IOException failure;
+
+        private Batch(List<Change> changes)
+        {
+            this.changes = changes;
+        }
+
+        private void applyTo(Map<UUID, ExpectedSlotStatus> states)
+        {
+            for (Change change : changes) {
+                if (change.slotStatus != null) {
+                    states.put(change.slotId, change.slotStatus);
+                }
+                else {
+                    states.remove(change.slotId);
+                }
+            }
+        }
+    }
+
+    private static class Change
+    {
+        private final byte type;
+        private final byte[] payload;
+        private final UUID slotId;
+        private final ExpectedSlotStatus slotStatus;
+
+        private Change(byte type, byte[] payload, UUID slotId, ExpectedSlotStatus slotStatus)
+        {
+            this.type = type;
+            this.payload = payload;
+            this.slotId = slotId;
+            this.slotStatus = slotStatus;
+        }
+    }
+
+    private static long checksum(byte type, byte[] payload)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
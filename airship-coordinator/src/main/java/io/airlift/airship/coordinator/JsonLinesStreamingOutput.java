@@ -0,0 +1,64 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes each value as a single line of JSON and flushes after every line,
+ * so values are serialized as they are produced instead of being buffered
+ * into one large document.
+ */
+class JsonLinesStreamingOutput implements StreamingOutput
+{
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON_TYPE = MediaType.valueOf(APPLICATION_NDJSON);
+
+    private final ObjectMapper objectMapper;
+    private final Iterable<?> values;
+
+    public JsonLinesStreamingOutput(ObjectMapper objectMapper, Iterable<?> values)
+    {
+        Preconditions.checkNotNull(objectMapper, "objectMapper is null");
+        Preconditions.checkNotNull(values, "values is null");
+        this.objectMapper = objectMapper;
+        this.values = values;
+    }
+
+    /**
+     * Does the Accept header explicitly ask for newline delimited JSON?
+     */
+    public static boolean isAccepted(String accept)
+    {
+        if (accept == null) {
+            return false;
+        }
+        for (String mediaType : accept.split(",")) {
+            try {
+                MediaType type = MediaType.valueOf(mediaType.trim());
+                if (!type.isWildcardType() && !type.isWildcardSubtype() && type.isCompatible(APPLICATION_NDJSON_TYPE)) {
+                    return true;
+                }
+            }
+            catch (IllegalArgumentException ignored) {
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void write(OutputStream output)
+            throws IOException, WebApplicationException
+    {
+        for (Object value : values) {
+            output.write(objectMapper.writeValueAsBytes(value));
+            output.write('\n');
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.json.JsonCodec;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Creates the state manager that keeps expected states on the local disk,
+ * either one file per slot or a journal depending on the configuration.
+ */
+public class LocalStateManagerProvider
+        implements Provider<StateManager>
+{
+    private final FileStateManagerConfig config;
+    private final JsonCodec<ExpectedSlotStatus> codec;
+
+    @GuardedBy("this")
+    private FileStateManager fileStateManager;
+    @GuardedBy("this")
+    private JournalStateManager journalStateManager;
+
+    @Inject
+    public LocalStateManagerProvider(FileStateManagerConfig config, JsonCodec<ExpectedSlotStatus> codec)
+    {
+        Preconditions.checkNotNull(config, "config is null");
+        Preconditions.checkNotNull(codec, "codec is null");
+
+        this.config = config;
+        this.codec = codec;
+    }
+
+    @Override
+    public synchronized StateManager get()
+    {
+        File dataDir = new File(config.getExpectedStateDir());
+        if (config.isJournalEnabled()) {
+            journalStateManager = new JournalStateManager(dataDir, codec, config.getJournalCompactionThreshold());
+            return journalStateManager;
+        }
+
+        fileStateManager = new FileStateManager(dataDir, codec, config.isWatchEnabled());
+        try {
+            fileStateManager.start();
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        return fileStateManager;
+    }
+
+    @PreDestroy
+    public synchronized void stop()
+            throws IOException
+    {
+        // the state manager is not created by the injector, so its lifecycle is handled here
+        if (fileStateManager != null) {
+            fileStateManager.stop();
+        }
+        if (journalStateManager != null) {
+            journalStateManager.close();
+        }
+    }
+}
@@ -10,11 +10,17 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
 import java.io.File;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 @XmlType
@@ -89,6 +95,7 @@ public class MavenMetadata
 
 
     private static final JAXBContext jaxbContext;
+    private static final XMLInputFactory xmlInputFactory;
 
     static {
         try {
@@ -97,6 +104,10 @@ public class MavenMetadata
         catch (JAXBException e) {
             throw new RuntimeException(e);
         }
+
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
     }
 
     public static MavenMetadata unmarshalMavenMetadata(InputStream in)
@@ -113,6 +124,81 @@ public class MavenMetadata
         return unmarshaller.unmarshal(new StreamSource(new StringReader(in)), MavenMetadata.class).getValue();
     }
 
+    /**
+     * Reads the coordinates and snapshot information of the metadata in a
+     * single pass with a streaming parser.  The list of versions is skipped.
+     */
+    public static MavenMetadata unmarshalSnapshotMetadata(InputStream in)
+            throws XMLStreamException
+    {
+        MavenMetadata metadata = new MavenMetadata();
+        metadata.versioning = new Versioning();
+        SnapshotVersion snapshotVersion = null;
+
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+        try {
+            Deque<String> path = new ArrayDeque<>();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    path.pop();
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String parent = path.peek();
+                String name = reader.getLocalName();
+                if ("metadata".equals(parent) && "groupId".equals(name)) {
+                    metadata.groupId = reader.getElementText();
+                }
+                else if ("metadata".equals(parent) && "artifactId".equals(name)) {
+                    metadata.artifactId = reader.getElementText();
+                }
+                else if ("metadata".equals(parent) && "version".equals(name)) {
+                    metadata.version = reader.getElementText();
+                }
+                else if ("versioning".equals(parent) && "lastUpdated".equals(name)) {
+                    metadata.versioning.lastUpdated = reader.getElementText();
+                }
+                else if ("snapshot".equals(parent) && "timestamp".equals(name)) {
+                    metadata.versioning.snapshot.timestamp = reader.getElementText();
+                }
+                else if ("snapshot".equals(parent) && "buildNumber".equals(name)) {
+                    metadata.versioning.snapshot.buildNumber = reader.getElementText();
+                }
+                else if ("snapshotVersion".equals(parent) && "classifier".equals(name)) {
+                    snapshotVersion.classifier = reader.getElementText();
+                }
+                else if ("snapshotVersion".equals(parent) && "extension".equals(name)) {
+                    snapshotVersion.extension = reader.getElementText();
+                }
+                else if ("snapshotVersion".equals(parent) && "value".equals(name)) {
+                    snapshotVersion.value = reader.getElementText();
+                }
+                else if ("snapshotVersion".equals(parent) && "updated".equals(name)) {
+                    snapshotVersion.updated = reader.getElementText();
+                }
+                else {
+                    // getElementText consumes the end element, so only containers are tracked
+                    if ("versioning".equals(parent) && "snapshot".equals(name)) {
+                        metadata.versioning.snapshot = new Snapshot();
+                    }
+                    else if ("snapshotVersions".equals(parent) && "snapshotVersion".equals(name)) {
+                        snapshotVersion = new SnapshotVersion();
+                        metadata.versioning.snapshotVersions.add(snapshotVersion);
+                    }
+                    path.push(name);
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return metadata;
+    }
+
     public static void marshalMavenMetadata(File file, MavenMetadata metadata)
             throws Exception
     {
@@ -0,0 +1,263 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response.Status;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the snapshot information of maven-metadata.xml files.  Within
+ * the TTL the cached metadata is returned as is.  After the TTL it is
+ * revalidated with a conditional GET using the ETag and Last-Modified of the
+ * previous response, so an unchanged file is not downloaded or parsed again.
+ * HTTP requests share the pooled client and timeouts of the artifact probe,
+ * and concurrent refreshes of the same file share one request.  Missing
+ * files are remembered for the TTL too.  Like the artifact probe, a 401 or
+ * 403 means the file is missing.
+ */
+@ThreadSafe
+public class MavenMetadataCache
+{
+    private static final String USER_AGENT = "User-Agent: Apache-Maven/3.0.3 (Java 1.6.0_29; Mac OS X 10.7.2)";
+
+    private final Cache<URI, Entry> cache;
+    private final long ttlNanos;
+    private final HttpClient httpClient;
+    private final Ticker ticker;
+
+    // the caller that starts a refresh runs it, and the others wait for it
+    private final RequestCoalescer<URI, Entry> refreshes = new RequestCoalescer<>(MoreExecutors.sameThreadExecutor());
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+
+    @Inject
+    public MavenMetadataCache(CoordinatorConfig config, ArtifactProbe artifactProbe)
+    {
+        this(config.getRepositoryMetadataTtl(), config.getRepositoryCacheMaxSize(), artifactProbe.getHttpClient(), Ticker.systemTicker());
+    }
+
+    public MavenMetadataCache(Duration ttl, long maxSize, HttpClient httpClient, Ticker ticker)
+    {
+        Preconditions.checkNotNull(ttl, "ttl is null");
+        Preconditions.checkArgument(maxSize >= 0, "maxSize is negative");
+        Preconditions.checkNotNull(httpClient, "httpClient is null");
+        Preconditions.checkNotNull(ticker, "ticker is null");
+
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos((long) ttl.toMillis());
+        this.httpClient = httpClient;
+        this.ticker = ticker;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Returns the snapshot information in the metadata file, or null if the
+     * file does not exist.
+     */
+    public MavenMetadata get(final URI uri)
+            throws Exception
+    {
+        Preconditions.checkNotNull(uri, "uri is null");
+
+        requests.incrementAndGet();
+        Entry entry = getIfCurrent(uri);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry.metadata;
+        }
+
+        ListenableFuture<Entry> refresh = refreshes.submit(uri, new Callable<Entry>()
+        {
+            @Override
+            public Entry call()
+                    throws Exception
+            {
+                // another refresh may have finished since the cache was checked
+                Entry current = getIfCurrent(uri);
+                if (current != null) {
+                    return current;
+                }
+
+                Entry refreshed = fetch(uri, cache.getIfPresent(uri), ticker.read());
+                cache.put(uri, refreshed);
+                return refreshed;
+            }
+        });
+        try {
+            return refresh.get().metadata;
+        }
+        catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private Entry getIfCurrent(URI uri)
+    {
+        Entry entry = cache.getIfPresent(uri);
+        if (entry != null && ticker.read() - entry.validatedTime < ttlNanos) {
+            return entry;
+        }
+        return null;
+    }
+
+    private Entry fetch(URI uri, Entry previous, long now)
+            throws Exception
+    {
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            // local repositories have no validators to check
+            try (InputStream in = uri.toURL().openStream()) {
+                downloads.incrementAndGet();
+                return new Entry(MavenMetadata.unmarshalSnapshotMetadata(in), null, null, now);
+            }
+            catch (FileNotFoundException e) {
+                return new Entry(null, null, null, now);
+            }
+        }
+
+        Request.Builder request = Request.Builder.prepareGet()
+                .setUri(uri)
+                .setHeader("User-Agent", USER_AGENT);
+        if (previous != null) {
+            revalidations.incrementAndGet();
+            if (previous.etag != null) {
+                request.setHeader("If-None-Match", previous.etag);
+            }
+            if (previous.lastModified != null) {
+                request.setHeader("If-Modified-Since", previous.lastModified);
+            }
+        }
+        return httpClient.execute(request.build(), new MetadataResponseHandler(previous, now));
+    }
+
+    @Managed
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    @Managed
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+    @Managed
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Managed
+    public long getRevalidations()
+    {
+        return revalidations.get();
+    }
+
+    @Managed
+    public long getNotModified()
+    {
+        return notModified.get();
+    }
+
+    @Managed
+    public long getDownloads()
+    {
+        return downloads.get();
+    }
+
+    @Managed
+    public long getCoalescedRefreshes()
+    {
+        return refreshes.getCoalescedRequests();
+    }
+
+    @Managed
+    public long getSize()
+    {
+        return cache.size();
+    }
+
+    private static class Entry
+    {
+        private final MavenMetadata metadata;
+        private final String etag;
+        private final String lastModified;
+        private final long validatedTime;
+
+        private Entry(MavenMetadata metadata, String etag, String lastModified, long validatedTime)
+        {
+            this.metadata = metadata;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.validatedTime = validatedTime;
+        }
+    }
+
+    private class MetadataResponseHandler
+            implements ResponseHandler<Entry, Exception>
+    {
+        private final Entry previous;
+        private final long now;
+
+        private MetadataResponseHandler(Entry previous, long now)
+        {
+            this.previous = previous;
+            this.now = now;
+        }
+
+        @Override
+        public Exception handleException(Request request, Exception exception)
+        {
+            return exception;
+        }
+
+        @Override
+        public Entry handle(Request request, Response response)
+                throws Exception
+        {
+            int statusCode = response.getStatusCode();
+            if (statusCode == Status.NOT_MODIFIED.getStatusCode() && previous != null) {
+                notModified.incrementAndGet();
+                return new Entry(previous.metadata, previous.etag, previous.lastModified, now);
+            }
+            if (statusCode == Status.NOT_FOUND.getStatusCode() || statusCode == Status.GONE.getStatusCode() ||
+                    statusCode == Status.UNAUTHORIZED.getStatusCode() || statusCode == Status.FORBIDDEN.getStatusCode()) {
+                return new Entry(null, null, null, now);
+            }
+            if (statusCode != Status.OK.getStatusCode()) {
+                throw new RuntimeException(String.format("Unexpected response status %s from %s", statusCode, request.getUri()));
+            }
+
+            downloads.incrementAndGet();
+            try (InputStream in = response.getInputStream()) {
+                MavenMetadata metadata = MavenMetadata.unmarshalSnapshotMetadata(in);
+                return new Entry(metadata, response.getHeader("ETag"), response.getHeader("Last-Modified"), now);
+            }
+        }
+    }
+}
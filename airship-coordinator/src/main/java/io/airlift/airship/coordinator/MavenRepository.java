@@ -2,33 +2,26 @@ package io.airlift.airship.coordinator;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
-import com.google.common.io.ByteProcessor;
-import com.google.common.io.ByteStreams;
-import com.google.common.io.CharStreams;
-import com.google.common.io.InputSupplier;
-import com.google.common.io.Resources;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import io.airlift.airship.coordinator.MavenMetadata.SnapshotVersion;
 import io.airlift.airship.shared.HttpUriBuilder;
 import io.airlift.airship.shared.MavenCoordinates;
+import io.airlift.airship.shared.ParallelLookup;
 import io.airlift.airship.shared.Repository;
-import io.airlift.log.Logger;
+import io.airlift.stats.TimedStat;
+import io.airlift.units.Duration;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URL;
-import java.net.URLConnection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.collect.Lists.newArrayList;
 import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.airship.shared.MavenCoordinates.toBinaryGAV;
@@ -36,11 +29,14 @@ import static io.airlift.airship.shared.MavenCoordinates.toConfigGAV;
 
 public class MavenRepository implements Repository
 {
-    private static final Logger log = Logger.get(MavenRepository.class);
-
     private static final Pattern TIMESTAMP_VERSION = Pattern.compile("^(.+)-[0-9]{8}\\.[0-9]{6}\\-[0-9]+$");
     private final List<String> defaultGroupIds;
     private final List<URI> repositoryBases;
+    private final Map<URI, TimedStat> probeTimes;
+    private final ResolutionCache resolutionCache;
+    private final ParallelLookup parallelLookup;
+    private final ArtifactProbe artifactProbe;
+    private final MavenMetadataCache metadataCache;
 
     public MavenRepository(Iterable<String> defaultGroupIds, URI repositoryBase, URI... repositoryBases)
     {
@@ -49,30 +45,53 @@ public class MavenRepository implements Repository
 
     public MavenRepository(Iterable<String> defaultGroupIds, Iterable<URI> repositoryBases)
     {
+        this(defaultGroupIds, repositoryBases, new ArtifactProbe(new CoordinatorConfig()));
+    }
+
+    private MavenRepository(Iterable<String> defaultGroupIds, Iterable<URI> repositoryBases, ArtifactProbe artifactProbe)
+    {
+        this(defaultGroupIds, repositoryBases, new ResolutionCache(new CoordinatorConfig()), ParallelLookup.sequentialLookup(), artifactProbe, new MavenMetadataCache(new CoordinatorConfig(), artifactProbe));
+    }
+
+    public MavenRepository(Iterable<String> defaultGroupIds, Iterable<URI> repositoryBases, ResolutionCache resolutionCache, ParallelLookup parallelLookup, ArtifactProbe artifactProbe, MavenMetadataCache metadataCache)
+    {
+        Preconditions.checkNotNull(defaultGroupIds, "defaultGroupIds is null");
+        Preconditions.checkNotNull(repositoryBases, "repositoryBases is null");
+        Preconditions.checkNotNull(resolutionCache, "resolutionCache is null");
+        Preconditions.checkNotNull(parallelLookup, "parallelLookup is null");
+        Preconditions.checkNotNull(artifactProbe, "artifactProbe is null");
+        Preconditions.checkNotNull(metadataCache, "metadataCache is null");
+
         this.defaultGroupIds = ImmutableList.copyOf(defaultGroupIds);
+        ImmutableMap.Builder<URI, TimedStat> probeTimes = ImmutableMap.builder();
         for (URI uri : repositoryBases) {
             Preconditions.checkArgument(uri.toASCIIString().endsWith("/"), "Uri must end with a '/' " + uri);
+            probeTimes.put(uri, new TimedStat());
         }
         this.repositoryBases = ImmutableList.copyOf(repositoryBases);
+        this.probeTimes = probeTimes.build();
+        this.resolutionCache = resolutionCache;
+        this.parallelLookup = parallelLookup;
+        this.artifactProbe = artifactProbe;
+        this.metadataCache = metadataCache;
     }
 
     @Inject
-    public MavenRepository(CoordinatorConfig config)
+    public MavenRepository(CoordinatorConfig config, ResolutionCache resolutionCache, ParallelLookup parallelLookup, ArtifactProbe artifactProbe, MavenMetadataCache metadataCache)
     {
-        if (config.getDefaultRepositoryGroupId() != null) {
-            this.defaultGroupIds = ImmutableList.copyOf(config.getDefaultRepositoryGroupId());
-        } else {
-            this.defaultGroupIds = ImmutableList.of();
-        }
+        this(Objects.firstNonNull(config.getDefaultRepositoryGroupId(), ImmutableList.<String>of()), toRepositoryBases(config.getRepositories()), resolutionCache, parallelLookup, artifactProbe, metadataCache);
+    }
 
+    private static List<URI> toRepositoryBases(List<String> repositories)
+    {
         Builder<URI> builder = ImmutableList.builder();
-        for (String binaryRepoBase : config.getRepositories()) {
+        for (String binaryRepoBase : repositories) {
             if (!binaryRepoBase.endsWith("/")) {
                 binaryRepoBase = binaryRepoBase + "/";
             }
             builder.add(URI.create(binaryRepoBase));
         }
-        repositoryBases = builder.build();
+        return builder.build();
     }
 
     @Override
@@ -258,8 +277,10 @@ public class MavenRepository implements Repository
         if (coordinates == null) {
             return null;
         }
+        // probe all bases at once, but the first base in the list that has the binary wins
         List<URI> checkedUris = newArrayList();
-        for (URI repositoryBase : repositoryBases) {
+        List<Callable<URI>> probes = newArrayList();
+        for (final URI repositoryBase : repositoryBases) {
             // build the uri
             HttpUriBuilder uriBuilder = uriBuilderFrom(repositoryBase);
             uriBuilder.appendPath(coordinates.getGroupId().replace('.', '/'));
@@ -273,14 +294,25 @@ public class MavenRepository implements Repository
             fileNameBuilder.append('.').append(coordinates.getPackaging());
             uriBuilder.appendPath(fileNameBuilder.toString());
 
-            URI uri = uriBuilder.build();
-
-            // try to download some of the file
-            if (isValidBinary(uri)) {
-                return uri;
-            }
-
+            final URI uri = uriBuilder.build();
             checkedUris.add(uri);
+            probes.add(new Callable<URI>()
+            {
+                @Override
+                public URI call()
+                {
+                    // try to download some of the file
+                    if (isValidBinary(repositoryBase, uri)) {
+                        return uri;
+                    }
+                    return null;
+                }
+            });
+        }
+
+        URI uri = parallelLookup.first(probes);
+        if (uri != null) {
+            return uri;
         }
         if (required) {
             throw new RuntimeException("Unable to find binary " + coordinates + " at " + checkedUris);
@@ -290,12 +322,26 @@ public class MavenRepository implements Repository
         }
     }
 
-    public MavenCoordinates resolve(MavenCoordinates coordinates)
+    public MavenCoordinates resolve(final MavenCoordinates coordinates)
     {
         if (coordinates.isResolved()) {
             return coordinates;
         }
 
+        // the answer depends on the repositories searched, so they are part of the key
+        Object key = ImmutableList.of(repositoryBases, defaultGroupIds, coordinates);
+        return resolutionCache.get(key, isSnapshot(coordinates.getVersion()), new Callable<MavenCoordinates>()
+        {
+            @Override
+            public MavenCoordinates call()
+            {
+                return resolveUncached(coordinates);
+            }
+        });
+    }
+
+    private MavenCoordinates resolveUncached(final MavenCoordinates coordinates)
+    {
         List<String> groupIds;
         if (coordinates.getGroupId() != null) {
             groupIds = ImmutableList.of(coordinates.getGroupId());
@@ -304,43 +350,23 @@ public class MavenRepository implements Repository
             groupIds = defaultGroupIds;
         }
 
-        List<MavenCoordinates> matchedCoordinates = newArrayList();
-        for (String groupId : groupIds) {
-            // check for a file with the exact name
-            MavenCoordinates resolvedSpec = new MavenCoordinates(groupId,
-                    coordinates.getArtifactId(),
-                    coordinates.getVersion(),
-                    coordinates.getPackaging(),
-                    coordinates.getClassifier(),
-                    coordinates.getFileVersion());
-
-            if (toHttpUri(resolvedSpec, false) != null) {
-                matchedCoordinates.add(resolvedSpec);
-                continue;
-            }
-
-            // check of a timestamped snapshot file
-            if (coordinates.getVersion().contains("SNAPSHOT")) {
-                MavenCoordinates timestampSpec = resolveSnapshotTimestamp(coordinates, groupId);
-                if (timestampSpec != null) {
-                    matchedCoordinates.add(timestampSpec);
-                    continue;
+        // each group id is checked at the same time, and more than one match is an error
+        List<Callable<MavenCoordinates>> lookups = newArrayList();
+        for (final String groupId : groupIds) {
+            lookups.add(new Callable<MavenCoordinates>()
+            {
+                @Override
+                public MavenCoordinates call()
+                {
+                    return resolve(coordinates, groupId);
                 }
-            }
-
-            // Snapshot revisions are resolved to timestamp version which may need to be converted back to SNAPSHOT for resolution
-            Matcher timestampMatcher = TIMESTAMP_VERSION.matcher(coordinates.getVersion());
-            if (timestampMatcher.matches()) {
-                MavenCoordinates snapshotSpec = new MavenCoordinates(groupId,
-                        coordinates.getArtifactId(),
-                        timestampMatcher.group(1) + "-SNAPSHOT",
-                        coordinates.getPackaging(),
-                        coordinates.getClassifier(),
-                        coordinates.getVersion());
+            });
+        }
 
-                if (toHttpUri(snapshotSpec, false) != null) {
-                    matchedCoordinates.add(snapshotSpec);
-                }
+        List<MavenCoordinates> matchedCoordinates = newArrayList();
+        for (MavenCoordinates match : parallelLookup.all(lookups)) {
+            if (match != null) {
+                matchedCoordinates.add(match);
             }
         }
 
@@ -355,90 +381,128 @@ public class MavenRepository implements Repository
         return matchedCoordinates.get(0);
     }
 
-    private MavenCoordinates resolveSnapshotTimestamp(MavenCoordinates coordinates, String groupId)
+    private MavenCoordinates resolve(MavenCoordinates coordinates, String groupId)
     {
+        // check for a file with the exact name
+        MavenCoordinates resolvedSpec = new MavenCoordinates(groupId,
+                coordinates.getArtifactId(),
+                coordinates.getVersion(),
+                coordinates.getPackaging(),
+                coordinates.getClassifier(),
+                coordinates.getFileVersion());
 
-        for (URI repositoryBase : repositoryBases) {
-            try {
-                // load maven metadata file
-                HttpUriBuilder uriBuilder = uriBuilderFrom(repositoryBase);
-                uriBuilder.appendPath(groupId.replace('.', '/'));
-                uriBuilder.appendPath(coordinates.getArtifactId());
-                uriBuilder.appendPath(coordinates.getVersion());
-                uriBuilder.appendPath("maven-metadata.xml");
-                URI uri = uriBuilder.build();
-                MavenMetadata metadata = MavenMetadata.unmarshalMavenMetadata(toString(uri));
-
-                for (SnapshotVersion snapshotVersion : metadata.versioning.snapshotVersions) {
-                    if (coordinates.getPackaging().equals(snapshotVersion.extension) && Objects.equal(coordinates.getClassifier(), snapshotVersion.classifier)) {
-                        MavenCoordinates timestampSpec = new MavenCoordinates(groupId,
-                                coordinates.getArtifactId(),
-                                coordinates.getVersion(),
-                                coordinates.getPackaging(),
-                                coordinates.getClassifier(),
-                                snapshotVersion.value);
-
-                        return timestampSpec;
-                    }
-                }
+        if (toHttpUri(resolvedSpec, false) != null) {
+            return resolvedSpec;
+        }
+
+        // check of a timestamped snapshot file
+        if (coordinates.getVersion().contains("SNAPSHOT")) {
+            MavenCoordinates timestampSpec = resolveSnapshotTimestamp(coordinates, groupId);
+            if (timestampSpec != null) {
+                return timestampSpec;
             }
-            catch (Exception ignored) {
-                // no maven-metadata.xml file... hope this is laid out normally
+        }
+
+        // Snapshot revisions are resolved to timestamp version which may need to be converted back to SNAPSHOT for resolution
+        Matcher timestampMatcher = TIMESTAMP_VERSION.matcher(coordinates.getVersion());
+        if (timestampMatcher.matches()) {
+            MavenCoordinates snapshotSpec = new MavenCoordinates(groupId,
+                    coordinates.getArtifactId(),
+                    timestampMatcher.group(1) + "-SNAPSHOT",
+                    coordinates.getPackaging(),
+                    coordinates.getClassifier(),
+                    coordinates.getVersion());
+
+            if (toHttpUri(snapshotSpec, false) != null) {
+                return snapshotSpec;
             }
         }
         return null;
     }
 
-    private String toString(URI uri)
-            throws IOException
+    private MavenCoordinates resolveSnapshotTimestamp(final MavenCoordinates coordinates, final String groupId)
     {
-        final URL url = uri.toURL();
-        return CharStreams.toString(new InputSupplier<InputStreamReader>() {
-            @Override
-            public InputStreamReader getInput()
-                    throws IOException
+        List<Callable<MavenCoordinates>> lookups = newArrayList();
+        for (final URI repositoryBase : repositoryBases) {
+            lookups.add(new Callable<MavenCoordinates>()
             {
-                URLConnection connection = url.openConnection();
-                if (connection instanceof HttpURLConnection) {
-                    HttpURLConnection httpConnection = (HttpURLConnection) connection;
-                    httpConnection.addRequestProperty("User-Agent", "User-Agent: Apache-Maven/3.0.3 (Java 1.6.0_29; Mac OS X 10.7.2)");
+                @Override
+                public MavenCoordinates call()
+                {
+                    return resolveSnapshotTimestamp(coordinates, groupId, repositoryBase);
                 }
-                InputStream in = connection.getInputStream();
-                return new InputStreamReader(in, UTF_8);
-            }
-        });
+            });
+        }
+        return parallelLookup.first(lookups);
     }
 
-    private boolean isValidBinary(URI uri)
+    private MavenCoordinates resolveSnapshotTimestamp(MavenCoordinates coordinates, String groupId, URI repositoryBase)
     {
-        log.debug("validating URI: %s", uri);
+        // load maven metadata file
+        HttpUriBuilder uriBuilder = uriBuilderFrom(repositoryBase);
+        uriBuilder.appendPath(groupId.replace('.', '/'));
+        uriBuilder.appendPath(coordinates.getArtifactId());
+        uriBuilder.appendPath(coordinates.getVersion());
+        uriBuilder.appendPath("maven-metadata.xml");
+        URI uri = uriBuilder.build();
+
+        MavenMetadata metadata;
         try {
-            InputSupplier<InputStream> inputSupplier = Resources.newInputStreamSupplier(uri.toURL());
-            ByteStreams.readBytes(inputSupplier, new ByteProcessor<Void>()
-            {
-                private int count;
-
-                public boolean processBytes(byte[] buffer, int offset, int length)
-                {
-                    count += length;
-                    // make sure we got at least 10 bytes
-                    return count < 10;
-                }
-
-                public Void getResult()
-                {
-                    return null;
-                }
-            });
-            return true;
-        }
-        catch (FileNotFoundException e) {
-            log.debug("URI does not exist: %s", uri);
+            metadata = metadataCache.get(uri);
         }
         catch (Exception e) {
-            log.debug(e, "error validating URI: %s", uri);
+            // only a missing file is a miss, so a failed fetch must not be cached as one
+            throw Throwables.propagate(e);
         }
-        return false;
+        if (metadata == null) {
+            // no maven-metadata.xml file... hope this is laid out normally
+            return null;
+        }
+
+        for (SnapshotVersion snapshotVersion : metadata.versioning.snapshotVersions) {
+            if (coordinates.getPackaging().equals(snapshotVersion.extension) && Objects.equal(coordinates.getClassifier(), snapshotVersion.classifier)) {
+                MavenCoordinates timestampSpec = new MavenCoordinates(groupId,
+                        coordinates.getArtifactId(),
+                        coordinates.getVersion(),
+                        coordinates.getPackaging(),
+                        coordinates.getClassifier(),
+                        snapshotVersion.value);
+
+                return timestampSpec;
+            }
+        }
+        return null;
+    }
+
+    private boolean isValidBinary(final URI repositoryBase, final URI uri)
+    {
+        Boolean valid = resolutionCache.get(uri, isSnapshot(uri.getPath()), new Callable<Boolean>()
+        {
+            @Override
+            public Boolean call()
+            {
+                long start = System.nanoTime();
+                boolean found = artifactProbe.exists(uri);
+                probeTimes.get(repositoryBase).addValue(Duration.nanosSince(start));
+
+                // null is cached as a miss
+                return found ? Boolean.TRUE : null;
+            }
+        });
+        return valid != null;
+    }
+
+    /**
+     * Returns the time to probe for a binary in each repository base.
+     */
+    public Map<URI, TimedStat> getProbeTimes()
+    {
+        return probeTimes;
+    }
+
+    private static boolean isSnapshot(String version)
+    {
+        return version.contains("SNAPSHOT");
     }
 
     @Override
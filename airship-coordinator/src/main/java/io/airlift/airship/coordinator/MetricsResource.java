@@ -0,0 +1,119 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import io.airlift.stats.TimedStat;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Exposes the coordinator statistics that are also exported over JMX in the
+ * Prometheus text format.
+ */
+@Path("/v1/metrics")
+public class MetricsResource
+{
+    private static final String PREFIX = "airship_coordinator_";
+
+    private final Coordinator coordinator;
+    private final MavenRepository mavenRepository;
+    private final ArtifactProbe artifactProbe;
+
+    @Inject
+    public MetricsResource(Coordinator coordinator, MavenRepository mavenRepository, ArtifactProbe artifactProbe)
+    {
+        Preconditions.checkNotNull(coordinator, "coordinator is null");
+        Preconditions.checkNotNull(mavenRepository, "mavenRepository is null");
+        Preconditions.checkNotNull(artifactProbe, "artifactProbe is null");
+
+        this.coordinator = coordinator;
+        this.mavenRepository = mavenRepository;
+        this.artifactProbe = artifactProbe;
+    }
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response getMetrics()
+    {
+        return Response.ok(writeMetrics(coordinator, mavenRepository, artifactProbe).toString(), "text/plain; version=0.0.4").build();
+    }
+
+    static PrometheusWriter writeMetrics(Coordinator coordinator, MavenRepository mavenRepository, ArtifactProbe artifactProbe)
+    {
+        PrometheusWriter writer = new PrometheusWriter();
+
+        // agent polling
+        writer.summary(PREFIX + "agent_poll_cycle_seconds", "Time to poll the status of all agents", coordinator.getAgentPollCycleTime())
+                .summary(PREFIX + "agent_status_seconds", "Time to fetch the status of an agent", coordinator.getAgentStatusTime());
+
+        ImmutableMap.Builder<String, TimedStat> agentStatusTimes = ImmutableMap.builder();
+        for (Entry<String, AgentStats> entry : coordinator.getAgentStats().entrySet()) {
+            agentStatusTimes.put(entry.getKey(), entry.getValue().getStatusTime());
+        }
+        writer.summary(PREFIX + "agent_instance_status_seconds", "Time to fetch the status of each agent", "instance", agentStatusTimes.build())
+                .gauge(PREFIX + "agents", "Number of agents", coordinator.getAgents().size())
+                .gauge(PREFIX + "offline_agents", "Number of offline agents", coordinator.getOfflineAgents())
+                .gauge(PREFIX + "flapping_agents", "Number of agents that changed state repeatedly in the last minutes", coordinator.getFlappingAgents())
+                .counter(PREFIX + "agent_status_requests_total", "Agent status requests sent", coordinator.getAgentStatusRequests())
+                .counter(PREFIX + "agent_status_requests_coalesced_total", "Agent status requests that joined a request in flight", coordinator.getCoalescedAgentStatusRequests());
+
+        // state manager and repository
+        TimedStateManager stateManager = coordinator.getStateManagerStats();
+        TimedRepository repository = coordinator.getRepositoryStats();
+        writer.summary(PREFIX + "state_manager_read_seconds", "Time to read the expected slot states", stateManager.getReadTime())
+                .summary(PREFIX + "state_manager_write_seconds", "Time to write an expected slot state", stateManager.getWriteTime())
+                .summary(PREFIX + "repository_resolve_seconds", "Time to resolve a binary or config", repository.getResolveTime())
+                .counter(PREFIX + "repository_resolve_hits_total", "Resolutions that found a binary or config", repository.getHits())
+                .counter(PREFIX + "repository_resolve_misses_total", "Resolutions that found nothing", repository.getMisses());
+
+        ImmutableMap.Builder<String, TimedStat> probeTimes = ImmutableMap.builder();
+        for (Entry<URI, TimedStat> entry : mavenRepository.getProbeTimes().entrySet()) {
+            probeTimes.put(entry.getKey().toString(), entry.getValue());
+        }
+        writer.summary(PREFIX + "repository_probe_seconds", "Time to check for a binary in each maven repository", "repository", probeTimes.build())
+                .summary(PREFIX + "repository_probe_request_seconds", "Time of an HTTP request checking if an artifact exists", artifactProbe.getRequestTime())
+                .gauge(PREFIX + "repository_probe_requests_active", "HTTP requests checking if an artifact exists in progress", artifactProbe.getActiveRequests())
+                .gauge(PREFIX + "repository_probe_max_connections_per_server", "Size of the connection pool to each repository server", artifactProbe.getMaxConnectionsPerServer())
+                .counter(PREFIX + "repository_probe_head_requests_total", "HEAD requests checking if an artifact exists", artifactProbe.getHeadRequests())
+                .counter(PREFIX + "repository_probe_range_requests_total", "Ranged GET requests to servers that do not support HEAD", artifactProbe.getRangeRequests())
+                .counter(PREFIX + "repository_probe_failures_total", "Requests checking if an artifact exists that failed", artifactProbe.getFailures());
+
+        // commands
+        Map<String, CommandStats> commandStats = coordinator.getCommandStats();
+        ImmutableMap.Builder<String, Integer> activeCommands = ImmutableMap.builder();
+        ImmutableMap.Builder<String, Long> commands = ImmutableMap.builder();
+        ImmutableMap.Builder<String, Long> failedCommands = ImmutableMap.builder();
+        ImmutableMap.Builder<String, Long> commandSlots = ImmutableMap.builder();
+        ImmutableMap.Builder<String, TimedStat> commandTimes = ImmutableMap.builder();
+        for (Entry<String, CommandStats> entry : commandStats.entrySet()) {
+            CommandStats stats = entry.getValue();
+            activeCommands.put(entry.getKey(), stats.getActiveCommands());
+            commands.put(entry.getKey(), stats.getCommands());
+            failedCommands.put(entry.getKey(), stats.getFailedCommands());
+            commandSlots.put(entry.getKey(), stats.getSlots());
+            commandTimes.put(entry.getKey(), stats.getTime());
+        }
+        writer.gauge(PREFIX + "commands_active", "Commands in progress", "command", activeCommands.build())
+                .counter(PREFIX + "commands_total", "Commands finished", "command", commands.build())
+                .counter(PREFIX + "commands_failed_total", "Commands that failed", "command", failedCommands.build())
+                .counter(PREFIX + "command_slots_total", "Slots changed by commands", "command", commandSlots.build())
+                .summary(PREFIX + "command_seconds", "Time to run a command", "command", commandTimes.build());
+
+        CommandScheduler scheduler = coordinator.getCommandScheduler();
+        writer.gauge(PREFIX + "agent_commands_queued", "Agent commands waiting to run", scheduler.getQueuedCommands())
+                .gauge(PREFIX + "agent_commands_running", "Agent commands running", scheduler.getRunningCommands())
+                .counter(PREFIX + "agent_commands_failed_total", "Agent commands that failed", scheduler.getFailedCommands())
+                .counter(PREFIX + "agent_commands_rejected_total", "Agent commands rejected because the queue was full", scheduler.getRejectedCommands())
+                .summary(PREFIX + "agent_command_seconds", "Time to run an agent command", scheduler.getCommandTime());
+
+        return writer;
+    }
+}
@@ -0,0 +1,42 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.airship.shared.ParallelLookup;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the lookup used to probe all repositories at the same time.  The
+ * thread pool is unbounded because lookups start nested lookups, such as a
+ * repository set probing each base of a Maven repository.
+ */
+public class ParallelLookupProvider
+        implements Provider<ParallelLookup>
+{
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("repository-lookup-%s").setDaemon(true).build());
+    private final ParallelLookup parallelLookup;
+
+    @Inject
+    public ParallelLookupProvider(CoordinatorConfig config)
+    {
+        Preconditions.checkNotNull(config, "config is null");
+        this.parallelLookup = new ParallelLookup(executor, config.getRepositoryLookupTimeout());
+    }
+
+    @Override
+    public ParallelLookup get()
+    {
+        return parallelLookup;
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,126 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import io.airlift.stats.TimedStat;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Writes metrics in the Prometheus text exposition format.  Timed stats are
+ * written as summaries in seconds.
+ */
+class PrometheusWriter
+{
+    private final StringBuilder out = new StringBuilder();
+
+    public PrometheusWriter counter(String name, String help, long value)
+    {
+        header(name, help, "counter");
+        sample(name, null, null, value);
+        return this;
+    }
+
+    public PrometheusWriter counter(String name, String help, String label, Map<String, ? extends Number> values)
+    {
+        header(name, help, "counter");
+        for (Entry<String, ? extends Number> entry : values.entrySet()) {
+            sample(name, label, entry.getKey(), entry.getValue().doubleValue());
+        }
+        return this;
+    }
+
+    public PrometheusWriter gauge(String name, String help, double value)
+    {
+        header(name, help, "gauge");
+        sample(name, null, null, value);
+        return this;
+    }
+
+    public PrometheusWriter gauge(String name, String help, String label, Map<String, ? extends Number> values)
+    {
+        header(name, help, "gauge");
+        for (Entry<String, ? extends Number> entry : values.entrySet()) {
+            sample(name, label, entry.getKey(), entry.getValue().doubleValue());
+        }
+        return this;
+    }
+
+    public PrometheusWriter summary(String name, String help, TimedStat stat)
+    {
+        header(name, help, "summary");
+        summarySamples(name, null, null, stat);
+        return this;
+    }
+
+    public PrometheusWriter summary(String name, String help, String label, Map<String, TimedStat> stats)
+    {
+        header(name, help, "summary");
+        for (Entry<String, TimedStat> entry : stats.entrySet()) {
+            summarySamples(name, label, entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+
+    private void summarySamples(String name, String label, String labelValue, TimedStat stat)
+    {
+        // timed stats are recorded in milliseconds
+        quantile(name, label, labelValue, "0.5", stat.getTP50() / 1000);
+        quantile(name, label, labelValue, "0.9", stat.getTP90() / 1000);
+        quantile(name, label, labelValue, "0.99", stat.getTP99() / 1000);
+        sample(name + "_sum", label, labelValue, stat.getSum() / 1000);
+        sample(name + "_count", label, labelValue, stat.getCount());
+    }
+
+    private void header(String name, String help, String type)
+    {
+        Preconditions.checkArgument(name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*"), "Invalid metric name: %s", name);
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void quantile(String name, String label, String labelValue, String quantile, double value)
+    {
+        out.append(name).append('{');
+        if (label != null) {
+            appendLabel(label, labelValue).append(',');
+        }
+        appendLabel("quantile", quantile).append("} ");
+        appendValue(value).append('\n');
+    }
+
+    private void sample(String name, String label, String labelValue, double value)
+    {
+        out.append(name);
+        if (label != null) {
+            out.append('{');
+            appendLabel(label, labelValue).append('}');
+        }
+        out.append(' ');
+        appendValue(value).append('\n');
+    }
+
+    private StringBuilder appendLabel(String label, String value)
+    {
+        return out.append(label).append("=\"")
+                .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                .append('"');
+    }
+
+    private StringBuilder appendValue(double value)
+    {
+        if (Double.isInfinite(value)) {
+            return out.append(value > 0 ? "+Inf" : "-Inf");
+        }
+        if (value == Math.rint(value) && !Double.isNaN(value) && Math.abs(value) < 1e15) {
+            return out.append((long) value);
+        }
+        return out.append(value);
+    }
+
+    @Override
+    public String toString()
+    {
+        return out.toString();
+    }
+}
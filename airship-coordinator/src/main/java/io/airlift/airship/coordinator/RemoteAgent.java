@@ -1,6 +1,5 @@
 package io.airlift.airship.coordinator;
 
-import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.SlotStatus;
@@ -19,7 +18,19 @@ public interface RemoteAgent
 
     List<? extends RemoteSlot> getSlots();
 
+    /**
+     * Applies the operations to slots of this agent, returning the resulting
+     * slot statuses in the order of the operations.
+     */
+    List<SlotStatus> applySlotOperations(List<SlotOperation> operations);
+
     void updateStatus();
 
-    void setServiceInventory(List<ServiceDescriptor> serviceInventory);
+    /**
+     * Waits for slot state changes on the agent and applies them to the status.
+     * Returns false if the agent can not stream slot state changes right now.
+     */
+    boolean updateSlotStatus();
+
+    void setServiceInventory(VersionedServiceInventory serviceInventory);
 }
@@ -0,0 +1,81 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs at most one request per key at a time.  A caller asking for a key
+ * that already has a request in flight gets the future of that request
+ * instead of sending another one.
+ */
+public class RequestCoalescer<K, V>
+{
+    private final Executor executor;
+    private final ConcurrentMap<K, ListenableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+
+    public RequestCoalescer(Executor executor)
+    {
+        Preconditions.checkNotNull(executor, "executor is null");
+        this.executor = executor;
+    }
+
+    public ListenableFuture<V> submit(final K key, Callable<V> request)
+    {
+        Preconditions.checkNotNull(key, "key is null");
+        Preconditions.checkNotNull(request, "request is null");
+
+        // the task is registered before it is started, so only one caller runs the request
+        final ListenableFutureTask<V> task = ListenableFutureTask.create(request);
+        ListenableFuture<V> existing = inFlight.putIfAbsent(key, task);
+        while (existing != null) {
+            if (!existing.isDone()) {
+                coalescedRequests.incrementAndGet();
+                return existing;
+            }
+            // the request finished but its listener has not removed it yet, and
+            // the caller wants a result that is at least as new as this call
+            inFlight.remove(key, existing);
+            existing = inFlight.putIfAbsent(key, task);
+        }
+        requests.incrementAndGet();
+
+        task.addListener(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                inFlight.remove(key, task);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+
+        try {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            task.cancel(false);
+            throw e;
+        }
+        return task;
+    }
+
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+    public long getCoalescedRequests()
+    {
+        return coalescedRequests.get();
+    }
+}
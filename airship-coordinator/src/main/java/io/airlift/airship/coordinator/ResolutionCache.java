@@ -0,0 +1,178 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the results of repository lookups.  Found released artifacts
+ * never change, so they are kept until evicted for space.  Found snapshots
+ * are kept for the snapshot TTL, and lookups that found nothing are kept
+ * for the miss TTL.  Concurrent lookups of the same key share one load.
+ */
+@ThreadSafe
+public class ResolutionCache
+{
+    private final Cache<Object, Entry> cache;
+    private final long snapshotTtlNanos;
+    private final long missTtlNanos;
+    private final Ticker ticker;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    @Inject
+    public ResolutionCache(CoordinatorConfig config)
+    {
+        this(config.getRepositoryCacheSnapshotTtl(), config.getRepositoryCacheMissTtl(), config.getRepositoryCacheMaxSize(), Ticker.systemTicker());
+    }
+
+    public ResolutionCache(Duration snapshotTtl, Duration missTtl, long maxSize, Ticker ticker)
+    {
+        Preconditions.checkNotNull(snapshotTtl, "snapshotTtl is null");
+        Preconditions.checkNotNull(missTtl, "missTtl is null");
+        Preconditions.checkArgument(maxSize >= 0, "maxSize is negative");
+        Preconditions.checkNotNull(ticker, "ticker is null");
+
+        this.snapshotTtlNanos = TimeUnit.MILLISECONDS.toNanos((long) snapshotTtl.toMillis());
+        this.missTtlNanos = TimeUnit.MILLISECONDS.toNanos((long) missTtl.toMillis());
+        this.ticker = ticker;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Returns the cached result for the key, or calls the loader to get it.
+     * A null result is cached as a miss.  Exceptions thrown by the loader are
+     * propagated and nothing is cached.
+     */
+    public <T> T get(Object key, boolean snapshot, final Callable<T> loader)
+    {
+        Preconditions.checkNotNull(key, "key is null");
+        Preconditions.checkNotNull(loader, "loader is null");
+
+        requests.incrementAndGet();
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.isExpired(ticker.read())) {
+            expirations.incrementAndGet();
+            cache.asMap().remove(key, entry);
+        }
+
+        final long ttlNanos = snapshot ? snapshotTtlNanos : Long.MAX_VALUE;
+        final boolean[] loaded = new boolean[1];
+        try {
+            entry = cache.get(key, new Callable<Entry>()
+            {
+                @Override
+                public Entry call()
+                        throws Exception
+                {
+                    loads.incrementAndGet();
+                    loaded[0] = true;
+                    T value = loader.call();
+                    long now = ticker.read();
+                    if (value == null) {
+                        return new Entry(Optional.absent(), expirationTime(now, missTtlNanos));
+                    }
+                    return new Entry(Optional.of(value), expirationTime(now, ttlNanos));
+                }
+            });
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+
+        if (!loaded[0] && !entry.value.isPresent()) {
+            negativeHits.incrementAndGet();
+        }
+
+        // the value was stored by a call with the same key, so it has the requested type
+        @SuppressWarnings("unchecked")
+        T value = (T) entry.value.orNull();
+        return value;
+    }
+
+    @Managed
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    @Managed
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+    @Managed
+    public long getHits()
+    {
+        return requests.get() - loads.get();
+    }
+
+    @Managed
+    public long getLoads()
+    {
+        return loads.get();
+    }
+
+    @Managed
+    public long getNegativeHits()
+    {
+        return negativeHits.get();
+    }
+
+    @Managed
+    public long getExpirations()
+    {
+        return expirations.get();
+    }
+
+    @Managed
+    public long getSize()
+    {
+        return cache.size();
+    }
+
+    private static long expirationTime(long now, long ttlNanos)
+    {
+        if (ttlNanos == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return now + ttlNanos;
+    }
+
+    private static class Entry
+    {
+        private final Optional<?> value;
+        private final long expirationTime;
+
+        private Entry(Optional<?> value, long expirationTime)
+        {
+            this.value = value;
+            this.expirationTime = expirationTime;
+        }
+
+        private boolean isExpired(long now)
+        {
+            return expirationTime != Long.MAX_VALUE && now - expirationTime >= 0;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import io.airlift.airship.shared.Assignment;
+import io.airlift.airship.shared.Installation;
+import io.airlift.airship.shared.InstallationUtils;
+import io.airlift.airship.shared.Repository;
+import io.airlift.airship.shared.UpgradeVersions;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the repository lookups made while running a single command, so
+ * that checking an assignment against every agent or upgrading every slot
+ * resolves each distinct binary, config and installation only once.  A new
+ * context should be created for each command so later commands see changes
+ * in the repository.
+ */
+public class ResolutionContext
+        implements Repository
+{
+    private final Repository delegate;
+
+    private final ConcurrentMap<String, Optional<String>> configResolutions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, Optional<String>> configUpgrades = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Optional<URI>> configUris = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Optional<String>> binaryResolutions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, Optional<String>> binaryUpgrades = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Optional<URI>> binaryUris = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Assignment, Installation> installations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<Object>, Assignment> upgradedAssignments = new ConcurrentHashMap<>();
+
+    public ResolutionContext(Repository delegate)
+    {
+        Preconditions.checkNotNull(delegate, "delegate is null");
+        this.delegate = delegate;
+    }
+
+    /**
+     * Returns the context itself if the repository is already a context, so
+     * nested callers share the lookups of the command.
+     */
+    public static ResolutionContext resolutionContext(Repository repository)
+    {
+        if (repository instanceof ResolutionContext) {
+            return (ResolutionContext) repository;
+        }
+        return new ResolutionContext(repository);
+    }
+
+    public Installation getInstallation(Assignment assignment)
+    {
+        Preconditions.checkNotNull(assignment, "assignment is null");
+        Installation installation = installations.get(assignment);
+        if (installation == null) {
+            // this reads the resources from the config bundle, so it is the most expensive lookup
+            installation = InstallationUtils.toInstallation(this, assignment);
+            installations.putIfAbsent(assignment, installation);
+        }
+        return installation;
+    }
+
+    public Assignment upgradeAssignment(UpgradeVersions upgradeVersions, Assignment assignment)
+    {
+        Preconditions.checkNotNull(upgradeVersions, "upgradeVersions is null");
+        Preconditions.checkNotNull(assignment, "assignment is null");
+        List<Object> key = ImmutableList.<Object>of(upgradeVersions, assignment);
+        Assignment upgraded = upgradedAssignments.get(key);
+        if (upgraded == null) {
+            upgraded = upgradeVersions.upgradeAssignment(this, assignment);
+            upgradedAssignments.putIfAbsent(key, upgraded);
+        }
+        return upgraded;
+    }
+
+    @Override
+    public String configShortName(String config)
+    {
+        return delegate.configShortName(config);
+    }
+
+    @Override
+    public String configRelativize(String config)
+    {
+        return delegate.configRelativize(config);
+    }
+
+    @Override
+    public String configResolve(String config)
+    {
+        Optional<String> resolved = configResolutions.get(config);
+        if (resolved == null) {
+            resolved = Optional.fromNullable(delegate.configResolve(config));
+            configResolutions.putIfAbsent(config, resolved);
+        }
+        return resolved.orNull();
+    }
+
+    @Override
+    public String configUpgrade(String config, String version)
+    {
+        List<String> key = ImmutableList.of(config, version);
+        Optional<String> upgraded = configUpgrades.get(key);
+        if (upgraded == null) {
+            upgraded = Optional.fromNullable(delegate.configUpgrade(config, version));
+            configUpgrades.putIfAbsent(key, upgraded);
+        }
+        return upgraded.orNull();
+    }
+
+    @Override
+    public boolean configEqualsIgnoreVersion(String config1, String config2)
+    {
+        return delegate.configEqualsIgnoreVersion(config1, config2);
+    }
+
+    @Override
+    public URI configToHttpUri(String config)
+    {
+        Optional<URI> uri = configUris.get(config);
+        if (uri == null) {
+            uri = Optional.fromNullable(delegate.configToHttpUri(config));
+            configUris.putIfAbsent(config, uri);
+        }
+        return uri.orNull();
+    }
+
+    @Override
+    public String binaryRelativize(String binary)
+    {
+        return delegate.binaryRelativize(binary);
+    }
+
+    @Override
+    public String binaryResolve(String binary)
+    {
+        Optional<String> resolved = binaryResolutions.get(binary);
+        if (resolved == null) {
+            resolved = Optional.fromNullable(delegate.binaryResolve(binary));
+            binaryResolutions.putIfAbsent(binary, resolved);
+        }
+        return resolved.orNull();
+    }
+
+    @Override
+    public String binaryUpgrade(String binary, String version)
+    {
+        List<String> key = ImmutableList.of(binary, version);
+        Optional<String> upgraded = binaryUpgrades.get(key);
+        if (upgraded == null) {
+            upgraded = Optional.fromNullable(delegate.binaryUpgrade(binary, version));
+            binaryUpgrades.putIfAbsent(key, upgraded);
+        }
+        return upgraded.orNull();
+    }
+
+    @Override
+    public boolean binaryEqualsIgnoreVersion(String binary1, String binary2)
+    {
+        return delegate.binaryEqualsIgnoreVersion(binary1, binary2);
+    }
+
+    @Override
+    public URI binaryToHttpUri(String binary)
+    {
+        Optional<URI> uri = binaryUris.get(binary);
+        if (uri == null) {
+            uri = Optional.fromNullable(delegate.binaryToHttpUri(binary));
+            binaryUris.putIfAbsent(binary, uri);
+        }
+        return uri.orNull();
+    }
+}
@@ -0,0 +1,103 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a listing ordered by id.  The cursor is the last id returned,
+ * so the next page starts with the first id after it, even when the next
+ * page comes from a newer snapshot.  Items added or removed while a client
+ * is paging may or may not be listed, but an item that exists for the whole
+ * listing is returned exactly once.
+ */
+@Immutable
+public class ResultPage<T>
+{
+    public static <T> ResultPage<T> createResultPage(List<T> itemsOrderedById,
+            Function<? super T, String> idGetter,
+            Predicate<? super T> filter,
+            @Nullable String cursor,
+            int limit)
+    {
+        Preconditions.checkNotNull(itemsOrderedById, "itemsOrderedById is null");
+        Preconditions.checkNotNull(idGetter, "idGetter is null");
+        Preconditions.checkNotNull(filter, "filter is null");
+        Preconditions.checkArgument(limit > 0, "limit must be at least 1");
+
+        int start = 0;
+        if (cursor != null) {
+            Preconditions.checkArgument(!cursor.isEmpty(), "cursor is empty");
+            // the last id may have been removed since the previous page
+            start = Collections.binarySearch(Lists.transform(itemsOrderedById, idGetter), cursor);
+            start = start >= 0 ? start + 1 : -(start + 1);
+        }
+
+        List<T> page = Lists.newArrayListWithCapacity(limit);
+        boolean hasMore = false;
+        for (T item : itemsOrderedById.subList(start, itemsOrderedById.size())) {
+            if (!filter.apply(item)) {
+                continue;
+            }
+            if (page.size() == limit) {
+                // only hand out a cursor if another item matches
+                hasMore = true;
+                break;
+            }
+            page.add(item);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            nextCursor = idGetter.apply(page.get(page.size() - 1));
+        }
+        return new ResultPage<T>(ImmutableList.copyOf(page), nextCursor);
+    }
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    private ResultPage(List<T> items, String nextCursor)
+    {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems()
+    {
+        return items;
+    }
+
+    /**
+     * Cursor for the next page, or null if this is the last page.
+     */
+    @Nullable
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    /**
+     * Rejects an invalid limit or cursor with 400 before any of the response
+     * is produced.
+     */
+    static void checkPageRequest(@Nullable String cursor, @Nullable Integer limit)
+    {
+        if (limit != null && limit < 1) {
+            throw new WebApplicationException(Response.status(Status.BAD_REQUEST).entity("limit must be at least 1").build());
+        }
+        if (cursor != null && cursor.isEmpty()) {
+            throw new WebApplicationException(Response.status(Status.BAD_REQUEST).entity("cursor is empty").build());
+        }
+    }
+}
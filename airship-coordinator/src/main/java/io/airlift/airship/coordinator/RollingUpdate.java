@@ -0,0 +1,180 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import io.airlift.airship.shared.HttpUriBuilder;
+import io.airlift.units.Duration;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a slot command is rolled out.  Slots are changed in batches of a
+ * fixed size or a percentage of the selected slots.  After each batch the
+ * coordinator waits until the slots that should be running are RUNNING,
+ * and optionally answer a health check, before it continues with the next
+ * batch.  Once more than maxFailures slots fail the roll out is halted and,
+ * for upgrades, optionally rolled back.
+ */
+@Immutable
+public class RollingUpdate
+{
+    public static final RollingUpdate ALL_AT_ONCE = new RollingUpdate(0, 0, new Duration(0, TimeUnit.SECONDS), new Duration(5, TimeUnit.MINUTES), 0, false, null);
+
+    private final int batchSize;
+    private final int batchPercentage;
+    private final Duration batchDelay;
+    private final Duration batchTimeout;
+    private final int maxFailures;
+    private final boolean rollback;
+    private final String healthCheckPath;
+
+    public RollingUpdate(int batchSize,
+            int batchPercentage,
+            Duration batchDelay,
+            Duration batchTimeout,
+            int maxFailures,
+            boolean rollback,
+            @Nullable String healthCheckPath)
+    {
+        Preconditions.checkArgument(batchSize >= 0, "batchSize is negative");
+        Preconditions.checkArgument(batchPercentage >= 0 && batchPercentage <= 100, "batchPercentage must be between 0 and 100");
+        Preconditions.checkArgument(batchSize == 0 || batchPercentage == 0, "batchSize and batchPercentage can not both be set");
+        Preconditions.checkNotNull(batchDelay, "batchDelay is null");
+        Preconditions.checkNotNull(batchTimeout, "batchTimeout is null");
+        Preconditions.checkArgument(maxFailures >= 0, "maxFailures is negative");
+
+        this.batchSize = batchSize;
+        this.batchPercentage = batchPercentage;
+        this.batchDelay = batchDelay;
+        this.batchTimeout = batchTimeout;
+        this.maxFailures = maxFailures;
+        this.rollback = rollback;
+        this.healthCheckPath = healthCheckPath;
+    }
+
+    public static RollingUpdate fromQueryParameters(MultivaluedMap<String, String> parameters)
+    {
+        String batchSize = parameters.getFirst("batch-size");
+        String batchPercentage = parameters.getFirst("batch-percentage");
+        if (batchSize == null && batchPercentage == null) {
+            return ALL_AT_ONCE;
+        }
+
+        String batchDelay = parameters.getFirst("batch-delay");
+        String batchTimeout = parameters.getFirst("batch-timeout");
+        String maxFailures = parameters.getFirst("max-failures");
+        try {
+            return new RollingUpdate(
+                    batchSize == null ? 0 : Integer.parseInt(batchSize),
+                    batchPercentage == null ? 0 : Integer.parseInt(batchPercentage),
+                    batchDelay == null ? ALL_AT_ONCE.batchDelay : Duration.valueOf(batchDelay),
+                    batchTimeout == null ? ALL_AT_ONCE.batchTimeout : Duration.valueOf(batchTimeout),
+                    maxFailures == null ? 0 : Integer.parseInt(maxFailures),
+                    parameters.containsKey("rollback"),
+                    parameters.getFirst("health-check"));
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid rolling update: " + e.getMessage(), e);
+        }
+    }
+
+    public HttpUriBuilder addQueryParameters(HttpUriBuilder uriBuilder)
+    {
+        if (!isRolling()) {
+            return uriBuilder;
+        }
+        if (batchSize > 0) {
+            uriBuilder.addParameter("batch-size", String.valueOf(batchSize));
+        }
+        if (batchPercentage > 0) {
+            uriBuilder.addParameter("batch-percentage", String.valueOf(batchPercentage));
+        }
+        uriBuilder.addParameter("batch-delay", batchDelay.toString());
+        uriBuilder.addParameter("batch-timeout", batchTimeout.toString());
+        uriBuilder.addParameter("max-failures", String.valueOf(maxFailures));
+        if (rollback) {
+            uriBuilder.addParameter("rollback");
+        }
+        if (healthCheckPath != null) {
+            uriBuilder.addParameter("health-check", healthCheckPath);
+        }
+        return uriBuilder;
+    }
+
+    public boolean isRolling()
+    {
+        return batchSize > 0 || batchPercentage > 0;
+    }
+
+    /**
+     * Number of slots changed per batch when slotCount slots are selected.
+     */
+    public int getBatchSize(int slotCount)
+    {
+        if (batchSize > 0) {
+            return batchSize;
+        }
+        if (batchPercentage > 0) {
+            return Math.max(1, (int) Math.ceil(slotCount * batchPercentage / 100.0));
+        }
+        return Math.max(1, slotCount);
+    }
+
+    /**
+     * Longest time a roll out of slotCount slots can spend waiting for
+     * batches, not counting the time the slot commands themselves take.
+     */
+    public Duration getMaxWaitTime(int slotCount)
+    {
+        if (!isRolling() || slotCount == 0) {
+            return new Duration(0, TimeUnit.MILLISECONDS);
+        }
+        int batchSize = getBatchSize(slotCount);
+        int batches = (slotCount + batchSize - 1) / batchSize;
+        return new Duration(batches * batchTimeout.toMillis() + (batches - 1) * batchDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public Duration getBatchDelay()
+    {
+        return batchDelay;
+    }
+
+    public Duration getBatchTimeout()
+    {
+        return batchTimeout;
+    }
+
+    public int getMaxFailures()
+    {
+        return maxFailures;
+    }
+
+    public boolean isRollback()
+    {
+        return rollback;
+    }
+
+    @Nullable
+    public String getHealthCheckPath()
+    {
+        return healthCheckPath;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("RollingUpdate");
+        sb.append("{batchSize=").append(batchSize);
+        sb.append(", batchPercentage=").append(batchPercentage);
+        sb.append(", batchDelay=").append(batchDelay);
+        sb.append(", batchTimeout=").append(batchTimeout);
+        sb.append(", maxFailures=").append(maxFailures);
+        sb.append(", rollback=").append(rollback);
+        sb.append(", healthCheckPath='").append(healthCheckPath).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,9 @@
+package io.airlift.airship.coordinator;
+
+public class RollingUpdateHaltedException extends RuntimeException
+{
+    public RollingUpdateHaltedException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package io.airlift.airship.coordinator;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.ExceptionMapper;
+
+public class RollingUpdateHaltedExceptionMapper implements ExceptionMapper<RollingUpdateHaltedException>
+{
+    @Override
+    public Response toResponse(RollingUpdateHaltedException exception)
+    {
+        return Response.status(Status.CONFLICT).type(MediaType.TEXT_PLAIN_TYPE).entity(exception.getMessage()).build();
+    }
+}
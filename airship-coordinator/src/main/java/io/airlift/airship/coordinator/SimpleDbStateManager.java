@@ -3,78 +3,268 @@ package io.airlift.airship.coordinator;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.simpledb.AmazonSimpleDB;
 import com.amazonaws.services.simpledb.model.Attribute;
+import com.amazonaws.services.simpledb.model.BatchDeleteAttributesRequest;
+import com.amazonaws.services.simpledb.model.BatchPutAttributesRequest;
 import com.amazonaws.services.simpledb.model.CreateDomainRequest;
+import com.amazonaws.services.simpledb.model.DeletableItem;
 import com.amazonaws.services.simpledb.model.DeleteAttributesRequest;
 import com.amazonaws.services.simpledb.model.Item;
 import com.amazonaws.services.simpledb.model.PutAttributesRequest;
 import com.amazonaws.services.simpledb.model.ReplaceableAttribute;
+import com.amazonaws.services.simpledb.model.ReplaceableItem;
 import com.amazonaws.services.simpledb.model.SelectRequest;
 import com.amazonaws.services.simpledb.model.SelectResult;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.ExpectedSlotStatus;
 import io.airlift.airship.shared.SlotLifecycleState;
 import io.airlift.log.Logger;
 import io.airlift.node.NodeInfo;
+import io.airlift.stats.TimedStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.collect.Lists.newArrayList;
 
+/**
+ * Stores expected slot states in SimpleDB.  Reads are served from a copy of
+ * the domain that is loaded in the background and kept up to date with the
+ * writes made by this coordinator.
+ */
 public class SimpleDbStateManager implements StateManager
 {
     private static final Logger log = Logger.get(SimpleDbStateManager.class);
+
+    // limit of the SimpleDB batch calls
+    private static final int MAX_BATCH_ITEMS = 25;
+
+    // largest page SimpleDB returns for a select
+    private static final int MAX_SELECT_ITEMS = 2500;
+
     private final AmazonSimpleDB simpleDb;
     private final String domainName;
     private boolean domainCreated;
 
+    private final ScheduledExecutorService executor;
+    private final Duration refreshInterval;
+
+    private final TimedStat loadTime = new TimedStat();
+    private final AtomicLong loadFailures = new AtomicLong();
+
+    // only one load runs at a time, so writes made during a load can be applied on top of its result
+    private final Object loadLock = new Object();
+
+    @GuardedBy("this")
+    private Map<UUID, ExpectedSlotStatus> expectedStates;
+    @GuardedBy("this")
+    private final Map<UUID, ExpectedSlotStatus> writesSinceLoadStarted = new HashMap<>();
+    @GuardedBy("this")
+    private long lastLoadTime;
+
     @Inject
-    public SimpleDbStateManager(AmazonSimpleDB simpleDb, NodeInfo nodeInfo)
+    public SimpleDbStateManager(AmazonSimpleDB simpleDb, NodeInfo nodeInfo, AwsProvisionerConfig awsProvisionerConfig)
     {
+        this(simpleDb, "airship-" + nodeInfo.getEnvironment(), awsProvisionerConfig.getSimpleDbRefreshInterval());
+    }
+
+    public SimpleDbStateManager(AmazonSimpleDB simpleDb, String domainName, Duration refreshInterval)
+    {
+        Preconditions.checkNotNull(simpleDb, "simpleDb is null");
+        Preconditions.checkNotNull(domainName, "domainName is null");
+
         this.simpleDb = simpleDb;
-        domainName = "airship-" + nodeInfo.getEnvironment();
+        this.domainName = domainName;
+
+        this.refreshInterval = refreshInterval;
+        if (refreshInterval != null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("SimpleDbStateManager-%s").build());
+        }
+        else {
+            executor = null;
+        }
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        if (executor != null) {
+            executor.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    refresh();
+                }
+            }, 0, (long) refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
     }
 
     @Override
     public Collection<ExpectedSlotStatus> getAllExpectedStates()
     {
-        List<ExpectedSlotStatus> slots = newArrayList();
-        if (isDomainCreated()) {
+        synchronized (this) {
+            if (expectedStates != null) {
+                return ImmutableList.copyOf(expectedStates.values());
+            }
+        }
+
+        // nothing has been loaded yet, or every load so far has failed
+        Map<UUID, ExpectedSlotStatus> loaded = refresh();
+        if (loaded == null) {
+            return ImmutableList.of();
+        }
+        return ImmutableList.copyOf(loaded.values());
+    }
+
+    /**
+     * Loads every expected state from SimpleDB and replaces the cached copy.
+     * Returns null if the load failed, in which case the cached copy is kept.
+     */
+    @VisibleForTesting
+    Map<UUID, ExpectedSlotStatus> refresh()
+    {
+        if (!isDomainCreated()) {
+            return null;
+        }
+
+        synchronized (loadLock) {
+            synchronized (this) {
+                writesSinceLoadStarted.clear();
+            }
+
+            Map<UUID, ExpectedSlotStatus> loaded;
+            long start = System.nanoTime();
             try {
-                String query = String.format("select itemName, state, binary, config from `%s`", domainName);
-                SelectResult select = simpleDb.select(new SelectRequest(query, true));
-                for (Item item : select.getItems()) {
-                    ExpectedSlotStatus expectedSlotStatus = loadSlotStatus(item);
-                    if (expectedSlotStatus != null) {
-                        slots.add(expectedSlotStatus);
-                    }
-                }
+                loaded = loadAllExpectedStates();
                 expectedStateStoreUp();
             }
             catch (Exception e) {
+                loadFailures.incrementAndGet();
                 expectedStateStoreDown(e);
+                return null;
+            }
+            finally {
+                loadTime.addValue(Duration.nanosSince(start));
+            }
+
+            synchronized (this) {
+                // a write made while loading may not be in the result
+                applyWrites(loaded, writesSinceLoadStarted);
+                expectedStates = loaded;
+                lastLoadTime = System.nanoTime();
+                return ImmutableMap.copyOf(loaded);
             }
         }
+    }
+
+    private Map<UUID, ExpectedSlotStatus> loadAllExpectedStates()
+    {
+        Map<UUID, ExpectedSlotStatus> slots = new HashMap<>();
+        String query = String.format("select itemName, state, binary, config from `%s` limit %s", domainName, MAX_SELECT_ITEMS);
+        String nextToken = null;
+        do {
+            SelectResult select = simpleDb.select(new SelectRequest(query, true).withNextToken(nextToken));
+            for (Item item : select.getItems()) {
+                ExpectedSlotStatus expectedSlotStatus = loadSlotStatus(item);
+                if (expectedSlotStatus != null) {
+                    slots.put(expectedSlotStatus.getId(), expectedSlotStatus);
+                }
+            }
+            nextToken = select.getNextToken();
+        } while (nextToken != null);
         return slots;
     }
 
+    private synchronized void written(Map<UUID, ExpectedSlotStatus> writes)
+    {
+        if (expectedStates != null) {
+            applyWrites(expectedStates, writes);
+        }
+        writesSinceLoadStarted.putAll(writes);
+    }
+
+    private static void applyWrites(Map<UUID, ExpectedSlotStatus> expectedStates, Map<UUID, ExpectedSlotStatus> writes)
+    {
+        // deletes are recorded with a null status
+        for (Entry<UUID, ExpectedSlotStatus> entry : writes.entrySet()) {
+            if (entry.getValue() != null) {
+                expectedStates.put(entry.getKey(), entry.getValue());
+            }
+            else {
+                expectedStates.remove(entry.getKey());
+            }
+        }
+    }
+
+    @Managed
+    @Nested
+    public TimedStat getLoadTime()
+    {
+        return loadTime;
+    }
+
+    @Managed
+    public long getLoadFailures()
+    {
+        return loadFailures.get();
+    }
+
+    @Managed
+    public synchronized int getCachedExpectedStates()
+    {
+        return expectedStates == null ? 0 : expectedStates.size();
+    }
+
+    @Managed
+    public synchronized double getStalenessSeconds()
+    {
+        // time since the expected states were last loaded from SimpleDB
+        if (lastLoadTime == 0) {
+            return Double.NaN;
+        }
+        return Duration.nanosSince(lastLoadTime).toMillis() / 1000;
+    }
+
     @Override
     public void deleteExpectedState(UUID slotId)
     {
         Preconditions.checkNotNull(slotId, "id is null");
 
         if (isDomainCreated()) {
-            List<Attribute> attributes = newArrayList();
-            attributes.add(new Attribute("state", null));
-            attributes.add(new Attribute("binary", null));
-            attributes.add(new Attribute("config", null));
-
             try {
-                simpleDb.deleteAttributes(new DeleteAttributesRequest().withDomainName(domainName).withItemName(slotId.toString()).withAttributes(attributes));
+                simpleDb.deleteAttributes(new DeleteAttributesRequest().withDomainName(domainName).withItemName(slotId.toString()).withAttributes(expectedStateAttributes()));
+                written(Collections.<UUID, ExpectedSlotStatus>singletonMap(slotId, null));
                 expectedStateStoreUp();
             }
             catch (Exception e) {
@@ -89,15 +279,9 @@ public class SimpleDbStateManager implements StateManager
         Preconditions.checkNotNull(slotStatus, "slotStatus is null");
 
         if (isDomainCreated()) {
-            List<ReplaceableAttribute> attributes = newArrayList();
-            attributes.add(new ReplaceableAttribute("state", slotStatus.getStatus().toString(), true));
-            if (slotStatus.getAssignment() != null) {
-                attributes.add(new ReplaceableAttribute("binary", slotStatus.getAssignment().getBinary(), true));
-                attributes.add(new ReplaceableAttribute("config", slotStatus.getAssignment().getConfig(), true));
-            }
-
             try {
-                simpleDb.putAttributes(new PutAttributesRequest().withDomainName(domainName).withItemName(slotStatus.getId().toString()).withAttributes(attributes));
+                simpleDb.putAttributes(new PutAttributesRequest().withDomainName(domainName).withItemName(slotStatus.getId().toString()).withAttributes(toAttributes(slotStatus)));
+                written(Collections.singletonMap(slotStatus.getId(), slotStatus));
                 expectedStateStoreUp();
             }
             catch (Exception e) {
@@ -106,6 +290,76 @@ public class SimpleDbStateManager implements StateManager
         }
     }
 
+    @Override
+    public void deleteExpectedStates(Collection<UUID> slotIds)
+    {
+        Preconditions.checkNotNull(slotIds, "slotIds is null");
+
+        if (isDomainCreated()) {
+            for (List<UUID> batch : Iterables.partition(slotIds, MAX_BATCH_ITEMS)) {
+                List<DeletableItem> items = newArrayList();
+                Map<UUID, ExpectedSlotStatus> writes = new HashMap<>();
+                for (UUID slotId : batch) {
+                    items.add(new DeletableItem(slotId.toString(), expectedStateAttributes()));
+                    writes.put(slotId, null);
+                }
+                try {
+                    simpleDb.batchDeleteAttributes(new BatchDeleteAttributesRequest(domainName, items));
+                    written(writes);
+                    expectedStateStoreUp();
+                }
+                catch (Exception e) {
+                    expectedStateStoreDown(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses)
+    {
+        Preconditions.checkNotNull(slotStatuses, "slotStatuses is null");
+
+        if (isDomainCreated()) {
+            for (List<ExpectedSlotStatus> batch : Iterables.partition(slotStatuses, MAX_BATCH_ITEMS)) {
+                List<ReplaceableItem> items = newArrayList();
+                Map<UUID, ExpectedSlotStatus> writes = new HashMap<>();
+                for (ExpectedSlotStatus slotStatus : batch) {
+                    items.add(new ReplaceableItem(slotStatus.getId().toString(), toAttributes(slotStatus)));
+                    writes.put(slotStatus.getId(), slotStatus);
+                }
+                try {
+                    simpleDb.batchPutAttributes(new BatchPutAttributesRequest(domainName, items));
+                    written(writes);
+                    expectedStateStoreUp();
+                }
+                catch (Exception e) {
+                    expectedStateStoreDown(e);
+                }
+            }
+        }
+    }
+
+    private static List<Attribute> expectedStateAttributes()
+    {
+        List<Attribute> attributes = newArrayList();
+        attributes.add(new Attribute("state", null));
+        attributes.add(new Attribute("binary", null));
+        attributes.add(new Attribute("config", null));
+        return attributes;
+    }
+
+    private static List<ReplaceableAttribute> toAttributes(ExpectedSlotStatus slotStatus)
+    {
+        List<ReplaceableAttribute> attributes = newArrayList();
+        attributes.add(new ReplaceableAttribute("state", slotStatus.getStatus().toString(), true));
+        if (slotStatus.getAssignment() != null) {
+            attributes.add(new ReplaceableAttribute("binary", slotStatus.getAssignment().getBinary(), true));
+            attributes.add(new ReplaceableAttribute("config", slotStatus.getAssignment().getConfig(), true));
+        }
+        return attributes;
+    }
+
     private synchronized boolean isDomainCreated()
     {
         if (!domainCreated) {
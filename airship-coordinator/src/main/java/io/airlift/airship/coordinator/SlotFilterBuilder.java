@@ -4,9 +4,11 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
-import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import io.airlift.airship.shared.HttpUriBuilder;
+import io.airlift.airship.shared.IdPrefixIndex;
 import io.airlift.airship.shared.SlotLifecycleState;
 import io.airlift.airship.shared.SlotStatus;
 
@@ -16,12 +18,11 @@ import java.net.URI;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
 
-import static com.google.common.base.Functions.compose;
-import static io.airlift.airship.coordinator.StringFunctions.startsWith;
-import static io.airlift.airship.coordinator.StringFunctions.toLowerCase;
-import static java.lang.String.format;
+import static com.google.common.collect.Sets.newHashSet;
+import static io.airlift.airship.shared.IdPrefixIndex.createUuidPrefixIndex;
 
 public class SlotFilterBuilder
 {
@@ -30,6 +31,21 @@ public class SlotFilterBuilder
     }
 
     public static Predicate<SlotStatus> build(UriInfo uriInfo, boolean filterRequired, List<UUID> allUuids)
+    {
+        return build(uriInfo, filterRequired, createUuidPrefixIndex(allUuids));
+    }
+
+    public static Predicate<SlotStatus> build(UriInfo uriInfo, boolean filterRequired, IdPrefixIndex slotIdIndex)
+    {
+        return parse(uriInfo).buildPredicate(filterRequired, slotIdIndex);
+    }
+
+    public static Predicate<SlotStatus> build(UriInfo uriInfo, boolean filterRequired, ClusterSnapshot snapshot)
+    {
+        return parse(uriInfo).buildPredicate(filterRequired, snapshot);
+    }
+
+    private static SlotFilterBuilder parse(UriInfo uriInfo)
     {
         SlotFilterBuilder builder = new SlotFilterBuilder();
         for (Entry<String, List<String>> entry : uriInfo.getQueryParameters().entrySet()) {
@@ -67,7 +83,7 @@ public class SlotFilterBuilder
                 builder.selectAll();
             }
         }
-        return builder.buildPredicate(filterRequired, allUuids);
+        return builder;
     }
 
     private final List<SlotLifecycleState> stateFilters = Lists.newArrayListWithCapacity(6);
@@ -131,7 +147,12 @@ public class SlotFilterBuilder
         return this;
     }
 
-    public Predicate<SlotStatus> buildPredicate(boolean filterRequired, final List<UUID> allUuids)
+    public Predicate<SlotStatus> buildPredicate(boolean filterRequired, List<UUID> allUuids)
+    {
+        return buildPredicate(filterRequired, createUuidPrefixIndex(allUuids));
+    }
+
+    public Predicate<SlotStatus> buildPredicate(boolean filterRequired, final IdPrefixIndex slotIdIndex)
     {
         // Filters are evaluated as: set | host | (env & version & type)
         List<Predicate<SlotStatus>> andPredicates = Lists.newArrayListWithCapacity(6);
@@ -141,7 +162,7 @@ public class SlotFilterBuilder
                 @Override
                 public Predicate<SlotStatus> apply(String shortId)
                 {
-                    return new SlotUuidPredicate(shortId, allUuids);
+                    return new SlotUuidPredicate(shortId, slotIdIndex);
                 }
             }));
             andPredicates.add(predicate);
@@ -220,6 +241,106 @@ public class SlotFilterBuilder
         }
     }
 
+    /**
+     * Builds a predicate for the slots of the snapshot.  Each filter is
+     * evaluated against the snapshot indexes instead of every slot, so a glob
+     * is matched once per distinct host, machine, binary or config, and each
+     * host is only resolved once.  The predicate only matches slots of the
+     * snapshot.
+     */
+    public Predicate<SlotStatus> buildPredicate(boolean filterRequired, final ClusterSnapshot snapshot)
+    {
+        Preconditions.checkNotNull(snapshot, "snapshot is null");
+
+        // validates the filters
+        Predicate<SlotStatus> predicate = buildPredicate(filterRequired, snapshot.getSlotIdIndex());
+        if (selectAll || predicate == Predicates.<SlotStatus>alwaysTrue()) {
+            return predicate;
+        }
+
+        Set<UUID> slotIds = null;
+        if (!slotUuidFilters.isEmpty()) {
+            Set<UUID> matches = newHashSet();
+            for (String shortId : slotUuidFilters) {
+                String id = snapshot.getSlotIdIndex().expandUnique(shortId);
+                if (id != null) {
+                    matches.add(UUID.fromString(id));
+                }
+            }
+            slotIds = retain(slotIds, matches);
+        }
+        if (!stateFilters.isEmpty()) {
+            slotIds = retain(slotIds, selectSlotIds(snapshot.getSlotsByState(), Predicates.in(stateFilters)));
+        }
+        if (!hostGlobs.isEmpty()) {
+            final List<UriHostPredicate> hostPredicates = ImmutableList.copyOf(Lists.transform(hostGlobs, new Function<String, UriHostPredicate>()
+            {
+                @Override
+                public UriHostPredicate apply(String hostGlob)
+                {
+                    return new UriHostPredicate(hostGlob);
+                }
+            }));
+            slotIds = retain(slotIds, selectSlotIds(snapshot.getSlotsByHost(), new Predicate<String>()
+            {
+                @Override
+                public boolean apply(String host)
+                {
+                    for (UriHostPredicate hostPredicate : hostPredicates) {
+                        if (hostPredicate.matchesHost(host)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            }));
+        }
+        if (!machineGlobs.isEmpty()) {
+            slotIds = retain(slotIds, selectSlotIds(snapshot.getSlotsByInstanceId(), globs(machineGlobs, "")));
+        }
+        if (!binaryGlobs.isEmpty()) {
+            slotIds = retain(slotIds, selectSlotIds(snapshot.getSlotsByBinary(), globs(binaryGlobs, "*")));
+        }
+        if (!configGlobs.isEmpty()) {
+            slotIds = retain(slotIds, selectSlotIds(snapshot.getSlotsByConfig(), globs(configGlobs, "*")));
+        }
+        return Predicates.compose(Predicates.in(slotIds), SlotStatus.uuidGetter());
+    }
+
+    private static <K> Set<UUID> selectSlotIds(ListMultimap<K, SlotStatus> index, Predicate<? super K> keyPredicate)
+    {
+        Set<UUID> slotIds = newHashSet();
+        for (Entry<K, Collection<SlotStatus>> entry : index.asMap().entrySet()) {
+            if (keyPredicate.apply(entry.getKey())) {
+                for (SlotStatus slotStatus : entry.getValue()) {
+                    slotIds.add(slotStatus.getId());
+                }
+            }
+        }
+        return slotIds;
+    }
+
+    private static Set<UUID> retain(@Nullable Set<UUID> slotIds, Set<UUID> matches)
+    {
+        if (slotIds == null) {
+            return matches;
+        }
+        slotIds.retainAll(matches);
+        return slotIds;
+    }
+
+    private static Predicate<String> globs(List<String> globs, final String wildcard)
+    {
+        return Predicates.<String>or(Lists.transform(globs, new Function<String, Predicate<CharSequence>>()
+        {
+            @Override
+            public Predicate<CharSequence> apply(String glob)
+            {
+                return new GlobPredicate(wildcard + glob + wildcard);
+            }
+        }));
+    }
+
     public URI buildUri(URI baseUri)
     {
         HttpUriBuilder uriBuilder = HttpUriBuilder.uriBuilderFrom(baseUri);
@@ -258,19 +379,13 @@ public class SlotFilterBuilder
 
         public SlotUuidPredicate(String shortId, List<UUID> allUuids)
         {
-            Predicate<UUID> startsWithPrefix = Predicates.compose(startsWith(shortId.toLowerCase()), compose(toLowerCase(), StringFunctions.<UUID>toStringFunction()));
-            Collection<UUID> matches = Collections2.filter(allUuids, startsWithPrefix);
-
-            if (matches.size() > 1) {
-                throw new IllegalArgumentException(format("Ambiguous expansion for id '%s': %s", shortId, matches));
-            }
+            this(shortId, createUuidPrefixIndex(allUuids));
+        }
 
-            if (matches.isEmpty()) {
-                uuid = null;
-            }
-            else {
-                uuid = matches.iterator().next();
-            }
+        public SlotUuidPredicate(String shortId, IdPrefixIndex slotIdIndex)
+        {
+            String id = slotIdIndex.expandUnique(shortId);
+            uuid = id == null ? null : UUID.fromString(id);
         }
 
         public SlotUuidPredicate(UUID uuid)
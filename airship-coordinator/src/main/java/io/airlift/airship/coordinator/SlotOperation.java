@@ -0,0 +1,100 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import io.airlift.airship.shared.Installation;
+import io.airlift.airship.shared.SlotLifecycleState;
+import io.airlift.airship.shared.SlotOperationRepresentation;
+import io.airlift.airship.shared.SlotStatus;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.EnumSet;
+import java.util.UUID;
+
+import static io.airlift.airship.shared.SlotLifecycleState.RESTARTING;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+
+/**
+ * A lifecycle change or new assignment for one slot.  Operations for the
+ * slots of one agent are sent to the agent together.
+ */
+@Immutable
+public class SlotOperation
+{
+    private final UUID slotId;
+    private final SlotLifecycleState state;
+    private final Installation installation;
+
+    public static SlotOperation setState(UUID slotId, SlotLifecycleState state)
+    {
+        Preconditions.checkArgument(EnumSet.of(RUNNING, RESTARTING, STOPPED).contains(state), "Unsupported lifecycle state: " + state);
+        return new SlotOperation(slotId, state, null);
+    }
+
+    public static SlotOperation assign(UUID slotId, Installation installation)
+    {
+        Preconditions.checkNotNull(installation, "installation is null");
+        return new SlotOperation(slotId, null, installation);
+    }
+
+    private SlotOperation(UUID slotId, SlotLifecycleState state, Installation installation)
+    {
+        Preconditions.checkNotNull(slotId, "slotId is null");
+        this.slotId = slotId;
+        this.state = state;
+        this.installation = installation;
+    }
+
+    public UUID getSlotId()
+    {
+        return slotId;
+    }
+
+    public SlotLifecycleState getState()
+    {
+        return state;
+    }
+
+    public Installation getInstallation()
+    {
+        return installation;
+    }
+
+    public SlotStatus applyTo(RemoteSlot slot)
+    {
+        Preconditions.checkArgument(slotId.equals(slot.getId()), "Operation for slot %s applied to slot %s", slotId, slot.getId());
+        if (installation != null) {
+            return slot.assign(installation);
+        }
+        switch (state) {
+            case RUNNING:
+                return slot.start();
+            case RESTARTING:
+                return slot.restart();
+            case STOPPED:
+                return slot.stop();
+            default:
+                throw new IllegalArgumentException("Unexpected state transition " + state);
+        }
+    }
+
+    public SlotOperationRepresentation toRepresentation(String slotVersion)
+    {
+        if (installation != null) {
+            return SlotOperationRepresentation.assign(slotId, slotVersion, installation);
+        }
+        return SlotOperationRepresentation.setState(slotId, slotVersion, state);
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("SlotOperation");
+        sb.append("{slotId=").append(slotId);
+        sb.append(", state=").append(state);
+        sb.append(", installation=").append(installation);
+        sb.append('}');
+        return sb.toString();
+    }
+}
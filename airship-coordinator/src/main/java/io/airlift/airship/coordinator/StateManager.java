@@ -12,4 +12,16 @@ public interface StateManager
     void deleteExpectedState(UUID slotId);
 
     void setExpectedState(ExpectedSlotStatus slotStatus);
+
+    /**
+     * Deletes the expected states of all of the slots at once, which is
+     * cheaper than deleting them one at a time.
+     */
+    void deleteExpectedStates(Collection<UUID> slotIds);
+
+    /**
+     * Sets the expected states of all of the slots at once, which is cheaper
+     * than setting them one at a time.
+     */
+    void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses);
 }
@@ -0,0 +1,134 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import io.airlift.airship.shared.Repository;
+import io.airlift.stats.TimedStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long resolving binaries and configs in a repository takes, and
+ * how many resolutions find something (hits) or nothing (misses).
+ */
+public class TimedRepository
+        implements Repository
+{
+    private final Repository delegate;
+    private final TimedStat resolveTime = new TimedStat();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TimedRepository(Repository delegate)
+    {
+        Preconditions.checkNotNull(delegate, "delegate is null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String configShortName(String config)
+    {
+        return delegate.configShortName(config);
+    }
+
+    @Override
+    public String configRelativize(String config)
+    {
+        return delegate.configRelativize(config);
+    }
+
+    @Override
+    public String configResolve(String config)
+    {
+        long start = System.nanoTime();
+        return resolved(start, delegate.configResolve(config));
+    }
+
+    @Override
+    public String configUpgrade(String config, String version)
+    {
+        long start = System.nanoTime();
+        return resolved(start, delegate.configUpgrade(config, version));
+    }
+
+    @Override
+    public boolean configEqualsIgnoreVersion(String config1, String config2)
+    {
+        return delegate.configEqualsIgnoreVersion(config1, config2);
+    }
+
+    @Override
+    public URI configToHttpUri(String config)
+    {
+        long start = System.nanoTime();
+        return resolved(start, delegate.configToHttpUri(config));
+    }
+
+    @Override
+    public String binaryRelativize(String binary)
+    {
+        return delegate.binaryRelativize(binary);
+    }
+
+    @Override
+    public String binaryResolve(String binary)
+    {
+        long start = System.nanoTime();
+        return resolved(start, delegate.binaryResolve(binary));
+    }
+
+    @Override
+    public String binaryUpgrade(String binary, String version)
+    {
+        long start = System.nanoTime();
+        return resolved(start, delegate.binaryUpgrade(binary, version));
+    }
+
+    @Override
+    public boolean binaryEqualsIgnoreVersion(String binary1, String binary2)
+    {
+        return delegate.binaryEqualsIgnoreVersion(binary1, binary2);
+    }
+
+    @Override
+    public URI binaryToHttpUri(String binary)
+    {
+        long start = System.nanoTime();
+        return resolved(start, delegate.binaryToHttpUri(binary));
+    }
+
+    private <T> T resolved(long start, T result)
+    {
+        // failed resolutions are not counted, they are neither a hit nor a miss
+        resolveTime.addValue(Duration.nanosSince(start));
+        if (result != null) {
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+        }
+        return result;
+    }
+
+    @Managed
+    @Nested
+    public TimedStat getResolveTime()
+    {
+        return resolveTime;
+    }
+
+    @Managed
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Managed
+    public long getMisses()
+    {
+        return misses.get();
+    }
+}
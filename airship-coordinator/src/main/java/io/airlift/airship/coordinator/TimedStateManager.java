@@ -0,0 +1,118 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.stats.TimedStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long the reads and writes of a state manager take, and
+ * versions the expected states written through it.
+ */
+public class TimedStateManager
+        implements StateManager
+{
+    private final StateManager delegate;
+    private final TimedStat readTime = new TimedStat();
+    private final TimedStat writeTime = new TimedStat();
+    private final AtomicLong version = new AtomicLong();
+
+    public TimedStateManager(StateManager delegate)
+    {
+        Preconditions.checkNotNull(delegate, "delegate is null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Collection<ExpectedSlotStatus> getAllExpectedStates()
+    {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllExpectedStates();
+        }
+        finally {
+            readTime.addValue(Duration.nanosSince(start));
+        }
+    }
+
+    @Override
+    public void deleteExpectedState(UUID slotId)
+    {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteExpectedState(slotId);
+        }
+        finally {
+            writeTime.addValue(Duration.nanosSince(start));
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void setExpectedState(ExpectedSlotStatus slotStatus)
+    {
+        long start = System.nanoTime();
+        try {
+            delegate.setExpectedState(slotStatus);
+        }
+        finally {
+            writeTime.addValue(Duration.nanosSince(start));
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void deleteExpectedStates(Collection<UUID> slotIds)
+    {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteExpectedStates(slotIds);
+        }
+        finally {
+            writeTime.addValue(Duration.nanosSince(start));
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void setExpectedStates(Collection<ExpectedSlotStatus> slotStatuses)
+    {
+        long start = System.nanoTime();
+        try {
+            delegate.setExpectedStates(slotStatuses);
+        }
+        finally {
+            writeTime.addValue(Duration.nanosSince(start));
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Incremented after every write, including failed writes that may have
+     * been partially applied.
+     */
+    public long getVersion()
+    {
+        return version.get();
+    }
+
+    @Managed
+    @Nested
+    public TimedStat getReadTime()
+    {
+        return readTime;
+    }
+
+    @Managed
+    @Nested
+    public TimedStat getWriteTime()
+    {
+        return writeTime;
+    }
+}
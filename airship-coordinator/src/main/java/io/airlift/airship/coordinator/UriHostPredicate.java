@@ -27,7 +27,14 @@ public class UriHostPredicate implements Predicate<URI>
         if (host == null) {
             return false;
         }
+        return matchesHost(host);
+    }
 
+    /**
+     * Matches the host name, or the address it resolves to.
+     */
+    public boolean matchesHost(String host)
+    {
         // match host string directly
         if (predicate.apply(host.toLowerCase())) {
             return true;
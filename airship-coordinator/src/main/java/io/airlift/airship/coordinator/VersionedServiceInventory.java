@@ -0,0 +1,66 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.discovery.client.ServiceDescriptor;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newLinkedHashMap;
+import static io.airlift.airship.shared.VersionsUtil.createServiceDescriptorVersion;
+import static io.airlift.airship.shared.VersionsUtil.createServiceInventoryVersionFromDescriptorVersions;
+
+/**
+ * Service descriptors indexed by content version, computed once per update
+ * and shared by every agent.
+ */
+@Immutable
+public class VersionedServiceInventory
+{
+    private final Map<String, ServiceDescriptor> serviceDescriptors;
+    private final String version;
+
+    public VersionedServiceInventory(List<ServiceDescriptor> serviceDescriptors)
+    {
+        Preconditions.checkNotNull(serviceDescriptors, "serviceDescriptors is null");
+
+        Map<String, ServiceDescriptor> descriptors = newLinkedHashMap();
+        for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            descriptors.put(createServiceDescriptorVersion(serviceDescriptor), serviceDescriptor);
+        }
+        this.serviceDescriptors = ImmutableMap.copyOf(descriptors);
+        this.version = createServiceInventoryVersionFromDescriptorVersions(this.serviceDescriptors.keySet());
+    }
+
+    public List<ServiceDescriptor> getServiceDescriptors()
+    {
+        return ImmutableList.copyOf(serviceDescriptors.values());
+    }
+
+    /**
+     * Service descriptors keyed by descriptor version.
+     */
+    public Map<String, ServiceDescriptor> getServiceDescriptorsByVersion()
+    {
+        return serviceDescriptors;
+    }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("VersionedServiceInventory");
+        sb.append("{version='").append(version).append('\'');
+        sb.append(", serviceDescriptors=").append(serviceDescriptors.values());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.coordinator.GlobPredicate.globToPattern;
+
+/**
+ * Compares {@link GlobMatcher} with the regular expression produced by
+ * {@link GlobPredicate#globToPattern} over a set of slot binaries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkGlobPredicate
+{
+    @Param({"*apple*", "*food.fruit:apple:1.*", "*:{apple,banana}:?.0*", "*:[ab]*:2.0*"})
+    public String glob;
+
+    private List<String> binaries;
+    private Predicate<CharSequence> regexPredicate;
+    private Predicate<CharSequence> globMatcher;
+
+    @Setup
+    public void setup()
+    {
+        ImmutableList.Builder<String> binaries = ImmutableList.builder();
+        String[] artifacts = {"apple", "banana", "cherry", "durian", "elderberry"};
+        for (int i = 0; i < 1000; i++) {
+            binaries.add("food.fruit:" + artifacts[i % artifacts.length] + ":" + (i % 3) + ".0-" + i);
+        }
+        this.binaries = binaries.build();
+
+        regexPredicate = new RegexPredicate(globToPattern(glob));
+        globMatcher = new GlobMatcher(glob);
+    }
+
+    @Benchmark
+    public int regex()
+    {
+        return countMatches(regexPredicate);
+    }
+
+    @Benchmark
+    public int globMatcher()
+    {
+        return countMatches(globMatcher);
+    }
+
+    private int countMatches(Predicate<CharSequence> predicate)
+    {
+        int count = 0;
+        for (String binary : binaries) {
+            if (predicate.apply(binary)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(".*" + BenchmarkGlobPredicate.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -5,7 +5,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
-import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.airship.shared.AgentLifecycleState;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.Installation;
@@ -15,9 +14,11 @@ import io.airlift.airship.shared.SlotStatus;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Sets.newHashSet;
 import static io.airlift.airship.shared.AgentLifecycleState.*;
 import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.airship.shared.SlotStatus.createSlotStatus;
@@ -26,6 +27,7 @@ public class MockRemoteAgent implements RemoteAgent
 {
     private final String instanceId;
     private final Map<String, AgentStatus> agents;
+    private final Set<UUID> unreachableSlots = newHashSet();
 
     public MockRemoteAgent(String instanceId, Map<String, AgentStatus> agents)
     {
@@ -58,11 +60,29 @@ public class MockRemoteAgent implements RemoteAgent
         }));
     }
 
+    @Override
+    public synchronized List<SlotStatus> applySlotOperations(List<SlotOperation> operations)
+    {
+        ImmutableList.Builder<SlotStatus> results = ImmutableList.builder();
+        for (SlotOperation operation : operations) {
+            SlotStatus slotStatus = getAgentStatus().getSlotStatus(operation.getSlotId());
+            Preconditions.checkArgument(slotStatus != null, "Unknown slot %s", operation.getSlotId());
+            results.add(operation.applyTo(new MockRemoteSlot(slotStatus, this)));
+        }
+        return results.build();
+    }
+
     @Override
     public synchronized void updateStatus()
     {
     }
 
+    @Override
+    public boolean updateSlotStatus()
+    {
+        return false;
+    }
+
     synchronized void setSlotStatus(SlotStatus slotStatus)
     {
         AgentStatus agentStatus = getAgentStatus().changeSlotStatus(slotStatus);
@@ -70,7 +90,7 @@ public class MockRemoteAgent implements RemoteAgent
     }
 
     @Override
-    public synchronized void setServiceInventory(List<ServiceDescriptor> serviceInventory)
+    public synchronized void setServiceInventory(VersionedServiceInventory serviceInventory)
     {
     }
 
@@ -97,6 +117,19 @@ public class MockRemoteAgent implements RemoteAgent
         return slotStatus;
     }
 
+    /**
+     * Commands on the slot fail like they do on an unreachable remote slot.
+     */
+    public synchronized void setSlotUnreachable(UUID slotId)
+    {
+        unreachableSlots.add(slotId);
+    }
+
+    synchronized boolean isSlotUnreachable(UUID slotId)
+    {
+        return unreachableSlots.contains(slotId);
+    }
+
     public synchronized AgentStatus getAgentStatus()
     {
         AgentStatus agentStatus = agents.get(instanceId);
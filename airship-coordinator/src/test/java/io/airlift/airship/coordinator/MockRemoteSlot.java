@@ -9,6 +9,7 @@ import java.util.UUID;
 import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
 import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
 import static io.airlift.airship.shared.SlotLifecycleState.TERMINATED;
+import static io.airlift.airship.shared.SlotLifecycleState.UNKNOWN;
 
 public class MockRemoteSlot implements RemoteSlot
 {
@@ -37,6 +38,9 @@ public class MockRemoteSlot implements RemoteSlot
     @Override
     public SlotStatus assign(Installation installation)
     {
+        if (mockRemoteAgent.isSlotUnreachable(getId())) {
+            return unreachableStatus();
+        }
         Preconditions.checkNotNull(installation, "installation is null");
         slotStatus = slotStatus.changeAssignment(STOPPED, installation.getAssignment(), slotStatus.getResources());
         mockRemoteAgent.setSlotStatus(slotStatus);
@@ -46,6 +50,9 @@ public class MockRemoteSlot implements RemoteSlot
     @Override
     public SlotStatus terminate()
     {
+        if (mockRemoteAgent.isSlotUnreachable(getId())) {
+            return unreachableStatus();
+        }
         if (slotStatus.getState() == STOPPED) {
             slotStatus = slotStatus.changeState(TERMINATED);
         }
@@ -56,6 +63,9 @@ public class MockRemoteSlot implements RemoteSlot
     @Override
     public SlotStatus start()
     {
+        if (mockRemoteAgent.isSlotUnreachable(getId())) {
+            return unreachableStatus();
+        }
         if (slotStatus.getAssignment() == null) {
             throw new IllegalStateException("Slot can not be started because the slot is not assigned");
         }
@@ -67,6 +77,9 @@ public class MockRemoteSlot implements RemoteSlot
     @Override
     public SlotStatus restart()
     {
+        if (mockRemoteAgent.isSlotUnreachable(getId())) {
+            return unreachableStatus();
+        }
         if (slotStatus.getAssignment() == null) {
             throw new IllegalStateException("Slot can not be restarted because the slot is not assigned");
         }
@@ -78,6 +91,9 @@ public class MockRemoteSlot implements RemoteSlot
     @Override
     public SlotStatus stop()
     {
+        if (mockRemoteAgent.isSlotUnreachable(getId())) {
+            return unreachableStatus();
+        }
         if (slotStatus.getAssignment() == null) {
             throw new IllegalStateException("Slot can not be stopped because the slot is not assigned");
         }
@@ -85,4 +101,9 @@ public class MockRemoteSlot implements RemoteSlot
         mockRemoteAgent.setSlotStatus(slotStatus);
         return slotStatus;
     }
+
+    private SlotStatus unreachableStatus()
+    {
+        return slotStatus.changeState(UNKNOWN).changeStatusMessage("Slot is unreachable");
+    }
 }
@@ -11,6 +11,7 @@ import io.airlift.airship.shared.CoordinatorStatus;
 import io.airlift.airship.shared.CoordinatorStatusRepresentation;
 import io.airlift.airship.shared.MockUriInfo;
 import io.airlift.airship.shared.SlotStatus;
+import io.airlift.json.ObjectMapperProvider;
 import io.airlift.units.Duration;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -59,14 +60,16 @@ public class TestAdminResource
                 new InMemoryStateManager(),
                 new MockServiceInventory(),
                 new Duration(1, TimeUnit.DAYS),
+                1,
                 false);
-        resource = new AdminResource(coordinator, repository);
+        resource = new AdminResource(coordinator, repository, new ObjectMapperProvider().get());
     }
 
     @AfterMethod
     public void tearDown()
             throws Exception
     {
+        coordinator.stop();
         repository.destroy();
     }
 
@@ -205,7 +208,7 @@ public class TestAdminResource
     public void testGetAllAgentsEmpty()
     {
         URI requestUri = URI.create("http://localhost/v1/admin/agent");
-        Response response = resource.getAllAgents(MockUriInfo.from(requestUri));
+        Response response = resource.getAllAgents(MockUriInfo.from(requestUri), null, null, null);
         assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
         assertEqualsNoOrder((Iterable<?>) response.getEntity(), ImmutableList.of());
         assertNull(response.getMetadata().get("Content-Type")); // content type is set by jersey based on @Produces
@@ -238,7 +241,7 @@ public class TestAdminResource
         coordinator.updateAllAgents();
 
         URI requestUri = URI.create("http://localhost/v1/admin/agent");
-        Response response = resource.getAllAgents(MockUriInfo.from(requestUri));
+        Response response = resource.getAllAgents(MockUriInfo.from(requestUri), null, null, null);
         assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
         assertNull(response.getMetadata().get("Content-Type")); // content type is set by jersey based on @Produces
 
@@ -296,7 +299,7 @@ public class TestAdminResource
 
 
         requestUri = URI.create("http://localhost/v1/admin/agent");
-        response = resource.getAllAgents(MockUriInfo.from(requestUri));
+        response = resource.getAllAgents(MockUriInfo.from(requestUri), null, null, null);
         assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
         assertNull(response.getMetadata().get("Content-Type")); // content type is set by jersey based on @Produces
 
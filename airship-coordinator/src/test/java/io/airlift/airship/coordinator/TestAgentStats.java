@@ -0,0 +1,35 @@
+package io.airlift.airship.coordinator;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.shared.AgentLifecycleState.OFFLINE;
+import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestAgentStats
+{
+    @Test
+    public void testFlapping()
+    {
+        AgentStats stats = new AgentStats();
+        long now = 0;
+
+        // a steady agent is not flapping
+        stats.stateUpdated(ONLINE, now);
+        stats.stateUpdated(ONLINE, now += TimeUnit.MINUTES.toNanos(1));
+        assertFalse(stats.isFlapping(now));
+
+        stats.stateUpdated(OFFLINE, now += TimeUnit.MINUTES.toNanos(1));
+        stats.stateUpdated(ONLINE, now += TimeUnit.MINUTES.toNanos(1));
+        assertFalse(stats.isFlapping(now));
+
+        stats.stateUpdated(OFFLINE, now += TimeUnit.MINUTES.toNanos(1));
+        assertTrue(stats.isFlapping(now));
+
+        // state changes older than the window are forgotten
+        assertFalse(stats.isFlapping(now + TimeUnit.MINUTES.toNanos(9)));
+    }
+}
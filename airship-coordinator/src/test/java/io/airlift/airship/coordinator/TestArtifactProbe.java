@@ -0,0 +1,150 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestArtifactProbe
+{
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private File tempDir;
+    private ArtifactProbe artifactProbe;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        requests.clear();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException
+            {
+                String method = exchange.getRequestMethod();
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                requests.add(method + " " + exchange.getRequestURI().getPath() + (range == null ? "" : " " + range));
+
+                boolean exists = exchange.getRequestURI().getPath().startsWith("/found");
+                boolean noHead = exchange.getRequestURI().getPath().endsWith("-no-head");
+                if (exchange.getRequestURI().getPath().startsWith("/error")) {
+                    exchange.sendResponseHeaders(503, -1);
+                }
+                else if (exchange.getRequestURI().getPath().startsWith("/forbidden")) {
+                    exchange.sendResponseHeaders(403, -1);
+                }
+                else if (method.equals("HEAD") && noHead) {
+                    exchange.sendResponseHeaders(405, -1);
+                }
+                else if (!exists) {
+                    exchange.sendResponseHeaders(404, -1);
+                }
+                else if (method.equals("HEAD")) {
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                else {
+                    byte[] body = "0123456789".getBytes(Charsets.UTF_8);
+                    exchange.sendResponseHeaders(206, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+
+        tempDir = createTempDir("artifact-probe");
+        artifactProbe = new ArtifactProbe(new CoordinatorConfig());
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        server.stop(0);
+        deleteRecursively(tempDir);
+    }
+
+    @Test
+    public void testHead()
+    {
+        assertTrue(artifactProbe.exists(uri("/found.tar.gz")));
+        assertFalse(artifactProbe.exists(uri("/missing.tar.gz")));
+
+        assertEquals(requests, ImmutableList.of("HEAD /found.tar.gz", "HEAD /missing.tar.gz"));
+        assertEquals(artifactProbe.getHeadRequests(), 2);
+        assertEquals(artifactProbe.getRangeRequests(), 0);
+        assertEquals(artifactProbe.getActiveRequests(), 0);
+    }
+
+    @Test
+    public void testRangeFallback()
+    {
+        // once the server rejects HEAD, only ranged GET requests are sent
+        assertTrue(artifactProbe.exists(uri("/found-no-head")));
+        assertTrue(artifactProbe.exists(uri("/found-no-head")));
+
+        assertEquals(requests, ImmutableList.of("HEAD /found-no-head", "GET /found-no-head bytes=0-9", "GET /found-no-head bytes=0-9"));
+        assertEquals(artifactProbe.getHeadRequests(), 1);
+        assertEquals(artifactProbe.getRangeRequests(), 2);
+    }
+
+    @Test
+    public void testErrorIsNotMissing()
+    {
+        // only the repository saying the artifact is not there is a miss
+        try {
+            artifactProbe.exists(uri("/error.tar.gz"));
+            fail("expected RuntimeException");
+        }
+        catch (RuntimeException expected) {
+        }
+        assertEquals(artifactProbe.getFailures(), 1);
+        assertEquals(artifactProbe.getActiveRequests(), 0);
+    }
+
+    @Test
+    public void testForbiddenIsMissing()
+    {
+        // S3 answers 403 for keys that do not exist
+        assertFalse(artifactProbe.exists(uri("/forbidden.tar.gz")));
+        assertEquals(artifactProbe.getFailures(), 0);
+    }
+
+    @Test
+    public void testFile()
+            throws IOException
+    {
+        File file = new File(tempDir, "apple.tar.gz");
+        Files.write("apple", file, Charsets.UTF_8);
+
+        assertTrue(artifactProbe.exists(file.toURI()));
+        assertFalse(artifactProbe.exists(new File(tempDir, "banana.tar.gz").toURI()));
+        assertEquals(artifactProbe.getHeadRequests(), 0);
+    }
+
+    private URI uri(String path)
+    {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
@@ -0,0 +1,220 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.airlift.airship.coordinator.BinaryCache.CachedBinary;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestBinaryCache
+{
+    private File repoDir;
+    private File cacheDir;
+    private TestingTicker ticker;
+    private BinaryCache binaryCache;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        repoDir = createTempDir("repo");
+        cacheDir = createTempDir("binary-cache");
+        ticker = new TestingTicker();
+        binaryCache = new BinaryCache(cacheDir, new DataSize(1000, Unit.BYTE), new Duration(1, TimeUnit.MINUTES), new Duration(1, TimeUnit.SECONDS), new Duration(1, TimeUnit.SECONDS), ticker);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        binaryCache.stop();
+        deleteRecursively(repoDir);
+        deleteRecursively(cacheDir);
+    }
+
+    @Test
+    public void testSameContentIsStoredOnce()
+            throws IOException
+    {
+        URI apple1 = createBinary("apple-1.0.tar.gz", 'a', 400);
+        URI apple2 = createBinary("apple-2.0.tar.gz", 'a', 400);
+
+        String hash;
+        try (CachedBinary binary = binaryCache.get(apple1)) {
+            assertEquals(binary.getLength(), 400);
+            assertEquals(read(binary), Strings.repeat("a", 400));
+            hash = binary.getHash();
+        }
+        try (CachedBinary binary = binaryCache.get(apple2)) {
+            assertEquals(binary.getHash(), hash);
+        }
+        try (CachedBinary binary = binaryCache.get(apple1)) {
+            assertEquals(binary.getHash(), hash);
+        }
+
+        assertEquals(binaryCache.getDownloads(), 2);
+        assertEquals(binaryCache.getHits(), 1);
+        assertEquals(binaryCache.getBinaries(), 1);
+        assertEquals(binaryCache.getSizeBytes(), 400);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted()
+            throws IOException
+    {
+        URI apple = createBinary("apple-1.0.tar.gz", 'a', 400);
+        URI banana = createBinary("banana-1.0.tar.gz", 'b', 400);
+        URI cherry = createBinary("cherry-1.0.tar.gz", 'c', 400);
+
+        CachedBinary appleBinary = binaryCache.get(apple);
+        CachedBinary bananaBinary = binaryCache.get(banana);
+        binaryCache.get(apple).close();
+        binaryCache.get(cherry).close();
+
+        assertEquals(binaryCache.getEvictions(), 1);
+        assertEquals(binaryCache.getSizeBytes(), 800);
+        assertTrue(new File(cacheDir, appleBinary.getHash()).exists());
+        assertFalse(new File(cacheDir, bananaBinary.getHash()).exists());
+
+        // a binary opened before it was evicted can still be read
+        assertEquals(read(bananaBinary), Strings.repeat("b", 400));
+        appleBinary.close();
+        bananaBinary.close();
+
+        // the evicted binary is downloaded again
+        binaryCache.get(banana).close();
+        assertEquals(binaryCache.getDownloads(), 4);
+    }
+
+    @Test
+    public void testDeletedFileIsDownloadedAgain()
+            throws IOException
+    {
+        URI apple = createBinary("apple-1.0.tar.gz", 'a', 400);
+        String hash;
+        try (CachedBinary binary = binaryCache.get(apple)) {
+            hash = binary.getHash();
+        }
+        assertTrue(new File(cacheDir, hash).delete());
+
+        try (CachedBinary binary = binaryCache.get(apple)) {
+            assertEquals(read(binary), Strings.repeat("a", 400));
+        }
+        assertEquals(binaryCache.getDownloads(), 2);
+        assertEquals(binaryCache.getSizeBytes(), 400);
+    }
+
+    @Test
+    public void testSnapshotsExpire()
+            throws IOException
+    {
+        URI release = createBinary("apple-1.0.tar.gz", 'a', 10);
+        URI snapshot = createBinary("apple-2.0-SNAPSHOT.tar.gz", 'b', 10);
+        binaryCache.get(release).close();
+        binaryCache.get(snapshot).close();
+
+        ticker.advance(2, TimeUnit.MINUTES);
+        binaryCache.get(release).close();
+        assertEquals(binaryCache.getDownloads(), 2);
+
+        // the new content of the snapshot is served
+        Files.write(Strings.repeat("c", 10), new File(snapshot), UTF_8);
+        try (CachedBinary binary = binaryCache.get(snapshot)) {
+            assertEquals(read(binary), Strings.repeat("c", 10));
+        }
+        assertEquals(binaryCache.getDownloads(), 3);
+    }
+
+    @Test
+    public void testPreviousFilesAreDeleted()
+            throws IOException
+    {
+        File stale = new File(cacheDir, Strings.repeat("0", 64));
+        File other = new File(cacheDir, "other.txt");
+        Files.write("stale", stale, UTF_8);
+        Files.write("other", other, UTF_8);
+
+        new BinaryCache(cacheDir, new DataSize(1000, Unit.BYTE), new Duration(1, TimeUnit.MINUTES), new Duration(1, TimeUnit.SECONDS), new Duration(1, TimeUnit.SECONDS), ticker).stop();
+        assertFalse(stale.exists());
+        assertTrue(other.exists());
+    }
+
+    @Test
+    public void testStalledDownloadTimesOut()
+            throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException
+            {
+                // send the headers, then stop sending the body
+                exchange.sendResponseHeaders(200, 10);
+                exchange.getResponseBody().flush();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+
+        BinaryCache cache = new BinaryCache(cacheDir, new DataSize(1000, Unit.BYTE), new Duration(1, TimeUnit.MINUTES), new Duration(1, TimeUnit.SECONDS), new Duration(100, TimeUnit.MILLISECONDS), ticker);
+        try {
+            cache.get(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/apple-1.0.tar.gz"));
+            fail("expected SocketTimeoutException");
+        }
+        catch (SocketTimeoutException expected) {
+        }
+        finally {
+            release.countDown();
+            cache.stop();
+            server.stop(0);
+        }
+        assertEquals(cache.getBinaries(), 0);
+    }
+
+    private static String read(CachedBinary binary)
+            throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate((int) binary.getLength());
+        assertEquals(binary.getChannel().read(buffer, 0), binary.getLength());
+        return new String(buffer.array(), UTF_8);
+    }
+
+    private URI createBinary(String name, char content, int length)
+            throws IOException
+    {
+        File file = new File(repoDir, name);
+        Files.write(Strings.repeat(String.valueOf(content), length), file, UTF_8);
+        return file.toURI();
+    }
+}
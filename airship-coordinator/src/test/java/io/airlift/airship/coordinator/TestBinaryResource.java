@@ -0,0 +1,160 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.io.Files;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.FileUtils.listFiles;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestBinaryResource
+{
+    private TestingMavenRepository repository;
+    private File cacheDir;
+    private BinaryCache binaryCache;
+    private BinaryResource resource;
+    private byte[] apple;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        repository = new TestingMavenRepository();
+        cacheDir = createTempDir("binary-cache");
+        binaryCache = new BinaryCache(cacheDir, new DataSize(1, Unit.MEGABYTE), new Duration(1, TimeUnit.MINUTES), new Duration(1, TimeUnit.SECONDS), new Duration(1, TimeUnit.SECONDS), new TestingTicker());
+        resource = new BinaryResource(repository, binaryCache);
+        apple = Files.toByteArray(new File(repository.getTargetRepo(), "food/fruit/apple/1.0/apple-1.0.tar.gz"));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        binaryCache.stop();
+        repository.destroy();
+        deleteRecursively(cacheDir);
+    }
+
+    @Test
+    public void testGetBinary()
+            throws IOException
+    {
+        Response response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, null, null);
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertEquals(response.getMetadata().getFirst("Content-Length"), (long) apple.length);
+        assertEquals(response.getMetadata().getFirst("Accept-Ranges"), "bytes");
+        assertEquals(toBytes(response), apple);
+
+        // apple 2.0 has the same content, so it has the same tag and is not stored again
+        Response response2 = resource.getBinary("food.fruit", "apple", "2.0", "tar.gz", null, null, null);
+        assertEquals(response2.getMetadata().getFirst("ETag"), response.getMetadata().getFirst("ETag"));
+        assertEquals(binaryCache.getBinaries(), 1);
+    }
+
+    @Test
+    public void testEvictedBeforeWrite()
+            throws IOException
+    {
+        Response response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, null, null);
+
+        // the binary was opened when the response was created
+        for (File file : listFiles(cacheDir)) {
+            assertTrue(file.delete());
+        }
+        assertEquals(toBytes(response), apple);
+    }
+
+    @Test
+    public void testNotFound()
+            throws IOException
+    {
+        Response response = resource.getBinary("food.fruit", "cherry", "1.0", "tar.gz", null, null, null);
+        assertEquals(response.getStatus(), Status.NOT_FOUND.getStatusCode());
+    }
+
+    @Test
+    public void testNotModified()
+            throws IOException
+    {
+        String etag = etag(resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, null, null));
+
+        Response response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", "\"other\", " + etag, null, null);
+        assertEquals(response.getStatus(), Status.NOT_MODIFIED.getStatusCode());
+
+        response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", "\"other\"", null, null);
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+    }
+
+    @Test
+    public void testRange()
+            throws IOException
+    {
+        Response response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, "bytes=10-19", null);
+        assertEquals(response.getStatus(), 206);
+        assertEquals(response.getMetadata().getFirst("Content-Range"), "bytes 10-19/" + apple.length);
+        assertEquals(toBytes(response), Arrays.copyOfRange(apple, 10, 20));
+
+        // resume from an offset to the end
+        response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, "bytes=20-", null);
+        assertEquals(response.getStatus(), 206);
+        assertEquals(toBytes(response), Arrays.copyOfRange(apple, 20, apple.length));
+
+        // the last bytes
+        response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, "bytes=-5", null);
+        assertEquals(response.getStatus(), 206);
+        assertEquals(toBytes(response), Arrays.copyOfRange(apple, apple.length - 5, apple.length));
+
+        response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, "bytes=" + apple.length + "-", null);
+        assertEquals(response.getStatus(), 416);
+        assertEquals(response.getMetadata().getFirst("Content-Range"), "bytes */" + apple.length);
+
+        // several ranges are answered with the whole binary
+        response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, "bytes=0-1,5-6", null);
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+    }
+
+    @Test
+    public void testIfRange()
+            throws IOException
+    {
+        String etag = etag(resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, null, null));
+
+        Response response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, "bytes=10-", etag);
+        assertEquals(response.getStatus(), 206);
+
+        // the binary changed since the partial download, so all of it is sent
+        response = resource.getBinary("food.fruit", "apple", "1.0", "tar.gz", null, "bytes=10-", "\"other\"");
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertEquals(toBytes(response), apple);
+    }
+
+    private static String etag(Response response)
+    {
+        EntityTag entityTag = (EntityTag) response.getMetadata().getFirst("ETag");
+        return "\"" + entityTag.getValue() + "\"";
+    }
+
+    private static byte[] toBytes(Response response)
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,52 @@
+package io.airlift.airship.coordinator;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestCircuitBreaker
+{
+    @Test
+    public void testBackoff()
+    {
+        TestingTicker ticker = new TestingTicker();
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, new Duration(1, TimeUnit.SECONDS), new Duration(3, TimeUnit.SECONDS), ticker);
+
+        // stays closed until the threshold
+        assertFalse(circuitBreaker.failure());
+        assertFalse(circuitBreaker.isOpen());
+        assertTrue(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.failure());
+        assertTrue(circuitBreaker.isOpen());
+
+        // one probe after the backoff
+        assertFalse(circuitBreaker.allowRequest());
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+
+        // failed probes double the backoff up to the max
+        assertTrue(circuitBreaker.failure());
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertFalse(circuitBreaker.allowRequest());
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertTrue(circuitBreaker.allowRequest());
+
+        assertTrue(circuitBreaker.failure());
+        ticker.advance(3, TimeUnit.SECONDS);
+        assertTrue(circuitBreaker.allowRequest());
+
+        // a success closes the circuit and resets the backoff
+        circuitBreaker.success();
+        assertFalse(circuitBreaker.isOpen());
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.failure());
+        assertTrue(circuitBreaker.failure());
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertTrue(circuitBreaker.allowRequest());
+    }
+}
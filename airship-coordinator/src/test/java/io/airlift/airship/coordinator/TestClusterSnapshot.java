@@ -0,0 +1,170 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import io.airlift.airship.shared.AgentStatus;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.airship.shared.MockUriInfo;
+import io.airlift.airship.shared.SlotStatus;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.UriInfo;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static io.airlift.airship.shared.SlotLifecycleState.UNKNOWN;
+import static io.airlift.airship.shared.SlotStatus.createSlotStatus;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class TestClusterSnapshot
+{
+    private final UUID appleSlotId = UUID.randomUUID();
+    private final UUID bananaSlotId = UUID.randomUUID();
+    private final UUID missingSlotId = UUID.randomUUID();
+
+    private Map<String, AgentStatus> agentStatuses;
+    private MockRemoteAgent remoteAgent;
+    private Map<String, RemoteAgent> remoteAgents;
+    private List<ExpectedSlotStatus> expectedStates;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        SlotStatus appleSlot = createSlotStatus(appleSlotId,
+                URI.create("fake://AppleServer/v1/agent/slot/apple"),
+                URI.create("fake://apple.example.com/v1/agent/slot/apple"),
+                "instance",
+                "/location/apple",
+                STOPPED,
+                APPLE_ASSIGNMENT,
+                "/apple",
+                ImmutableMap.<String, Integer>of());
+        SlotStatus bananaSlot = createSlotStatus(bananaSlotId,
+                URI.create("fake://bananaServer/v1/agent/slot/banana"),
+                URI.create("fake://bananaServer/v1/agent/slot/banana"),
+                "instance",
+                "/location/banana",
+                RUNNING,
+                BANANA_ASSIGNMENT,
+                "/banana",
+                ImmutableMap.<String, Integer>of());
+
+        agentStatuses = newHashMap();
+        agentStatuses.put("instance", new AgentStatus("agent-id",
+                ONLINE,
+                "instance",
+                URI.create("fake://agent/"),
+                URI.create("fake://agent/"),
+                "/location",
+                "instance.type",
+                ImmutableList.of(appleSlot, bananaSlot),
+                ImmutableMap.<String, Integer>of()));
+        remoteAgent = new MockRemoteAgent("instance", agentStatuses);
+        remoteAgents = ImmutableMap.<String, RemoteAgent>of("instance", remoteAgent);
+
+        expectedStates = ImmutableList.of(
+                new ExpectedSlotStatus(appleSlotId, RUNNING, APPLE_ASSIGNMENT),
+                new ExpectedSlotStatus(missingSlotId, RUNNING, BANANA_ASSIGNMENT));
+    }
+
+    @Test
+    public void testAgentIndexes()
+    {
+        ClusterSnapshot snapshot = ClusterSnapshot.createClusterSnapshot(1, remoteAgents, expectedStates);
+        assertEquals(snapshot.getVersion(), 1);
+        assertEquals(snapshot.getAgents().size(), 1);
+        assertEquals(snapshot.getAgent("instance").getAgentId(), "agent-id");
+        assertEquals(snapshot.getAgentByAgentId("agent-id").getInstanceId(), "instance");
+        assertSame(snapshot.getRemoteAgent("instance"), remoteAgent);
+        assertNull(snapshot.getAgent("unknown"));
+        assertNull(snapshot.getAgentByAgentId("unknown"));
+        assertEquals(snapshot.getRemoteSlots().size(), 2);
+        assertEquals(snapshot.getAgentIdIndex().expandUnique("AGENT"), "agent-id");
+    }
+
+    @Test
+    public void testExpectedStateJoin()
+    {
+        ClusterSnapshot snapshot = ClusterSnapshot.createClusterSnapshot(1, remoteAgents, expectedStates);
+        assertEquals(snapshot.getSlots().size(), 3);
+
+        SlotStatus apple = snapshot.getSlot(appleSlotId);
+        assertEquals(apple.getState(), STOPPED);
+        assertEquals(apple.getExpectedState(), RUNNING);
+        assertEquals(apple.getStatusMessage(), "Expected state to be RUNNING");
+
+        SlotStatus banana = snapshot.getSlot(bananaSlotId);
+        assertNull(banana.getExpectedState());
+        assertEquals(banana.getStatusMessage(), "Unexpected slot");
+
+        SlotStatus missing = snapshot.getSlot(missingSlotId);
+        assertEquals(missing.getState(), UNKNOWN);
+        assertEquals(missing.getExpectedState(), RUNNING);
+    }
+
+    @Test
+    public void testSlotIndexes()
+    {
+        ClusterSnapshot snapshot = ClusterSnapshot.createClusterSnapshot(1, remoteAgents, expectedStates);
+        assertEquals(snapshot.getSlotsOrderedById().size(), 3);
+
+        assertEquals(snapshot.getSlotsByInstanceId().get("instance").size(), 2);
+        assertEquals(snapshot.getSlotsByHost().get("appleserver").size(), 1);
+        assertEquals(snapshot.getSlotsByHost().get("apple.example.com").size(), 1);
+        assertEquals(snapshot.getSlotsByHost().get("bananaserver").size(), 1);
+        assertEquals(snapshot.getSlotsByBinary().get(APPLE_ASSIGNMENT.getBinary()).size(), 1);
+        assertEquals(snapshot.getSlotsByBinary().get(BANANA_ASSIGNMENT.getBinary()).size(), 2);
+        assertEquals(snapshot.getSlotsByConfig().get(APPLE_ASSIGNMENT.getConfig()).size(), 1);
+        assertEquals(snapshot.getSlotsByState().get(STOPPED).size(), 1);
+        assertEquals(snapshot.getSlotsByState().get(RUNNING).size(), 1);
+        assertEquals(snapshot.getSlotsByState().get(UNKNOWN).size(), 1);
+
+        // missing slots can be selected by short id
+        assertEquals(snapshot.getSlotIdIndex().size(), 3);
+        assertEquals(snapshot.getSlotIdIndex().expand(missingSlotId.toString()), ImmutableList.of(missingSlotId.toString()));
+    }
+
+    @Test
+    public void testIndexedFilters()
+    {
+        ClusterSnapshot snapshot = ClusterSnapshot.createClusterSnapshot(1, remoteAgents, expectedStates);
+
+        // filters evaluated against the indexes select the same slots as filters applied to every slot
+        List<String> queries = ImmutableList.of(
+                "host=appleserver",
+                "host=APPLE.example.*",
+                "host=*server&state=running",
+                "machine=inst*",
+                "binary=apple",
+                "binary=apple&binary=banana&state=unknown",
+                "config=banana",
+                "uuid=" + appleSlotId.toString().substring(0, 8),
+                "uuid=" + missingSlotId,
+                "state=stopped&state=running",
+                "all&host=nothing");
+        for (String query : queries) {
+            UriInfo uriInfo = MockUriInfo.from("fake://localhost?" + query);
+            assertEquals(ImmutableList.copyOf(Iterables.filter(snapshot.getSlots(), SlotFilterBuilder.build(uriInfo, true, snapshot))),
+                    ImmutableList.copyOf(Iterables.filter(snapshot.getSlots(), SlotFilterBuilder.build(uriInfo, true, snapshot.getSlotIdIndex()))),
+                    query);
+        }
+
+        // the agent of a slot is found with the slot index
+        UriInfo uriInfo = MockUriInfo.from("fake://localhost?slotUuid=" + bananaSlotId);
+        assertEquals(ImmutableList.copyOf(Iterables.filter(snapshot.getAgents(), AgentFilterBuilder.build(uriInfo, snapshot, false, null))), snapshot.getAgents());
+        uriInfo = MockUriInfo.from("fake://localhost?slotUuid=" + missingSlotId);
+        assertEquals(ImmutableList.copyOf(Iterables.filter(snapshot.getAgents(), AgentFilterBuilder.build(uriInfo, snapshot, false, null))), ImmutableList.of());
+    }
+}
@@ -0,0 +1,195 @@
+package io.airlift.airship.coordinator;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestCommandScheduler
+{
+    private CommandScheduler scheduler;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        scheduler = new CommandScheduler(10, 3, 4, new Duration(1, TimeUnit.MINUTES));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testOneCommandPerAgentAtFirst()
+            throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = scheduler.submit("agent", new BlockingCommand("first", release));
+        Future<String> second = scheduler.submit("agent", new BlockingCommand("second", release));
+        Future<String> other = scheduler.submit("other", new BlockingCommand("other", release));
+
+        // wait for both agents to have a running command
+        while (scheduler.getRunningCommands() < 2) {
+            Thread.sleep(10);
+        }
+        assertEquals(scheduler.getQueuedCommands(), 1);
+        assertFalse(second.isDone());
+
+        release.countDown();
+        assertEquals(first.get(), "first");
+        assertEquals(second.get(), "second");
+        assertEquals(other.get(), "other");
+        waitForIdle();
+        assertEquals(scheduler.getCompletedCommands(), 3);
+    }
+
+    @Test
+    public void testAdditiveIncreaseMultiplicativeDecrease()
+            throws Exception
+    {
+        // room to queue a burst of commands
+        scheduler.shutdown();
+        TestingTicker ticker = new TestingTicker();
+        scheduler = new CommandScheduler(10, 100, 4, new Duration(1, TimeUnit.MINUTES), ticker);
+        assertEquals(scheduler.getAgentConcurrencyLimit("agent"), 1.0);
+
+        // the blocking command keeps the agent busy, so its limit is kept
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 20; i++) {
+            scheduler.submit("agent", new ValueCommand());
+        }
+        scheduler.submit("agent", new BlockingCommand("value", release));
+        while (scheduler.getCompletedCommands() < 20 || scheduler.getRunningCommands() > 1) {
+            Thread.sleep(1);
+        }
+
+        // each success grows the limit by 1 / limit up to the maximum
+        assertEquals(scheduler.getAgentConcurrencyLimit("agent"), 4.0);
+
+        // a failure halves the limit
+        try {
+            scheduler.submit("agent", new FailingCommand()).get();
+            fail("expected ExecutionException");
+        }
+        catch (ExecutionException expected) {
+        }
+        while (scheduler.getRunningCommands() > 1) {
+            Thread.sleep(1);
+        }
+        assertEquals(scheduler.getAgentConcurrencyLimit("agent"), 2.0);
+        assertEquals(scheduler.getFailedCommands(), 1);
+        assertEquals(scheduler.getActiveAgents(), 1);
+
+        // an idle agent keeps its limit, including the success of the blocking command
+        release.countDown();
+        waitForIdle();
+        assertEquals(scheduler.getActiveAgents(), 0);
+        assertEquals(scheduler.getAgentConcurrencyLimit("agent"), 2.5);
+
+        // so the next burst starts from the learned limit
+        CountDownLatch next = new CountDownLatch(1);
+        scheduler.submit("agent", new BlockingCommand("value", next));
+        scheduler.submit("agent", new BlockingCommand("value", next));
+        while (scheduler.getRunningCommands() < 2) {
+            Thread.sleep(1);
+        }
+        next.countDown();
+        waitForIdle();
+        assertEquals(scheduler.getActiveAgents(), 0);
+
+        // until the limit of the idle agent expires
+        ticker.advance(11, TimeUnit.MINUTES);
+        assertEquals(scheduler.getAgentConcurrencyLimit("agent"), 1.0);
+    }
+
+    @Test
+    public void testRejectWhenQueueIsFull()
+            throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit("agent", new BlockingCommand("value", release));
+        while (scheduler.getRunningCommands() < 1) {
+            Thread.sleep(10);
+        }
+
+        // running commands do not count against the queue
+        for (int i = 0; i < 3; i++) {
+            scheduler.submit("agent", new BlockingCommand("value", release));
+        }
+        Future<String> rejected = scheduler.submit("agent", new BlockingCommand("value", release));
+        assertTrue(rejected.isDone());
+        try {
+            rejected.get();
+            fail("expected ExecutionException");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(scheduler.getRejectedCommands(), 1);
+        release.countDown();
+    }
+
+    private void waitForIdle()
+            throws InterruptedException
+    {
+        // counters and limits are updated after the future completes
+        while (scheduler.getRunningCommands() > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static class BlockingCommand
+            implements Callable<String>
+    {
+        private final String value;
+        private final CountDownLatch release;
+
+        private BlockingCommand(String value, CountDownLatch release)
+        {
+            this.value = value;
+            this.release = release;
+        }
+
+        @Override
+        public String call()
+                throws Exception
+        {
+            release.await();
+            return value;
+        }
+    }
+
+    private static class ValueCommand
+            implements Callable<String>
+    {
+        @Override
+        public String call()
+        {
+            return "value";
+        }
+    }
+
+    private static class FailingCommand
+            implements Callable<String>
+    {
+        @Override
+        public String call()
+        {
+            throw new IllegalStateException("failed");
+        }
+    }
+}
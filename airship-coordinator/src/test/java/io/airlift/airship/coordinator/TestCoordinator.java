@@ -27,7 +27,9 @@ import static io.airlift.airship.shared.AssignmentHelper.SHORT_APPLE_ASSIGNMENT;
 import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 public class TestCoordinator
@@ -60,6 +62,7 @@ public class TestCoordinator
                 new InMemoryStateManager(),
                 new MockServiceInventory(),
                 new Duration(1, TimeUnit.DAYS),
+                1,
                 false);
     }
 
@@ -67,6 +70,7 @@ public class TestCoordinator
     public void tearDown()
             throws Exception
     {
+        coordinator.stop();
         repository.destroy();
     }
 
@@ -262,6 +266,52 @@ public class TestCoordinator
         assertEquals(actual.getResources(), resources);
     }
 
+    @Test
+    public void testAgentStatusPolling()
+            throws Exception
+    {
+        for (int i = 0; i < 10; i++) {
+            provisioner.addAgent(UUID.randomUUID().toString(), URI.create("fake://agent/" + i));
+        }
+
+        // the constructor polls once with no agents
+        assertEquals(coordinator.getAgentPollCycleTime().getCount(), 1);
+        assertEquals(coordinator.getAgentStatusTime().getCount(), 0);
+
+        coordinator.updateAllAgents();
+        assertEquals(coordinator.getAgents().size(), 10);
+        for (AgentStatus agentStatus : coordinator.getAgents()) {
+            assertEquals(agentStatus.getState(), AgentLifecycleState.ONLINE);
+        }
+        assertEquals(coordinator.getAgentPollCycleTime().getCount(), 2);
+        assertEquals(coordinator.getAgentStatusTime().getCount(), 10);
+    }
+
+    @Test
+    public void testSnapshotIsCached()
+            throws Exception
+    {
+        provisioner.addAgent(UUID.randomUUID().toString(), URI.create("fake://appleServer1/"), ImmutableMap.of("cpu", 1, "memory", 512));
+        coordinator.updateAllAgents();
+
+        ClusterSnapshot snapshot = coordinator.getSnapshot();
+        assertSame(coordinator.getSnapshot(), snapshot);
+        assertEquals(snapshot.getAgents().size(), 1);
+        assertTrue(snapshot.getSlots().isEmpty());
+
+        // commands publish a new snapshot
+        coordinator.install(Predicates.<AgentStatus>alwaysTrue(), 1, APPLE_ASSIGNMENT);
+        ClusterSnapshot installed = coordinator.getSnapshot();
+        assertNotSame(installed, snapshot);
+        assertTrue(installed.getVersion() > snapshot.getVersion());
+        assertEquals(installed.getSlots().size(), 1);
+        assertSame(coordinator.getSnapshot(), installed);
+
+        // every poll cycle publishes a new snapshot
+        coordinator.updateAllAgents();
+        assertNotSame(coordinator.getSnapshot(), installed);
+    }
+
     @Test
     public void testAgentProvision()
             throws Exception
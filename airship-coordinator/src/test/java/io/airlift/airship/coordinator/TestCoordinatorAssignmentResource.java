@@ -49,6 +49,8 @@ import static io.airlift.airship.shared.Strings.shortestUniquePrefix;
 import static java.util.Arrays.asList;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class TestCoordinatorAssignmentResource
 {
@@ -170,6 +172,27 @@ public class TestCoordinatorAssignmentResource
         assertEquals(bananaStatus.getAssignment(), BANANA_ASSIGNMENT);
     }
 
+    @Test
+    public void testRollingUpgradeRollsBackOnFailure()
+    {
+        ((MockRemoteAgent) coordinator.getSnapshot().getRemoteAgent("instance-id")).setSlotUnreachable(apple2SlotId);
+
+        UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/assignment?host=apple*&batch-size=1&batch-delay=0s&batch-timeout=10s&rollback");
+        try {
+            resource.upgrade(new UpgradeVersions("2.0", "2.0"), uriInfo, null);
+            fail("Expected RollingUpdateHaltedException");
+        }
+        catch (RollingUpdateHaltedException e) {
+            assertTrue(e.getMessage().contains("rolled back"), e.getMessage());
+        }
+
+        // the slot upgraded before the failure is rolled back
+        AgentStatus agentStatus = coordinator.getAgentByAgentId(agentId);
+        assertEquals(agentStatus.getSlotStatus(apple1SlotId).getAssignment(), APPLE_ASSIGNMENT);
+        assertEquals(agentStatus.getSlotStatus(apple2SlotId).getAssignment(), APPLE_ASSIGNMENT);
+        assertEquals(agentStatus.getSlotStatus(bananaSlotId).getAssignment(), BANANA_ASSIGNMENT);
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".* single binary.*food.fruit:apple:1.0, food.fruit:banana:2.0-SNAPSHOT")
     public void testUpgradeDifferentBinaries()
     {
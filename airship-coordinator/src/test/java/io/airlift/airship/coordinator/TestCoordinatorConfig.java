@@ -3,6 +3,8 @@ package io.airlift.airship.coordinator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
@@ -19,11 +21,36 @@ public class TestCoordinatorConfig
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(CoordinatorConfig.class)
                 .setAirshipVersion(null)
                 .setStatusExpiration(new Duration(30, TimeUnit.SECONDS))
+                .setAgentStatusMaxConcurrency(32)
+                .setAgentStatusTimeout(new Duration(10, TimeUnit.SECONDS))
+                .setAgentStatusRefreshInterval(new Duration(5, TimeUnit.MINUTES))
+                .setSlotEventsEnabled(true)
+                .setSlotEventsMaxWait(new Duration(30, TimeUnit.SECONDS))
+                .setSlotEventsMaxSubscriptions(256)
+                .setCommandMaxConcurrency(100)
+                .setCommandMaxQueued(10000)
+                .setAgentCommandMaxConcurrency(4)
+                .setAgentCommandTargetLatency(new Duration(10, TimeUnit.SECONDS))
+                .setAgentFailureThreshold(3)
+                .setAgentMinBackoff(new Duration(30, TimeUnit.SECONDS))
+                .setAgentMaxBackoff(new Duration(10, TimeUnit.MINUTES))
                 .setServiceInventoryCacheDir("service-inventory-cache")
                 .setAgentDefaultConfig(null)
                 .setAllowDuplicateInstallationsOnAnAgent(false)
                 .setRepositories("")
                 .setDefaultRepositoryGroupId("")
+                .setRepositoryCacheSnapshotTtl(new Duration(1, TimeUnit.MINUTES))
+                .setRepositoryCacheMissTtl(new Duration(30, TimeUnit.SECONDS))
+                .setRepositoryCacheMaxSize(10000)
+                .setRepositoryLookupTimeout(new Duration(30, TimeUnit.SECONDS))
+                .setRepositoryMetadataTtl(new Duration(10, TimeUnit.SECONDS))
+                .setRepositoryProbeConnectTimeout(new Duration(5, TimeUnit.SECONDS))
+                .setRepositoryProbeReadTimeout(new Duration(10, TimeUnit.SECONDS))
+                .setRepositoryProbeMaxConnectionsPerServer(16)
+                .setBinaryCacheDir("binary-cache")
+                .setBinaryCacheMaxSize(new DataSize(10, Unit.GIGABYTE))
+                .setBinaryCacheDownloadConnectTimeout(new Duration(5, TimeUnit.SECONDS))
+                .setBinaryCacheDownloadReadTimeout(new Duration(30, TimeUnit.SECONDS))
                 .setHttpShortNamePattern(DEFAULT_HTTP_SHORT_NAME_PATTERN)
                 .setHttpRepoBinaryVersionPattern(null)
                 .setHttpRepoConfigVersionPattern(null)
@@ -36,11 +63,36 @@ public class TestCoordinatorConfig
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("airship.version", "99.9")
                 .put("coordinator.status.expiration", "1m")
+                .put("coordinator.agent-status.max-concurrency", "100")
+                .put("coordinator.agent-status.timeout", "3s")
+                .put("coordinator.agent-status.refresh-interval", "1m")
+                .put("coordinator.slot-events.enabled", "false")
+                .put("coordinator.slot-events.max-wait", "5s")
+                .put("coordinator.slot-events.max-subscriptions", "10")
+                .put("coordinator.command.max-concurrency", "10")
+                .put("coordinator.command.max-queued", "50")
+                .put("coordinator.agent-command.max-concurrency", "2")
+                .put("coordinator.agent-command.target-latency", "1s")
+                .put("coordinator.agent.failure-threshold", "5")
+                .put("coordinator.agent.min-backoff", "5s")
+                .put("coordinator.agent.max-backoff", "1m")
                 .put("coordinator.service-inventory.cache-dir", "si-cache")
                 .put("coordinator.agent.default-config", "agent:config:1")
                 .put("coordinator.allow-duplicate-installations-on-an-agent", "true")
                 .put("coordinator.repository", "repo1,repo2,repo3")
                 .put("coordinator.default-group-id", "group1,group2,group3")
+                .put("coordinator.repository-cache.snapshot-ttl", "5s")
+                .put("coordinator.repository-cache.miss-ttl", "1s")
+                .put("coordinator.repository-cache.max-size", "100")
+                .put("coordinator.repository-lookup.timeout", "2s")
+                .put("coordinator.repository-metadata.ttl", "1m")
+                .put("coordinator.repository-probe.connect-timeout", "1s")
+                .put("coordinator.repository-probe.read-timeout", "3s")
+                .put("coordinator.repository-probe.max-connections-per-server", "4")
+                .put("coordinator.binary-cache.dir", "binaries")
+                .put("coordinator.binary-cache.max-size", "1GB")
+                .put("coordinator.binary-cache.download-connect-timeout", "2s")
+                .put("coordinator.binary-cache.download-read-timeout", "1m")
                 .put("coordinator.http-repo.short-name-pattern", "shortNamePattern")
                 .put("coordinator.http-repo.binary-version-pattern", "binaryVersionPattern")
                 .put("coordinator.http-repo.config-version-pattern", "configVersionPattern")
@@ -49,11 +101,36 @@ public class TestCoordinatorConfig
         CoordinatorConfig expected = new CoordinatorConfig()
                 .setAirshipVersion("99.9")
                 .setStatusExpiration(new Duration(1, TimeUnit.MINUTES))
+                .setAgentStatusMaxConcurrency(100)
+                .setAgentStatusTimeout(new Duration(3, TimeUnit.SECONDS))
+                .setAgentStatusRefreshInterval(new Duration(1, TimeUnit.MINUTES))
+                .setSlotEventsEnabled(false)
+                .setSlotEventsMaxWait(new Duration(5, TimeUnit.SECONDS))
+                .setSlotEventsMaxSubscriptions(10)
+                .setCommandMaxConcurrency(10)
+                .setCommandMaxQueued(50)
+                .setAgentCommandMaxConcurrency(2)
+                .setAgentCommandTargetLatency(new Duration(1, TimeUnit.SECONDS))
+                .setAgentFailureThreshold(5)
+                .setAgentMinBackoff(new Duration(5, TimeUnit.SECONDS))
+                .setAgentMaxBackoff(new Duration(1, TimeUnit.MINUTES))
                 .setServiceInventoryCacheDir("si-cache")
                 .setAgentDefaultConfig("agent:config:1")
                 .setAllowDuplicateInstallationsOnAnAgent(true)
                 .setRepositories(ImmutableList.of("repo1", "repo2", "repo3"))
                 .setDefaultRepositoryGroupId(ImmutableList.of("group1", "group2", "group3"))
+                .setRepositoryCacheSnapshotTtl(new Duration(5, TimeUnit.SECONDS))
+                .setRepositoryCacheMissTtl(new Duration(1, TimeUnit.SECONDS))
+                .setRepositoryCacheMaxSize(100)
+                .setRepositoryLookupTimeout(new Duration(2, TimeUnit.SECONDS))
+                .setRepositoryMetadataTtl(new Duration(1, TimeUnit.MINUTES))
+                .setRepositoryProbeConnectTimeout(new Duration(1, TimeUnit.SECONDS))
+                .setRepositoryProbeReadTimeout(new Duration(3, TimeUnit.SECONDS))
+                .setRepositoryProbeMaxConnectionsPerServer(4)
+                .setBinaryCacheDir("binaries")
+                .setBinaryCacheMaxSize(new DataSize(1, Unit.GIGABYTE))
+                .setBinaryCacheDownloadConnectTimeout(new Duration(2, TimeUnit.SECONDS))
+                .setBinaryCacheDownloadReadTimeout(new Duration(1, TimeUnit.MINUTES))
                 .setHttpShortNamePattern("shortNamePattern")
                 .setHttpRepoBinaryVersionPattern("binaryVersionPattern")
                 .setHttpRepoConfigVersionPattern("configVersionPattern");
@@ -13,9 +13,12 @@
  */
 package io.airlift.airship.coordinator;
 
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.MockUriInfo;
 import io.airlift.airship.shared.SlotLifecycleState;
@@ -34,6 +37,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -45,12 +49,15 @@ import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
 import static io.airlift.airship.shared.ExtraAssertions.assertEqualsNoOrder;
 import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
 import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static io.airlift.airship.shared.SlotLifecycleState.UNKNOWN;
 import static io.airlift.airship.shared.SlotStatus.createSlotStatus;
 import static io.airlift.airship.shared.Strings.shortestUniquePrefix;
 import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_SLOTS_VERSION_HEADER;
 import static java.util.Arrays.asList;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 public class TestCoordinatorLifecycleResource
@@ -182,6 +189,67 @@ public class TestCoordinatorLifecycleResource
         assertSlotState(bananaSlotId, STOPPED);
     }
 
+    @Test
+    public void testRollingRestart()
+    {
+        UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/lifecycle?binary=*:apple:*&batch-size=1&batch-delay=0s&batch-timeout=10s");
+        assertOkResponse(resource.setState("restarting", uriInfo, null), RUNNING, apple1SlotId, apple2SlotId);
+        assertSlotState(apple1SlotId, RUNNING);
+        assertSlotState(apple2SlotId, RUNNING);
+        assertSlotState(bananaSlotId, STOPPED);
+    }
+
+    @Test
+    public void testRollingRestartHaltsOnFailure()
+    {
+        ((MockRemoteAgent) coordinator.getSnapshot().getRemoteAgent("instance-id")).setSlotUnreachable(apple1SlotId);
+
+        UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/lifecycle?binary=*:apple:*&batch-size=1&batch-delay=0s&batch-timeout=10s");
+        try {
+            resource.setState("restarting", uriInfo, null);
+            fail("Expected RollingUpdateHaltedException");
+        }
+        catch (RollingUpdateHaltedException e) {
+            assertTrue(e.getMessage().contains("1 slots failed"), e.getMessage());
+        }
+        assertSlotState(apple1SlotId, STOPPED);
+        assertSlotState(bananaSlotId, STOPPED);
+    }
+
+    @Test
+    public void testRollingRestartReportsFailedSlots()
+    {
+        ((MockRemoteAgent) coordinator.getSnapshot().getRemoteAgent("instance-id")).setSlotUnreachable(apple1SlotId);
+
+        UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/lifecycle?binary=*:apple:*&batch-size=1&batch-delay=0s&batch-timeout=10s&max-failures=1");
+        Response response = resource.setState("restarting", uriInfo, null);
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+
+        // the failed slot is reported with its error instead of being left out
+        Map<UUID, SlotStatusRepresentation> slots = Maps.uniqueIndex((Collection<SlotStatusRepresentation>) response.getEntity(), new Function<SlotStatusRepresentation, UUID>()
+        {
+            @Override
+            public UUID apply(SlotStatusRepresentation input)
+            {
+                return input.getId();
+            }
+        });
+        assertEquals(slots.keySet(), ImmutableSet.of(apple1SlotId, apple2SlotId));
+        assertEquals(slots.get(apple1SlotId).getStatus(), UNKNOWN.toString());
+        assertNotNull(slots.get(apple1SlotId).getStatusMessage());
+        assertEquals(slots.get(apple2SlotId).getStatus(), RUNNING.toString());
+        assertSlotState(apple2SlotId, RUNNING);
+    }
+
+    @Test
+    public void testInvalidRollingUpdate()
+    {
+        UriInfo uriInfo = MockUriInfo.from("http://localhost/v1/slot/lifecycle?binary=*:apple:*&batch-size=1&batch-timeout=soon");
+        Response response = resource.setState("running", uriInfo, null);
+        assertEquals(response.getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+        assertSlotState(apple1SlotId, STOPPED);
+    }
+
     @Test
     public void testSetStateUnknownState()
     {
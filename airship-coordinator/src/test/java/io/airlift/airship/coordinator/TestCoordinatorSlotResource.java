@@ -1,8 +1,11 @@
 package io.airlift.airship.coordinator;
 
+import com.google.common.base.Function;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Ordering;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.AssignmentRepresentation;
@@ -11,34 +14,50 @@ import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.SlotStatusRepresentation;
 import io.airlift.http.server.HttpServerConfig;
 import io.airlift.http.server.HttpServerInfo;
+import io.airlift.json.JsonCodec;
+import io.airlift.json.ObjectMapperProvider;
 import io.airlift.node.NodeInfo;
 import io.airlift.units.Duration;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayOutputStream;
 import java.net.URI;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.transform;
 import static io.airlift.airship.coordinator.CoordinatorSlotResource.MIN_PREFIX_SIZE;
 import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
 import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
 import static io.airlift.airship.shared.ExtraAssertions.assertEqualsNoOrder;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
 import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
 import static io.airlift.airship.shared.SlotStatus.createSlotStatus;
 import static io.airlift.airship.shared.Strings.shortestUniquePrefix;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_NEXT_CURSOR_HEADER;
+import static io.airlift.json.JsonCodec.jsonCodec;
 import static java.lang.Math.min;
 import static java.util.Arrays.asList;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class TestCoordinatorSlotResource
 {
+    private static final JsonCodec<SlotStatusRepresentation> SLOT_CODEC = jsonCodec(SlotStatusRepresentation.class);
+
     private CoordinatorSlotResource resource;
     private Coordinator coordinator;
     private TestingMavenRepository repository;
@@ -62,13 +81,14 @@ public class TestCoordinatorSlotResource
                 provisioner,
                 new InMemoryStateManager(),
                 new MockServiceInventory());
-        resource = new CoordinatorSlotResource(coordinator, repository);
+        resource = new CoordinatorSlotResource(coordinator, repository, new ObjectMapperProvider().get());
     }
 
     @AfterMethod
     public void tearDown()
             throws Exception
     {
+        coordinator.stop();
         repository.destroy();
     }
 
@@ -108,7 +128,7 @@ public class TestCoordinatorSlotResource
         int prefixSize = shortestUniquePrefix(asList(slot1.getId().toString(), slot2.getId().toString()), MIN_PREFIX_SIZE);
 
         URI requestUri = URI.create("http://localhost/v1/slot");
-        Response response = resource.getAllSlots(MockUriInfo.from(requestUri));
+        Response response = resource.getAllSlots(MockUriInfo.from(requestUri), null, null, null);
         assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
         assertEqualsNoOrder((Iterable<?>) response.getEntity(),
                 ImmutableList.of(SlotStatusRepresentation.from(slot1, prefixSize, repository), SlotStatusRepresentation.from(slot2, prefixSize, repository)));
@@ -151,17 +171,95 @@ public class TestCoordinatorSlotResource
         int prefixSize = shortestUniquePrefix(asList(slot1.getId().toString(), slot2.getId().toString()), MIN_PREFIX_SIZE);
 
         URI requestUri = URI.create("http://localhost/v1/slot?host=foo");
-        Response response = resource.getAllSlots(MockUriInfo.from(requestUri));
+        Response response = resource.getAllSlots(MockUriInfo.from(requestUri), null, null, null);
         assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
         assertEqualsNoOrder((Iterable<?>) response.getEntity(), ImmutableList.of(SlotStatusRepresentation.from(slot1, prefixSize, repository)));
         assertNull(response.getMetadata().get("Content-Type")); // content type is set by jersey based on @Produces
     }
 
+    @Test
+    public void testGetAllSlotsPaged()
+            throws Exception
+    {
+        List<SlotStatus> slots = newArrayList();
+        for (int i = 0; i < 3; i++) {
+            slots.add(createSlotStatus(UUID.randomUUID(),
+                    URI.create("fake://localhost/v1/agent/slot/slot" + i),
+                    URI.create("fake://localhost/v1/agent/slot/slot" + i),
+                    "instance-id",
+                    "/location",
+                    STOPPED,
+                    APPLE_ASSIGNMENT,
+                    "/slot" + i,
+                    ImmutableMap.<String, Integer>of()));
+        }
+        AgentStatus agentStatus = new AgentStatus(UUID.randomUUID().toString(),
+                ONLINE,
+                "instance-id",
+                URI.create("fake://foo/"),
+                URI.create("fake://foo/"),
+                "/unknown/location",
+                "instance.type",
+                slots,
+                ImmutableMap.<String, Integer>of());
+        provisioner.addAgents(agentStatus);
+        coordinator.updateAllAgents();
+
+        List<String> slotIds = Ordering.natural().sortedCopy(transform(slots, SlotStatus.idGetter()));
+
+        URI requestUri = URI.create("http://localhost/v1/slot");
+        Response response = resource.getAllSlots(MockUriInfo.from(requestUri), 2, null, null);
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        assertEquals(ImmutableList.copyOf(transform(ImmutableList.copyOf((Iterable<SlotStatusRepresentation>) response.getEntity()), representationId())),
+                slotIds.subList(0, 2));
+        String cursor = (String) response.getMetadata().getFirst(AIRSHIP_NEXT_CURSOR_HEADER);
+        assertNotNull(cursor);
+
+        response = resource.getAllSlots(MockUriInfo.from(requestUri), 2, cursor, null);
+        assertEquals(ImmutableList.copyOf(transform(ImmutableList.copyOf((Iterable<SlotStatusRepresentation>) response.getEntity()), representationId())),
+                slotIds.subList(2, 3));
+        assertNull(response.getMetadata().getFirst(AIRSHIP_NEXT_CURSOR_HEADER));
+
+        // invalid requests are rejected before the listing is produced
+        assertPageRejected(requestUri, 0, null, Response.Status.BAD_REQUEST);
+        assertPageRejected(requestUri, 2, "", Response.Status.BAD_REQUEST);
+
+        // a cursor stays valid when the cluster changes
+        agentStatus = agentStatus.changeSlotStatus(slots.get(0).changeState(RUNNING));
+        provisioner.addAgents(agentStatus);
+        coordinator.updateAllAgents();
+        response = resource.getAllSlots(MockUriInfo.from(requestUri), 2, cursor, null);
+        assertEquals(ImmutableList.copyOf(transform(ImmutableList.copyOf((Iterable<SlotStatusRepresentation>) response.getEntity()), representationId())),
+                slotIds.subList(2, 3));
+
+        // stream the same listing as newline delimited json
+        response = resource.getAllSlots(MockUriInfo.from(requestUri), null, null, "application/x-ndjson");
+        assertEquals(response.getMetadata().getFirst("Content-Type").toString(), "application/x-ndjson");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        List<String> lines = ImmutableList.copyOf(Splitter.on('\n').omitEmptyStrings().split(output.toString("UTF-8")));
+        assertEquals(lines.size(), 3);
+        for (String line : lines) {
+            assertTrue(slotIds.contains(SLOT_CODEC.fromJson(line).getId().toString()));
+        }
+    }
+
+    private void assertPageRejected(URI requestUri, Integer limit, String cursor, Response.Status status)
+    {
+        try {
+            resource.getAllSlots(MockUriInfo.from(requestUri), limit, cursor, null);
+            fail("expected WebApplicationException");
+        }
+        catch (WebApplicationException e) {
+            assertEquals(e.getResponse().getStatus(), status.getStatusCode());
+        }
+    }
+
     @Test
     public void testGetAllSlotEmpty()
     {
         URI requestUri = URI.create("http://localhost/v1/slot?state=unknown");
-        Response response = resource.getAllSlots(MockUriInfo.from(requestUri));
+        Response response = resource.getAllSlots(MockUriInfo.from(requestUri), null, null, null);
         assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
         assertEqualsNoOrder((Iterable<?>) response.getEntity(), ImmutableList.of());
         assertNull(response.getMetadata().get("Content-Type")); // content type is set by jersey based on @Produces
@@ -270,4 +368,16 @@ public class TestCoordinatorSlotResource
         assertEquals(slot.getState(), STOPPED);
         assertEquals(slot.getResources(), ImmutableMap.of("cpu", 1, "memory", 512));
     }
+
+    private static Function<SlotStatusRepresentation, String> representationId()
+    {
+        return new Function<SlotStatusRepresentation, String>()
+        {
+            @Override
+            public String apply(SlotStatusRepresentation representation)
+            {
+                return representation.getId().toString();
+            }
+        };
+    }
 }
@@ -0,0 +1,97 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Files;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.UUID;
+
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertEqualsNoOrder;
+import static org.testng.Assert.assertTrue;
+
+public class TestFileStateManager
+{
+    private final JsonCodec<ExpectedSlotStatus> codec = jsonCodec(ExpectedSlotStatus.class);
+    private File dataDir;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        dataDir = createTempDir("expected-state");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(dataDir);
+    }
+
+    @Test
+    public void testWriteThrough()
+    {
+        FileStateManager stateManager = new FileStateManager(dataDir, codec);
+        UUID appleId = UUID.randomUUID();
+        UUID bananaId = UUID.randomUUID();
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(bananaId, RUNNING, BANANA_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, STOPPED, APPLE_ASSIGNMENT));
+        stateManager.deleteExpectedState(bananaId);
+
+        assertEquals(Iterables.getOnlyElement(stateManager.getAllExpectedStates()).getStatus(), STOPPED);
+
+        // only the slot files are left on disk, and a new manager loads them
+        assertEquals(dataDir.list(), new String[] {appleId + ".json"});
+        ExpectedSlotStatus loaded = Iterables.getOnlyElement(new FileStateManager(dataDir, codec).getAllExpectedStates());
+        assertEquals(loaded.getId(), appleId);
+        assertEquals(loaded.getStatus(), STOPPED);
+        assertEquals(loaded.getAssignment(), APPLE_ASSIGNMENT);
+    }
+
+    @Test
+    public void testFailedBatchIsRolledBack()
+            throws Exception
+    {
+        FileStateManager stateManager = new FileStateManager(dataDir, codec);
+        UUID appleId = UUID.randomUUID();
+        UUID bananaId = UUID.randomUUID();
+        UUID cherryId = UUID.randomUUID();
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, STOPPED, APPLE_ASSIGNMENT));
+
+        // a non empty directory in place of the banana file makes its rename fail
+        File bananaFile = new File(dataDir, bananaId + ".json");
+        assertTrue(new File(bananaFile, "blocker").mkdirs());
+
+        stateManager.setExpectedStates(ImmutableList.of(
+                new ExpectedSlotStatus(appleId, RUNNING, APPLE_ASSIGNMENT),
+                new ExpectedSlotStatus(cherryId, RUNNING, APPLE_ASSIGNMENT),
+                new ExpectedSlotStatus(bananaId, RUNNING, BANANA_ASSIGNMENT)));
+
+        // the slots renamed before the failure are restored, on disk and in memory
+        assertEquals(Iterables.getOnlyElement(stateManager.getAllExpectedStates()).getStatus(), STOPPED);
+        assertEquals(Iterables.getOnlyElement(new FileStateManager(dataDir, codec).getAllExpectedStates()).getStatus(), STOPPED);
+        assertEqualsNoOrder(dataDir.list(), new String[] {appleId + ".json", bananaFile.getName()});
+    }
+
+    @Test
+    public void testCorruptFileSkipped()
+            throws Exception
+    {
+        Files.write("corrupt", new File(dataDir, UUID.randomUUID() + ".json"), Charsets.UTF_8);
+        assertTrue(new FileStateManager(dataDir, codec).getAllExpectedStates().isEmpty());
+    }
+}
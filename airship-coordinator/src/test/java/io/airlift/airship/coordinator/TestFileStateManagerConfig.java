@@ -13,6 +13,9 @@ public class TestFileStateManagerConfig
     {
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(FileStateManagerConfig.class)
                 .setExpectedStateDir("expected-state")
+                .setWatchEnabled(false)
+                .setJournalEnabled(false)
+                .setJournalCompactionThreshold(100000)
         );
     }
 
@@ -21,10 +24,16 @@ public class TestFileStateManagerConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("coordinator.expected-state.dir", "state")
+                .put("coordinator.expected-state.watch", "true")
+                .put("coordinator.expected-state.journal.enabled", "true")
+                .put("coordinator.expected-state.journal.compaction-threshold", "1000")
                 .build();
 
         FileStateManagerConfig expected = new FileStateManagerConfig()
-                .setExpectedStateDir("state");
+                .setExpectedStateDir("state")
+                .setWatchEnabled(true)
+                .setJournalEnabled(true)
+                .setJournalCompactionThreshold(1000);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -0,0 +1,157 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static io.airlift.airship.coordinator.GlobPredicate.globToPattern;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestGlobMatcher
+{
+    private static final List<String> GLOBS = ImmutableList.of(
+            "",
+            "*",
+            "**",
+            "apple",
+            "*apple*",
+            "apple*",
+            "*apple",
+            "a*b*",
+            "a*b*c",
+            "*.txt",
+            "?pple",
+            "a??le*",
+            "[abc].txt",
+            "[a-c]*",
+            "[^abc].txt",
+            "[!a-b]*",
+            "*[^x]",
+            "*.{txt,html}",
+            "{apple,banana}:*",
+            "{a,{b,c}x}",
+            "{apple,}pie",
+            "a\\*b",
+            "a\\{b,c\\}",
+            "  apple  ");
+
+    private static final List<String> INPUTS = ImmutableList.of(
+            "",
+            "apple",
+            "apples",
+            "pineapple",
+            "pineapples",
+            "ample",
+            "a*b",
+            "axb",
+            "aXbX",
+            "xab",
+            "abc",
+            "aabbcc",
+            "a.txt",
+            "b.txt",
+            "d.txt",
+            "^.txt",
+            "!.txt",
+            "aa.txt",
+            "readme.txt",
+            "readme.html",
+            "readme.txthtml",
+            ".txt",
+            "apple:1.0",
+            "banana:2.0",
+            "cherry:1.0",
+            "a",
+            "bx",
+            "cx",
+            "b",
+            "pie",
+            "applepie",
+            "a{b,c}");
+
+    @Test
+    public void testMatchesRegex()
+    {
+        for (String glob : GLOBS) {
+            GlobMatcher matcher = new GlobMatcher(glob);
+            RegexPredicate regex = new RegexPredicate(globToPattern(glob));
+            for (String input : INPUTS) {
+                assertEquals(matcher.apply(input), regex.apply(input), String.format("glob '%s' input '%s'", glob, input));
+            }
+            assertFalse(matcher.apply(null));
+        }
+    }
+
+    @Test
+    public void testLiteralFastPath()
+    {
+        GlobMatcher matcher = new GlobMatcher("*apple*");
+        assertTrue(matcher.apply("apple"));
+        assertTrue(matcher.apply("pineapples"));
+        assertFalse(matcher.apply("appl"));
+
+        // the prefix and suffix may not overlap
+        matcher = new GlobMatcher("ab*ba");
+        assertTrue(matcher.apply("abba"));
+        assertTrue(matcher.apply("abxba"));
+        assertFalse(matcher.apply("aba"));
+
+        matcher = new GlobMatcher("a*bb*bb*a");
+        assertTrue(matcher.apply("abbbba"));
+        assertFalse(matcher.apply("abbba"));
+    }
+
+    @Test
+    public void testNoBacktracking()
+    {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            input.append('a');
+        }
+        assertFalse(new GlobMatcher("*a*a*a*a*a*a*a*a*a*?b").apply(input));
+        assertFalse(new GlobMatcher("*a*a*a*a*a*a*a*a*a*b").apply(input));
+    }
+
+    @Test
+    public void testCompileIsCached()
+    {
+        assertSame(GlobMatcher.compile("*apple*"), GlobMatcher.compile("*apple*"));
+        assertEquals(GlobMatcher.compile("*apple*").toString(), "*apple*");
+    }
+
+    @Test
+    public void testNegatedCharacterClass()
+    {
+        for (String glob : ImmutableList.of("[^abc].txt", "[!abc].txt")) {
+            GlobMatcher matcher = new GlobMatcher(glob);
+            assertTrue(matcher.apply("d.txt"), glob);
+            assertTrue(matcher.apply("\u00e9.txt"), glob);
+            assertFalse(matcher.apply("a.txt"), glob);
+            assertFalse(matcher.apply("c.txt"), glob);
+
+            // the negation mark is not a member of the class
+            assertTrue(matcher.apply("^.txt"), glob);
+            assertTrue(matcher.apply("!.txt"), glob);
+        }
+
+        // only a leading '^' or '!' negates
+        assertTrue(new GlobMatcher("[a^].txt").apply("^.txt"));
+        assertFalse(new GlobMatcher("[a^].txt").apply("d.txt"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Unclosed '\\{'.*")
+    public void testUnclosedAlternation()
+    {
+        GlobMatcher.compile("{apple,banana");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Unclosed '\\['.*")
+    public void testUnclosedCharacterClass()
+    {
+        GlobMatcher.compile("[abc");
+    }
+}
@@ -0,0 +1,140 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.airship.shared.SlotLifecycleState;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestJournalStateManager
+{
+    private final JsonCodec<ExpectedSlotStatus> codec = jsonCodec(ExpectedSlotStatus.class);
+    private File dataDir;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        dataDir = createTempDir("expected-state");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(dataDir);
+    }
+
+    @Test
+    public void testRecovery()
+            throws Exception
+    {
+        JournalStateManager stateManager = new JournalStateManager(dataDir, codec, 1000);
+        UUID appleId = UUID.randomUUID();
+        UUID bananaId = UUID.randomUUID();
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(bananaId, RUNNING, BANANA_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, STOPPED, APPLE_ASSIGNMENT));
+        stateManager.deleteExpectedState(bananaId);
+        stateManager.close();
+
+        assertFalse(new File(dataDir, JournalStateManager.SNAPSHOT_FILE).exists());
+        assertSingleState(new JournalStateManager(dataDir, codec, 1000), appleId, STOPPED);
+    }
+
+    @Test
+    public void testCompaction()
+            throws Exception
+    {
+        JournalStateManager stateManager = new JournalStateManager(dataDir, codec, 10);
+        UUID appleId = UUID.randomUUID();
+        for (int i = 0; i < 25; i++) {
+            stateManager.setExpectedState(new ExpectedSlotStatus(appleId, i % 2 == 0 ? RUNNING : STOPPED, APPLE_ASSIGNMENT));
+        }
+        stateManager.close();
+
+        // the journal only has the entries written since the last snapshot
+        assertTrue(new File(dataDir, JournalStateManager.SNAPSHOT_FILE).exists());
+        assertTrue(new File(dataDir, JournalStateManager.JOURNAL_FILE).length() < new File(dataDir, JournalStateManager.SNAPSHOT_FILE).length() * 10);
+        assertSingleState(new JournalStateManager(dataDir, codec, 10), appleId, RUNNING);
+    }
+
+    @Test
+    public void testTornWriteDiscarded()
+            throws Exception
+    {
+        JournalStateManager stateManager = new JournalStateManager(dataDir, codec, 1000);
+        UUID appleId = UUID.randomUUID();
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, STOPPED, APPLE_ASSIGNMENT));
+        stateManager.close();
+
+        // cut the last record short
+        File journalFile = new File(dataDir, JournalStateManager.JOURNAL_FILE);
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        stateManager = new JournalStateManager(dataDir, codec, 1000);
+        assertSingleState(stateManager, appleId, RUNNING);
+
+        // new records are written after the last good record
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, STOPPED, APPLE_ASSIGNMENT));
+        stateManager.close();
+        assertSingleState(new JournalStateManager(dataDir, codec, 1000), appleId, STOPPED);
+    }
+
+    @Test
+    public void testBatch()
+            throws Exception
+    {
+        JournalStateManager stateManager = new JournalStateManager(dataDir, codec, 1000);
+        UUID appleId = UUID.randomUUID();
+        UUID bananaId = UUID.randomUUID();
+        stateManager.setExpectedStates(ImmutableList.of(
+                new ExpectedSlotStatus(appleId, RUNNING, APPLE_ASSIGNMENT),
+                new ExpectedSlotStatus(bananaId, RUNNING, BANANA_ASSIGNMENT)));
+        stateManager.deleteExpectedStates(ImmutableList.of(bananaId));
+        stateManager.close();
+
+        assertSingleState(new JournalStateManager(dataDir, codec, 1000), appleId, RUNNING);
+    }
+
+    @Test
+    public void testFailedWriteNotVisible()
+            throws Exception
+    {
+        JournalStateManager stateManager = new JournalStateManager(dataDir, codec, 1000);
+        UUID appleId = UUID.randomUUID();
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.close();
+
+        // the journal is closed, so the change can not be made durable
+        stateManager.setExpectedState(new ExpectedSlotStatus(appleId, STOPPED, APPLE_ASSIGNMENT));
+        assertSingleState(stateManager, appleId, RUNNING);
+        assertSingleState(new JournalStateManager(dataDir, codec, 1000), appleId, RUNNING);
+    }
+
+    private static void assertSingleState(JournalStateManager stateManager, UUID slotId, SlotLifecycleState state)
+    {
+        ExpectedSlotStatus expectedSlotStatus = Iterables.getOnlyElement(stateManager.getAllExpectedStates());
+        assertEquals(expectedSlotStatus.getId(), slotId);
+        assertEquals(expectedSlotStatus.getStatus(), state);
+    }
+}
@@ -2,10 +2,12 @@ package io.airlift.airship.coordinator;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Resources;
+import io.airlift.airship.coordinator.MavenMetadata.SnapshotVersion;
 import org.testng.annotations.Test;
 
 import static com.google.common.base.Charsets.UTF_8;
 import static io.airlift.airship.coordinator.MavenMetadata.unmarshalMavenMetadata;
+import static io.airlift.airship.coordinator.MavenMetadata.unmarshalSnapshotMetadata;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
@@ -56,4 +58,41 @@ public class TestMavenMetadata
 
         assertEquals(metadata.versioning.lastUpdated, "20110304215947");
     }
+
+    @Test
+    public void testStreamingSnapshotVersion()
+            throws Exception
+    {
+        MavenMetadata metadata = unmarshalSnapshotMetadata(Resources.getResource(getClass(), "banana-maven-metadata.xml").openStream());
+        assertEquals(metadata.groupId, "food.fruit");
+        assertEquals(metadata.artifactId, "banana");
+        assertEquals(metadata.version, "2.0-SNAPSHOT");
+
+        assertNotNull(metadata.versioning.snapshot);
+        assertEquals(metadata.versioning.snapshot.timestamp, "20110311.201909");
+        assertEquals(metadata.versioning.snapshot.buildNumber, "1");
+        assertEquals(metadata.versioning.lastUpdated, "20110311201909");
+
+        assertEquals(metadata.versioning.snapshotVersions.size(), 1);
+        SnapshotVersion snapshotVersion = metadata.versioning.snapshotVersions.get(0);
+        assertNull(snapshotVersion.classifier);
+        assertEquals(snapshotVersion.extension, "tar.gz");
+        assertEquals(snapshotVersion.value, "2.0-20110311.201909-1");
+        assertEquals(snapshotVersion.updated, "20110311201909");
+    }
+
+    @Test
+    public void testStreamingArtifactDir()
+            throws Exception
+    {
+        MavenMetadata metadata = unmarshalSnapshotMetadata(Resources.getResource(getClass(), "apple-maven-metadata.xml").openStream());
+        assertEquals(metadata.groupId, "food.fruit");
+        assertEquals(metadata.artifactId, "apple");
+
+        // the version list is not the snapshot version
+        assertNull(metadata.version);
+        assertNull(metadata.versioning.snapshot);
+        assertEquals(metadata.versioning.snapshotVersions, ImmutableList.of());
+        assertEquals(metadata.versioning.lastUpdated, "20110304215947");
+    }
 }
@@ -0,0 +1,206 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.airlift.http.client.ApacheHttpClient;
+import io.airlift.http.client.HttpClientConfig;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+public class TestMavenMetadataCache
+{
+    private static final String ETAG = "\"banana-1\"";
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final CountDownLatch slowResponse = new CountDownLatch(1);
+    private HttpServer server;
+    private TestingTicker ticker;
+    private MavenMetadataCache metadataCache;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        requests.clear();
+        final byte[] metadata = Resources.toByteArray(Resources.getResource(getClass(), "banana-maven-metadata.xml"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException
+            {
+                String path = exchange.getRequestURI().getPath();
+                String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                requests.add(path + (ifNoneMatch == null ? "" : " " + ifNoneMatch));
+
+                if (path.startsWith("/slow/")) {
+                    try {
+                        slowResponse.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                if (path.startsWith("/error/")) {
+                    exchange.sendResponseHeaders(503, -1);
+                }
+                else if (path.startsWith("/forbidden/")) {
+                    exchange.sendResponseHeaders(403, -1);
+                }
+                else if (!path.startsWith("/banana/") && !path.startsWith("/slow/")) {
+                    exchange.sendResponseHeaders(404, -1);
+                }
+                else if (ETAG.equals(ifNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                }
+                else {
+                    exchange.getResponseHeaders().add("ETag", ETAG);
+                    exchange.sendResponseHeaders(200, metadata.length);
+                    exchange.getResponseBody().write(metadata);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+
+        ticker = new TestingTicker();
+        metadataCache = new MavenMetadataCache(new Duration(10, TimeUnit.SECONDS), 100, new ApacheHttpClient(new HttpClientConfig()), ticker);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRevalidation()
+            throws Exception
+    {
+        URI uri = uri("/banana/2.0-SNAPSHOT/maven-metadata.xml");
+        assertEquals(metadataCache.get(uri).versioning.snapshot.timestamp, "20110311.201909");
+
+        // within the TTL the metadata is not checked
+        ticker.advance(5, TimeUnit.SECONDS);
+        assertEquals(metadataCache.get(uri).versioning.snapshot.timestamp, "20110311.201909");
+        assertEquals(requests, ImmutableList.of("/banana/2.0-SNAPSHOT/maven-metadata.xml"));
+
+        // after the TTL an unchanged file is not downloaded again
+        ticker.advance(10, TimeUnit.SECONDS);
+        assertEquals(metadataCache.get(uri).versioning.snapshot.timestamp, "20110311.201909");
+        assertEquals(requests, ImmutableList.of("/banana/2.0-SNAPSHOT/maven-metadata.xml", "/banana/2.0-SNAPSHOT/maven-metadata.xml " + ETAG));
+
+        assertEquals(metadataCache.getRequests(), 3);
+        assertEquals(metadataCache.getHits(), 1);
+        assertEquals(metadataCache.getRevalidations(), 1);
+        assertEquals(metadataCache.getNotModified(), 1);
+        assertEquals(metadataCache.getDownloads(), 1);
+    }
+
+    @Test
+    public void testMissing()
+            throws Exception
+    {
+        URI uri = uri("/apple/2.0-SNAPSHOT/maven-metadata.xml");
+        assertNull(metadataCache.get(uri));
+        assertNull(metadataCache.get(uri));
+        assertEquals(requests.size(), 1);
+
+        ticker.advance(10, TimeUnit.SECONDS);
+        assertNull(metadataCache.get(uri));
+        assertEquals(requests.size(), 2);
+    }
+
+    @Test
+    public void testForbiddenIsMissing()
+            throws Exception
+    {
+        // S3 answers 403 for keys that do not exist
+        URI uri = uri("/forbidden/2.0-SNAPSHOT/maven-metadata.xml");
+        assertNull(metadataCache.get(uri));
+        assertNull(metadataCache.get(uri));
+        assertEquals(requests.size(), 1);
+    }
+
+    @Test
+    public void testErrorNotCached()
+            throws Exception
+    {
+        URI uri = uri("/error/2.0-SNAPSHOT/maven-metadata.xml");
+        for (int i = 0; i < 2; i++) {
+            try {
+                metadataCache.get(uri);
+                fail("expected RuntimeException");
+            }
+            catch (RuntimeException expected) {
+            }
+        }
+        assertEquals(requests.size(), 2);
+    }
+
+    @Test
+    public void testConcurrentRefreshesAreCoalesced()
+            throws Exception
+    {
+        final URI uri = uri("/slow/2.0-SNAPSHOT/maven-metadata.xml");
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Callable<MavenMetadata> get = new Callable<MavenMetadata>()
+            {
+                @Override
+                public MavenMetadata call()
+                        throws Exception
+                {
+                    return metadataCache.get(uri);
+                }
+            };
+
+            // the second caller arrives while the first request is still waiting for the server
+            Future<MavenMetadata> first = executor.submit(get);
+            while (requests.isEmpty()) {
+                Thread.sleep(10);
+            }
+            Future<MavenMetadata> second = executor.submit(get);
+            while (metadataCache.getCoalescedRefreshes() == 0) {
+                Thread.sleep(10);
+            }
+            slowResponse.countDown();
+
+            assertSame(second.get(10, TimeUnit.SECONDS), first.get(10, TimeUnit.SECONDS));
+            assertEquals(requests.size(), 1);
+            assertEquals(metadataCache.getDownloads(), 1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private URI uri(String path)
+    {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
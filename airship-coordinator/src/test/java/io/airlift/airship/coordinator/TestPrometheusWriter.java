@@ -0,0 +1,67 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.stats.TimedStat;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestPrometheusWriter
+{
+    @Test
+    public void testCounterAndGauge()
+    {
+        String text = new PrometheusWriter()
+                .counter("requests_total", "Requests sent", 42)
+                .gauge("ratio", "A ratio", 0.25)
+                .toString();
+
+        assertEquals(text, "" +
+                "# HELP requests_total Requests sent\n" +
+                "# TYPE requests_total counter\n" +
+                "requests_total 42\n" +
+                "# HELP ratio A ratio\n" +
+                "# TYPE ratio gauge\n" +
+                "ratio 0.25\n");
+    }
+
+    @Test
+    public void testLabels()
+    {
+        String text = new PrometheusWriter()
+                .counter("commands_total", "Commands", "command", ImmutableMap.of("start", 3, "say \"hi\"\\", 1))
+                .toString();
+
+        assertEquals(text, "" +
+                "# HELP commands_total Commands\n" +
+                "# TYPE commands_total counter\n" +
+                "commands_total{command=\"start\"} 3\n" +
+                "commands_total{command=\"say \\\"hi\\\"\\\\\"} 1\n");
+    }
+
+    @Test
+    public void testSummary()
+    {
+        TimedStat stat = new TimedStat();
+        stat.addValue(new Duration(2, TimeUnit.SECONDS));
+
+        String text = new PrometheusWriter()
+                .summary("command_seconds", "Command time", "command", ImmutableMap.of("stop", stat))
+                .toString();
+
+        assertTrue(text.contains("# TYPE command_seconds summary\n"), text);
+        assertTrue(text.contains("command_seconds{command=\"stop\",quantile=\"0.5\"} 2\n"), text);
+        assertTrue(text.contains("command_seconds_sum{command=\"stop\"} 2\n"), text);
+        assertTrue(text.contains("command_seconds_count{command=\"stop\"} 1\n"), text);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidName()
+    {
+        new PrometheusWriter().gauge("bad-name", "Invalid", 1);
+    }
+}
@@ -0,0 +1,95 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class TestRequestCoalescer
+{
+    private ExecutorService executor;
+    private RequestCoalescer<String, Integer> coalescer;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = Executors.newCachedThreadPool();
+        coalescer = new RequestCoalescer<>(executor);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced()
+            throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        ListenableFuture<Integer> first = coalescer.submit("agent", new CountingRequest(calls, release));
+        ListenableFuture<Integer> second = coalescer.submit("agent", new CountingRequest(calls, release));
+        ListenableFuture<Integer> other = coalescer.submit("other", new CountingRequest(calls, release));
+        assertSame(second, first);
+        assertNotSame(other, first);
+
+        release.countDown();
+        assertEquals(second.get(), first.get());
+        other.get();
+        assertEquals(calls.get(), 2);
+        assertEquals(coalescer.getRequests(), 2);
+        assertEquals(coalescer.getCoalescedRequests(), 1);
+    }
+
+    @Test
+    public void testCompletedRequestIsNotReused()
+            throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(0);
+        AtomicInteger calls = new AtomicInteger();
+
+        ListenableFuture<Integer> first = coalescer.submit("agent", new CountingRequest(calls, release));
+        first.get();
+
+        // the in flight entry is removed by a listener, which may run just after get returns
+        ListenableFuture<Integer> second = coalescer.submit("agent", new CountingRequest(calls, release));
+        assertNotSame(second, first);
+        assertEquals((int) second.get(), 2);
+        assertEquals(coalescer.getRequests(), 2);
+        assertEquals(coalescer.getCoalescedRequests(), 0);
+    }
+
+    private static class CountingRequest
+            implements Callable<Integer>
+    {
+        private final AtomicInteger calls;
+        private final CountDownLatch release;
+
+        private CountingRequest(AtomicInteger calls, CountDownLatch release)
+        {
+            this.calls = calls;
+            this.release = release;
+        }
+
+        @Override
+        public Integer call()
+                throws Exception
+        {
+            release.await();
+            return calls.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package io.airlift.airship.coordinator;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+public class TestResolutionCache
+{
+    private final TestingTicker ticker = new TestingTicker();
+    private final ResolutionCache cache = new ResolutionCache(new Duration(1, TimeUnit.MINUTES), new Duration(10, TimeUnit.SECONDS), 100, ticker);
+
+    @Test
+    public void testReleasedKeptUntilEvicted()
+    {
+        CountingLoader loader = new CountingLoader("apple-1.0.tar.gz");
+        assertEquals(cache.get("apple:1.0", false, loader), "apple-1.0.tar.gz");
+        ticker.advance(1, TimeUnit.DAYS);
+        assertEquals(cache.get("apple:1.0", false, loader), "apple-1.0.tar.gz");
+        assertEquals(loader.calls.get(), 1);
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getLoads(), 1);
+    }
+
+    @Test
+    public void testSnapshotExpires()
+    {
+        CountingLoader loader = new CountingLoader("banana-2.0-20110311.201909-1.tar.gz");
+        cache.get("banana:2.0-SNAPSHOT", true, loader);
+        ticker.advance(59, TimeUnit.SECONDS);
+        cache.get("banana:2.0-SNAPSHOT", true, loader);
+        assertEquals(loader.calls.get(), 1);
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        cache.get("banana:2.0-SNAPSHOT", true, loader);
+        assertEquals(loader.calls.get(), 2);
+        assertEquals(cache.getExpirations(), 1);
+    }
+
+    @Test
+    public void testMissExpires()
+    {
+        CountingLoader loader = new CountingLoader(null);
+        assertNull(cache.get("apple:3.0", false, loader));
+        assertNull(cache.get("apple:3.0", false, loader));
+        assertEquals(loader.calls.get(), 1);
+        assertEquals(cache.getNegativeHits(), 1);
+
+        ticker.advance(10, TimeUnit.SECONDS);
+        assertNull(cache.get("apple:3.0", false, loader));
+        assertEquals(loader.calls.get(), 2);
+    }
+
+    @Test
+    public void testFailureNotCached()
+    {
+        try {
+            cache.get("apple:1.0", false, new Callable<String>()
+            {
+                @Override
+                public String call()
+                {
+                    throw new IllegalStateException("ambiguous");
+                }
+            });
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException expected) {
+        }
+
+        CountingLoader loader = new CountingLoader("apple-1.0.tar.gz");
+        assertEquals(cache.get("apple:1.0", false, loader), "apple-1.0.tar.gz");
+        assertEquals(loader.calls.get(), 1);
+    }
+
+    private static class CountingLoader
+            implements Callable<String>
+    {
+        private final String value;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private CountingLoader(String value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        public String call()
+        {
+            calls.incrementAndGet();
+            return value;
+        }
+    }
+}
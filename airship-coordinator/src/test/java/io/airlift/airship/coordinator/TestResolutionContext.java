@@ -0,0 +1,81 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+import io.airlift.airship.shared.Installation;
+import io.airlift.airship.shared.Repository;
+import io.airlift.airship.shared.UpgradeVersions;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import static io.airlift.airship.coordinator.TestingMavenRepository.MOCK_REPO;
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static org.testng.Assert.assertEquals;
+
+public class TestResolutionContext
+{
+    @Test
+    public void testInstallationResolvedOnce()
+            throws Exception
+    {
+        TestingMavenRepository repository = new TestingMavenRepository();
+        try {
+            Multiset<String> calls = HashMultiset.create();
+            ResolutionContext resolutionContext = new ResolutionContext(countingRepository(repository, calls));
+
+            Installation installation = resolutionContext.getInstallation(APPLE_ASSIGNMENT);
+            assertEquals(installation.getResources().get("memory"), (Integer) 512);
+            ImmutableMultiset<String> firstCalls = ImmutableMultiset.copyOf(calls);
+            assertEquals(calls.count("configToHttpUri"), 1);
+
+            // checking more agents against the same assignment does not go back to the repository
+            for (int i = 0; i < 10; i++) {
+                assertEquals(resolutionContext.getInstallation(APPLE_ASSIGNMENT), installation);
+            }
+            assertEquals(calls, firstCalls);
+        }
+        finally {
+            repository.destroy();
+        }
+    }
+
+    @Test
+    public void testUpgradeResolvedOnce()
+    {
+        Multiset<String> calls = HashMultiset.create();
+        ResolutionContext resolutionContext = new ResolutionContext(countingRepository(MOCK_REPO, calls));
+
+        UpgradeVersions upgradeVersions = new UpgradeVersions("2.0", "2.0");
+        for (int i = 0; i < 100; i++) {
+            resolutionContext.upgradeAssignment(upgradeVersions, APPLE_ASSIGNMENT);
+            resolutionContext.upgradeAssignment(upgradeVersions, BANANA_ASSIGNMENT);
+        }
+        assertEquals(calls.count("binaryUpgrade"), 2);
+        assertEquals(calls.count("configUpgrade"), 2);
+    }
+
+    private static Repository countingRepository(final Repository delegate, final Multiset<String> calls)
+    {
+        return (Repository) Proxy.newProxyInstance(Repository.class.getClassLoader(), new Class<?>[] {Repository.class}, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable
+            {
+                calls.add(method.getName());
+                try {
+                    return method.invoke(delegate, args);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Functions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static io.airlift.airship.coordinator.ResultPage.createResultPage;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestResultPage
+{
+    private static final List<String> IDS = ImmutableList.of("a", "b", "c", "d", "e");
+
+    @Test
+    public void testPages()
+    {
+        ResultPage<String> page = createResultPage(IDS, Functions.<String>identity(), Predicates.<String>alwaysTrue(), null, 2);
+        assertEquals(page.getItems(), ImmutableList.of("a", "b"));
+        assertEquals(page.getNextCursor(), "b");
+
+        page = createResultPage(IDS, Functions.<String>identity(), Predicates.<String>alwaysTrue(), page.getNextCursor(), 2);
+        assertEquals(page.getItems(), ImmutableList.of("c", "d"));
+        assertEquals(page.getNextCursor(), "d");
+
+        page = createResultPage(IDS, Functions.<String>identity(), Predicates.<String>alwaysTrue(), page.getNextCursor(), 2);
+        assertEquals(page.getItems(), ImmutableList.of("e"));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testFilteredPages()
+    {
+        Predicate<String> filter = Predicates.not(Predicates.equalTo("e"));
+
+        // no cursor when the remaining items do not match the filter
+        ResultPage<String> page = createResultPage(IDS, Functions.<String>identity(), filter, "b", 2);
+        assertEquals(page.getItems(), ImmutableList.of("c", "d"));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testCursorAfterChange()
+    {
+        // the last id was removed and new ids were added since the previous page
+        ResultPage<String> page = createResultPage(ImmutableList.of("a", "aa", "c", "d"), Functions.<String>identity(), Predicates.<String>alwaysTrue(), "b", 1);
+        assertEquals(page.getItems(), ImmutableList.of("c"));
+        assertEquals(page.getNextCursor(), "c");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "cursor is empty")
+    public void testEmptyCursor()
+    {
+        createResultPage(IDS, Functions.<String>identity(), Predicates.<String>alwaysTrue(), "", 2);
+    }
+}
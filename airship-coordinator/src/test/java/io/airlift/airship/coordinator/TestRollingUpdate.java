@@ -0,0 +1,75 @@
+package io.airlift.airship.coordinator;
+
+import io.airlift.airship.shared.MockUriInfo;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestRollingUpdate
+{
+    @Test
+    public void testBatchSize()
+    {
+        assertEquals(RollingUpdate.ALL_AT_ONCE.getBatchSize(7), 7);
+        assertEquals(RollingUpdate.ALL_AT_ONCE.getBatchSize(0), 1);
+        assertEquals(rollingUpdate(3, 0).getBatchSize(7), 3);
+        assertEquals(rollingUpdate(0, 25).getBatchSize(7), 2);
+        assertEquals(rollingUpdate(0, 10).getBatchSize(3), 1);
+        assertEquals(rollingUpdate(0, 100).getBatchSize(7), 7);
+    }
+
+    @Test
+    public void testMaxWaitTime()
+    {
+        RollingUpdate rollingUpdate = new RollingUpdate(3, 0, new Duration(10, TimeUnit.SECONDS), new Duration(1, TimeUnit.MINUTES), 0, false, null);
+        // three batches with two delays between them
+        assertEquals(rollingUpdate.getMaxWaitTime(7).toMillis(), 200000.0);
+        assertEquals(rollingUpdate.getMaxWaitTime(0).toMillis(), 0.0);
+        assertEquals(RollingUpdate.ALL_AT_ONCE.getMaxWaitTime(7).toMillis(), 0.0);
+    }
+
+    @Test
+    public void testQueryParameters()
+    {
+        RollingUpdate expected = new RollingUpdate(0, 25, new Duration(30, TimeUnit.SECONDS), new Duration(2, TimeUnit.MINUTES), 3, true, "/v1/status");
+        URI uri = expected.addQueryParameters(uriBuilderFrom(URI.create("http://localhost/v1/slot/lifecycle"))).build();
+
+        RollingUpdate actual = RollingUpdate.fromQueryParameters(MockUriInfo.from(uri).getQueryParameters());
+        assertTrue(actual.isRolling());
+        assertEquals(actual.getBatchSize(8), 2);
+        assertEquals(actual.getBatchDelay(), expected.getBatchDelay());
+        assertEquals(actual.getBatchTimeout(), expected.getBatchTimeout());
+        assertEquals(actual.getMaxFailures(), 3);
+        assertTrue(actual.isRollback());
+        assertEquals(actual.getHealthCheckPath(), "/v1/status");
+    }
+
+    @Test
+    public void testNotRolling()
+    {
+        RollingUpdate rollingUpdate = RollingUpdate.fromQueryParameters(MockUriInfo.from("http://localhost/v1/slot/lifecycle?binary=*:apple:*").getQueryParameters());
+        assertSame(rollingUpdate, RollingUpdate.ALL_AT_ONCE);
+        assertFalse(rollingUpdate.isRolling());
+        assertNull(rollingUpdate.getHealthCheckPath());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSizeAndPercentage()
+    {
+        rollingUpdate(3, 25);
+    }
+
+    private static RollingUpdate rollingUpdate(int batchSize, int batchPercentage)
+    {
+        return new RollingUpdate(batchSize, batchPercentage, new Duration(0, TimeUnit.SECONDS), new Duration(1, TimeUnit.MINUTES), 0, false, null);
+    }
+}
@@ -0,0 +1,88 @@
+package io.airlift.airship.coordinator;
+
+import com.amazonaws.services.simpledb.AmazonSimpleDB;
+import com.amazonaws.services.simpledb.model.Attribute;
+import com.amazonaws.services.simpledb.model.Item;
+import com.amazonaws.services.simpledb.model.SelectRequest;
+import com.amazonaws.services.simpledb.model.SelectResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static org.testng.Assert.assertEquals;
+
+public class TestSimpleDbStateManager
+{
+    @Test
+    public void testPaginationAndCache()
+    {
+        List<UUID> slotIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            slotIds.add(UUID.randomUUID());
+        }
+        final List<SelectResult> pages = ImmutableList.of(
+                new SelectResult().withItems(item(slotIds.get(0)), item(slotIds.get(1))).withNextToken("page2"),
+                new SelectResult().withItems(item(slotIds.get(2)), item(slotIds.get(3))).withNextToken("page3"),
+                new SelectResult().withItems(item(slotIds.get(4))));
+        final AtomicInteger selects = new AtomicInteger();
+
+        AmazonSimpleDB simpleDb = (AmazonSimpleDB) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {AmazonSimpleDB.class}, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                if (method.getName().equals("select")) {
+                    SelectRequest request = (SelectRequest) args[0];
+                    int page = request.getNextToken() == null ? 0 : Integer.parseInt(request.getNextToken().substring("page".length())) - 1;
+                    selects.incrementAndGet();
+                    return pages.get(page);
+                }
+                return null;
+            }
+        });
+
+        SimpleDbStateManager stateManager = new SimpleDbStateManager(simpleDb, "airship-test", null);
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.copyOf(slotIds));
+        assertEquals(selects.get(), 3);
+
+        // later reads and local writes are served from memory
+        UUID newSlotId = UUID.randomUUID();
+        stateManager.setExpectedState(new ExpectedSlotStatus(newSlotId, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.deleteExpectedStates(ImmutableList.of(slotIds.get(0)));
+        Set<UUID> expected = new HashSet<>(slotIds);
+        expected.add(newSlotId);
+        expected.remove(slotIds.get(0));
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), expected);
+        assertEquals(selects.get(), 3);
+    }
+
+    private static Item item(UUID slotId)
+    {
+        return new Item(slotId.toString(), ImmutableList.of(
+                new Attribute("state", RUNNING.toString()),
+                new Attribute("binary", APPLE_ASSIGNMENT.getBinary()),
+                new Attribute("config", APPLE_ASSIGNMENT.getConfig())));
+    }
+
+    private static Set<UUID> slotIds(Iterable<ExpectedSlotStatus> expectedStates)
+    {
+        Set<UUID> slotIds = new HashSet<>();
+        for (ExpectedSlotStatus expectedState : expectedStates) {
+            slotIds.add(expectedState.getId());
+        }
+        return slotIds;
+    }
+}
@@ -0,0 +1,22 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestingTicker
+        extends Ticker
+{
+    private long time;
+
+    @Override
+    public long read()
+    {
+        return time;
+    }
+
+    public void advance(long value, TimeUnit timeUnit)
+    {
+        time += timeUnit.toNanos(value);
+    }
+}
@@ -13,6 +13,7 @@
  */
 package io.airlift.airship.integration;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Binder;
 import com.google.inject.Guice;
@@ -34,9 +35,12 @@ import io.airlift.airship.agent.Slot;
 import io.airlift.airship.coordinator.HttpRemoteAgent;
 import io.airlift.airship.coordinator.HttpRemoteSlot;
 import io.airlift.airship.coordinator.RemoteSlot;
+import io.airlift.airship.coordinator.SlotOperation;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.InstallationRepresentation;
+import io.airlift.airship.shared.ServiceInventoryDeltaRepresentation;
+import io.airlift.airship.shared.SlotEventsRepresentation;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.SlotStatusRepresentation;
 import io.airlift.http.client.ApacheHttpClient;
@@ -47,6 +51,7 @@ import io.airlift.jaxrs.JaxrsModule;
 import io.airlift.json.JsonCodec;
 import io.airlift.json.JsonModule;
 import io.airlift.node.testing.TestingNodeModule;
+import io.airlift.units.Duration;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
@@ -54,8 +59,10 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
@@ -127,10 +134,16 @@ public class TestRemoteSlot
                 agent.getAgentStatus(),
                 "test",
                 client,
+                client,
+                client,
+                new Duration(1, TimeUnit.SECONDS),
+                new Duration(5, TimeUnit.MINUTES),
                 JsonCodec.jsonCodec(InstallationRepresentation.class),
                 JsonCodec.jsonCodec(AgentStatusRepresentation.class),
                 JsonCodec.jsonCodec(SlotStatusRepresentation.class),
-                JsonCodec.jsonCodec(ServiceDescriptorsRepresentation.class));
+                JsonCodec.jsonCodec(ServiceDescriptorsRepresentation.class),
+                JsonCodec.jsonCodec(SlotEventsRepresentation.class),
+                JsonCodec.jsonCodec(ServiceInventoryDeltaRepresentation.class));
     }
 
     @BeforeMethod
@@ -266,4 +279,27 @@ public class TestRemoteSlot
         SlotStatus expected = status.changeAssignment(RUNNING, APPLE_ASSIGNMENT, status.getResources());
         assertEquals(actual, expected);
     }
+
+    @Test
+    public void testApplySlotOperations()
+            throws Exception
+    {
+        // setup
+        assertEquals(slot.assign(APPLE_INSTALLATION).getState(), STOPPED);
+        Slot otherSlot = agent.getSlot(agent.install(APPLE_INSTALLATION).getId());
+
+        // test
+        remoteAgent.setStatus(agent.getAgentStatus());
+        List<SlotStatus> actual = remoteAgent.applySlotOperations(ImmutableList.of(
+                SlotOperation.setState(slot.getId(), RUNNING),
+                SlotOperation.assign(otherSlot.getId(), BANANA_INSTALLATION)));
+
+        // verify
+        SlotStatus status = slot.status();
+        SlotStatus otherStatus = otherSlot.status();
+        assertEquals(actual, ImmutableList.of(
+                status.changeAssignment(RUNNING, APPLE_ASSIGNMENT, status.getResources()),
+                otherStatus.changeAssignment(STOPPED, BANANA_ASSIGNMENT, otherStatus.getResources())));
+        assertEquals(remoteAgent.status().getSlotStatus(slot.getId()), status);
+    }
 }
@@ -47,6 +47,13 @@ public class AgentStatusRepresentation
             this.repository = repository;
         }
 
+        public AgentStatusRepresentationFactory(List<AgentStatus> agentStatuses, IdPrefixIndex agentIdIndex, Repository repository)
+        {
+            this.shortIdPrefixSize = agentIdIndex.getShortestUniquePrefix(MIN_PREFIX_SIZE);
+            this.commonLocationParts = commonPrefixSegments('/', transform(agentStatuses, locationGetter("/")), MIN_LOCATION_SEGMENTS);
+            this.repository = repository;
+        }
+
         public AgentStatusRepresentationFactory(int shortIdPrefixSize, int commonLocationParts, Repository repository)
         {
             this.shortIdPrefixSize = shortIdPrefixSize;
@@ -93,6 +100,11 @@ public class AgentStatusRepresentation
         return fromAgentStatus(new AgentStatusRepresentationFactory(agentStatuses, repository));
     }
 
+    public static Function<AgentStatus, AgentStatusRepresentation> fromAgentStatus(List<AgentStatus> agentStatuses, IdPrefixIndex agentIdIndex, Repository repository)
+    {
+        return fromAgentStatus(new AgentStatusRepresentationFactory(agentStatuses, agentIdIndex, repository));
+    }
+
     public static Function<AgentStatus, AgentStatusRepresentation> fromAgentStatus(final AgentStatusRepresentationFactory factory)
     {
         return new Function<AgentStatus, AgentStatusRepresentation>()
@@ -0,0 +1,143 @@
+package io.airlift.airship.shared;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.google.common.collect.Maps.newTreeMap;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+
+/**
+ * Ids sorted by their lower case form, so a short id is expanded with a
+ * binary search instead of a scan of every id.
+ */
+@Immutable
+public class IdPrefixIndex
+{
+    public static IdPrefixIndex createUuidPrefixIndex(Iterable<UUID> uuids)
+    {
+        Preconditions.checkNotNull(uuids, "uuids is null");
+
+        ImmutableList.Builder<String> ids = ImmutableList.builder();
+        for (UUID uuid : uuids) {
+            if (uuid != null) {
+                ids.add(uuid.toString());
+            }
+        }
+        return new IdPrefixIndex(ids.build());
+    }
+
+    private final String[] keys;
+    private final String[] ids;
+    private final int longestCommonPrefix;
+
+    public IdPrefixIndex(Iterable<String> ids)
+    {
+        Preconditions.checkNotNull(ids, "ids is null");
+
+        Map<String, String> sortedIds = newTreeMap();
+        for (String id : ids) {
+            if (id != null) {
+                sortedIds.put(id.toLowerCase(), id);
+            }
+        }
+        this.keys = sortedIds.keySet().toArray(new String[sortedIds.size()]);
+        this.ids = sortedIds.values().toArray(new String[sortedIds.size()]);
+
+        // in sorted order the longest prefix shared with any other id is shared with a neighbor
+        int longestCommonPrefix = 0;
+        for (int i = 1; i < keys.length; i++) {
+            longestCommonPrefix = max(longestCommonPrefix, commonPrefixLength(keys[i - 1], keys[i]));
+        }
+        this.longestCommonPrefix = longestCommonPrefix;
+    }
+
+    public int size()
+    {
+        return keys.length;
+    }
+
+    /**
+     * Returns all ids starting with the prefix, ignoring case.
+     */
+    public List<String> expand(String prefix)
+    {
+        Preconditions.checkNotNull(prefix, "prefix is null");
+
+        String key = prefix.toLowerCase();
+        ImmutableList.Builder<String> matches = ImmutableList.builder();
+        for (int i = lowerBound(key); i < keys.length && keys[i].startsWith(key); i++) {
+            matches.add(ids[i]);
+        }
+        return matches.build();
+    }
+
+    /**
+     * Returns the single id starting with the short id, or null if there is no match.
+     *
+     * @throws IllegalArgumentException if more than one id starts with the short id
+     */
+    public String expandUnique(String shortId)
+    {
+        Preconditions.checkNotNull(shortId, "shortId is null");
+
+        String key = shortId.toLowerCase();
+        int index = lowerBound(key);
+        if (index >= keys.length || !keys[index].startsWith(key)) {
+            return null;
+        }
+        if (index + 1 < keys.length && keys[index + 1].startsWith(key)) {
+            throw new IllegalArgumentException(format("Ambiguous expansion for id '%s': %s", shortId, expand(shortId)));
+        }
+        return ids[index];
+    }
+
+    /**
+     * Returns the shortest prefix length that identifies every id, but not less than minSize.
+     */
+    public int getShortestUniquePrefix(int minSize)
+    {
+        Preconditions.checkArgument(minSize >= 0, "minSize is negative");
+        if (keys.length < 2) {
+            return minSize;
+        }
+        return max(longestCommonPrefix + 1, minSize);
+    }
+
+    private int lowerBound(String key)
+    {
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            index = -(index + 1);
+        }
+        return index;
+    }
+
+    private static int commonPrefixLength(String a, String b)
+    {
+        int length = min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("IdPrefixIndex");
+        sb.append("{size=").append(keys.length);
+        sb.append(", longestCommonPrefix=").append(longestCommonPrefix);
+        sb.append('}');
+        return sb.toString();
+    }
+}
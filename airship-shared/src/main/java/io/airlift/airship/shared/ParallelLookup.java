@@ -0,0 +1,186 @@
+package io.airlift.airship.shared;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+import io.airlift.units.Duration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs independent repository lookups at the same time, so looking in
+ * several places takes as long as the slowest lookup instead of the sum of
+ * all of them.  A failed lookup does not stop the others, but if none of
+ * them finds anything the failure is thrown, so an unanswered lookup is
+ * never mistaken for one that found nothing.  A lookup still running at
+ * the timeout fails the whole call.
+ */
+public class ParallelLookup
+{
+    private final Executor executor;
+    private final long timeoutNanos;
+
+    public ParallelLookup(Executor executor, Duration timeout)
+    {
+        Preconditions.checkNotNull(executor, "executor is null");
+        Preconditions.checkNotNull(timeout, "timeout is null");
+
+        this.executor = executor;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos((long) timeout.toMillis());
+    }
+
+    private ParallelLookup()
+    {
+        this.executor = null;
+        this.timeoutNanos = 0;
+    }
+
+    /**
+     * Returns a lookup that runs everything on the calling thread, one at a
+     * time, without a timeout.
+     */
+    public static ParallelLookup sequentialLookup()
+    {
+        return new ParallelLookup();
+    }
+
+    /**
+     * Returns the results of the lookups in the same order.  Lookups that
+     * found nothing or failed have a null result.  If a lookup failed and no
+     * other lookup found anything, the failure is thrown.
+     */
+    public <T> List<T> all(List<? extends Callable<T>> lookups)
+    {
+        Preconditions.checkNotNull(lookups, "lookups is null");
+
+        List<FutureTask<T>> tasks = start(lookups);
+        boolean parallel = isParallel(lookups);
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            boolean found = false;
+            Throwable failure = null;
+            for (FutureTask<T> task : tasks) {
+                T result = null;
+                try {
+                    result = await(task, parallel, deadline);
+                }
+                catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+                found |= result != null;
+                results.add(result);
+            }
+            if (failure != null && !found) {
+                throw Throwables.propagate(failure);
+            }
+            return Collections.unmodifiableList(results);
+        }
+        finally {
+            cancel(tasks);
+        }
+    }
+
+    /**
+     * Returns the first result in list order that is not null.  A later
+     * lookup only wins once every lookup before it has found nothing, so a
+     * slow lookup with priority is waited for, but a failed one is skipped.
+     * Once the result is known, the lookups after it are cancelled.  If a
+     * lookup failed and no lookup found anything, the failure is thrown.
+     */
+    public <T> T first(List<? extends Callable<T>> lookups)
+    {
+        Preconditions.checkNotNull(lookups, "lookups is null");
+
+        List<FutureTask<T>> tasks = start(lookups);
+        boolean parallel = isParallel(lookups);
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            Throwable failure = null;
+            for (FutureTask<T> task : tasks) {
+                try {
+                    T result = await(task, parallel, deadline);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+                catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+            if (failure != null) {
+                throw Throwables.propagate(failure);
+            }
+            return null;
+        }
+        finally {
+            cancel(tasks);
+        }
+    }
+
+    private boolean isParallel(List<?> lookups)
+    {
+        // a single lookup gains nothing from another thread
+        return executor != null && lookups.size() > 1;
+    }
+
+    private <T> List<FutureTask<T>> start(List<? extends Callable<T>> lookups)
+    {
+        boolean parallel = isParallel(lookups);
+        List<FutureTask<T>> tasks = new ArrayList<>(lookups.size());
+        for (Callable<T> lookup : lookups) {
+            FutureTask<T> task = new FutureTask<>(lookup);
+            tasks.add(task);
+            if (parallel) {
+                try {
+                    executor.execute(task);
+                }
+                catch (RejectedExecutionException e) {
+                    task.run();
+                }
+            }
+        }
+        return tasks;
+    }
+
+    private static <T> T await(FutureTask<T> task, boolean parallel, long deadline)
+            throws ExecutionException
+    {
+        try {
+            if (!parallel) {
+                // the task was not handed to the executor, so it runs here
+                task.run();
+                return task.get();
+            }
+            return task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            task.cancel(true);
+            throw new UncheckedTimeoutException("Repository lookup did not finish in time");
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static void cancel(List<? extends FutureTask<?>> tasks)
+    {
+        for (FutureTask<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+}
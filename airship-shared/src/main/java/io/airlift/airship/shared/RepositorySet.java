@@ -1,23 +1,35 @@
 package io.airlift.airship.shared;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 
 import javax.inject.Inject;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import static com.google.common.collect.Sets.newTreeSet;
 
 public class RepositorySet implements Repository
 {
     private final Set<Repository> repositories;
+    private final ParallelLookup parallelLookup;
 
-    @Inject
     public RepositorySet(Set<Repository> repositories)
+    {
+        this(repositories, ParallelLookup.sequentialLookup());
+    }
+
+    @Inject
+    public RepositorySet(Set<Repository> repositories, ParallelLookup parallelLookup)
     {
         Preconditions.checkNotNull(repositories, "repositories is null");
+        Preconditions.checkNotNull(parallelLookup, "parallelLookup is null");
         this.repositories = ImmutableSet.copyOf(repositories);
+        this.parallelLookup = parallelLookup;
     }
 
     @Override
@@ -56,15 +68,16 @@ public class RepositorySet implements Repository
     }
 
     @Override
-    public String configResolve(String config)
+    public String configResolve(final String config)
     {
-        Set<String> configs = newTreeSet();
-        for (Repository repository : repositories) {
-            String resolved = repository.configResolve(config);
-            if (resolved != null) {
-                configs.add(resolved);
+        Set<String> configs = lookupAll(new Function<Repository, String>()
+        {
+            @Override
+            public String apply(Repository repository)
+            {
+                return repository.configResolve(config);
             }
-        }
+        });
 
         if (configs.size() > 1) {
             throw new RuntimeException(String.format("Ambiguous config %s matched %s", config, configs));
@@ -79,15 +92,16 @@ public class RepositorySet implements Repository
 
 
     @Override
-    public String configUpgrade(String config, String version)
+    public String configUpgrade(final String config, final String version)
     {
-        Set<String> configs = newTreeSet();
-        for (Repository repository : repositories) {
-            String resolved = repository.configUpgrade(config, version);
-            if (resolved != null) {
-                configs.add(resolved);
+        Set<String> configs = lookupAll(new Function<Repository, String>()
+        {
+            @Override
+            public String apply(Repository repository)
+            {
+                return repository.configUpgrade(config, version);
             }
-        }
+        });
 
         if (configs.size() > 1) {
             throw new RuntimeException(String.format("Ambiguous upgrade version %s for config %s matched %s", version, config, configs));
@@ -112,15 +126,16 @@ public class RepositorySet implements Repository
     }
 
     @Override
-    public URI configToHttpUri(String config)
+    public URI configToHttpUri(final String config)
     {
-        Set<URI> httpUris = newTreeSet();
-        for (Repository repository : repositories) {
-            URI httpUri = repository.configToHttpUri(config);
-            if (httpUri != null) {
-                httpUris.add(httpUri);
+        Set<URI> httpUris = lookupAll(new Function<Repository, URI>()
+        {
+            @Override
+            public URI apply(Repository repository)
+            {
+                return repository.configToHttpUri(config);
             }
-        }
+        });
 
         if (httpUris.size() > 1) {
             throw new RuntimeException(String.format("Ambiguous config %s found %s", config, httpUris));
@@ -152,15 +167,16 @@ public class RepositorySet implements Repository
     }
 
     @Override
-    public String binaryResolve(String binary)
+    public String binaryResolve(final String binary)
     {
-        Set<String> binaries = newTreeSet();
-        for (Repository repository : repositories) {
-            String resolved = repository.binaryResolve(binary);
-            if (resolved != null) {
-                binaries.add(resolved);
+        Set<String> binaries = lookupAll(new Function<Repository, String>()
+        {
+            @Override
+            public String apply(Repository repository)
+            {
+                return repository.binaryResolve(binary);
             }
-        }
+        });
 
         if (binaries.size() > 1) {
             throw new RuntimeException(String.format("Ambiguous binary %s matched %s", binary, binaries));
@@ -174,15 +190,16 @@ public class RepositorySet implements Repository
     }
 
     @Override
-    public String binaryUpgrade(String binary, String version)
+    public String binaryUpgrade(final String binary, final String version)
     {
-        Set<String> binaries = newTreeSet();
-        for (Repository repository : repositories) {
-            String resolved = repository.binaryUpgrade(binary, version);
-            if (resolved != null) {
-                binaries.add(resolved);
+        Set<String> binaries = lookupAll(new Function<Repository, String>()
+        {
+            @Override
+            public String apply(Repository repository)
+            {
+                return repository.binaryUpgrade(binary, version);
             }
-        }
+        });
 
         if (binaries.size() > 1) {
             throw new RuntimeException(String.format("Ambiguous upgrade version %s for binary %s matched %s", version, binary, binaries));
@@ -207,15 +224,16 @@ public class RepositorySet implements Repository
     }
 
     @Override
-    public URI binaryToHttpUri(String binary)
+    public URI binaryToHttpUri(final String binary)
     {
-        Set<URI> httpUris = newTreeSet();
-        for (Repository repository : repositories) {
-            URI httpUri = repository.binaryToHttpUri(binary);
-            if (httpUri != null) {
-                httpUris.add(httpUri);
+        Set<URI> httpUris = lookupAll(new Function<Repository, URI>()
+        {
+            @Override
+            public URI apply(Repository repository)
+            {
+                return repository.binaryToHttpUri(binary);
             }
-        }
+        });
 
         if (httpUris.size() > 1) {
             throw new RuntimeException(String.format("Ambiguous binary %s found %s", binary, httpUris));
@@ -228,6 +246,32 @@ public class RepositorySet implements Repository
         return httpUris.iterator().next();
     }
 
+    /**
+     * Asks all repositories at once and returns the distinct answers.
+     */
+    private <T extends Comparable<T>> Set<T> lookupAll(final Function<Repository, T> lookup)
+    {
+        List<Callable<T>> lookups = new ArrayList<>();
+        for (final Repository repository : repositories) {
+            lookups.add(new Callable<T>()
+            {
+                @Override
+                public T call()
+                {
+                    return lookup.apply(repository);
+                }
+            });
+        }
+
+        Set<T> results = newTreeSet();
+        for (T result : parallelLookup.all(lookups)) {
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,104 @@
+package io.airlift.airship.shared;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.discovery.client.ServiceDescriptor;
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonMethod;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * Changes that turn the service inventory with version baseVersion into
+ * the service inventory with version version.  Descriptors are identified
+ * by their content version, so a changed descriptor is sent as the removal
+ * of the old descriptor and the addition of the new one.
+ */
+@JsonAutoDetect(JsonMethod.NONE)
+public class ServiceInventoryDeltaRepresentation
+{
+    private final String environment;
+    private final String baseVersion;
+    private final String version;
+    private final List<ServiceDescriptor> added;
+    private final List<String> removed;
+
+    @JsonCreator
+    public ServiceInventoryDeltaRepresentation(
+            @JsonProperty("environment") String environment,
+            @JsonProperty("baseVersion") String baseVersion,
+            @JsonProperty("version") String version,
+            @JsonProperty("added") List<ServiceDescriptor> added,
+            @JsonProperty("removed") List<String> removed)
+    {
+        this.environment = environment;
+        this.baseVersion = baseVersion;
+        this.version = version;
+        if (added != null) {
+            this.added = ImmutableList.copyOf(added);
+        }
+        else {
+            this.added = ImmutableList.of();
+        }
+        if (removed != null) {
+            this.removed = ImmutableList.copyOf(removed);
+        }
+        else {
+            this.removed = ImmutableList.of();
+        }
+    }
+
+    @JsonProperty
+    @NotNull
+    public String getEnvironment()
+    {
+        return environment;
+    }
+
+    @JsonProperty
+    @NotNull
+    public String getBaseVersion()
+    {
+        return baseVersion;
+    }
+
+    @JsonProperty
+    @NotNull
+    public String getVersion()
+    {
+        return version;
+    }
+
+    @JsonProperty
+    @NotNull
+    public List<ServiceDescriptor> getAdded()
+    {
+        return added;
+    }
+
+    /**
+     * Versions of the descriptors to remove.
+     */
+    @JsonProperty
+    @NotNull
+    public List<String> getRemoved()
+    {
+        return removed;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("ServiceInventoryDeltaRepresentation");
+        sb.append("{environment='").append(environment).append('\'');
+        sb.append(", baseVersion='").append(baseVersion).append('\'');
+        sb.append(", version='").append(version).append('\'');
+        sb.append(", added=").append(added);
+        sb.append(", removed=").append(removed);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package io.airlift.airship.shared;
+
+import com.google.common.collect.ImmutableList;
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonMethod;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+@JsonAutoDetect(JsonMethod.NONE)
+public class SlotEventsRepresentation
+{
+    private final String streamId;
+    private final long sequence;
+    private final boolean resync;
+    private final List<SlotStatusRepresentation> slots;
+
+    @JsonCreator
+    public SlotEventsRepresentation(
+            @JsonProperty("streamId") String streamId,
+            @JsonProperty("sequence") long sequence,
+            @JsonProperty("resync") boolean resync,
+            @JsonProperty("slots") List<SlotStatusRepresentation> slots)
+    {
+        this.streamId = streamId;
+        this.sequence = sequence;
+        this.resync = resync;
+        if (slots != null) {
+            this.slots = ImmutableList.copyOf(slots);
+        }
+        else {
+            this.slots = ImmutableList.of();
+        }
+    }
+
+    @JsonProperty
+    @NotNull
+    public String getStreamId()
+    {
+        return streamId;
+    }
+
+    @JsonProperty
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * True when the requested position is no longer available in the stream
+     * and the caller must fetch the full agent status before continuing.
+     */
+    @JsonProperty
+    public boolean isResync()
+    {
+        return resync;
+    }
+
+    @JsonProperty
+    @NotNull
+    public List<SlotStatusRepresentation> getSlots()
+    {
+        return slots;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("SlotEventsRepresentation");
+        sb.append("{streamId='").append(streamId).append('\'');
+        sb.append(", sequence=").append(sequence);
+        sb.append(", resync=").append(resync);
+        sb.append(", slots=").append(slots);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package io.airlift.airship.shared;
+
+import com.google.common.base.Preconditions;
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonMethod;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import javax.validation.constraints.NotNull;
+import java.util.UUID;
+
+/**
+ * One entry of a batch sent to the agent: either a lifecycle change (state is
+ * one of running, restarting or stopped) or a new assignment for the slot.
+ */
+@JsonAutoDetect(JsonMethod.NONE)
+public class SlotOperationRepresentation
+{
+    private final UUID slotId;
+    private final String slotVersion;
+    private final String state;
+    private final InstallationRepresentation installation;
+
+    public static SlotOperationRepresentation setState(UUID slotId, String slotVersion, SlotLifecycleState state)
+    {
+        Preconditions.checkNotNull(state, "state is null");
+        return new SlotOperationRepresentation(slotId, slotVersion, state.name().toLowerCase(), null);
+    }
+
+    public static SlotOperationRepresentation assign(UUID slotId, String slotVersion, Installation installation)
+    {
+        Preconditions.checkNotNull(installation, "installation is null");
+        return new SlotOperationRepresentation(slotId, slotVersion, null, InstallationRepresentation.from(installation));
+    }
+
+    @JsonCreator
+    public SlotOperationRepresentation(
+            @JsonProperty("slotId") UUID slotId,
+            @JsonProperty("slotVersion") String slotVersion,
+            @JsonProperty("state") String state,
+            @JsonProperty("installation") InstallationRepresentation installation)
+    {
+        this.slotId = slotId;
+        this.slotVersion = slotVersion;
+        this.state = state;
+        this.installation = installation;
+    }
+
+    @JsonProperty
+    @NotNull(message = "is missing")
+    public UUID getSlotId()
+    {
+        return slotId;
+    }
+
+    @JsonProperty
+    public String getSlotVersion()
+    {
+        return slotVersion;
+    }
+
+    @JsonProperty
+    public String getState()
+    {
+        return state;
+    }
+
+    @JsonProperty
+    public InstallationRepresentation getInstallation()
+    {
+        return installation;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("SlotOperationRepresentation");
+        sb.append("{slotId=").append(slotId);
+        sb.append(", slotVersion='").append(slotVersion).append('\'');
+        sb.append(", state='").append(state).append('\'');
+        sb.append(", installation=").append(installation);
+        sb.append('}');
+        return sb.toString();
+    }
+}
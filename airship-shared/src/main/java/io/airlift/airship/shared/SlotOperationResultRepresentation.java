@@ -0,0 +1,101 @@
+package io.airlift.airship.shared;
+
+import com.google.common.base.Objects;
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonMethod;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import javax.validation.constraints.NotNull;
+import java.util.UUID;
+
+/**
+ * Outcome of one operation in a batch.  A failed operation has an error and,
+ * when the slot exists, its current status.
+ */
+@JsonAutoDetect(JsonMethod.NONE)
+public class SlotOperationResultRepresentation
+{
+    private final UUID slotId;
+    private final SlotStatusRepresentation status;
+    private final String error;
+
+    public static SlotOperationResultRepresentation success(SlotStatus slotStatus)
+    {
+        return new SlotOperationResultRepresentation(slotStatus.getId(), SlotStatusRepresentation.from(slotStatus), null);
+    }
+
+    public static SlotOperationResultRepresentation failure(UUID slotId, SlotStatus slotStatus, String error)
+    {
+        return new SlotOperationResultRepresentation(slotId, slotStatus == null ? null : SlotStatusRepresentation.from(slotStatus), error);
+    }
+
+    @JsonCreator
+    public SlotOperationResultRepresentation(
+            @JsonProperty("slotId") UUID slotId,
+            @JsonProperty("status") SlotStatusRepresentation status,
+            @JsonProperty("error") String error)
+    {
+        this.slotId = slotId;
+        this.status = status;
+        this.error = error;
+    }
+
+    @JsonProperty
+    @NotNull(message = "is missing")
+    public UUID getSlotId()
+    {
+        return slotId;
+    }
+
+    @JsonProperty
+    public SlotStatusRepresentation getStatus()
+    {
+        return status;
+    }
+
+    @JsonProperty
+    public String getError()
+    {
+        return error;
+    }
+
+    public boolean isSuccess()
+    {
+        return error == null;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        SlotOperationResultRepresentation that = (SlotOperationResultRepresentation) o;
+        return Objects.equal(slotId, that.slotId) &&
+                Objects.equal(status, that.status) &&
+                Objects.equal(error, that.error);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(slotId, status, error);
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("SlotOperationResultRepresentation");
+        sb.append("{slotId=").append(slotId);
+        sb.append(", status=").append(status);
+        sb.append(", error='").append(error).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
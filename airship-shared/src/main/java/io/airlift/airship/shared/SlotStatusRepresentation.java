@@ -59,6 +59,13 @@ public class SlotStatusRepresentation
             this.repository = repository;
         }
 
+        public SlotStatusRepresentationFactory(List<SlotStatus> slotStatuses, IdPrefixIndex slotIdIndex, Repository repository)
+        {
+            this.shortIdPrefixSize = slotIdIndex.getShortestUniquePrefix(MIN_PREFIX_SIZE);
+            this.commonLocationParts = commonPrefixSegments('/', transform(slotStatuses, locationGetter()), MIN_LOCATION_SEGMENTS);
+            this.repository = repository;
+        }
+
         public SlotStatusRepresentationFactory(int shortIdPrefixSize, int commonLocationParts, Repository repository)
         {
             this.shortIdPrefixSize = shortIdPrefixSize;
@@ -143,6 +150,11 @@ public class SlotStatusRepresentation
         return fromSlotStatus(new SlotStatusRepresentationFactory(slotStatuses, repository));
     }
 
+    public static Function<SlotStatus, SlotStatusRepresentation> fromSlotStatus(List<SlotStatus> slotStatuses, IdPrefixIndex slotIdIndex, Repository repository)
+    {
+        return fromSlotStatus(new SlotStatusRepresentationFactory(slotStatuses, slotIdIndex, repository));
+    }
+
     public static Function<SlotStatus, SlotStatusRepresentation> fromSlotStatus(final SlotStatusRepresentationFactory factory)
     {
         return new Function<SlotStatus, SlotStatusRepresentation>()
@@ -3,11 +3,14 @@ package io.airlift.airship.shared;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSortedMap;
+import io.airlift.discovery.client.ServiceDescriptor;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 
 public class VersionsUtil
@@ -20,6 +23,10 @@ public class VersionsUtil
 
     public static final String AIRSHIP_COORDINATOR_VERSION_HEADER = "x-airship-coordinator-version";
 
+    public static final String AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER = "x-airship-service-inventory-version";
+
+    public static final String AIRSHIP_NEXT_CURSOR_HEADER = "x-airship-next-cursor";
+
     private VersionsUtil()
     {
     }
@@ -128,6 +135,49 @@ public class VersionsUtil
         return DigestUtils.md5Hex(agentVersions.values().toString());
     }
 
+    public static String createServiceDescriptorVersion(ServiceDescriptor serviceDescriptor)
+    {
+        Preconditions.checkNotNull(serviceDescriptor, "serviceDescriptor is null");
+
+        List<Object> parts = new ArrayList<Object>();
+        parts.add(serviceDescriptor.getId());
+        parts.add(serviceDescriptor.getNodeId());
+        parts.add(serviceDescriptor.getType());
+        parts.add(serviceDescriptor.getPool());
+        parts.add(serviceDescriptor.getLocation());
+        parts.add(serviceDescriptor.getState());
+
+        // canonicalize properties
+        parts.add(Joiner.on("--").withKeyValueSeparator("=").useForNull("--NULL--").join(ImmutableSortedMap.copyOf(serviceDescriptor.getProperties())));
+
+        String data = Joiner.on("||").useForNull("--NULL--").join(parts);
+        return DigestUtils.md5Hex(data);
+    }
+
+    public static String createServiceInventoryVersion(Iterable<ServiceDescriptor> serviceDescriptors)
+    {
+        Preconditions.checkNotNull(serviceDescriptors, "serviceDescriptors is null");
+
+        // descriptors are not required to have an id, so they are identified by content
+        List<String> descriptorVersions = new ArrayList<String>();
+        for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            descriptorVersions.add(createServiceDescriptorVersion(serviceDescriptor));
+        }
+        return createServiceInventoryVersionFromDescriptorVersions(descriptorVersions);
+    }
+
+    public static String createServiceInventoryVersionFromDescriptorVersions(Iterable<String> descriptorVersions)
+    {
+        Preconditions.checkNotNull(descriptorVersions, "descriptorVersions is null");
+
+        // canonicalize descriptor order
+        Set<String> sortedVersions = new TreeSet<String>();
+        for (String descriptorVersion : descriptorVersions) {
+            sortedVersions.add(descriptorVersion);
+        }
+        return DigestUtils.md5Hex(sortedVersions.toString());
+    }
+
     public static String createVersion(String coordinatorId, CoordinatorLifecycleState state)
     {
         List<Object> parts = new ArrayList<Object>();
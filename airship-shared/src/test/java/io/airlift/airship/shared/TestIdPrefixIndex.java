@@ -0,0 +1,75 @@
+package io.airlift.airship.shared;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static com.google.common.collect.ImmutableList.of;
+import static io.airlift.airship.shared.IdPrefixIndex.createUuidPrefixIndex;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestIdPrefixIndex
+{
+    @Test
+    public void testExpand()
+    {
+        IdPrefixIndex index = new IdPrefixIndex(Arrays.asList("apple", "Apricot", "banana", null));
+        assertEquals(index.size(), 3);
+        assertEquals(index.expand("a"), of("apple", "Apricot"));
+        assertEquals(index.expand("AP"), of("apple", "Apricot"));
+        assertEquals(index.expand("apr"), of("Apricot"));
+        assertEquals(index.expand("banana"), of("banana"));
+        assertEquals(index.expand("bananas"), ImmutableList.<String>of());
+        assertEquals(index.expand("c"), ImmutableList.<String>of());
+        assertEquals(index.expand(""), of("apple", "Apricot", "banana"));
+    }
+
+    @Test
+    public void testExpandUnique()
+    {
+        IdPrefixIndex index = new IdPrefixIndex(of("apple", "Apricot", "banana"));
+        assertEquals(index.expandUnique("app"), "apple");
+        assertEquals(index.expandUnique("APR"), "Apricot");
+        assertEquals(index.expandUnique("b"), "banana");
+        assertNull(index.expandUnique("cherry"));
+        assertNull(index.expandUnique("zzz"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Ambiguous expansion for id 'ap'.*")
+    public void testExpandAmbiguous()
+    {
+        new IdPrefixIndex(of("apple", "Apricot", "banana")).expandUnique("ap");
+    }
+
+    @Test
+    public void testExpandUuid()
+    {
+        UUID uuid = UUID.fromString("12345678-1234-1234-1234-123456789abc");
+        IdPrefixIndex index = createUuidPrefixIndex(of(uuid, UUID.fromString("12349999-1234-1234-1234-123456789abc")));
+        assertEquals(index.expandUnique("12345"), uuid.toString());
+        assertEquals(index.expandUnique("12345678-1234-1234-1234-123456789ABC"), uuid.toString());
+        assertEquals(index.getShortestUniquePrefix(4), 5);
+    }
+
+    @Test
+    public void testShortestUniquePrefix()
+    {
+        // matches Strings.shortestUniquePrefix
+        assertEquals(new IdPrefixIndex(of("aa", "aaa")).getShortestUniquePrefix(1), 3);
+        assertEquals(new IdPrefixIndex(of("a")).getShortestUniquePrefix(1), 1);
+        assertEquals(new IdPrefixIndex(of("aaaaa")).getShortestUniquePrefix(1), 1);
+        assertEquals(new IdPrefixIndex(of("a", "b", "c")).getShortestUniquePrefix(1), 1);
+        assertEquals(new IdPrefixIndex(of("axxxxx", "b", "c")).getShortestUniquePrefix(1), 1);
+        assertEquals(new IdPrefixIndex(of("ax", "ay", "cx")).getShortestUniquePrefix(1), 2);
+        assertEquals(new IdPrefixIndex(of("axxx", "ayyyy", "cxxxx")).getShortestUniquePrefix(1), 2);
+        assertEquals(new IdPrefixIndex(of("aaaax", "aaaay")).getShortestUniquePrefix(1), 5);
+        assertEquals(new IdPrefixIndex(of("aaaaxx", "aaaayx", "ccc")).getShortestUniquePrefix(1), 5);
+        assertEquals(new IdPrefixIndex(of("a1", "b2", "b3", "b4", "b5")).getShortestUniquePrefix(1), 2);
+
+        assertEquals(new IdPrefixIndex(of("ax", "ay", "cx")).getShortestUniquePrefix(4), 4);
+        assertEquals(new IdPrefixIndex(ImmutableList.<String>of()).getShortestUniquePrefix(4), 4);
+    }
+}
@@ -0,0 +1,165 @@
+package io.airlift.airship.shared;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestParallelLookup
+{
+    private ExecutorService executor;
+    private ParallelLookup parallelLookup;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = Executors.newCachedThreadPool();
+        parallelLookup = new ParallelLookup(executor, new Duration(1, TimeUnit.SECONDS));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAllKeepsOrder()
+    {
+        List<Callable<String>> lookups = ImmutableList.of(lookup("a", 50), lookup(null, 0), lookup("c", 0));
+        assertEquals(parallelLookup.all(lookups), Arrays.asList("a", null, "c"));
+        assertEquals(ParallelLookup.sequentialLookup().all(lookups), Arrays.asList("a", null, "c"));
+    }
+
+    @Test
+    public void testAllRunsAtTheSameTime()
+    {
+        // each lookup waits for all of the others, so this only finishes if they run together
+        final CountDownLatch latch = new CountDownLatch(3);
+        Callable<Boolean> lookup = new Callable<Boolean>()
+        {
+            @Override
+            public Boolean call()
+                    throws Exception
+            {
+                latch.countDown();
+                return latch.await(1, TimeUnit.SECONDS);
+            }
+        };
+        assertEquals(parallelLookup.all(ImmutableList.of(lookup, lookup, lookup)), ImmutableList.of(true, true, true));
+    }
+
+    @Test
+    public void testFirstUsesListOrder()
+    {
+        // the later lookup finishes first, but the earlier one has priority
+        List<Callable<String>> lookups = ImmutableList.of(lookup(null, 0), lookup("b", 100), lookup("c", 0));
+        assertEquals(parallelLookup.first(lookups), "b");
+        assertEquals(ParallelLookup.sequentialLookup().first(lookups), "b");
+
+        assertNull(parallelLookup.first(ImmutableList.of(lookup(null, 0), lookup(null, 0))));
+    }
+
+    @Test
+    public void testTimeoutFails()
+    {
+        ParallelLookup lookup = new ParallelLookup(executor, new Duration(100, TimeUnit.MILLISECONDS));
+
+        long start = System.nanoTime();
+        assertTimesOut(lookup, ImmutableList.of(lookup("a", 0), lookup("b", 10000)), false);
+
+        // a timed out lookup with priority is not skipped for a later result
+        assertTimesOut(lookup, ImmutableList.of(lookup("a", 10000), lookup("b", 0)), true);
+        assertTrue(Duration.nanosSince(start).toMillis() < 5000);
+    }
+
+    @Test
+    public void testFailurePropagates()
+    {
+        // with nothing found, the failure is not mistaken for a miss
+        assertFails(parallelLookup, ImmutableList.of(lookup(null, 0), failure()), false);
+        assertFails(parallelLookup, ImmutableList.of(failure(), lookup(null, 0)), true);
+        assertFails(ParallelLookup.sequentialLookup(), ImmutableList.of(failure(), lookup(null, 0)), true);
+    }
+
+    @Test
+    public void testFailureFallsThrough()
+    {
+        // a failed lookup does not hide a result from the others
+        assertEquals(parallelLookup.all(ImmutableList.of(lookup("a", 0), failure())), Arrays.asList("a", null));
+        assertEquals(parallelLookup.first(ImmutableList.of(failure(), lookup("b", 50))), "b");
+        assertEquals(ParallelLookup.sequentialLookup().first(ImmutableList.of(failure(), lookup("b", 0))), "b");
+    }
+
+    private static void assertFails(ParallelLookup parallelLookup, List<Callable<String>> lookups, boolean first)
+    {
+        try {
+            if (first) {
+                parallelLookup.first(lookups);
+            }
+            else {
+                parallelLookup.all(lookups);
+            }
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "lookup failed");
+        }
+    }
+
+    private static void assertTimesOut(ParallelLookup parallelLookup, List<Callable<String>> lookups, boolean first)
+    {
+        try {
+            if (first) {
+                parallelLookup.first(lookups);
+            }
+            else {
+                parallelLookup.all(lookups);
+            }
+            fail("expected UncheckedTimeoutException");
+        }
+        catch (UncheckedTimeoutException expected) {
+        }
+    }
+
+    private static Callable<String> failure()
+    {
+        return new Callable<String>()
+        {
+            @Override
+            public String call()
+            {
+                throw new IllegalStateException("lookup failed");
+            }
+        };
+    }
+
+    private static Callable<String> lookup(final String result, final long delayMillis)
+    {
+        return new Callable<String>()
+        {
+            @Override
+            public String call()
+                    throws Exception
+            {
+                Thread.sleep(delayMillis);
+                return result;
+            }
+        };
+    }
+}